@@ -0,0 +1,74 @@
+package simulation;
+
+import simulation.entities.Cup;
+import simulation.entities.Robot;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.script.ScriptException;
+
+/**
+ * Builds the arenas shared by the benchmarks: the demonstration arena of
+ * {@link SimulationBuilder#demoSetUp(Simulator)} and crowded copies of it.
+ *
+ * @author Simon
+ */
+public final class BenchArenas {
+    private static final long SEED   = 20110801L;
+    private static final int  TRIES  = 10000;
+
+    private BenchArenas() {}
+
+    /**
+     * A headless simulation of the demonstration arena with a fixed seed
+     * @param scale How many of each demonstration robot and cup to place. At
+     * 1 this is the plain demonstration arena, above it extra copies are
+     * dropped at free spots chosen by a fixed seed.
+     * @return The simulation, ready to step
+     * @throws IOException If a demonstration brain can't be read
+     * @throws ScriptException If a demonstration brain can't be run
+     */
+    public static Simulator demo(int scale) throws IOException, ScriptException {
+        Simulator sim = new Simulator(true);
+
+        SimulationBuilder.demoSetUp(sim);
+        sim.setSeed(SEED);
+
+        Random      rand   = new Random(SEED);
+        Rectangle2D bounds = sim.getEnvironment().getBounds2D();
+        List<Robot> robots = new ArrayList<Robot>(sim.getRobots());
+        List<Cup>   cups   = new ArrayList<Cup>(sim.getThings());
+
+        for (int copy = 1; copy < scale; copy++) {
+            for (Robot robot : robots) {
+                Robot extra = new Robot(robot);
+
+                for (int i = 0; i < TRIES; i++) {
+                    extra.place(bounds.getX() + rand.nextDouble() * bounds.getWidth(),
+                                bounds.getY() + rand.nextDouble() * bounds.getHeight());
+
+                    if (sim.addRobot(extra)) {
+                        break;
+                    }
+                }
+            }
+
+            for (Cup cup : cups) {
+                Cup extra = new Cup(cup);
+
+                for (int i = 0; i < TRIES; i++) {
+                    extra.place(bounds.getX() + rand.nextDouble() * bounds.getWidth(),
+                                bounds.getY() + rand.nextDouble() * bounds.getHeight());
+
+                    if (sim.addInanimate(extra)) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        return sim;
+    }
+}
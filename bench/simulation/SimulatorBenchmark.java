@@ -0,0 +1,51 @@
+package simulation;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.script.ScriptException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times one step of the whole simulation on the demonstration arena and on
+ * crowded copies of it. The arena is rebuilt for every iteration so that
+ * robots wedged in corners late in one iteration don't skew the next.
+ *
+ * @author Simon
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SimulatorBenchmark {
+    @Param({ "1", "4", "16" })
+    private int       scale;
+    @Param({ "false", "true" })
+    private boolean   parallelSensing;
+    private Simulator sim;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException, ScriptException {
+        sim = BenchArenas.demo(scale);
+        sim.setParallelSensing(parallelSensing);
+    }
+
+    @Benchmark
+    public Simulator gameLoop() {
+        sim.gameLoop();
+
+        return sim;
+    }
+}
@@ -0,0 +1,27 @@
+package simulation.entities;
+
+import simulation.entities.behaviour.Behaviour;
+import simulation.entities.behaviour.Bounce;
+import simulation.sensors.DistanceSensor;
+
+/**
+ * The behaviour robot of brain2-behaviours.rb written as a Java brain, to
+ * compare against the Ruby one.
+ *
+ * @author Simon
+ */
+public class BounceBrain extends SimBrain {
+    private final Behaviour forward;
+
+    public BounceBrain() {
+        DistanceSensor front = addSensor(new DistanceSensor(0));
+        DistanceSensor rear  = addSensor(new DistanceSensor(Math.PI));
+
+        forward = new Bounce(front, rear);
+    }
+
+    @Override
+    public void update() {
+        setOutput(forward.update());
+    }
+}
@@ -0,0 +1,58 @@
+package simulation.entities;
+
+import simulation.BenchArenas;
+import simulation.Simulator;
+import simulation.geometry.XPoint;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.script.ScriptException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times the call into a robot's brain script made once per robot per step,
+ * for each of the demonstration brains, and for a brain written in Java
+ * ({@link BounceBrain}) as brain 3.
+ *
+ * @author Simon
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RobotBenchmark {
+    @Param({ "0", "1", "2", "3" })
+    private int   brain;
+    private Robot robot;
+
+    @Setup
+    public void setUp() throws IOException, ScriptException {
+        Simulator   sim    = BenchArenas.demo(1);
+        List<Robot> robots = new ArrayList<Robot>(sim.getRobots());
+
+        if (brain < robots.size()) {
+            robot = robots.get(brain);
+        } else {
+            robot = new Robot(JavaBrains.PREFIX + BounceBrain.class.getName(), "Bouncer", new XPoint(500, 500), 0);
+            sim.addRobot(robot);
+        }
+    }
+
+    @Benchmark
+    public RobotOutput update() throws ScriptException {
+        return robot.update();
+    }
+}
@@ -0,0 +1,89 @@
+package simulation.geometry;
+
+import simulation.BenchArenas;
+import simulation.Simulator;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.script.ScriptException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times the hit detection and friction queries made for every robot on every
+ * step, against the terrain of the demonstration arena. Each call is given
+ * the next of a fixed set of robot sized probes spread over the arena, so
+ * both hits and misses are measured.
+ *
+ * @author Simon
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class GeometryBenchmark {
+    private static final int PROBES = 256;
+
+    @Param({ "area", "convex" })
+    private String          engineName;
+    private CollisionEngine engine;
+    private Environment     env;
+    private Entity          terrain;
+    private RigidBody[]     probes;
+    private int             next;
+
+    @Setup
+    public void setUp() throws IOException, ScriptException {
+        Simulator sim = BenchArenas.demo(1);
+
+        env     = sim.getEnvironment();
+        engine  = "convex".equals(engineName) ? new ConvexCollisionEngine() : new AreaCollisionEngine();
+        terrain = env.getImpassableTerrain().iterator().next();
+        probes  = new RigidBody[PROBES];
+
+        Random      rand   = new Random(PROBES);
+        Rectangle2D bounds = env.getBounds2D();
+
+        for (int i = 0; i < PROBES; i++) {
+            RigidBody probe = new RigidBody(0, 0, 40, 60);
+
+            probe.place(bounds.getX() + rand.nextDouble() * bounds.getWidth(),
+                        bounds.getY() + rand.nextDouble() * bounds.getHeight());
+            probe.rotate(rand.nextDouble() * 2 * Math.PI);
+            probes[i] = probe;
+        }
+    }
+
+    private RigidBody nextProbe() {
+        next = (next + 1) % PROBES;
+
+        return probes[next];
+    }
+
+    @Benchmark
+    public boolean intersects() {
+        return engine.intersects(terrain, nextProbe());
+    }
+
+    @Benchmark
+    public Collision obstructs() {
+        return env.obstructs(nextProbe(), engine);
+    }
+
+    @Benchmark
+    public double getCoefficient() {
+        return env.getCoefficient(nextProbe());
+    }
+}
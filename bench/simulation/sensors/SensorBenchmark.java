@@ -0,0 +1,99 @@
+package simulation.sensors;
+
+import simulation.BenchArenas;
+import simulation.Simulator;
+import simulation.entities.Cup;
+import simulation.entities.Robot;
+import simulation.geometry.Environment;
+import simulation.geometry.SpatialGrid;
+import simulation.geometry.XPoint;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.script.ScriptException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times one reading of each kind of sensor, mounted on the first robot of
+ * the demonstration arena.
+ *
+ * @author Simon
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SensorBenchmark {
+    @Param({ "bumper", "camera", "collection", "compass", "cup", "distance", "encoder", "gps", "robotCamera",
+             "robotRadar", "terrain", "velocity" })
+    private String             kind;
+    private Sensor             sensor;
+    private Robot              robot;
+    private Environment        env;
+    private SpatialGrid<Robot> robots;
+    private SpatialGrid<Cup>   cups;
+
+    @Setup
+    public void setUp() throws IOException, ScriptException {
+        Simulator sim = BenchArenas.demo(4);
+
+        env    = sim.getEnvironment();
+        robots = new SpatialGrid<Robot>();
+        cups   = new SpatialGrid<Cup>();
+
+        // The simulator isn't stepped so its entities may be moved to new grids
+        robots.addAll(sim.getRobots());
+        cups.addAll(sim.getThings());
+        robot  = robots.iterator().next();
+        sensor = create(kind);
+    }
+
+    private static Sensor create(String kind) {
+        if ("bumper".equals(kind)) {
+            return new Bumper(0, 20, 10);
+        } else if ("camera".equals(kind)) {
+            return new Camera();
+        } else if ("collection".equals(kind)) {
+            return new CollectionSensor();
+        } else if ("compass".equals(kind)) {
+            return new CompassSensor();
+        } else if ("cup".equals(kind)) {
+            return new CupSensor(0, 800);
+        } else if ("distance".equals(kind)) {
+            return new DistanceSensor();
+        } else if ("encoder".equals(kind)) {
+            return new Encoder();
+        } else if ("gps".equals(kind)) {
+            return new GPS(0.1);
+        } else if ("robotCamera".equals(kind)) {
+            return new RobotCamera(0, 400, 400);
+        } else if ("robotRadar".equals(kind)) {
+            return new RobotRadar(new XPoint());
+        } else if ("terrain".equals(kind)) {
+            return new TerrainSensor();
+        } else if ("velocity".equals(kind)) {
+            return new VelocitySensor(0.1);
+        }
+
+        throw new IllegalArgumentException("No such sensor: " + kind);
+    }
+
+    @Benchmark
+    public Sensor analyse() {
+        sensor.setObject(robot);
+        sensor.analyse(env, robots, cups);
+
+        return sensor;
+    }
+}
@@ -8,9 +8,12 @@ import simulation.entities.Cup;
 import simulation.entities.Robot;
 
 import java.util.Collection;
+import java.util.List;
 
 import javax.script.ScriptException;
+import simulation.BudgetExceededException;
 import simulation.Scheduler;
+import simulation.WorldSnapshot;
 
 /**
  * Defines the publishing/observable functionality of a Simulator. Subscribers
@@ -58,6 +61,13 @@ public interface SimulatorPublisher {
      */
     double getTimeElapsed();
 
+    /**
+     * Returns the latest snapshot of the simulation, for painting without
+     * holding up the simulation.
+     * @return The latest snapshot
+     */
+    WorldSnapshot getSnapshot();
+
     /**
      * If this is null all is well. If a
      * ScriptException object is returned then
@@ -65,6 +75,13 @@ public interface SimulatorPublisher {
      * @return The current issue.
      */
     ScriptException getIssue();
+
+    /**
+     * Returns the brain time budget overruns since the last call, which are
+     * then cleared. Brains which are hung are included while still running.
+     * @return The latest overrun of each robot which overran
+     */
+    List<BudgetExceededException> getOverruns();
     /**
      * Determines whether the RigidBody is in the Simulator.
      * @param RigidBody object
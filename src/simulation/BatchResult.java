@@ -0,0 +1,130 @@
+package simulation;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The outcome of one run of a {@link BatchRunner}.
+ *
+ * @author Simon
+ */
+public class BatchResult {
+    private final String               name;
+    private final long                 seed;
+    private final double               timeElapsed;
+    private final long                 collisions;
+    private final long                 overruns;
+    private final Map<String, Integer> cups;
+    private final String               error;
+    private final double               wallTime;
+
+    /**
+     * @param name The name the run was given
+     * @param seed The seed of the run's noise
+     * @param timeElapsed The simulated time covered by the run in seconds
+     * @param collisions The number of collisions during the run
+     * @param overruns The number of times a brain overran its time budget
+     * @param cups The number of cups held by each robot at the end of the run
+     * @param error The script or set up error which ended the run, or null
+     * @param wallTime The real time the run took in seconds
+     */
+    BatchResult(String name, long seed, double timeElapsed, long collisions, long overruns, Map<String, Integer> cups,
+                String error, double wallTime) {
+        this.name        = name;
+        this.seed        = seed;
+        this.timeElapsed = timeElapsed;
+        this.collisions  = collisions;
+        this.overruns    = overruns;
+        this.cups        = Collections.unmodifiableMap(new LinkedHashMap<String, Integer>(cups));
+        this.error       = error;
+        this.wallTime    = wallTime;
+    }
+
+    /**
+     * @return The name the run was given
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The seed of the run's noise, which repeats the run when passed
+     * to {@link BatchRunner#add(String, BatchRunner.Scenario, double, long)}
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The simulated time covered by the run in seconds. This is less
+     * than was asked for if a script error stopped the run early.
+     */
+    public double getTimeElapsed() {
+        return timeElapsed;
+    }
+
+    /**
+     * @return The number of times a robot ran into something
+     */
+    public long getCollisions() {
+        return collisions;
+    }
+
+    /**
+     * @return The number of times a robot's brain overran its time budget
+     * @see BrainWatchdog
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * @return The total number of cups collected by all robots
+     */
+    public int getCupsCollected() {
+        int total = 0;
+
+        for (int count : cups.values()) {
+            total += count;
+        }
+
+        return total;
+    }
+
+    /**
+     * @return The number of cups held by each robot, by robot name, in the
+     * order the robots were added
+     */
+    public Map<String, Integer> getCupsByRobot() {
+        return cups;
+    }
+
+    /**
+     * @return The message of the error which ended the run, or null if the
+     * run completed
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return True if the run was ended by an error
+     */
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    /**
+     * @return The real time taken by the run in seconds
+     */
+    public double getWallTime() {
+        return wallTime;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + getCupsCollected() + " cups, " + collisions + " collisions in " + timeElapsed + "s"
+               + ((overruns == 0) ? "" : ", " + overruns + " brain overruns") + ((error == null) ? "" : " (" + error + ")");
+    }
+}
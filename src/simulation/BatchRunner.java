@@ -0,0 +1,247 @@
+package simulation;
+
+import simulation.entities.Cup;
+import simulation.entities.Robot;
+import simulation.geometry.Environment;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import javax.script.ScriptException;
+
+/**
+ * BatchRunner runs many independent simulations side by side without a GUI,
+ * for regression and tournament runs of robot brains.
+ *
+ * Each run is given a {@link Scenario} which sets up a fresh headless
+ * {@link Simulator}, and a length of simulated time. Runs are shared out over
+ * a fixed number of worker threads and each runs flat out until its time is
+ * up or a script error stops it. A {@link BatchResult} is collected for every
+ * run, in the order the runs were added.
+ *
+ * @author Simon
+ */
+public class BatchRunner {
+    private final int       threads;
+    private final List<Job> jobs = new ArrayList<Job>();
+
+    /**
+     * Sets up the arena, robots and cups of one run.
+     */
+    public interface Scenario {
+
+        /**
+         * Fills an empty simulation
+         * @param sim The simulation to fill
+         * @throws IOException If a brain script can't be read
+         * @throws ScriptException If a brain script can't be run
+         */
+        void setUp(Simulator sim) throws IOException, ScriptException;
+    }
+
+    /**
+     * A batch runner using one thread per processor
+     */
+    public BatchRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads The most runs to step at once
+     */
+    public BatchRunner(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed");
+        }
+
+        this.threads = threads;
+    }
+
+    /**
+     * Queues a run for the next call to {@link #run()}
+     * @param name A name to report the run's result under
+     * @param scenario Sets up the run
+     * @param seconds The length of simulated time to run for
+     */
+    public synchronized void add(String name, Scenario scenario, double seconds) {
+        jobs.add(new Job(name, scenario, seconds, null));
+    }
+
+    /**
+     * Queues a run with fixed noise for the next call to {@link #run()}. Runs
+     * given the same scenario and seed produce the same result.
+     * @param name A name to report the run's result under
+     * @param scenario Sets up the run
+     * @param seconds The length of simulated time to run for
+     * @param seed The seed of the run's motor, sensor and spill noise
+     */
+    public synchronized void add(String name, Scenario scenario, double seconds, long seed) {
+        jobs.add(new Job(name, scenario, seconds, seed));
+    }
+
+    /**
+     * @return The number of runs waiting for {@link #run()}
+     */
+    public synchronized int getPending() {
+        return jobs.size();
+    }
+
+    /**
+     * Runs every queued run and waits for them all to finish. The queue is
+     * emptied, so the runner may be reused.
+     * @return The results in the order the runs were added
+     * @throws InterruptedException If interrupted while waiting, in which case
+     * runs still going are abandoned
+     */
+    public List<BatchResult> run() throws InterruptedException {
+        List<Job> batch;
+
+        synchronized (this) {
+            batch = new ArrayList<Job>(jobs);
+            jobs.clear();
+        }
+
+        ThreadFactory daemons = new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "Batch " + (++count));
+
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        };
+        ExecutorService   pool    = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, batch.size())),
+                                        daemons);
+        List<BatchResult> results = new ArrayList<BatchResult>(batch.size());
+
+        try {
+            for (Future<BatchResult> result : pool.invokeAll(batch)) {
+                try {
+                    results.add(result.get());
+                } catch (ExecutionException e) {
+
+                    // Runs catch their own failures so this is a bug
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return results;
+    }
+
+    /**
+     * A scenario copying the arena, cups and robots of an existing simulation.
+     * The template is only read, so one template may be shared by any number
+     * of runs.
+     * @param template The simulation to copy
+     * @return A scenario setting up copies of the template
+     */
+    public static Scenario copyOf(final Simulator template) {
+        return copyOf(template, null);
+    }
+
+    /**
+     * A scenario copying the arena and cups of an existing simulation, with
+     * its robots placed as in the template but all running the given brain.
+     * @param template The simulation to copy
+     * @param brainPath The brain script for every robot, or null to keep the
+     * brains of the template
+     * @return A scenario setting up copies of the template
+     */
+    public static Scenario copyOf(final Simulator template, final String brainPath) {
+        return new Scenario() {
+            @Override
+            public void setUp(Simulator sim) throws IOException, ScriptException {
+                sim.setEnvironment(new Environment(template.getEnvironment()));
+
+                for (Cup cup : template.getThings()) {
+                    sim.addInanimate(new Cup(cup));
+                }
+
+                for (Robot robot : template.getRobots()) {
+                    sim.addRobot((brainPath == null) ? new Robot(robot) : new Robot(robot, brainPath));
+                }
+            }
+        };
+    }
+
+    /**
+     * Runs one simulation to completion
+     * @return The result of the run
+     */
+    private static BatchResult runJob(Job job) {
+        long      start = System.nanoTime();
+        Simulator sim   = new Simulator(true);
+        String    error = null;
+
+        // The batch already keeps every processor busy
+        sim.setParallelSensing(false);
+
+        if (job.seed != null) {
+            sim.setSeed(job.seed);
+        }
+
+        try {
+            job.scenario.setUp(sim);
+            ((HeadlessScheduler) sim.getScheduler()).runFor(job.seconds);
+
+            ScriptException issue = sim.getIssue();
+
+            if (issue != null) {
+                error = issue.getMessage();
+            }
+        } catch (IOException e) {
+            error = e.getMessage();
+        } catch (ScriptException e) {
+            error = e.getMessage();
+        } catch (RuntimeException e) {
+            error = e.toString();
+        }
+
+        Map<String, Integer> cups = new LinkedHashMap<String, Integer>();
+
+        for (Robot robot : sim.getRobots()) {
+            Integer held = cups.get(robot.getDescription());
+            int     size = robot.getHeldItems().size();
+
+            cups.put(robot.getDescription(), (held == null) ? size : held + size);
+        }
+
+        return new BatchResult(job.name, sim.getSeed(), sim.getTimeElapsed(), sim.getCollisions(),
+                               sim.getWatchdog().getOverruns(), cups, error, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * A queued run
+     */
+    private static class Job implements Callable<BatchResult> {
+        private final String   name;
+        private final Scenario scenario;
+        private final double   seconds;
+        private final Long     seed;
+
+        Job(String name, Scenario scenario, double seconds, Long seed) {
+            this.name     = name;
+            this.scenario = scenario;
+            this.seconds  = seconds;
+            this.seed     = seed;
+        }
+
+        @Override
+        public BatchResult call() {
+            return runJob(this);
+        }
+    }
+}
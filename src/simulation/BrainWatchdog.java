@@ -0,0 +1,427 @@
+package simulation;
+
+import simulation.entities.Robot;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BrainWatchdog holds every robot's brain to a time budget per step.
+ *
+ * The simulator times each call into a brain. A brain which takes longer than
+ * the budget has overrun, and what happens next depends on the
+ * {@link Policy}: the overrun may only be noted, the robot may sit out the
+ * next few steps with its motors off, or the simulation may be stopped with
+ * the overrun as its issue. Overruns are counted per robot, noted on the
+ * robot's console, and may be collected with {@link #drain()}.
+ *
+ * A brain stuck in a loop never returns to be timed, so a watcher thread
+ * looks out for brains which have run past the hang limit. These are
+ * reported at once, and unless the policy is only to flag them the thread
+ * running the brain is interrupted. Java brains and Ruby brains waiting on
+ * something notice the interrupt, but a Ruby brain in a tight loop may not.
+ *
+ * @author Simon
+ */
+public class BrainWatchdog {
+
+    /**
+     * The default budget of 10ms for one call into a brain
+     */
+    public static final long DEFAULT_BUDGET     = 10000000L;
+
+    /**
+     * The default time of 1s after which a brain still running is hung
+     */
+    public static final long DEFAULT_HANG_LIMIT = 1000000000L;
+
+    /**
+     * The default number of steps a robot sits out after overrunning
+     */
+    public static final int  DEFAULT_PENALTY    = 10;
+
+    /**
+     * What is done about a brain that overruns its budget
+     */
+    public enum Policy {
+
+        /**
+         * Note the overrun and carry on
+         */
+        FLAG,
+
+        /**
+         * Note the overrun and make the robot sit out the next few steps
+         */
+        SKIP,
+
+        /**
+         * Stop the simulation with the overrun as its issue
+         */
+        STOP
+    }
+
+    private final ConcurrentMap<Robot, Record>                  records   = new ConcurrentHashMap<Robot, Record>();
+    private final ConcurrentMap<Robot, BudgetExceededException> pending   =
+        new ConcurrentHashMap<Robot, BudgetExceededException>();
+    private final AtomicLong                                    overruns  = new AtomicLong();
+    private volatile Policy                                     policy    = Policy.FLAG;
+    private volatile long                                       budget    = DEFAULT_BUDGET;
+    private volatile long                                       hangLimit = DEFAULT_HANG_LIMIT;
+    private volatile int                                        penalty   = DEFAULT_PENALTY;
+
+    private final ConcurrentMap<Robot, Call>                    running   = new ConcurrentHashMap<Robot, Call>();
+    private volatile Thread                                     watcher;
+
+    /**
+     * The timings and overruns of one robot's brain
+     */
+    public static class Record {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private volatile long          overruns;
+        private volatile long          skipped;
+        private volatile long          skipUntil;
+
+        /**
+         * @return The time taken by each call into the brain
+         */
+        public LatencyHistogram getLatencies() {
+            return latencies;
+        }
+
+        /**
+         * @return The number of times the brain overran its budget
+         */
+        public long getOverruns() {
+            return overruns;
+        }
+
+        /**
+         * @return The number of steps the robot sat out
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+    }
+
+    /**
+     * A call into a brain which hasn't returned yet. The flags are guarded by
+     * the call itself.
+     */
+    private static class Call {
+        private final Thread thread  = Thread.currentThread();
+        private final long   started = System.nanoTime();
+        private boolean      done;
+        private boolean      cutOff;
+        private boolean      interrupted;
+    }
+
+    /**
+     * @return What is done about a brain that overruns
+     */
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @param policy What to do about a brain that overruns
+     */
+    public void setPolicy(Policy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("A policy is needed");
+        }
+
+        this.policy = policy;
+    }
+
+    /**
+     * @return The most time in nanoseconds one call into a brain may take
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @param budget The most time in nanoseconds one call into a brain may take
+     */
+    public void setBudget(long budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("The budget must be positive");
+        }
+
+        this.budget = budget;
+    }
+
+    /**
+     * @return The time in nanoseconds after which a brain still running is
+     * hung, or 0 if hangs aren't watched for
+     */
+    public long getHangLimit() {
+        return hangLimit;
+    }
+
+    /**
+     * @param hangLimit The time in nanoseconds after which a brain still
+     * running is hung, or 0 to stop watching for hangs
+     */
+    public void setHangLimit(long hangLimit) {
+        if (hangLimit < 0) {
+            throw new IllegalArgumentException("The hang limit can't be negative");
+        }
+
+        this.hangLimit = hangLimit;
+    }
+
+    /**
+     * @return The number of steps a robot sits out after overrunning
+     */
+    public int getPenalty() {
+        return penalty;
+    }
+
+    /**
+     * @param penalty The number of steps a robot sits out after overrunning,
+     * under {@link Policy#SKIP}
+     */
+    public void setPenalty(int penalty) {
+        if (penalty < 0) {
+            throw new IllegalArgumentException("The penalty can't be negative");
+        }
+
+        this.penalty = penalty;
+    }
+
+    /**
+     * @param robot A robot
+     * @return The timings of the robot's brain, or null if it hasn't run
+     */
+    public Record getRecord(Robot robot) {
+        return records.get(robot);
+    }
+
+    /**
+     * @return The timings of every robot's brain seen so far
+     */
+    public Map<Robot, Record> getRecords() {
+        return Collections.unmodifiableMap(records);
+    }
+
+    /**
+     * @return The number of overruns by all robots
+     */
+    public long getOverruns() {
+        return overruns.get();
+    }
+
+    /**
+     * Collects the overruns since the last call, keeping the latest of each
+     * robot. Hung brains are included while they are still running.
+     * @return The overruns
+     */
+    public List<BudgetExceededException> drain() {
+        List<BudgetExceededException> drained = new ArrayList<BudgetExceededException>();
+
+        for (Robot robot : pending.keySet()) {
+            BudgetExceededException overrun = pending.remove(robot);
+
+            if (overrun != null) {
+                drained.add(overrun);
+            }
+        }
+
+        return drained;
+    }
+
+    /**
+     * Forgets every robot, keeping the settings
+     */
+    public void reset() {
+        records.clear();
+        pending.clear();
+        overruns.set(0);
+    }
+
+    /**
+     * @param robot A robot about to step
+     * @param step The step number
+     * @return True if the robot is sitting out this step, in which case its
+     * brain must not be called
+     */
+    boolean isSkipping(Robot robot, long step) {
+        Record record = records.get(robot);
+
+        if ((record != null) && (step < record.skipUntil)) {
+            record.skipped++;
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Starts timing a call into a robot's brain, made on this thread. Brains
+     * of different robots may be called at the same time.
+     * @param robot The robot
+     */
+    void begin(Robot robot) {
+        running.put(robot, new Call());
+
+        if ((watcher == null) && (hangLimit > 0)) {
+            startWatcher();
+        }
+    }
+
+    /**
+     * Starts the watcher thread unless it is already running
+     */
+    private synchronized void startWatcher() {
+        if (watcher == null) {
+            watcher = new Thread("Brain Watchdog") {
+                @Override
+                public void run() {
+                    watch();
+                }
+            };
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+    }
+
+    /**
+     * Finishes timing a call into a robot's brain
+     * @param robot The robot
+     * @param step The step number
+     * @return The overrun if the brain took longer than its budget, or null
+     */
+    BudgetExceededException end(Robot robot, long step) {
+        Call    call  = running.remove(robot);
+        long    nanos = System.nanoTime() - call.started;
+        boolean hung;
+
+        synchronized (call) {
+            call.done = true;
+            hung      = call.cutOff;
+
+            // Don't leave the interrupt meant for the brain to trip up the thread
+            if (call.interrupted) {
+                Thread.interrupted();
+            }
+        }
+
+        Record record = records.get(robot);
+
+        if (record == null) {
+            Record fresh = new Record();
+
+            record = records.putIfAbsent(robot, fresh);
+
+            if (record == null) {
+                record = fresh;
+            }
+        }
+
+        record.latencies.record(nanos);
+
+        if ((nanos <= budget) && !hung) {
+            return null;
+        }
+
+        BudgetExceededException overrun = new BudgetExceededException(robot, nanos, budget, hung);
+
+        record.overruns++;
+        overruns.incrementAndGet();
+
+        // A hung brain was reported by the watcher as soon as it was caught
+        if (!hung) {
+            pending.put(robot, overrun);
+        }
+
+        if (policy == Policy.SKIP) {
+            record.skipUntil = step + 1 + penalty;
+        }
+
+        note(robot, record, overrun);
+
+        return overrun;
+    }
+
+    /**
+     * Writes an overrun to the robot's console, only now and again if it
+     * keeps overrunning so the console isn't flooded
+     */
+    private void note(Robot robot, Record record, BudgetExceededException overrun) {
+        long count = record.overruns;
+
+        while ((count > 0) && ((count % 10) == 0)) {
+            count /= 10;
+        }
+
+        if (count == 1) {
+            robot.getWriter().write("Over budget (" + record.overruns + " times): " + overrun.getMessage()
+                                    + ((policy == Policy.SKIP) ? ", sitting out " + penalty + " steps" : "")
+                                    + System.getProperty("line.separator"));
+        }
+    }
+
+    /**
+     * The body of the watcher thread, which ends once no brain has run for a
+     * while
+     */
+    private void watch() {
+        long idleSince = System.nanoTime();
+
+        while (true) {
+            long limit = hangLimit;
+
+            try {
+                Thread.sleep(Math.max(1, limit / 4000000));
+            } catch (InterruptedException e) {
+
+                // Check again early
+            }
+
+            long now = System.nanoTime();
+
+            synchronized (this) {
+                if ((limit <= 0) || (running.isEmpty() && (now - idleSince > 4 * limit))) {
+                    watcher = null;
+
+                    // A brain started just now may have seen this thread still running
+                    if ((limit <= 0) || running.isEmpty()) {
+                        return;
+                    }
+
+                    watcher = Thread.currentThread();
+                }
+            }
+
+            if (running.isEmpty()) {
+                continue;
+            }
+
+            idleSince = now;
+
+            for (Map.Entry<Robot, Call> entry : running.entrySet()) {
+                Call call = entry.getValue();
+
+                synchronized (call) {
+                    if (!call.done && !call.cutOff && (now - call.started > limit)) {
+                        call.cutOff = true;
+                        pending.put(entry.getKey(),
+                                    new BudgetExceededException(entry.getKey(), now - call.started, budget, true));
+
+                        if (policy != Policy.FLAG) {
+                            call.interrupted = true;
+                            call.thread.interrupt();
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
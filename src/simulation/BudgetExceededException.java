@@ -0,0 +1,66 @@
+package simulation;
+
+import simulation.entities.Robot;
+import javax.script.ScriptException;
+
+/**
+ * Raised when a robot's brain takes longer than its budget to decide one
+ * step's outputs. See {@link BrainWatchdog}.
+ *
+ * @author Simon
+ */
+public class BudgetExceededException extends ScriptException {
+    private static final long     serialVersionUID = 1L;
+    private final transient Robot robot;
+    private final long            nanos;
+    private final long            budget;
+    private final boolean         hung;
+
+    /**
+     * @param robot The robot whose brain overran
+     * @param nanos How long the brain took, or had taken so far if it hung
+     * @param budget The budget it overran
+     * @param hung True if the brain was still running when caught
+     */
+    public BudgetExceededException(Robot robot, long nanos, long budget, boolean hung) {
+        super(robot.getDescription() + (hung ? " hung: its brain has run for " : ": its brain took ")
+              + format(nanos) + ", over its budget of " + format(budget));
+        this.robot  = robot;
+        this.nanos  = nanos;
+        this.budget = budget;
+        this.hung   = hung;
+    }
+
+    /**
+     * @return The robot whose brain overran
+     */
+    public Robot getRobot() {
+        return robot;
+    }
+
+    /**
+     * @return How long the brain took in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return The budget overrun in nanoseconds
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return True if the brain was still running when caught, as a brain
+     * stuck in a loop would be
+     */
+    public boolean isHung() {
+        return hung;
+    }
+
+    private static String format(long nanos) {
+        return String.format("%.1fms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,194 @@
+package simulation;
+
+import simulation.entities.Cup;
+import simulation.entities.Robot;
+import simulation.geometry.Entity;
+import simulation.geometry.Environment;
+import simulation.geometry.RigidBody;
+import simulation.geometry.Terrain;
+import simulation.geometry.XPoint;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.script.ScriptException;
+
+/**
+ * Checkpoint holds what changes as a simulation runs, so the simulation can
+ * be put back as it was without building anything again.
+ *
+ * Robots, cups and terrain are kept rather than copied. Only their poses,
+ * speeds and cup flags are saved, along with which cups were held and which
+ * terrain existed, so spills made since are cleared away on restoring. Brains
+ * which implement {@link simulation.entities.RestorableBrain} are restored as
+ * they were, and others are started afresh. Noise restarts from the seed, so
+ * a run restored to its first step plays out just as it did before.
+ *
+ * @author Simon
+ */
+public final class Checkpoint {
+    private final long                   step;
+    private final long                   collisions;
+    private final Environment            environment;
+    private final List<Terrain>          terrain;
+    private final List<XPoint>           terrainPlaces;
+    private final Set<Terrain>           impassable;
+    private final List<RobotState>       robots;
+    private final List<Cup>              cups;
+    private final Map<Cup, Cup>          cupStates;
+
+    /**
+     * Takes a checkpoint. This must be called on the thread stepping the
+     * simulation, between steps.
+     * @param step The number of steps taken so far
+     * @param collisions The number of collisions so far
+     * @param environment The arena
+     * @param robots The robots in play
+     * @param cups The cups lying free
+     */
+    Checkpoint(long step, long collisions, Environment environment, Iterable<Robot> robots, Iterable<Cup> cups) {
+        this.step          = step;
+        this.collisions    = collisions;
+        this.environment   = environment;
+        this.terrain       = new ArrayList<Terrain>(environment.getTerrain());
+        this.terrainPlaces = new ArrayList<XPoint>();
+        this.impassable    = Collections.newSetFromMap(new IdentityHashMap<Terrain, Boolean>());
+        this.robots        = new ArrayList<RobotState>();
+        this.cups          = new ArrayList<Cup>();
+        this.cupStates     = new IdentityHashMap<Cup, Cup>();
+
+        for (Terrain t : terrain) {
+            terrainPlaces.add(new XPoint(t.getCom()));
+        }
+
+        impassable.addAll(environment.getImpassableTerrain());
+
+        for (Robot robot : robots) {
+            RobotState state = new RobotState(robot);
+
+            this.robots.add(state);
+
+            for (Cup cup : state.held) {
+                cupStates.put(cup, new Cup(cup));
+            }
+        }
+
+        for (Cup cup : cups) {
+            this.cups.add(cup);
+            cupStates.put(cup, new Cup(cup));
+        }
+    }
+
+    /**
+     * @return The number of steps taken when the checkpoint was taken
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * @return The simulated time in seconds when the checkpoint was taken
+     */
+    public double getTimeElapsed() {
+        return Simulator.DT * step;
+    }
+
+    /**
+     * @return The number of collisions when the checkpoint was taken
+     */
+    long getCollisions() {
+        return collisions;
+    }
+
+    /**
+     * @return The arena
+     */
+    Environment getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * Puts everything back as it was. Brains are restored first, so if one
+     * can't be started again nothing else has changed.
+     * @param robots The robots in play, replaced by those saved
+     * @param cups The cups lying free, replaced by those saved
+     * @throws IOException When a brain's file does not exist or the application does not have read access
+     * @throws ScriptException When a brain can't be started again
+     */
+    void restore(Collection<Robot> robots, Collection<Cup> cups) throws IOException, ScriptException {
+        Set<Robot> saved = Collections.newSetFromMap(new IdentityHashMap<Robot, Boolean>());
+
+        for (RobotState state : this.robots) {
+            state.robot.restoreBrain(state.brain);
+            saved.add(state.robot);
+        }
+
+        for (Robot robot : robots) {
+            if (!saved.contains(robot)) {
+                robot.discardBrain();
+            }
+        }
+
+        robots.clear();
+        cups.clear();
+
+        for (int i = 0; i < terrain.size(); i++) {
+            Terrain t     = terrain.get(i);
+            XPoint  place = terrainPlaces.get(i);
+
+            // Terrain only moves when dragged, so leave it alone if it hasn't been
+            if ((t.getX() != place.getX()) || (t.getY() != place.getY())) {
+                t.place(place);
+            }
+        }
+
+        environment.restoreTerrain(terrain, impassable);
+
+        for (Map.Entry<Cup, Cup> entry : cupStates.entrySet()) {
+            entry.getKey().restore(entry.getValue());
+        }
+
+        for (RobotState state : this.robots) {
+            state.restore();
+            robots.add(state.robot);
+        }
+
+        cups.addAll(this.cups);
+    }
+
+    /**
+     * What changes of one robot
+     */
+    private static class RobotState {
+        private final Robot     robot;
+        private final RigidBody pose;
+        private final double    velocity;
+        private final double    collectionProgress;
+        private final List<Cup> held;
+        private final Object    brain;
+
+        RobotState(Robot robot) {
+            this.robot              = robot;
+            this.pose               = new RigidBody(robot);
+            this.velocity           = robot.getVelocity();
+            this.collectionProgress = robot.getCollectionProgress();
+            this.held               = new ArrayList<Cup>();
+            this.brain              = robot.saveBrain();
+
+            for (Entity item : robot.getHeldItems()) {
+                held.add((Cup) item);
+            }
+        }
+
+        void restore() {
+            robot.setShape(new RigidBody(pose));
+            robot.setVelocity(velocity);
+            robot.setCollectionProgress(collectionProgress);
+            robot.setHeldItems(held);
+        }
+    }
+}
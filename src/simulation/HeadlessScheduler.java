@@ -0,0 +1,203 @@
+package simulation;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * HeadlessScheduler steps a simulator without any wall-clock pacing and
+ * without creating any Swing or timer objects. It is intended for batch
+ * evaluation of robot brains where the simulation should run as fast as the
+ * host machine allows.
+ *
+ * The simulation may either be free-run on a background thread with
+ * {@link #play()} or stepped synchronously on the calling thread with
+ * {@link #step(long)} and {@link #runFor(double)}, but never both at once.
+ * The achieved throughput of the most recent run is available from
+ * {@link #getStepsPerSecond()}.
+ *
+ * A snapshot is offered after every step, as {@link RealTimeScheduler} does,
+ * and subscribers are left for a display to notify at its own frame rate.
+ *
+ * @author Simon
+ */
+public class HeadlessScheduler implements Scheduler {
+    private final Simulator     sim;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Object        stats   = new Object();
+    private volatile Thread     worker;
+    private long                runSteps;
+    private long                runNanos;
+    private long                totalSteps;
+
+    /**
+     * A headless scheduler running the specified simulation
+     * @param sim The simulation to run
+     */
+    public HeadlessScheduler(final Simulator sim) {
+        this.sim = sim;
+    }
+
+    /**
+     * Checks to see whether simulation is running
+     * @return true if running
+     */
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Free-runs the simulation on a background thread until paused or stopped.
+     * A thread which was paused is let finish its step first, so only one
+     * thread ever steps the simulation.
+     */
+    @Override
+    public synchronized void play() {
+        if (running.get()) {
+            return;
+        }
+
+        join();
+
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+
+        worker = new Thread("Headless Game Loop") {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                long count = 0;
+
+                while (running.get()) {
+                    sim.gameLoop();
+                    sim.publishSnapshot();
+                    count++;
+                }
+
+                record(count, System.nanoTime() - start);
+            }
+        };
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Freezes the simulation for later resumption.
+     */
+    @Override
+    public void pause() {
+        running.set(false);
+    }
+
+    /**
+     * Halts the simulation, and resets the field.
+     */
+    @Override
+    public void stop() {
+        running.set(false);
+        join();
+        sim.reset();
+    }
+
+    /**
+     * There is no pacing in headless mode so the time coefficient is ignored.
+     * @param factor unused
+     */
+    @Override
+    public void setTimeCoefficient(final Double factor) {
+        // Nothing to do, the simulation always runs flat out.
+    }
+
+    /**
+     * Runs exactly the given number of steps on the calling thread. Stepping
+     * ends early if the simulation pauses itself, which happens when a robot's
+     * script raises an error.
+     * @param count The number of steps to run
+     * @return The number of steps actually run
+     */
+    public long step(final long count) {
+        if (!running.get()) {
+            join();
+        }
+
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("The simulation is already running");
+        }
+
+        long start = System.nanoTime();
+        long done  = 0;
+
+        while (running.get() && (done < count)) {
+            sim.gameLoop();
+            sim.publishSnapshot();
+            done++;
+        }
+
+        running.set(false);
+        record(done, System.nanoTime() - start);
+
+        return done;
+    }
+
+    /**
+     * Runs the number of steps covering the given length of simulated time on
+     * the calling thread.
+     * @param seconds The simulated time to run for
+     * @return The number of steps actually run
+     */
+    public long runFor(final double seconds) {
+        return step(Math.round(seconds / Simulator.DT));
+    }
+
+    /**
+     * Waits for a free-running simulation to finish its current step after
+     * it has been paused.
+     */
+    public void join() {
+        Thread current = worker;
+
+        if ((current != null) && (current != Thread.currentThread())) {
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return The throughput of the most recent run in steps per second of
+     * wall-clock time, or 0 if nothing has been run yet.
+     */
+    public double getStepsPerSecond() {
+        synchronized (stats) {
+            if (runNanos == 0) {
+                return 0;
+            }
+
+            return runSteps * 1e9 / runNanos;
+        }
+    }
+
+    /**
+     * @return The total number of steps this scheduler has run
+     */
+    public long getTotalSteps() {
+        synchronized (stats) {
+            return totalSteps;
+        }
+    }
+
+    /**
+     * Stores the statistics of a finished run
+     * @param count The number of steps run
+     * @param nanos The wall-clock time taken
+     */
+    private void record(long count, long nanos) {
+        synchronized (stats) {
+            runSteps    = count;
+            runNanos    = nanos;
+            totalSteps += count;
+        }
+    }
+}
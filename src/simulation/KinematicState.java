@@ -0,0 +1,231 @@
+package simulation;
+
+import simulation.entities.Robot;
+import simulation.entities.RobotOutput;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * KinematicState holds the pose, speed and motor outputs of every robot for
+ * the motion part of a step, in one array per quantity rather than one object
+ * per robot. The robots are loaded once per step, then {@link #integrate()}
+ * works out every new speed and move in a single loop over the arrays, which
+ * allocates nothing.
+ *
+ * A move is kept as a turn about the robot's centre of mass followed by a
+ * shift, rather than as a new shape. Shapes are only built for the moves
+ * which come near enough to something to need an exact collision test; see
+ * {@link #getReach(int)}.
+ *
+ * The arrays grow as needed and are kept from step to step.
+ *
+ * @author Simon
+ */
+final class KinematicState {
+    private static final int    MOTOR_NOISE_STDEV = 1;
+    private static final double DEADZONE          = RobotOutput.MAX_MOTOR / 20;
+    private static final double WIND              = 0.5;
+    private static final double STEER             = 10000;
+    private int                 count;
+    private Robot[]             robots            = new Robot[8];
+    private double[]            x                 = new double[8];
+    private double[]            y                 = new double[8];
+    private double[]            angle             = new double[8];
+    private double[]            velocity          = new double[8];
+    private double[]            mass              = new double[8];
+    private double[]            power             = new double[8];
+    private double[]            reach             = new double[8];
+    private double[]            motor             = new double[8];
+    private double[]            steering          = new double[8];
+    private double[]            coefficient       = new double[8];
+    private double[]            noise             = new double[8];
+    private double[]            turn              = new double[8];
+    private double[]            dx                = new double[8];
+    private double[]            dy                = new double[8];
+    private long[]              time              = new long[8];
+
+    /**
+     * Forgets the robots of the last step
+     */
+    void clear() {
+        Arrays.fill(robots, 0, count, null);
+        count = 0;
+    }
+
+    /**
+     * Loads a robot for this step
+     * @param robot The robot
+     * @param output Its outputs for this step
+     * @param coefficient The friction of the ground under it
+     * @param noise A draw from its motor noise, with a standard deviation of 1
+     * @return The robot's number in this step
+     */
+    int add(Robot robot, RobotOutput output, double coefficient, double noise) {
+        if (count == robots.length) {
+            grow();
+        }
+
+        Rectangle2D bounds = robot.getBounds2D();
+        int         i      = count++;
+
+        robots[i]           = robot;
+        x[i]                = robot.getX();
+        y[i]                = robot.getY();
+        angle[i]            = robot.getAngle();
+        velocity[i]         = robot.getVelocity();
+        mass[i]             = robot.getMass();
+        power[i]            = robot.getPower();
+        reach[i]            = Math.hypot(Math.max(x[i] - bounds.getMinX(), bounds.getMaxX() - x[i]),
+                                         Math.max(y[i] - bounds.getMinY(), bounds.getMaxY() - y[i]));
+        motor[i]            = output.getMotor();
+        steering[i]         = output.getSteering();
+        this.coefficient[i] = coefficient;
+        this.noise[i]       = noise;
+        time[i]             = 0;
+
+        return i;
+    }
+
+    /**
+     * Works out every robot's new speed and the move it would make over one
+     * step, before any collisions
+     */
+    void integrate() {
+        final double dt = Simulator.DT;
+
+        for (int i = 0; i < count; i++) {
+            double v            = velocity[i];
+            double m            = motor[i];
+            double acceleration = power[i] * m / mass[i];
+
+            turn[i] = steering[i] * v / STEER;
+
+            // Some non-linear motor deadzoning
+            if ((Math.abs(m) < 10) && (Math.abs(v) < DEADZONE) && (m * v > 0)) {
+                acceleration = 0;
+            }
+
+            double direction = (v > 0) ? 1 : -1;
+
+            acceleration -= v * WIND + direction * mass[i] * coefficient[i];
+            acceleration += noise[i] * MOTOR_NOISE_STDEV;
+            v            += acceleration * dt;
+            velocity[i]  = v;
+            dx[i]        = -v * dt * Math.sin(angle[i]);
+            dy[i]        = v * dt * Math.cos(angle[i]);
+        }
+    }
+
+    /**
+     * @return The number of robots loaded
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * @param i A robot's number in this step
+     * @return The robot
+     */
+    Robot getRobot(int i) {
+        return robots[i];
+    }
+
+    /**
+     * @param i A robot's number in this step
+     * @return Its speed after this step
+     */
+    double getVelocity(int i) {
+        return velocity[i];
+    }
+
+    /**
+     * @param i A robot's number in this step
+     * @return How far it would turn about its centre of mass
+     */
+    double getTurn(int i) {
+        return turn[i];
+    }
+
+    /**
+     * @param i A robot's number in this step
+     * @return How far it would move along x, after turning
+     */
+    double getDx(int i) {
+        return dx[i];
+    }
+
+    /**
+     * @param i A robot's number in this step
+     * @return How far it would move along y, after turning
+     */
+    double getDy(int i) {
+        return dy[i];
+    }
+
+    /**
+     * @param i A robot's number in this step
+     * @return The x coordinate its centre of mass would move to
+     */
+    double getNewX(int i) {
+        return x[i] + dx[i];
+    }
+
+    /**
+     * @param i A robot's number in this step
+     * @return The y coordinate its centre of mass would move to
+     */
+    double getNewY(int i) {
+        return y[i] + dy[i];
+    }
+
+    /**
+     * A turn about the centre of mass never takes any part of the robot
+     * further from it than its reach, so after the move the robot lies within
+     * a square of twice its reach about the new centre
+     * @param i A robot's number in this step
+     * @return The distance from its centre of mass to the furthest corner
+     * of its bounding box
+     */
+    double getReach(int i) {
+        return reach[i];
+    }
+
+    /**
+     * Counts time spent on a robot this step, for the profiler
+     * @param i A robot's number in this step
+     * @param nanos The time spent
+     */
+    void addTime(int i, long nanos) {
+        time[i] += nanos;
+    }
+
+    /**
+     * @param i A robot's number in this step
+     * @return The time counted against it so far this step
+     */
+    long getTime(int i) {
+        return time[i];
+    }
+
+    private void grow() {
+        int size = robots.length * 2;
+
+        robots      = Arrays.copyOf(robots, size);
+        x           = Arrays.copyOf(x, size);
+        y           = Arrays.copyOf(y, size);
+        angle       = Arrays.copyOf(angle, size);
+        velocity    = Arrays.copyOf(velocity, size);
+        mass        = Arrays.copyOf(mass, size);
+        power       = Arrays.copyOf(power, size);
+        reach       = Arrays.copyOf(reach, size);
+        motor       = Arrays.copyOf(motor, size);
+        steering    = Arrays.copyOf(steering, size);
+        coefficient = Arrays.copyOf(coefficient, size);
+        noise       = Arrays.copyOf(noise, size);
+        turn        = Arrays.copyOf(turn, size);
+        dx          = Arrays.copyOf(dx, size);
+        dy          = Arrays.copyOf(dy, size);
+        time        = Arrays.copyOf(time, size);
+    }
+}
@@ -0,0 +1,151 @@
+package simulation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram counts how often a piece of work took each length of time.
+ *
+ * Times are kept in nanoseconds in buckets eight to a power of two, so any
+ * reported time is within an eighth of the true value while a whole
+ * histogram is a few kilobytes. Recording is lock free and may be done from
+ * many threads at once.
+ *
+ * @author Simon
+ */
+public class LatencyHistogram {
+    private static final int  SUB_BITS = 3;
+    private static final int  SUBS     = 1 << SUB_BITS;
+    private static final int  BUCKETS  = (64 - SUB_BITS) * SUBS;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong      count  = new AtomicLong();
+    private final AtomicLong      total  = new AtomicLong();
+    private final AtomicLong      max    = new AtomicLong();
+
+    /**
+     * Records one piece of work
+     * @param nanos How long the work took in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        counts.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+
+        long current = max.get();
+
+        while ((nanos > current) && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Forgets everything recorded so far
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * @return The number of times recorded
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return The sum of the times recorded in nanoseconds
+     */
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * @return The longest time recorded in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return The mean time recorded in nanoseconds, or 0 if none were
+     */
+    public double getMean() {
+        long n = count.get();
+
+        return (n == 0) ? 0 : (double) total.get() / n;
+    }
+
+    /**
+     * Finds the time below which the given share of the recorded times fall
+     * @param percentile Between 0 and 100
+     * @return The time in nanoseconds, rounded up to the top of its bucket
+     * but never above the longest time recorded
+     */
+    public long getPercentile(double percentile) {
+        long n = count.get();
+
+        if (n == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(n * percentile / 100));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+
+            if ((seen >= rank) && (i + 1 < BUCKETS)) {
+                return Math.min(lowest(i + 1) - 1, max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    /**
+     * @return The bucket holding the given time
+     */
+    static int bucket(long nanos) {
+        if (nanos < SUBS) {
+            return (int) nanos;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub      = (int) (nanos >>> (exponent - SUB_BITS)) & (SUBS - 1);
+
+        return (exponent - SUB_BITS + 1) * SUBS + sub;
+    }
+
+    /**
+     * @return The shortest time falling in the given bucket
+     */
+    static long lowest(int bucket) {
+        if (bucket < SUBS) {
+            return bucket;
+        }
+
+        int exponent = bucket / SUBS + SUB_BITS - 1;
+        int sub      = bucket % SUBS;
+
+        return (long) (SUBS + sub) << (exponent - SUB_BITS);
+    }
+
+    /**
+     * @return A one line summary in microseconds
+     */
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus", getCount(), getMean() / 1e3,
+                             getPercentile(50) / 1e3, getPercentile(99) / 1e3, getMax() / 1e3);
+    }
+}
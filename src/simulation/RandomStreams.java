@@ -0,0 +1,88 @@
+package simulation;
+
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * RandomStreams hands out the random number generators of one simulation.
+ *
+ * Every source of noise (a robot's motors, each of its sensors, coffee
+ * spills) gets its own stream, derived from the simulation's seed and a key
+ * naming the source. Streams never share state, so the same seed gives the
+ * same run however the robots are stepped or sensed, and no two threads ever
+ * contend for one generator.
+ *
+ * Keys are mixed into the seed with the SplitMix64 finaliser, which spreads
+ * neighbouring keys (robot 0, robot 1, ...) over unrelated seeds.
+ *
+ * @author Simon
+ */
+public class RandomStreams implements Serializable {
+
+    /**
+     * Stream of the robot motors, keyed by robot
+     */
+    public static final int MOTOR  = 1;
+
+    /**
+     * Stream of the robot sensors, keyed by robot then sensor
+     */
+    public static final int SENSOR = 2;
+
+    /**
+     * Stream of the coffee spills
+     */
+    public static final int SPILL  = 3;
+
+    private static final long GOLDEN_GAMMA     = 0x9e3779b97f4a7c15L;
+    private static final long serialVersionUID = 1L;
+    private final long        seed;
+
+    /**
+     * Streams seeded from the clock
+     */
+    public RandomStreams() {
+        this(System.nanoTime() ^ System.currentTimeMillis() * GOLDEN_GAMMA);
+    }
+
+    /**
+     * @param seed The seed every stream is derived from
+     */
+    public RandomStreams(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return The seed every stream is derived from
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Creates a fresh generator for the given key. Asking twice for the same
+     * key gives two generators producing the same numbers.
+     * @param key The source of noise, such as {@link #MOTOR} followed by a
+     * robot number
+     * @return A generator seeded for that key alone
+     */
+    public Random stream(int... key) {
+        long mixed = mix(seed);
+
+        for (int part : key) {
+            mixed = mix(mixed + GOLDEN_GAMMA * (part + 1));
+        }
+
+        return new Random(mixed);
+    }
+
+    /**
+     * The SplitMix64 finaliser
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,271 @@
+package simulation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * RealTimeScheduler steps a simulator in step with the wall clock.
+ *
+ * A dedicated thread ticks once per period. Tick deadlines are kept on a
+ * fixed grid of nanosecond times, so small delays never add up to drift.
+ * When a tick is late by whole periods the missed steps are made up
+ * straight away, but never more than {@link #getMaxCatchUp()} steps in one
+ * tick. Any steps beyond that are dropped rather than run in a burst, so after
+ * a long stall the simulation carries on at normal speed instead of
+ * fast-forwarding.
+ *
+ * The thread keeps ticking while paused so that the display is offered fresh
+ * snapshots of any edits. Counters of late ticks, overruns and dropped steps
+ * show how well the host is keeping up.
+ *
+ * This replaces the old timer based schedulers, which either burst to catch
+ * up (java.util.Timer) or drifted (Swing Timer) depending on the platform.
+ *
+ * @author Simon
+ */
+public class RealTimeScheduler implements Scheduler {
+    public static final double MAX_FACTOR           = 10;
+    public static final double MIN_FACTOR           = 0.1;
+    private static final int   DEFAULT_MAX_CATCH_UP = 3;
+    private final Simulator    sim;
+    private final Thread       worker;
+    private boolean            started;
+    private volatile boolean   running;
+    private volatile boolean   cancelled;
+    private volatile boolean   rephase;
+    private volatile long      period;
+    private volatile int       maxCatchUp           = DEFAULT_MAX_CATCH_UP;
+    private final AtomicLong   ticks                = new AtomicLong();
+    private final AtomicLong   lateTicks            = new AtomicLong();
+    private final AtomicLong   overruns             = new AtomicLong();
+    private final AtomicLong   droppedSteps         = new AtomicLong();
+    private final AtomicLong   steps                = new AtomicLong();
+
+    /**
+     * A scheduler object with the default frequency running the specified
+     * simulation. The ticking thread is a daemon, and isn't started until
+     * {@link #start()} or {@link #play()} is called, so the simulation may
+     * finish setting up first.
+     * @param sim The simulation to run
+     */
+    public RealTimeScheduler(final Simulator sim) {
+        this.sim = sim;
+        running  = false;
+        period   = Math.round(Simulator.DT * 1e9);
+        worker   = new Thread("Game Loop") {
+            @Override
+            public void run() {
+                tickLoop();
+            }
+        };
+        worker.setDaemon(true);
+    }
+
+    /**
+     * Starts the ticking thread, paused, if it isn't already going. From
+     * then on the display is offered snapshots whether or not the simulation
+     * is running.
+     */
+    public synchronized void start() {
+        if (!started) {
+            started = true;
+            worker.start();
+        }
+    }
+
+    /**
+     * Checks to see whether simulation is running
+     * @return true if running
+     */
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * For external control over the simulation's state. Go will resume a
+     * paused simulation or set up and start a new one if previously stopped.
+     */
+    @Override
+    public void play() {
+        rephase = true;
+        running = true;
+        start();
+        LockSupport.unpark(worker);
+    }
+
+    /**
+     * Freezes the simulation for later resumption.
+     */
+    @Override
+    public void pause() {
+        running = false;
+    }
+
+    /**
+     * Halts the simulation, and resets the field.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        sim.reset();
+    }
+
+    /**
+     * Ends the ticking thread for good. The scheduler can't be used again.
+     */
+    public void cancel() {
+        running   = false;
+        cancelled = true;
+        LockSupport.unpark(worker);
+    }
+
+    /**
+     * Adjusts the period, the maximum input is 10 and the minimum is 0.1.
+     * The new period takes effect from the next tick.
+     * @param factor a number to be multiplied by the default period
+     */
+    @Override
+    public void setTimeCoefficient(final Double factor) {
+        if ((factor <= MAX_FACTOR) && (factor >= MIN_FACTOR)) {
+            period  = Math.round(Simulator.DT * 1e9 / factor);
+            rephase = true;
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * @return The time between ticks in nanoseconds
+     */
+    public long getPeriod() {
+        return period;
+    }
+
+    /**
+     * @return The most steps run in one tick to make up for lateness
+     */
+    public int getMaxCatchUp() {
+        return maxCatchUp;
+    }
+
+    /**
+     * @param maxCatchUp The most steps to run in one tick to make up for
+     * lateness. At 1 late steps are never made up.
+     */
+    public void setMaxCatchUp(int maxCatchUp) {
+        if (maxCatchUp < 1) {
+            throw new IllegalArgumentException("At least one step per tick is needed");
+        }
+
+        this.maxCatchUp = maxCatchUp;
+    }
+
+    /**
+     * @return The number of ticks so far, paused or not
+     */
+    public long getTicks() {
+        return ticks.get();
+    }
+
+    /**
+     * @return The number of ticks which started a whole period or more after
+     * their deadline
+     */
+    public long getLateTicks() {
+        return lateTicks.get();
+    }
+
+    /**
+     * @return The number of ticks too late to be made up within the catch-up
+     * limit
+     */
+    public long getOverruns() {
+        return overruns.get();
+    }
+
+    /**
+     * @return The number of steps skipped by overruns
+     */
+    public long getDroppedSteps() {
+        return droppedSteps.get();
+    }
+
+    /**
+     * @return The number of steps run so far
+     */
+    public long getTotalSteps() {
+        return steps.get();
+    }
+
+    /**
+     * Sets all the counters back to zero
+     */
+    public void resetStats() {
+        ticks.set(0);
+        lateTicks.set(0);
+        overruns.set(0);
+        droppedSteps.set(0);
+        steps.set(0);
+    }
+
+    /**
+     * The body of the ticking thread
+     */
+    private void tickLoop() {
+        long deadline = System.nanoTime();
+
+        while (!cancelled) {
+            long now = System.nanoTime();
+
+            if (rephase) {
+                rephase  = false;
+                deadline = now;
+            }
+
+            if (now - deadline < 0) {
+                LockSupport.parkNanos(deadline - now);
+
+                continue;
+            }
+
+            long length = period;
+            long due    = 1 + (now - deadline) / length;
+
+            ticks.incrementAndGet();
+
+            if (due > 1) {
+                lateTicks.incrementAndGet();
+            }
+
+            if (running) {
+                long limit = Math.min(due, maxCatchUp);
+
+                if (due > limit) {
+                    overruns.incrementAndGet();
+                    droppedSteps.addAndGet(due - limit);
+                }
+
+                for (long i = 0; running && (i < limit); i++) {
+                    try {
+                        sim.gameLoop();
+                        steps.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        running = false;
+                        e.printStackTrace();
+                    }
+                }
+            }
+
+            try {
+                sim.publishSnapshot();
+            } catch (RuntimeException e) {
+
+                // The display misses a frame, but the clock keeps going
+                e.printStackTrace();
+            }
+
+            // Stay on the grid, skipping any steps that were dropped
+            deadline += due * length;
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package simulation;
+
+import publishersubscriber.SimulatorPublisher;
+import publishersubscriber.SimulatorSubscriber;
+import simulation.ReplayReader.Frame;
+import simulation.entities.Cup;
+import simulation.entities.JavaBrains;
+import simulation.entities.Robot;
+import simulation.entities.SimBrain;
+import simulation.geometry.Entity;
+import simulation.geometry.Environment;
+import simulation.geometry.RigidBody;
+import simulation.geometry.Terrain;
+import simulation.geometry.XPoint;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.script.ScriptException;
+
+/**
+ * ReplayPlayer plays back a log written by {@link ReplayRecorder}, standing in
+ * for a simulator so that the same displays and information panels show a
+ * recorded run. Nothing is simulated and no brain is run: each robot in the
+ * log is shown by a robot of the same name, size and colour whose brain does
+ * nothing, and it and the cups are moved to where the log has them.
+ *
+ * The player is its own {@link Scheduler}, so playback is started, paused
+ * and sped up as a simulation would be, up to {@link #MAX_SPEED} times real
+ * time. {@link #tick()} is called at the display's frame rate and moves
+ * straight to the step due, reading that one step however many were passed
+ * over, so the cost of playback depends on the frame rate and not the speed.
+ * Any step can be shown at once with {@link #seek(int)}, as the log's index
+ * gives where each step starts.
+ *
+ * Robots' sensor readings are not recorded, so they show no sensors.
+ *
+ * @author Simon
+ */
+public class ReplayPlayer implements SimulatorPublisher, Scheduler {
+    public static final double                    MAX_SPEED    = 100;
+    public static final double                    MIN_SPEED    = 0.1;
+    private final ReplayReader                    reader;
+    private final Collection<SimulatorSubscriber> subscribers  = new CopyOnWriteArrayList<SimulatorSubscriber>();
+    private final Map<Integer, Robot>             puppets      = new HashMap<Integer, Robot>();
+    private final Map<Integer, Cup>               cups         = new HashMap<Integer, Cup>();
+    private List<Robot>                           robotsInPlay = Collections.emptyList();
+    private List<Cup>                             cupsInPlay   = Collections.emptyList();
+    private Environment                           environment;
+    private int                                   terrainMark  = -1;
+    private Frame                                 frame;
+    private WorldSnapshot                         snapshot;
+    private int                                   index;
+    private double                                position;
+    private double                                speed        = 1;
+    private boolean                               playing;
+    private long                                  lastTick;
+    private IOException                           failure;
+
+    /**
+     * A player showing the first step of a log
+     * @param reader The log
+     * @throws IOException When the log can't be read or has no steps
+     */
+    public ReplayPlayer(ReplayReader reader) throws IOException {
+        this.reader = reader;
+
+        if (reader.size() == 0) {
+            throw new IOException("The log has no steps");
+        }
+
+        show(0);
+    }
+
+    /**
+     * @return The log being played
+     */
+    public ReplayReader getReader() {
+        return reader;
+    }
+
+    /**
+     * @return The step of the log shown
+     */
+    public synchronized int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The state recorded at the step shown, including the outputs
+     * of the robots' brains
+     */
+    public synchronized Frame getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return The playback speed as a multiple of real time
+     */
+    public synchronized double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * @return The error which stopped playback, or null if all is well
+     */
+    public synchronized IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Shows a step of the log and notifies the subscribers. Playback carries
+     * on from there if it was playing.
+     * @param index A step of the log
+     * @throws IOException When the log can't be read
+     */
+    public void seek(int index) throws IOException {
+        synchronized (this) {
+            show(index);
+            position = index;
+        }
+
+        notifySubscribers();
+    }
+
+    /**
+     * Shows the step of a run at or just before a simulated time
+     * @param run A run of the log
+     * @param time The simulated time in seconds
+     * @throws IOException When the log can't be read
+     */
+    public void seek(int run, double time) throws IOException {
+        seek(reader.seek(run, Math.round(time / reader.getTimeStep())));
+    }
+
+    /**
+     * Moves playback on to the step due by now and notifies the subscribers.
+     * To be called at the display's frame rate. Reaching the end of the log
+     * pauses playback, after looking for steps recorded since it was opened.
+     */
+    public void tick() {
+        synchronized (this) {
+            long now = System.nanoTime();
+
+            if (playing) {
+                position += (now - lastTick) / 1e9 * speed / reader.getTimeStep();
+                advance((int) Math.min(position, Integer.MAX_VALUE));
+            }
+
+            lastTick = now;
+        }
+
+        notifySubscribers();
+    }
+
+    /**
+     * Shows a step on the way through the log, pausing at the end
+     */
+    private void advance(int target) {
+        try {
+            int last = reader.size() - 1;
+
+            if (target > last) {
+                last = reader.refresh() - 1;
+            }
+
+            if (target >= last) {
+                target  = last;
+                playing = false;
+            }
+
+            if (target != index) {
+                show(target);
+            }
+        } catch (IOException e) {
+            failure = e;
+            playing = false;
+            System.err.println("Replay stopped: " + e);
+        }
+    }
+
+    /**
+     * Moves the stand-ins to where a step of the log has them and takes a
+     * snapshot of them
+     */
+    private void show(int index) throws IOException {
+        Frame       step   = reader.getFrame(index);
+        int         mark   = reader.getTerrainMark(index);
+        List<Robot> robots = new ArrayList<Robot>(step.getRobotCount());
+        List<Cup>   things = new ArrayList<Cup>(step.getCupCount());
+
+        if (mark != terrainMark) {
+            environment = reader.getEnvironment(index);
+            terrainMark = mark;
+        }
+
+        for (int i = 0; i < step.getRobotCount(); i++) {
+            Robot     robot  = puppet(step.getRobotId(i));
+            double    x      = step.getX(i);
+            double    y      = step.getY(i);
+            double    width  = robot.getWidth();
+            double    length = robot.getLength();
+            RigidBody body   = new RigidBody(new Entity(x - width / 2, y - length / 2, width, length), new XPoint(x, y));
+
+            body.rotate(step.getAngle(i));
+            robot.setShape(body);
+            robot.setVelocity(step.getVelocity(i));
+            robots.add(robot);
+        }
+
+        for (int i = 0; i < step.getCupCount(); i++) {
+            boolean full    = step.isCupFull(i);
+            boolean upright = step.isCupUpright(i);
+            Cup     cup     = cups.get(step.getCupId(i));
+
+            if ((cup == null) || (cup.isFull() != full) || (cup.isUpright() != upright)) {
+                Cup state = new Cup(step.getCupX(i), step.getCupY(i), full);
+
+                if (!upright) {
+                    state.knockOver();
+                }
+
+                if (cup == null) {
+                    cup = state;
+                    cups.put(step.getCupId(i), cup);
+                } else {
+                    cup.restore(state);
+                }
+            } else {
+                cup.place(step.getCupX(i), step.getCupY(i));
+            }
+
+            things.add(cup);
+        }
+
+        this.index   = index;
+        frame        = step;
+        robotsInPlay = Collections.unmodifiableList(robots);
+        cupsInPlay   = Collections.unmodifiableList(things);
+        snapshot     = new WorldSnapshot(step.getStep(), step.getTimeElapsed(), environment, robots, things);
+    }
+
+    /**
+     * @return The stand-in for a robot of the log, made the first time it is
+     * needed
+     */
+    private Robot puppet(int id) throws IOException {
+        Robot robot = puppets.get(id);
+
+        if (robot == null) {
+            try {
+                robot = new Robot(JavaBrains.PREFIX + Puppet.class.getName(), reader.getRobotName(id),
+                                  new XPoint(0, 0), 0, reader.getRobotWidth(id), reader.getRobotLength(id),
+                                  reader.getRobotColour(id));
+            } catch (ScriptException e) {
+                throw new IOException("A stand-in can't be made for " + reader.getRobotName(id), e);
+            }
+
+            puppets.put(id, robot);
+        }
+
+        return robot;
+    }
+
+    /**
+     * Notifies all subscribers of the step shown
+     */
+    public void notifySubscribers() {
+        for (SimulatorSubscriber subscriber : subscribers) {
+            subscriber.update(this);
+        }
+    }
+
+    @Override
+    public void addSubscriber(SimulatorSubscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public void removeSubscriber(SimulatorSubscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * @return The stand-ins for the robots in play at the step shown
+     */
+    @Override
+    public synchronized Collection<? extends Robot> getRobots() {
+        return robotsInPlay;
+    }
+
+    /**
+     * @return The arena at the step shown
+     */
+    @Override
+    public synchronized Environment getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * @return The cups lying free at the step shown
+     */
+    @Override
+    public synchronized Collection<? extends Cup> getThings() {
+        return cupsInPlay;
+    }
+
+    /**
+     * @return The simulated time at the step shown
+     */
+    @Override
+    public synchronized double getTimeElapsed() {
+        return frame.getTimeElapsed();
+    }
+
+    /**
+     * @return A snapshot of the step shown
+     */
+    @Override
+    public synchronized WorldSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Brains are not run, so there is never an issue
+     * @return null
+     */
+    @Override
+    public ScriptException getIssue() {
+        return null;
+    }
+
+    /**
+     * Brains are not run, so none overrun
+     * @return An empty list
+     */
+    @Override
+    public List<BudgetExceededException> getOverruns() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public synchronized boolean isInSimulator(RigidBody object) {
+        for (Robot robot : robotsInPlay) {
+            if (robot == object) {
+                return true;
+            }
+        }
+
+        for (Cup cup : cupsInPlay) {
+            if (cup == object) {
+                return true;
+            }
+        }
+
+        for (Terrain terrain : environment.getTerrain()) {
+            if (terrain == object) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return This player, which schedules the playback
+     */
+    @Override
+    public Scheduler getScheduler() {
+        return this;
+    }
+
+    /**
+     * A recording can't be changed
+     * @return false
+     */
+    @Override
+    public boolean canPlace(RigidBody oldShape, RigidBody newShape) {
+        return false;
+    }
+
+    /**
+     * Starts playback from the step shown
+     */
+    @Override
+    public synchronized void play() {
+        position = index;
+        lastTick = System.nanoTime();
+        playing  = true;
+    }
+
+    /**
+     * Pauses playback on the step shown
+     */
+    @Override
+    public synchronized void pause() {
+        playing = false;
+    }
+
+    /**
+     * Pauses playback and goes back to the first step
+     */
+    @Override
+    public void stop() {
+        pause();
+
+        try {
+            seek(0);
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Sets the playback speed, from {@link #MIN_SPEED} to {@link #MAX_SPEED}
+     * times real time
+     * @param factor The new speed
+     */
+    @Override
+    public synchronized void setTimeCoefficient(final Double factor) {
+        if ((factor <= MAX_SPEED) && (factor >= MIN_SPEED)) {
+            speed = factor;
+        }
+    }
+
+    /**
+     * @return True while playing
+     */
+    @Override
+    public synchronized boolean isRunning() {
+        return playing;
+    }
+
+    /**
+     * Stops playback and closes the log
+     * @throws IOException When the log can't be closed
+     */
+    public void close() throws IOException {
+        pause();
+        reader.close();
+    }
+
+    /**
+     * The brain of a stand-in, which does nothing
+     */
+    public static class Puppet extends SimBrain {
+
+        @Override
+        public void update() {}
+    }
+}
@@ -0,0 +1,784 @@
+package simulation;
+
+import simulation.entities.Robot;
+import simulation.geometry.Entity;
+import simulation.geometry.Environment;
+import simulation.geometry.Terrain;
+import java.awt.Color;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ReplayReader reads a log written by {@link ReplayRecorder}.
+ *
+ * Opening a log walks its records once to find where each starts, which
+ * only reads the few bytes at the head of each record, so any step can then
+ * be read straight away. The index also notes the last change of terrain
+ * before each step, so the arena at any step is found without walking back
+ * through the steps before it. The file is read through memory mapped windows. A
+ * log still being recorded may be read, and {@link #refresh()} picks up the
+ * steps recorded since.
+ *
+ * The steps of a log are numbered from 0 in the order they were recorded.
+ * Each reset of the simulation started a new run, and within a run the
+ * simulation steps only go up.
+ *
+ * @author Simon
+ */
+public class ReplayReader {
+    private static final int       WINDOW  = 16 << 20;
+
+    private final RandomAccessFile access;
+    private final FileChannel      channel;
+    private final int              version;
+    private final double           timeStep;
+    private ByteBuffer             window;
+    private long                   windowStart;
+    private long                   end     = ReplayRecorder.HEADER;
+    private int                    size;
+    private long[]                 offsets = new long[1024];
+    private long[]                 steps   = new long[1024];
+    private byte[]                 flags   = new byte[1024];
+    private int[]                  marks   = new int[1024];
+    private final List<Integer>    runs    = new ArrayList<Integer>();
+    private final List<String>     names   = new ArrayList<String>();
+    private final List<String>     brains  = new ArrayList<String>();
+    private final List<float[]>    sizes   = new ArrayList<float[]>();
+    private final List<Color>      colours = new ArrayList<Color>();
+
+    /**
+     * Opens a log
+     * @param file The log file
+     * @throws IOException When the file can't be read or is not a log
+     */
+    public ReplayReader(File file) throws IOException {
+        access  = new RandomAccessFile(file, "r");
+        channel = access.getChannel();
+
+        if (channel.size() < ReplayRecorder.HEADER) {
+            access.close();
+
+            throw new IOException("Not a replay log: " + file);
+        }
+
+        ByteBuffer header = at(0, ReplayRecorder.HEADER);
+
+        if (header.getInt() != ReplayRecorder.MAGIC) {
+            access.close();
+
+            throw new IOException("Not a replay log: " + file);
+        }
+
+        version = header.getShort();
+
+        if (version > ReplayRecorder.VERSION) {
+            access.close();
+
+            throw new IOException("The log is version " + version + ", newer than this simulator reads");
+        }
+
+        header.getShort();
+        timeStep = header.getDouble();
+        refresh();
+    }
+
+    /**
+     * Finds the steps recorded since the log was opened or last refreshed
+     * @return The number of steps in the log
+     * @throws IOException When the log can't be read
+     */
+    public synchronized int refresh() throws IOException {
+        long length = channel.size();
+
+        while (end + ReplayRecorder.RECORD_HEADER <= length) {
+            ByteBuffer head   = at(end, ReplayRecorder.RECORD_HEADER);
+            int        record = head.getInt();
+
+            if ((record < ReplayRecorder.RECORD_HEADER) || (end + record > length)) {
+                break;
+            }
+
+            int  kind = head.get();
+            long step = head.getLong();
+
+            if ((kind & ReplayRecorder.ROBOTS) != 0) {
+                DataInputStream data = open(end, record);
+                int             n    = data.readShort();
+
+                for (int i = 0; i < n; i++) {
+                    int id = data.readShort();
+
+                    while (names.size() <= id) {
+                        names.add(null);
+                        brains.add(null);
+                        sizes.add(null);
+                        colours.add(null);
+                    }
+
+                    names.set(id, data.readUTF());
+                    brains.set(id, data.readUTF());
+
+                    if (version >= 2) {
+                        sizes.set(id, new float[] { data.readFloat(), data.readFloat() });
+                        colours.set(id, new Color(data.readInt(), true));
+                    } else {
+                        sizes.set(id, new float[] { Robot.DEFAULT_WIDTH, Robot.DEFAULT_LENGTH });
+                        colours.set(id, Color.GREEN);
+                    }
+                }
+            }
+
+            if ((kind & ReplayRecorder.RUN_START) != 0) {
+                runs.add(size);
+            }
+
+            add(end, step, kind);
+            end += record;
+        }
+
+        return size;
+    }
+
+    /**
+     * @return The simulated time in seconds between steps
+     */
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * @return The number of steps in the log
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of runs in the log
+     */
+    public synchronized int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * @param run A run of the log
+     * @return The number of the first step of the run
+     */
+    public synchronized int getRunStart(int run) {
+        return runs.get(run);
+    }
+
+    /**
+     * @return The number of robots named in the log
+     */
+    public synchronized int getRobotCount() {
+        return names.size();
+    }
+
+    /**
+     * @param id The number of a robot in the log
+     * @return The name of the robot
+     */
+    public synchronized String getRobotName(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * @param id The number of a robot in the log
+     * @return The path of the robot's brain
+     */
+    public synchronized String getBrainPath(int id) {
+        return brains.get(id);
+    }
+
+    /**
+     * @param id The number of a robot in the log
+     * @return The width of the robot, or the default width in logs which
+     * didn't record it
+     */
+    public synchronized double getRobotWidth(int id) {
+        return sizes.get(id)[0];
+    }
+
+    /**
+     * @param id The number of a robot in the log
+     * @return The length of the robot, or the default length in logs which
+     * didn't record it
+     */
+    public synchronized double getRobotLength(int id) {
+        return sizes.get(id)[1];
+    }
+
+    /**
+     * @param id The number of a robot in the log
+     * @return The colour of the robot, or the default colour in logs which
+     * didn't record it
+     */
+    public synchronized Color getRobotColour(int id) {
+        return colours.get(id);
+    }
+
+    /**
+     * Finds a simulation step in the latest run
+     * @param step A simulation step
+     * @return The step of the log at or just before the simulation step, or
+     * the first of the run if the step is before it
+     */
+    public synchronized int seek(long step) {
+        return seek(runs.size() - 1, step);
+    }
+
+    /**
+     * Finds a simulation step in a run. Every step of a run is usually
+     * recorded, so the step is looked for first where it would be if none
+     * were missed, and searched for only if it is not there.
+     * @param run A run of the log
+     * @param step A simulation step
+     * @return The step of the log at or just before the simulation step, or
+     * the first of the run if the step is before it
+     */
+    public synchronized int seek(int run, long step) {
+        int  low   = runs.get(run);
+        int  high  = (run + 1 < runs.size()) ? runs.get(run + 1) - 1 : size - 1;
+        long guess = low + step - steps[low];
+
+        if ((guess >= low) && (guess <= high) && (steps[(int) guess] == step)) {
+            return (int) guess;
+        }
+
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+
+            if (steps[middle] <= step) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @param index A step of the log
+     * @return The simulation step it recorded
+     */
+    public synchronized long getStep(int index) {
+        check(index);
+
+        return steps[index];
+    }
+
+    /**
+     * Reads one step of the log
+     * @param index A step of the log
+     * @return The state recorded
+     * @throws IOException When the log can't be read
+     */
+    public synchronized Frame getFrame(int index) throws IOException {
+        check(index);
+
+        long            offset = offsets[index];
+        int             length = at(offset, 4).getInt();
+        DataInputStream data   = open(offset, length);
+
+        skipRobots(data, flags[index]);
+
+        if ((flags[index] & ReplayRecorder.TERRAIN) != 0) {
+            readOutline(data, flags[index]);
+            readTerrain(data);
+        }
+
+        return new Frame(steps[index], steps[index] * timeStep, flags[index], data);
+    }
+
+    /**
+     * Works out the terrain in place at a step, from the terrain recorded at
+     * the start of its run and that added since
+     * @param index A step of the log
+     * @return The terrain
+     * @throws IOException When the log can't be read
+     */
+    public synchronized List<Terrain> getTerrain(int index) throws IOException {
+        List<Terrain> terrain = new ArrayList<Terrain>();
+
+        readArena(index, terrain);
+
+        return terrain;
+    }
+
+    /**
+     * Works out the arena at a step: its outline and the terrain in place
+     * @param index A step of the log
+     * @return A new environment, with the default outline in logs which
+     * didn't record it
+     * @throws IOException When the log can't be read
+     */
+    public synchronized Environment getEnvironment(int index) throws IOException {
+        List<Terrain> terrain     = new ArrayList<Terrain>();
+        Path2D        outline     = readArena(index, terrain);
+        Environment   environment = new Environment();
+
+        if (outline != null) {
+            environment.setShape(new Entity(outline));
+        }
+
+        for (Terrain t : terrain) {
+            environment.addTerrain(t);
+        }
+
+        return environment;
+    }
+
+    /**
+     * @param index A step of the log
+     * @return The last step at or before it which changed the terrain. The
+     * arena is the same at any two steps with the same mark.
+     */
+    synchronized int getTerrainMark(int index) {
+        check(index);
+
+        return marks[index];
+    }
+
+    /**
+     * Closes the log
+     * @throws IOException When the log can't be closed
+     */
+    public synchronized void close() throws IOException {
+        window = null;
+        access.close();
+    }
+
+    /**
+     * @param type A segment type of {@link PathIterator}
+     * @return The number of points the segment has
+     * @throws IOException When the type is not known
+     */
+    static int points(int type) throws IOException {
+        switch (type) {
+        case PathIterator.SEG_MOVETO :
+        case PathIterator.SEG_LINETO :
+            return 1;
+
+        case PathIterator.SEG_QUADTO :
+            return 2;
+
+        case PathIterator.SEG_CUBICTO :
+            return 3;
+
+        case PathIterator.SEG_CLOSE :
+            return 0;
+
+        default :
+            throw new IOException("The log is corrupt");
+        }
+    }
+
+    private void check(int index) {
+        if ((index < 0) || (index >= size)) {
+            throw new IndexOutOfBoundsException("No step " + index + " in a log of " + size);
+        }
+    }
+
+    private void add(long offset, long step, int kind) {
+        if (size == offsets.length) {
+            int grown = size * 2;
+            long[] o  = new long[grown];
+            long[] s  = new long[grown];
+            byte[] f  = new byte[grown];
+            int[]  m  = new int[grown];
+
+            System.arraycopy(offsets, 0, o, 0, size);
+            System.arraycopy(steps, 0, s, 0, size);
+            System.arraycopy(flags, 0, f, 0, size);
+            System.arraycopy(marks, 0, m, 0, size);
+            offsets = o;
+            steps   = s;
+            flags   = f;
+            marks   = m;
+        }
+
+        offsets[size] = offset;
+        steps[size]   = step;
+        flags[size]   = (byte) kind;
+        marks[size]   = (((kind & ReplayRecorder.TERRAIN) != 0) || (size == 0)) ? size : marks[size - 1];
+        size++;
+    }
+
+    /**
+     * Reads the terrain sections from the last which recorded all terrain
+     * up to a step, following the marks back rather than every step
+     * @param terrain Filled with the terrain in place
+     * @return The outline of the arena, or null if the log didn't record it
+     */
+    private Path2D readArena(int index, List<Terrain> terrain) throws IOException {
+        check(index);
+
+        List<Integer> changes = new ArrayList<Integer>();
+
+        for (int i = marks[index]; ; i = marks[i - 1]) {
+            changes.add(i);
+
+            if ((i == 0) || ((flags[i] & ReplayRecorder.TERRAIN_ALL) != 0)) {
+                break;
+            }
+        }
+
+        Path2D outline = null;
+
+        for (int n = changes.size() - 1; n >= 0; n--) {
+            int i = changes.get(n);
+
+            if ((flags[i] & ReplayRecorder.TERRAIN) == 0) {
+                continue;
+            }
+
+            DataInputStream data  = open(offsets[i], at(offsets[i], 4).getInt());
+            Path2D          shape;
+
+            skipRobots(data, flags[i]);
+            shape = readOutline(data, flags[i]);
+
+            if (shape != null) {
+                outline = shape;
+            }
+
+            terrain.addAll(readTerrain(data));
+        }
+
+        return outline;
+    }
+
+    /**
+     * Reads past a record's section of new robots, if it has one
+     */
+    private void skipRobots(DataInputStream data, int kind) throws IOException {
+        if ((kind & ReplayRecorder.ROBOTS) != 0) {
+            for (int n = data.readShort(); n > 0; n--) {
+                data.readShort();
+                data.readUTF();
+                data.readUTF();
+
+                if (version >= 2) {
+                    data.readFloat();
+                    data.readFloat();
+                    data.readInt();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The outline of the arena written ahead of all terrain, or null
+     * if the section has none
+     */
+    private Path2D readOutline(DataInputStream data, int kind) throws IOException {
+        if ((version >= 2) && ((kind & ReplayRecorder.TERRAIN_ALL) != 0)) {
+            return readShape(data);
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The terrain written in a record's terrain section
+     */
+    private static List<Terrain> readTerrain(DataInputStream data) throws IOException {
+        List<Terrain> terrain = new ArrayList<Terrain>();
+
+        for (int n = data.readShort(); n > 0; n--) {
+            boolean blocks      = (data.readByte() & ReplayRecorder.IMPASSABLE) != 0;
+            double  friction    = data.readFloat();
+            String  description = data.readUTF();
+            Entity  shape       = new Entity(readShape(data));
+            Terrain t;
+
+            if (blocks) {
+                t = new Terrain(shape);
+                t.setDescription(description);
+            } else {
+                t = new Terrain(shape, friction, description);
+            }
+
+            terrain.add(t);
+        }
+
+        return terrain;
+    }
+
+    private static Path2D readShape(DataInputStream data) throws IOException {
+        Path2D.Float shape  = new Path2D.Float(data.readByte());
+        float[]      coords = new float[6];
+
+        for (int type = data.readByte(); type != ReplayRecorder.END; type = data.readByte()) {
+            for (int i = 0; i < points(type) * 2; i++) {
+                coords[i] = data.readFloat();
+            }
+
+            switch (type) {
+            case PathIterator.SEG_MOVETO :
+                shape.moveTo(coords[0], coords[1]);
+
+                break;
+
+            case PathIterator.SEG_LINETO :
+                shape.lineTo(coords[0], coords[1]);
+
+                break;
+
+            case PathIterator.SEG_QUADTO :
+                shape.quadTo(coords[0], coords[1], coords[2], coords[3]);
+
+                break;
+
+            case PathIterator.SEG_CUBICTO :
+                shape.curveTo(coords[0], coords[1], coords[2], coords[3], coords[4], coords[5]);
+
+                break;
+
+            default :
+                shape.closePath();
+            }
+        }
+
+        return shape;
+    }
+
+    /**
+     * @return A stream over the body of a record, after its header
+     */
+    private DataInputStream open(long offset, int length) throws IOException {
+        byte[] bytes = new byte[length - ReplayRecorder.RECORD_HEADER];
+
+        at(offset + ReplayRecorder.RECORD_HEADER, bytes.length).get(bytes);
+
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * @return A buffer positioned at an offset of the file with at least the
+     * given number of bytes after it, mapping a new window if need be
+     */
+    private ByteBuffer at(long offset, int length) throws IOException {
+        if ((window == null) || (offset < windowStart) || (offset + length > windowStart + window.limit())) {
+            long size = Math.max(length, Math.min(WINDOW, channel.size() - offset));
+
+            window      = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+            windowStart = offset;
+        }
+
+        window.position((int) (offset - windowStart));
+
+        return window;
+    }
+
+    /**
+     * The state of a simulation after one step
+     */
+    public static final class Frame {
+        private final long      step;
+        private final double    timeElapsed;
+        private final boolean   runStart;
+        private final int[]     robotIds;
+        private final float[]   robotState;
+        private final byte[]    arms;
+        private final byte[]    held;
+        private final int[]     cupIds;
+        private final float[]   cupPlaces;
+        private final byte[]    cupFlags;
+
+        Frame(long step, double timeElapsed, int kind, DataInputStream data) throws IOException {
+            this.step        = step;
+            this.timeElapsed = timeElapsed;
+            this.runStart    = (kind & ReplayRecorder.RUN_START) != 0;
+
+            int robots = data.readShort();
+
+            robotIds   = new int[robots];
+            robotState = new float[robots * 6];
+            arms       = new byte[robots];
+            held       = new byte[robots];
+
+            for (int i = 0; i < robots; i++) {
+                robotIds[i] = data.readShort();
+
+                for (int j = 0; j < 6; j++) {
+                    robotState[i * 6 + j] = data.readFloat();
+                }
+
+                arms[i] = data.readByte();
+                held[i] = data.readByte();
+            }
+
+            int cups = data.readInt();
+
+            cupIds    = new int[cups];
+            cupPlaces = new float[cups * 2];
+            cupFlags  = new byte[cups];
+
+            for (int i = 0; i < cups; i++) {
+                cupIds[i]            = data.readInt();
+                cupPlaces[i * 2]     = data.readFloat();
+                cupPlaces[i * 2 + 1] = data.readFloat();
+                cupFlags[i]          = data.readByte();
+            }
+        }
+
+        /**
+         * @return The simulation step
+         */
+        public long getStep() {
+            return step;
+        }
+
+        /**
+         * @return The simulated time in seconds
+         */
+        public double getTimeElapsed() {
+            return timeElapsed;
+        }
+
+        /**
+         * @return True if this is the first step of a run
+         */
+        public boolean isRunStart() {
+            return runStart;
+        }
+
+        /**
+         * @return The number of robots in play
+         */
+        public int getRobotCount() {
+            return robotIds.length;
+        }
+
+        /**
+         * @param i A robot of this step, from 0
+         * @return The robot's number in the log
+         */
+        public int getRobotId(int i) {
+            return robotIds[i];
+        }
+
+        /**
+         * @param i A robot of this step, from 0
+         * @return The x coordinate of its centre of mass
+         */
+        public double getX(int i) {
+            return robotState[i * 6];
+        }
+
+        /**
+         * @param i A robot of this step, from 0
+         * @return The y coordinate of its centre of mass
+         */
+        public double getY(int i) {
+            return robotState[i * 6 + 1];
+        }
+
+        /**
+         * @param i A robot of this step, from 0
+         * @return Its angle
+         */
+        public double getAngle(int i) {
+            return robotState[i * 6 + 2];
+        }
+
+        /**
+         * @param i A robot of this step, from 0
+         * @return Its speed
+         */
+        public double getVelocity(int i) {
+            return robotState[i * 6 + 3];
+        }
+
+        /**
+         * @param i A robot of this step, from 0
+         * @return The motor output its brain decided on
+         */
+        public double getMotor(int i) {
+            return robotState[i * 6 + 4];
+        }
+
+        /**
+         * @param i A robot of this step, from 0
+         * @return The steering output its brain decided on
+         */
+        public double getSteering(int i) {
+            return robotState[i * 6 + 5];
+        }
+
+        /**
+         * @param i A robot of this step, from 0
+         * @return True if its brain had the arm working
+         */
+        public boolean isArmActive(int i) {
+            return (arms[i] & ReplayRecorder.ARM) != 0;
+        }
+
+        /**
+         * @param i A robot of this step, from 0
+         * @return The number of cups it holds
+         */
+        public int getHeldCount(int i) {
+            return held[i];
+        }
+
+        /**
+         * @return The number of cups lying free
+         */
+        public int getCupCount() {
+            return cupIds.length;
+        }
+
+        /**
+         * @param i A cup of this step, from 0
+         * @return The cup's number in the log
+         */
+        public int getCupId(int i) {
+            return cupIds[i];
+        }
+
+        /**
+         * @param i A cup of this step, from 0
+         * @return The x coordinate of the cup
+         */
+        public double getCupX(int i) {
+            return cupPlaces[i * 2];
+        }
+
+        /**
+         * @param i A cup of this step, from 0
+         * @return The y coordinate of the cup
+         */
+        public double getCupY(int i) {
+            return cupPlaces[i * 2 + 1];
+        }
+
+        /**
+         * @param i A cup of this step, from 0
+         * @return True if the cup is still full
+         */
+        public boolean isCupFull(int i) {
+            return (cupFlags[i] & ReplayRecorder.FULL) != 0;
+        }
+
+        /**
+         * @param i A cup of this step, from 0
+         * @return True if the cup is still upright
+         */
+        public boolean isCupUpright(int i) {
+            return (cupFlags[i] & ReplayRecorder.UPRIGHT) != 0;
+        }
+    }
+}
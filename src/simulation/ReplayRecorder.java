@@ -0,0 +1,409 @@
+package simulation;
+
+import publishersubscriber.SimulatorPublisher;
+import publishersubscriber.SimulatorSubscriber;
+import simulation.entities.Cup;
+import simulation.entities.Robot;
+import simulation.entities.RobotOutput;
+import simulation.geometry.Environment;
+import simulation.geometry.Terrain;
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ReplayRecorder writes every step of a simulation to a log, for analysis
+ * after the run. Once given to {@link Simulator#setRecorder(ReplayRecorder)}
+ * each step appends a record of the pose, speed, outputs and cups held of
+ * every robot, the position and state of every cup, and any terrain added.
+ * Robots are written by number, and their names, brains and measurements are
+ * written once when they first appear. A reset of the simulation starts a new run in the
+ * same log. {@link ReplayReader} reads the log back.
+ *
+ * The log is an append-only file written through memory mapped regions, so
+ * recording a step only copies a few bytes into memory and never waits on
+ * the disk. The operating system writes the pages out in its own time. Once
+ * a step's record is complete its length is written at its start, so a log
+ * cut short by a crash reads back up to the last whole step. Poses and
+ * outputs are written as floats to keep records small.
+ *
+ * @author Simon
+ */
+public class ReplayRecorder implements SimulatorSubscriber {
+
+    /**
+     * The default size of each mapped region of the log, 16MB
+     */
+    public static final int       DEFAULT_REGION = 16 << 20;
+
+    static final int              MAGIC          = 0x52524C47;
+    static final int              VERSION        = 2;
+    static final int              HEADER         = 16;
+    static final int              RECORD_HEADER  = 13;
+    static final int              ROBOT_BYTES    = 28;
+    static final int              CUP_BYTES      = 13;
+    static final int              RUN_START      = 1;
+    static final int              ROBOTS         = 2;
+    static final int              TERRAIN        = 4;
+    static final int              TERRAIN_ALL    = 8;
+    static final int              ARM            = 1;
+    static final int              FULL           = 1;
+    static final int              UPRIGHT        = 2;
+    static final int              IMPASSABLE     = 1;
+    static final int              END            = -1;
+
+    private final File                  file;
+    private final RandomAccessFile      access;
+    private final FileChannel           channel;
+    private final int                   regionSize;
+    private MappedByteBuffer            region;
+    private long                        regionStart;
+    private final ByteArrayOutputStream extraBytes = new ByteArrayOutputStream();
+    private final DataOutputStream      extra      = new DataOutputStream(extraBytes);
+    private final Map<Robot, Integer>   robotIds   = new IdentityHashMap<Robot, Integer>();
+    private final Map<Cup, Integer>     cupIds     = new IdentityHashMap<Cup, Integer>();
+    private final List<Robot>           newRobots  = new ArrayList<Robot>();
+    private List<Terrain>               terrain    = new ArrayList<Terrain>();
+    private Environment                 environment;
+    private boolean                     runStart   = true;
+    private long                        frames;
+    private boolean                     closed;
+    private IOException                 failure;
+
+    /**
+     * Starts a new log, replacing any file already there
+     * @param file The log file
+     * @throws IOException When the file can't be written
+     */
+    public ReplayRecorder(File file) throws IOException {
+        this(file, DEFAULT_REGION);
+    }
+
+    /**
+     * Starts a new log, replacing any file already there
+     * @param file The log file
+     * @param regionSize The number of bytes to map at a time
+     * @throws IOException When the file can't be written
+     */
+    public ReplayRecorder(File file, int regionSize) throws IOException {
+        if (regionSize < HEADER) {
+            throw new IllegalArgumentException("The region size must be at least " + HEADER);
+        }
+
+        this.file       = file;
+        this.regionSize = regionSize;
+        this.access     = new RandomAccessFile(file, "rw");
+        this.channel    = access.getChannel();
+
+        channel.truncate(0);
+        region = channel.map(FileChannel.MapMode.READ_WRITE, 0, regionSize);
+        region.putInt(MAGIC);
+        region.putShort((short) VERSION);
+        region.putShort((short) 0);
+        region.putDouble(Simulator.DT);
+    }
+
+    /**
+     * @return The log file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return The number of steps recorded
+     */
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return The length of the log in bytes
+     */
+    public synchronized long getLength() {
+        return regionStart + region.position();
+    }
+
+    /**
+     * @return The error which stopped the recording, or null if all is well
+     */
+    public synchronized IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Writes out what is left of the log and closes it. Steps after this are
+     * not recorded.
+     * @throws IOException When the log can't be finished
+     */
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        region.force();
+
+        try {
+            channel.truncate(getLength());
+        } catch (IOException e) {
+
+            // Some systems won't shorten a mapped file, and the zeros left at the end read as the end
+        }
+
+        access.close();
+    }
+
+    /**
+     * Steps are recorded as they are made, not at the display's pace
+     * @param publisher The simulation
+     */
+    @Override
+    public void update(SimulatorPublisher publisher) {}
+
+    /**
+     * Starts a new run in the log
+     * @param publisher The simulation
+     */
+    @Override
+    public synchronized void simulatorResetted(SimulatorPublisher publisher) {
+        runStart = true;
+    }
+
+    /**
+     * Appends the state of the simulation after a step. This is called on the
+     * thread stepping the simulation. A failure to write stops the recording
+     * rather than the simulation, and is kept for {@link #getFailure()}.
+     * @param sim The simulation
+     */
+    synchronized void record(Simulator sim) {
+        if (closed || (failure != null)) {
+            return;
+        }
+
+        try {
+            write(sim);
+        } catch (IOException e) {
+            failure = e;
+            System.err.println("Replay recording stopped: " + e);
+        }
+    }
+
+    /**
+     * Writes one record
+     */
+    private void write(Simulator sim) throws IOException {
+        Collection<? extends Robot> robots = sim.getRobots();
+        Collection<Cup>             cups   = sim.getThings();
+        int                         flags  = runStart ? RUN_START : 0;
+
+        extraBytes.reset();
+        flags |= writeNewRobots(robots);
+        flags |= writeTerrain(sim.getEnvironment());
+
+        int robotCount = robots.size();
+        int cupCount   = cups.size();
+
+        ensure(RECORD_HEADER + extraBytes.size() + 2 + robotCount * ROBOT_BYTES + 4 + cupCount * CUP_BYTES);
+
+        int start = region.position();
+
+        region.position(start + 4);
+        region.put((byte) flags);
+        region.putLong(sim.getStep());
+
+        if (extraBytes.size() > 0) {
+            region.put(extraBytes.toByteArray());
+        }
+
+        int count = region.position();
+        int n     = 0;
+
+        region.putShort((short) 0);
+
+        for (Robot robot : robots) {
+            Integer id = robotIds.get(robot);
+
+            // Robots added by another thread since counting wait for the next step
+            if ((id == null) || (n == robotCount)) {
+                continue;
+            }
+
+            RobotOutput output = sim.getOutput(robot);
+
+            n++;
+            region.putShort(id.shortValue());
+            region.putFloat((float) robot.getX());
+            region.putFloat((float) robot.getY());
+            region.putFloat((float) robot.getAngle());
+            region.putFloat((float) robot.getVelocity());
+            region.putFloat((output == null) ? 0 : (float) output.getMotor());
+            region.putFloat((output == null) ? 0 : (float) output.getSteering());
+            region.put(((output != null) && output.isArmActive()) ? (byte) ARM : 0);
+            region.put((byte) Math.min(robot.getHeldItems().size(), Byte.MAX_VALUE));
+        }
+
+        region.putShort(count, (short) n);
+        count = region.position();
+        n     = 0;
+        region.putInt(0);
+
+        for (Cup cup : cups) {
+            if (n == cupCount) {
+                break;
+            }
+
+            Integer id = cupIds.get(cup);
+
+            if (id == null) {
+                id = cupIds.size();
+                cupIds.put(cup, id);
+            }
+
+            region.putInt(id);
+            region.putFloat((float) cup.getX());
+            region.putFloat((float) cup.getY());
+            region.put((byte) ((cup.isFull() ? FULL : 0) | (cup.isUpright() ? UPRIGHT : 0)));
+            n++;
+        }
+
+        region.putInt(count, n);
+
+        // Written last, so a record cut short reads as the end of the log
+        region.putInt(start, region.position() - start);
+        frames++;
+        runStart = false;
+    }
+
+    /**
+     * Numbers robots seen for the first time and writes their names and
+     * brains to the extra sections
+     * @return The flag for the section, or 0 if no robot is new
+     */
+    private int writeNewRobots(Collection<? extends Robot> robots) throws IOException {
+        newRobots.clear();
+
+        for (Robot robot : robots) {
+            if (!robotIds.containsKey(robot)) {
+                newRobots.add(robot);
+            }
+        }
+
+        if (newRobots.isEmpty()) {
+            return 0;
+        }
+
+        extra.writeShort(newRobots.size());
+
+        for (Robot robot : newRobots) {
+            int id = robotIds.size();
+
+            robotIds.put(robot, id);
+            extra.writeShort(id);
+            extra.writeUTF(robot.getDescription());
+            extra.writeUTF(robot.getFilePath());
+            extra.writeFloat((float) robot.getWidth());
+            extra.writeFloat((float) robot.getLength());
+            extra.writeInt(robot.getColour().getRGB());
+        }
+
+        return ROBOTS;
+    }
+
+    /**
+     * Writes terrain added since the last record to the extra sections, or
+     * the outline of the arena and all terrain at the start of a run or if
+     * any was taken away
+     * @return The flags for the section, or 0 if the terrain hasn't changed
+     */
+    private int writeTerrain(Environment env) throws IOException {
+        Collection<Terrain> now = env.getTerrain();
+
+        if (!runStart && (env == environment) && (now.size() == terrain.size())) {
+            return 0;
+        }
+
+        int kept = 0;
+
+        if (!runStart && (env == environment)) {
+            for (Terrain t : now) {
+                if ((kept == terrain.size()) || (terrain.get(kept) != t)) {
+                    break;
+                }
+
+                kept++;
+            }
+        }
+
+        boolean       all   = runStart || (env != environment) || (kept < terrain.size());
+        List<Terrain> added = new ArrayList<Terrain>(now);
+
+        terrain     = new ArrayList<Terrain>(added);
+        environment = env;
+
+        if (all) {
+            writeShape(env);
+        } else {
+            added = added.subList(kept, added.size());
+        }
+
+        extra.writeShort(added.size());
+
+        for (Terrain t : added) {
+            extra.writeByte(env.getImpassableTerrain().contains(t) ? IMPASSABLE : 0);
+            extra.writeFloat((float) t.getCoefficient());
+            extra.writeUTF(t.getDescription());
+            writeShape(t);
+        }
+
+        return all ? TERRAIN | TERRAIN_ALL : TERRAIN;
+    }
+
+    /**
+     * Writes the winding rule and the segments of a shape's outline, then an
+     * end marker
+     */
+    private void writeShape(Shape shape) throws IOException {
+        PathIterator path   = shape.getPathIterator(null);
+        float[]      coords = new float[6];
+
+        extra.writeByte(path.getWindingRule());
+
+        for (; !path.isDone(); path.next()) {
+            int type = path.currentSegment(coords);
+
+            extra.writeByte(type);
+
+            for (int i = 0; i < ReplayReader.points(type) * 2; i++) {
+                extra.writeFloat(coords[i]);
+            }
+        }
+
+        extra.writeByte(END);
+    }
+
+    /**
+     * Maps a new region starting where the last record ended if what is
+     * left of this one is too small
+     * @param size The size of the next record
+     */
+    private void ensure(int size) throws IOException {
+        if (region.remaining() < size) {
+            long position = getLength();
+
+            region      = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(regionSize, size));
+            regionStart = position;
+        }
+    }
+}
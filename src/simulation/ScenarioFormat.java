@@ -0,0 +1,360 @@
+package simulation;
+
+import simulation.entities.Cup;
+import simulation.entities.Robot;
+import simulation.geometry.Entity;
+import simulation.geometry.Environment;
+import simulation.geometry.Terrain;
+import simulation.geometry.XPoint;
+import java.awt.Color;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import javax.script.ScriptException;
+
+/**
+ * ScenarioFormat reads and writes the set up of a simulation in a compact
+ * binary form: the environment outline, its passable and impassable terrain,
+ * the cups and the robots. Robots are saved as the path of their brain and
+ * the measurements they were built with, so loading one runs its brain's
+ * constructor afresh.
+ *
+ * A scenario is a header of {@link #MAGIC} and a version, then the outline,
+ * then the terrain, cups and robots each as a count followed by that many
+ * records. Shapes are written as the segments of their outlines. Loading
+ * streams through the records building the world as it goes, so nothing is
+ * created by reflection and large batches of generated arenas load quickly.
+ * The world is built apart from the simulation and only handed over once the
+ * whole scenario has been read, so a scenario which can't be loaded leaves
+ * the simulation as it was. Scenarios of a newer version are refused.
+ *
+ * Only the set up is saved. Speeds, held cups and brain state are not; see
+ * {@link Checkpoint} for those.
+ *
+ * @author Simon
+ */
+public final class ScenarioFormat {
+
+    /**
+     * The first four bytes of every scenario, "RSCN"
+     */
+    public static final int    MAGIC     = 0x5253434E;
+
+    /**
+     * The version written
+     */
+    public static final int    VERSION   = 1;
+
+    /**
+     * The file extension for scenarios
+     */
+    public static final String EXTENSION = "scn";
+
+    private static final int   IMPASSABLE = 1;
+    private static final int   FULL       = 1;
+    private static final int   UPRIGHT    = 2;
+    private static final int   END        = -1;
+
+    private ScenarioFormat() {}
+
+    /**
+     * Writes the set up of a simulation. This must not be called while the
+     * simulation is stepping.
+     * @param sim The simulation
+     * @param out Where to write it, which is left open
+     * @throws IOException When the scenario can't be written
+     */
+    public static void write(Simulator sim, OutputStream out) throws IOException {
+        DataOutputStream data        = new DataOutputStream(new BufferedOutputStream(out));
+        Environment      environment = sim.getEnvironment();
+        Set<Terrain>     impassable  = Collections.newSetFromMap(new IdentityHashMap<Terrain, Boolean>());
+
+        impassable.addAll(environment.getImpassableTerrain());
+
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        writeShape(data, environment);
+
+        data.writeInt(environment.getTerrain().size());
+
+        for (Terrain terrain : environment.getTerrain()) {
+            data.writeByte(impassable.contains(terrain) ? IMPASSABLE : 0);
+            data.writeDouble(terrain.getCoefficient());
+            data.writeUTF(terrain.getDescription());
+            writeShape(data, terrain);
+        }
+
+        data.writeInt(sim.getThings().size());
+
+        for (Cup cup : sim.getThings()) {
+            data.writeDouble(cup.getX());
+            data.writeDouble(cup.getY());
+            data.writeByte((cup.isFull() ? FULL : 0) | (cup.isUpright() ? UPRIGHT : 0));
+        }
+
+        data.writeInt(sim.getRobots().size());
+
+        for (Robot robot : sim.getRobots()) {
+            data.writeUTF(robot.getFilePath());
+            data.writeUTF(robot.getDescription());
+            data.writeDouble(robot.getX());
+            data.writeDouble(robot.getY());
+            data.writeDouble(robot.getAngle());
+            data.writeDouble(robot.getWidth());
+            data.writeDouble(robot.getLength());
+            data.writeInt(robot.getColour().getRGB());
+            data.writeDouble(robot.getPower());
+            data.writeDouble(robot.getMass());
+        }
+
+        data.flush();
+    }
+
+    /**
+     * Writes the set up of a simulation to a file
+     * @param sim The simulation
+     * @param file The file to write, which is replaced
+     * @throws IOException When the file can't be written
+     */
+    public static void write(Simulator sim, File file) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+
+        try {
+            write(sim, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Sets up a simulation from a scenario, replacing everything it held. If
+     * the scenario can't be loaded the simulation is left unchanged.
+     * @param in Where to read the scenario from, which is left open
+     * @param sim The simulation to set up
+     * @throws IOException When the scenario can't be read or is not valid
+     * @throws ScriptException When a robot's brain can't be run
+     */
+    public static void read(InputStream in, Simulator sim) throws IOException, ScriptException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a scenario");
+        }
+
+        int version = data.readUnsignedShort();
+
+        if (version > VERSION) {
+            throw new IOException("The scenario is version " + version + ", newer than this simulator reads");
+        }
+
+        // Built apart, so that nothing changes unless the whole scenario loads
+        Simulator   staged      = new Simulator(true);
+        Environment environment = staged.getEnvironment();
+
+        staged.setCollisionEngine(sim.getCollisionEngine());
+        environment.setShape(new Entity(readShape(data)));
+
+        for (int i = count(data); i > 0; i--) {
+            boolean blocks      = (data.readByte() & IMPASSABLE) != 0;
+            double  friction    = data.readDouble();
+            String  description = data.readUTF();
+            Entity  shape       = new Entity(readShape(data));
+            Terrain terrain;
+
+            if (blocks) {
+                terrain = new Terrain(shape);
+                terrain.setDescription(description);
+            } else {
+                terrain = new Terrain(shape, friction, description);
+            }
+
+            environment.addTerrain(terrain);
+        }
+
+        for (int i = count(data); i > 0; i--) {
+            double x     = data.readDouble();
+            double y     = data.readDouble();
+            int    flags = data.readByte();
+            Cup    cup   = new Cup(x, y, (flags & FULL) != 0);
+
+            if ((flags & UPRIGHT) == 0) {
+                cup.knockOver();
+            }
+
+            if (!staged.addInanimate(cup)) {
+                throw new IOException("A cup can't be placed at " + x + ", " + y);
+            }
+        }
+
+        for (int i = count(data); i > 0; i--) {
+            String brainPath = data.readUTF();
+            String name      = data.readUTF();
+            XPoint location  = new XPoint(data.readDouble(), data.readDouble());
+            double angle     = data.readDouble();
+            double width     = data.readDouble();
+            double length    = data.readDouble();
+            Color  colour    = new Color(data.readInt(), true);
+            double power     = data.readDouble();
+            double mass      = data.readDouble();
+            Robot  robot     = new Robot(brainPath, name, location, angle, width, length, colour, power, mass);
+
+            if (!staged.addRobot(robot)) {
+                throw new IOException(name + " can't be placed at " + location);
+            }
+        }
+
+        sim.replaceWorld(staged);
+    }
+
+    /**
+     * Sets up a simulation from a scenario file, replacing everything it held
+     * @param file The scenario file
+     * @param sim The simulation to set up
+     * @throws IOException When the file can't be read or is not a valid scenario
+     * @throws ScriptException When a robot's brain can't be run
+     */
+    public static void read(File file, Simulator sim) throws IOException, ScriptException {
+        InputStream in = new FileInputStream(file);
+
+        try {
+            read(in, sim);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @param file A scenario file
+     * @return A scenario for the {@link BatchRunner} which reads the file
+     * each time a run is set up
+     */
+    public static BatchRunner.Scenario scenario(final File file) {
+        return new BatchRunner.Scenario() {
+            @Override
+            public void setUp(Simulator sim) throws IOException, ScriptException {
+                read(file, sim);
+            }
+        };
+    }
+
+    /**
+     * @return The number of records which follow
+     */
+    private static int count(DataInputStream data) throws IOException {
+        int count = data.readInt();
+
+        if (count < 0) {
+            throw new IOException("The scenario is corrupt");
+        }
+
+        return count;
+    }
+
+    /**
+     * Writes the winding rule and the segments of a shape's outline, then an
+     * end marker
+     */
+    private static void writeShape(DataOutputStream data, Shape shape) throws IOException {
+        PathIterator path   = shape.getPathIterator(null);
+        double[]     coords = new double[6];
+
+        data.writeByte(path.getWindingRule());
+
+        for (; !path.isDone(); path.next()) {
+            int type = path.currentSegment(coords);
+
+            data.writeByte(type);
+
+            for (int i = 0; i < points(type) * 2; i++) {
+                data.writeDouble(coords[i]);
+            }
+        }
+
+        data.writeByte(END);
+    }
+
+    /**
+     * @return A shape written by {@link #writeShape(DataOutputStream, Shape)}
+     */
+    private static Path2D readShape(DataInputStream data) throws IOException {
+        int rule = data.readByte();
+
+        if ((rule != PathIterator.WIND_EVEN_ODD) && (rule != PathIterator.WIND_NON_ZERO)) {
+            throw new IOException("The scenario is corrupt");
+        }
+
+        Path2D.Double shape  = new Path2D.Double(rule);
+        double[]      coords = new double[6];
+
+        for (int type = data.readByte(); type != END; type = data.readByte()) {
+            for (int i = 0; i < points(type) * 2; i++) {
+                coords[i] = data.readDouble();
+            }
+
+            switch (type) {
+            case PathIterator.SEG_MOVETO :
+                shape.moveTo(coords[0], coords[1]);
+
+                break;
+
+            case PathIterator.SEG_LINETO :
+                shape.lineTo(coords[0], coords[1]);
+
+                break;
+
+            case PathIterator.SEG_QUADTO :
+                shape.quadTo(coords[0], coords[1], coords[2], coords[3]);
+
+                break;
+
+            case PathIterator.SEG_CUBICTO :
+                shape.curveTo(coords[0], coords[1], coords[2], coords[3], coords[4], coords[5]);
+
+                break;
+
+            default :
+                shape.closePath();
+            }
+        }
+
+        return shape;
+    }
+
+    /**
+     * @param type A segment type of {@link PathIterator}
+     * @return The number of points the segment has
+     * @throws IOException When the type is not known
+     */
+    private static int points(int type) throws IOException {
+        switch (type) {
+        case PathIterator.SEG_MOVETO :
+        case PathIterator.SEG_LINETO :
+            return 1;
+
+        case PathIterator.SEG_QUADTO :
+            return 2;
+
+        case PathIterator.SEG_CUBICTO :
+            return 3;
+
+        case PathIterator.SEG_CLOSE :
+            return 0;
+
+        default :
+            throw new IOException("The scenario is corrupt");
+        }
+    }
+}
@@ -11,19 +11,37 @@ import simulation.geometry.XPoint;
 import simulation.entities.Cup;
 import simulation.entities.Robot;
 import simulation.entities.RobotOutput;
+import simulation.StepProfiler.Phase;
+import simulation.sensors.NoisySensor;
 import simulation.sensors.Sensor;
+import java.awt.geom.Rectangle2D;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.script.ScriptException;
+import simulation.geometry.AreaCollisionEngine;
 import simulation.geometry.Collision;
+import simulation.geometry.CollisionEngine;
+import simulation.geometry.Contact;
 import simulation.geometry.Entity;
+import simulation.geometry.SpatialGrid;
 import simulation.geometry.Terrain;
-import ux.usercontrol.DeflatedSimulator;
 
 
 /**
@@ -38,35 +56,69 @@ public class Simulator implements SimulatorPublisher, Serializable {
     // Tweakable values
     public static final double                    FPS                   = 50;
     public static final double                    DT                    = 1 / FPS;
-    private static final int                      MOTOR_NOISE_STDEV     = 1;
     private static final double                   SPILL_SIZE            = 150;
-    private static final double                   DEADZONE              = RobotOutput.MAX_MOTOR / 20;
     private static final double                   ROTATE_INCREMENT      = Math.PI/180;
+    private static final int                      CONTACT_PASSES        = 4;
+    private static final double                   CONTACT_SKIN          = 1e-6;
+    private static final RobotOutput              IDLE                  = new RobotOutput();
 
     // Simulation state containers and values
     private long                                  steps                 = 0;    // NB: this value will wrap around after 6 million millennia
+    private long                                  collisions            = 0;
+    private boolean                               headless              = false;
     private Environment                           environment;
-    private List<Cup>                             inanimates;
+    private SpatialGrid<Cup>                      inanimates;
     private transient ScriptException             issue;
     private transient RobotOutput                 output;
-    private Collection<Robot>                     robots;
+    private SpatialGrid<Robot>                    robots;
 
     // Utilities
-    private transient Random                      rand;
+    private RandomStreams                         randomStreams         = new RandomStreams();
+    private transient Map<Robot, Random>          motorNoise;
+    private transient Random                      spillNoise;
+    private transient int                         streamsHandedOut;
     private transient Scheduler                   scheduler;
     private transient Collection<SimulatorSubscriber> subscribers  = new CopyOnWriteArrayList<SimulatorSubscriber>();
+    private static ExecutorService                sensingPool;
+    private static ExecutorService                brainPool;
+    private boolean                               parallelSensing       = true;
+    private boolean                               pipelinedBrains       = false;
+    private boolean                               contactResolution     = true;
+    private transient Map<Robot, Future<RobotOutput>> thinking          = new IdentityHashMap<Robot, Future<RobotOutput>>();
+    private CollisionEngine                       collisionEngine       = new AreaCollisionEngine();
+    private transient volatile StepProfiler       profiler;
+    private transient BrainWatchdog               watchdog              = new BrainWatchdog();
+    private transient AtomicReference<WorldSnapshot> snapshot        = new AtomicReference<WorldSnapshot>();
+    private transient volatile boolean            snapshotTaken         = true;
+    private transient Map<String, Checkpoint>     checkpoints           = new LinkedHashMap<String, Checkpoint>();
+    private transient Map<Robot, RobotOutput>     outputs               = new IdentityHashMap<Robot, RobotOutput>();
+    private transient volatile ReplayRecorder     recorder;
+    private transient KinematicState              kinematics            = new KinematicState();
     private static final long serialVersionUID = 1L;
 
     /**
      * A new Simulator object sets up the field in a fresh state.
      */
     public Simulator() {
-        rand        = new Random();
-        scheduler   = chooseScheduler();
+        this(false);
+    }
+
+    /**
+     * A new Simulator object sets up the field in a fresh state.
+     *
+     * @param headless True to step the simulation with a {@link HeadlessScheduler}
+     * instead of a wall-clock timer, for batch runs without a GUI.
+     */
+    public Simulator(boolean headless) {
+        this.headless = headless;
+        resetStreams();
 
-        inanimates  = new CopyOnWriteArrayList<Cup>();
-        robots      = new CopyOnWriteArrayList<Robot>();
+        inanimates  = new SpatialGrid<Cup>();
+        robots      = new SpatialGrid<Robot>();
         environment = new Environment();
+
+        // Last, as a scheduler may step or take snapshots straight away
+        scheduler   = chooseScheduler();
     }
 
 
@@ -74,11 +126,39 @@ public class Simulator implements SimulatorPublisher, Serializable {
      * Removes all robots, terrains and inanimates
      */
     public void clearAll() {
+        for (Robot robot : robots) {
+            robot.discardBrain();
+        }
+
         robots.clear();
         inanimates.clear();
         environment.clear();
     }
 
+    /**
+     * Replaces all robots, terrains and inanimates with those of another
+     * simulation, along with the environment's outline. Nothing is checked
+     * for placement again. The other simulation must never have been stepped
+     * and must not be used afterwards.
+     * @param other The simulation holding the new world
+     */
+    void replaceWorld(Simulator other) {
+        clearAll();
+        environment.setShape(other.environment);
+
+        for (Terrain terrain : other.environment.getTerrain()) {
+            environment.addTerrain(terrain);
+        }
+
+        for (Cup inanimate : other.inanimates) {
+            inanimates.add(inanimate);
+        }
+
+        for (Robot robot : other.robots) {
+            robots.add(robot);
+        }
+    }
+
     /**
      * @param robot An new robot to place
      *
@@ -133,16 +213,18 @@ public class Simulator implements SimulatorPublisher, Serializable {
      * @return boolean
      */
     public boolean testShape(Entity shape) {
-        if (environment.obstructs(shape)) {
+        if (environment.obstructs(shape, collisionEngine)) {
             return false;
         }
-        for (Entity robot : robots) {
-            if (robot.intersects(shape)) {
+        Rectangle2D bounds = shape.getBounds2D();
+
+        for (Entity robot : robots.query(bounds)) {
+            if (collisionEngine.intersects(robot, shape)) {
                 return false;
             }
         }
-        for (Entity inanimate : inanimates) {
-            if (inanimate != shape && inanimate.intersects(shape)) {
+        for (Entity inanimate : inanimates.query(bounds)) {
+            if (inanimate != shape && collisionEngine.intersects(inanimate, shape)) {
                 return false;
             }
         }
@@ -154,25 +236,106 @@ public class Simulator implements SimulatorPublisher, Serializable {
      */
     public void reset() {
         clearAll();
-        steps = 0;
+        steps      = 0;
+        collisions = 0;
+        resetStreams();
+        stopThinking();
+        outputs.clear();
+        watchdog.reset();
+        snapshot.set(takeSnapshot());
+        notifySubscribers();
+        subscriberReset();
+    }
+
+    /**
+     * Saves the state of the simulation as it is now, to be put back with
+     * {@link #restore(Checkpoint)}. This must not be called while the
+     * simulation is stepping.
+     * @return The checkpoint
+     */
+    public Checkpoint checkpoint() {
+        return new Checkpoint(steps, collisions, environment, robots, inanimates);
+    }
+
+    /**
+     * Puts the simulation back as it was when the checkpoint was taken, in
+     * place. Robots, cups and terrain added since are removed, and those
+     * removed since are put back. This must not be called while the
+     * simulation is stepping.
+     * @param checkpoint A checkpoint of this simulation
+     * @throws IOException When a brain's file does not exist or the application does not have read access
+     * @throws ScriptException When a brain can't be started again
+     */
+    public void restore(Checkpoint checkpoint) throws IOException, ScriptException {
+        stopThinking();
+        outputs.clear();
+        environment = checkpoint.getEnvironment();
+        checkpoint.restore(robots, inanimates);
+        steps      = checkpoint.getStep();
+        collisions = checkpoint.getCollisions();
+        resetStreams();
+        watchdog.reset();
+        snapshot.set(takeSnapshot());
         notifySubscribers();
         subscriberReset();
     }
 
+    /**
+     * Saves the state of the simulation under a name, replacing any
+     * checkpoint already saved under it.
+     * @param name The name of the checkpoint
+     */
+    public void saveCheckpoint(String name) {
+        checkpoints.put(name, checkpoint());
+    }
+
+    /**
+     * Puts the simulation back as it was when the named checkpoint was saved.
+     * The checkpoint is kept, so it may be restored again.
+     * @param name The name of the checkpoint
+     * @throws IOException When a brain's file does not exist or the application does not have read access
+     * @throws ScriptException When a brain can't be started again
+     */
+    public void restoreCheckpoint(String name) throws IOException, ScriptException {
+        Checkpoint checkpoint = checkpoints.get(name);
+
+        if (checkpoint == null) {
+            throw new IllegalArgumentException("No checkpoint named " + name);
+        }
+
+        restore(checkpoint);
+    }
+
+    /**
+     * @return The names of the saved checkpoints, oldest first
+     */
+    public Set<String> getCheckpointNames() {
+        return Collections.unmodifiableSet(checkpoints.keySet());
+    }
+
+    /**
+     * @param name The name of a checkpoint
+     * @return True if the checkpoint existed and has been forgotten
+     */
+    public boolean removeCheckpoint(String name) {
+        return checkpoints.remove(name) != null;
+    }
+
     /**
      * The main game loop, designed to be called at a fixed rate.
      */
     public void gameLoop() {
-        for (Robot robot : robots) {
+        StepProfiler             profiler = this.profiler;
+        long                     start    = (profiler == null) ? 0 : System.nanoTime();
+        long                     mark     = start;
+        Map<Robot, RobotOutput>  decided  = null;
 
-            // Update all the robot's sensors
-            for (Sensor s : robot.getSensors()) {
-                s.setObject(robot);
-                s.analyse(environment, robots, inanimates);
-            }
+        assignStreams();
 
+        // Pipelined brains decided last step's outputs while it was resolved
+        if (pipelinedBrains) {
             try {
-                output = robot.update();
+                decided = collectThoughts();
             } catch (ScriptException e) {
                 scheduler.pause();
                 issue = e;
@@ -180,17 +343,84 @@ public class Simulator implements SimulatorPublisher, Serializable {
                 return;
             }
 
-            RigidBody newShape = findNewState(robot, output);
+            if (profiler != null) {
+                mark = profiler.record(Phase.BRAIN, mark);
+            }
+        }
+
+        // Sensing only reads the world so every robot may sense at once
+        senseAll(profiler);
 
-            if (resolve(robot, newShape)) {
-                robot.setShape(newShape);
+        if (profiler != null) {
+            mark = profiler.record(Phase.SENSE, mark);
+        }
+
+        if (pipelinedBrains) {
+            startThinking();
+        }
+
+        KinematicState kinematics = this.kinematics;
+
+        kinematics.clear();
+
+        for (Robot robot : robots) {
+            long robotStart = mark;
+
+            if (decided != null) {
+                output = decided.get(robot);
+
+                // Robots new this step have nothing decided yet
+                if (output == null) {
+                    output = IDLE;
+                }
             } else {
-                robot.setVelocity(0);
+                try {
+                    output = think(robot, steps);
+                } catch (ScriptException e) {
+                    scheduler.pause();
+                    issue = e;
+
+                    return;
+                }
+
+                if (profiler != null) {
+                    mark = profiler.record(Phase.BRAIN, mark);
+                }
+            }
+
+            outputs.put(robot, output);
+
+            int i = kinematics.add(robot, output, environment.getCoefficient(robot),
+                                   getMotorNoise(robot).nextGaussian());
+
+            if (profiler != null) {
+                mark = profiler.record(Phase.MOVE, mark);
+                kinematics.addTime(i, mark - robotStart);
+            }
+        }
+
+        // Every robot's speed and move at once, before any shapes are needed
+        kinematics.integrate();
+
+        if (profiler != null) {
+            mark = profiler.record(Phase.MOVE, mark);
+        }
+
+        for (int i = 0; i < kinematics.size(); i++) {
+            Robot robot      = kinematics.getRobot(i);
+            long  robotStart = mark;
+
+            output = outputs.get(robot);
+            robot.setVelocity(kinematics.getVelocity(i));
+            move(kinematics, i);
+
+            if (profiler != null) {
+                mark = profiler.record(Phase.RESOLVE, mark);
             }
 
             // collecting a cup or moving a block
             if (output.isArmActive()) {
-                for (Cup cup : inanimates) {
+                for (Cup cup : inanimates.query(robot.getCollectionArea().getBounds2D())) {
                     if (robot.getCollectionArea().intersects(cup)) {
                         double progress = robot.getCollectionProgress();
 
@@ -207,49 +437,361 @@ public class Simulator implements SimulatorPublisher, Serializable {
             } else {
                 robot.setCollectionProgress(0);
             }
+
+            if (profiler != null) {
+                mark = profiler.record(Phase.COLLECT, mark);
+                profiler.record(robot, kinematics.getTime(i) + mark - robotStart);
+            }
         }
         steps++;
+
+        ReplayRecorder recorder = this.recorder;
+
+        if (recorder != null) {
+            recorder.record(this);
+
+            if (profiler != null) {
+                mark = profiler.record(Phase.RECORD, mark);
+            }
+        }
+
+        if (profiler != null) {
+            profiler.record(Phase.STEP, start);
+        }
     }
 
     /**
-     * Calculates the potential new position of a robot given its current state and motor outputs. No collision
-     * detection is done here.
-     * @param robot The robot to be updated
-     * @param output The robot's output
-     * @return [0] The robot's transformed shape, [1] The shape used for collision checking.
+     * Asks a robot's brain for its outputs, holding it to its time budget
+     * @param robot The robot
+     * @param step The step the outputs are for
+     * @return The outputs
+     * @throws ScriptException If the brain failed, or overran and the
+     * watchdog's policy is to stop
      */
-    private RigidBody findNewState(final Robot robot, RobotOutput output) {
-        RigidBody newShape = new RigidBody(robot);
-        final double motorOut = output.getMotor();
-        final double steering = output.getSteering();
+    private RobotOutput think(Robot robot, long step) throws ScriptException {
+        if (watchdog.isSkipping(robot, step)) {
+            return IDLE;
+        }
+
+        RobotOutput     decision = null;
+        ScriptException failure  = null;
+
+        watchdog.begin(robot);
+
+        try {
+            decision = robot.update();
+        } catch (ScriptException e) {
+            failure = e;
+        }
+
+        BudgetExceededException overrun = watchdog.end(robot, step);
+
+        if (overrun != null) {
+            if (watchdog.getPolicy() == BrainWatchdog.Policy.STOP) {
+                failure = overrun;
+            } else if ((watchdog.getPolicy() == BrainWatchdog.Policy.SKIP) && (failure != null)) {
+
+                // Most likely cut short by the watchdog, so the robot just sits out
+                failure  = null;
+                decision = IDLE;
+            }
+        }
 
-        // TODO: Do this properly
+        if (failure != null) {
+            throw failure;
+        }
+
+        return decision;
+    }
+
+    /**
+     * Starts every robot's brain deciding its next outputs from the sensor
+     * readings just taken. The brains run while this step is resolved, and
+     * their outputs are collected at the start of the next step.
+     */
+    private void startThinking() {
+        final long      step = steps + 1;
+        ExecutorService pool = getBrainPool();
+
+        for (final Robot robot : robots) {
+            thinking.put(robot, pool.submit(new Callable<RobotOutput>() {
+                @Override
+                public RobotOutput call() throws ScriptException {
+
+                    // Copied, as the brain may change its outputs while they are acted on
+                    return new RobotOutput(think(robot, step));
+                }
+            }));
+        }
+    }
+
+    /**
+     * Waits for every brain started last step to decide
+     * @return The outputs of each robot
+     * @throws ScriptException If a brain failed, or overran and the
+     * watchdog's policy is to stop
+     */
+    private Map<Robot, RobotOutput> collectThoughts() throws ScriptException {
+        Map<Robot, RobotOutput> decided = new IdentityHashMap<Robot, RobotOutput>();
+        ScriptException         failure = null;
+
+        try {
+            for (Map.Entry<Robot, Future<RobotOutput>> entry : thinking.entrySet()) {
+                try {
+                    decided.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof ScriptException) {
+                        if (failure == null) {
+                            failure = (ScriptException) e.getCause();
+                        }
+                    } else if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    } else {
+                        throw new IllegalStateException(e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            thinking.clear();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        return decided;
+    }
+
+    /**
+     * Abandons any brains still deciding
+     */
+    private void stopThinking() {
+        for (Future<RobotOutput> thought : thinking.values()) {
+            thought.cancel(true);
+        }
+
+        thinking.clear();
+    }
+
+    /**
+     * Gives every robot that has none yet its own motor and sensor noise
+     * streams. Robots are numbered in the order they first take a step, so
+     * the same set up and seed always gives the same noise.
+     */
+    private void assignStreams() {
+        for (Robot robot : robots) {
+            getMotorNoise(robot);
+        }
+    }
+
+    /**
+     * @param robot A robot in the simulation
+     * @return The robot's motor noise stream, handing out its streams if it
+     * has none yet
+     */
+    private Random getMotorNoise(Robot robot) {
+        Random noise = motorNoise.get(robot);
+
+        if (noise == null) {
+            int number = streamsHandedOut++;
+            int sensor = 0;
+
+            noise = randomStreams.stream(RandomStreams.MOTOR, number);
+            motorNoise.put(robot, noise);
+
+            for (Sensor s : robot.getSensors()) {
+                if (s instanceof NoisySensor) {
+                    ((NoisySensor) s).setNoise(randomStreams.stream(RandomStreams.SENSOR, number, sensor));
+                }
+
+                sensor++;
+            }
+        }
+
+        return noise;
+    }
+
+    /**
+     * Restarts every noise stream from the seed
+     */
+    private void resetStreams() {
+        motorNoise       = new IdentityHashMap<Robot, Random>();
+        spillNoise       = randomStreams.stream(RandomStreams.SPILL);
+        streamsHandedOut = 0;
+    }
+
+    /**
+     * Updates the sensors of every robot against the current state of the
+     * world. When parallel sensing is enabled and there is more than one robot
+     * the robots are shared out over a pool of worker threads, which is safe
+     * as sensors only write to their own state. This method returns once all
+     * robots have finished sensing.
+     * @param profiler Where to record the time taken by each sensor, or null
+     */
+    private void senseAll(final StepProfiler profiler) {
+        if (!parallelSensing || (robots.size() < 2)) {
+            for (Robot robot : robots) {
+                sense(robot, profiler);
+            }
+
+            return;
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(robots.size());
+
+        for (final Robot robot : robots) {
+            tasks.add(Executors.callable(new Runnable() {
+                @Override
+                public void run() {
+                    sense(robot, profiler);
+                }
+            }));
+        }
+
+        try {
+            for (Future<Object> result : getSensingPool().invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Updates all of a robot's sensors
+     * @param robot The robot to sense for
+     * @param profiler Where to record the time taken by each sensor, or null
+     */
+    private void sense(Robot robot, StepProfiler profiler) {
+        for (Sensor s : robot.getSensors()) {
+            long start = (profiler == null) ? 0 : System.nanoTime();
+
+            s.setObject(robot);
+            s.analyse(environment, robots, inanimates);
+
+            if (profiler != null) {
+                profiler.record(s, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Brains may block or take a long time, so each running brain has a
+     * thread of its own, which is kept for the next step
+     * @return The threads for pipelined brains
+     */
+    private static synchronized ExecutorService getBrainPool() {
+        if (brainPool == null) {
+            ThreadFactory daemons = new ThreadFactory() {
+                private int count = 0;
+
+                @Override
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, "Brain " + (++count));
+
+                    thread.setDaemon(true);
 
-        newShape.rotate(steering * robot.getVelocity() / 10000);
+                    return thread;
+                }
+            };
+
+            brainPool = Executors.newCachedThreadPool(daemons);
+        }
+
+        return brainPool;
+    }
+
+    /**
+     * The sensing pool is shared by all simulators and sized to the number of
+     * processors. Its threads are daemons so they never hold the VM open.
+     * @return The pool used for the parallel sensing phase
+     */
+    private static synchronized ExecutorService getSensingPool() {
+        if (sensingPool == null) {
+            ThreadFactory daemons = new ThreadFactory() {
+                private int count = 0;
+
+                @Override
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, "Sensing " + (++count));
 
-        double acceleration = robot.getPower() * motorOut / robot.getMass();
+                    thread.setDaemon(true);
+
+                    return thread;
+                }
+            };
 
-        // Some non-linear motor deadzoning
-        if ((Math.abs(motorOut) < 10) && (Math.abs(robot.getVelocity()) < DEADZONE) && (motorOut * robot.getVelocity() > 0)) {
-            acceleration = 0;
+            sensingPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), daemons);
         }
 
-        double direction      = ((robot.getVelocity() > 0) ? 1 : -1);
-        double windResistance = robot.getVelocity() * 0.5;
-        double groundFriction = direction * robot.getMass() * environment.getCoefficient(robot);
-        double friction       = windResistance + groundFriction;
+        return sensingPool;
+    }
 
-        acceleration -= friction;
+    /**
+     * Moves a robot as worked out by the integrator, unless the move collides
+     * with something. The robot's new shape is only built if the move comes
+     * near enough to another robot, a cup, impassable terrain or the edge of
+     * the environment to need checking; otherwise it is moved in place.
+     * @param kinematics The integrated moves
+     * @param i The robot's number in the moves
+     */
+    private void move(KinematicState kinematics, int i) {
+        Robot  robot = kinematics.getRobot(i);
+        double turn  = kinematics.getTurn(i);
+        double dx    = kinematics.getDx(i);
+        double dy    = kinematics.getDy(i);
+
+        if (isClear(robot, kinematics.getNewX(i), kinematics.getNewY(i), kinematics.getReach(i))) {
+            if (separateCups(robot)) {
+                robot.move(turn, dx, dy);
+            } else {
+                robot.setVelocity(0);
+            }
+
+            return;
+        }
+
+        RigidBody newShape = new RigidBody(robot);
 
-        // Add in some gaussian noise
-        acceleration += rand.nextGaussian() * MOTOR_NOISE_STDEV;
+        newShape.move(turn, dx, dy);
 
-        double velocity = robot.getVelocity() + acceleration * DT;
+        if (resolve(robot, newShape)) {
+            robot.setShape(newShape);
+        } else {
+            robot.setVelocity(0);
+        }
+    }
+
+    /**
+     * A cheap test of a square about where a robot would move to. Every test
+     * in {@link #resolve(Robot, RigidBody)} first compares bounding boxes, so
+     * a move whose square touches nothing can't collide.
+     * @param robot The robot
+     * @param x The x coordinate its centre of mass would move to
+     * @param y The y coordinate its centre of mass would move to
+     * @param reach Half the width of the square
+     * @return true if nothing but the robot is in or touching the square
+     */
+    private boolean isClear(Robot robot, double x, double y, double reach) {
+        Rectangle2D square = new Rectangle2D.Double(x - reach, y - reach, 2 * reach, 2 * reach);
 
-        robot.setVelocity(velocity);
-        newShape.translate(-velocity * DT * Math.sin(robot.getAngle()), (velocity * DT * Math.cos(robot.getAngle())));
+        for (Robot otherRobot : robots.query(square)) {
+            if (otherRobot != robot) {
+                return false;
+            }
+        }
 
-        return newShape;
+        return inanimates.query(square).isEmpty()
+               && environment.getImpassableTerrain(square).isEmpty()
+               && environment.contains(square);
     }
 
     /**
@@ -259,28 +801,23 @@ public class Simulator implements SimulatorPublisher, Serializable {
      * @return false if the Robot is not in a legal position, otherwise returns true.
      */
     private boolean resolve(Robot robot, RigidBody newShape) {
-        for (Robot otherRobot : robots) {
-            if ((otherRobot != robot) && newShape.intersects(otherRobot)) {
+        for (Robot otherRobot : robots.query(newShape.getBounds2D())) {
+            if ((otherRobot != robot) && collisionEngine.intersects(newShape, otherRobot)) {
+                collisions++;
+
                 return false;
             }
         }
 
-        Collision enviroShapeCol = environment.obstructs(newShape);
-        int rotateCounter = 0;
+        Contact contact = contactResolution ? environment.contact(newShape) : null;
 
         //Robot colliding with the walls
-        while (enviroShapeCol.occurred()) {
-
-            // If the robot is not in a legal position after rotating 45deg then
-            // it is stuck
-            if (rotateCounter >= 80) {
+        if (contact != null) {
+            if (!pushOutOfWalls(robot, newShape, contact)) {
                 return false;
             }
-
-            boolean wallCollision = robotIntoEnvironment(robot, newShape, enviroShapeCol.getAngle());
-
-            enviroShapeCol = environment.obstructs(newShape);
-            rotateCounter++;
+        } else if (!rotateOffWalls(robot, newShape)) {
+            return false;
         }
 
 
@@ -289,10 +826,12 @@ public class Simulator implements SimulatorPublisher, Serializable {
             double robotVelocity;
             int infiniteLoopCheck = 0;
             double robotCriticalAngle = Math.atan2(robot.getWidth(), robot.getLength());
-            Collision shapeOnInanimateCol = newShape.collideWith(cup, robotCriticalAngle);
+            Collision shapeOnInanimateCol = newShape.collideWith(cup, robotCriticalAngle, collisionEngine);
 
             // If the robot hits a cup or block
             if (shapeOnInanimateCol.occurred()) {
+                collisions++;
+
                 while (shapeOnInanimateCol.occurred()) {
 
                     // Making sure the code doesn't get stick in an infinite loop
@@ -304,18 +843,18 @@ public class Simulator implements SimulatorPublisher, Serializable {
                         return false;
                     }
 
-                    shapeOnInanimateCol = newShape.collideWith(cup, robotCriticalAngle);
+                    shapeOnInanimateCol = newShape.collideWith(cup, robotCriticalAngle, collisionEngine);
                     infiniteLoopCheck++;
                 }
 
                 // If the cup that has just been moved is now hitting
                 // another robot, destroy the cup
-                for(Robot otherRobot : robots) {
+                for(Robot otherRobot : robots.query(cup.getBounds2D())) {
                     robotVelocity = robot.getVelocity();
 
                     if(otherRobot != robot) {
                         double criticalAngle = Math.atan2(otherRobot.getWidth(), otherRobot.getLength());
-                        Collision cupOnRobotCol = otherRobot.collideWith(cup, criticalAngle);
+                        Collision cupOnRobotCol = otherRobot.collideWith(cup, criticalAngle, collisionEngine);
                         if(cupOnRobotCol.occurred()) {
                             CupIntoRobot(cup);
                             return false;
@@ -323,7 +862,7 @@ public class Simulator implements SimulatorPublisher, Serializable {
                     }
                 }
 
-                Collision enviroOnCupCol = environment.obstructs(cup);
+                Collision enviroOnCupCol = environment.obstructs(cup, collisionEngine);
 
                 // If a cup hits the environment, crush it
                 if(enviroOnCupCol.occurred()) {
@@ -333,47 +872,209 @@ public class Simulator implements SimulatorPublisher, Serializable {
                 }
             }
 
+            if (!separateCups(robot, cup)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-            for (Cup otherCup : inanimates) {
-                robotVelocity = robot.getVelocity();
-                Collision cupOnCupColl = otherCup.collideWith(cup, 0);
+    /**
+     * Pushes apart any cups overlapping a cup, as happens when a robot has
+     * pushed one into another
+     * @param robot The robot being resolved
+     * @param cup The cup
+     * @return false if a cup was crushed and the robot must stop
+     */
+    private boolean separateCups(Robot robot, Cup cup) {
+        double robotVelocity;
 
-                // If an inanimate is hitting another inanimate
-                if((otherCup != cup) && cupOnCupColl.occurred()) {
-                    while ((otherCup != cup) && cupOnCupColl.occurred()) {
+        for (Cup otherCup : inanimates.query(cup.getBounds2D())) {
+            robotVelocity = robot.getVelocity();
+            Collision cupOnCupColl = otherCup.collideWith(cup, 0, collisionEngine);
 
-                        cupIntoCup(robot, otherCup, cupOnCupColl.getAngle());
-                        cupOnCupColl = otherCup.collideWith(cup, 0);
-                    }
+            // If an inanimate is hitting another inanimate
+            if((otherCup != cup) && cupOnCupColl.occurred()) {
+                while ((otherCup != cup) && cupOnCupColl.occurred()) {
 
+                    cupIntoCup(robot, otherCup, cupOnCupColl.getAngle());
+                    cupOnCupColl = otherCup.collideWith(cup, 0, collisionEngine);
+                }
 
-                    Collision enviroOnOtherCupCol = environment.obstructs(otherCup);
 
-                    // If a cup hits the environment, crush it
-                    if(enviroOnOtherCupCol.occurred()) {
-                        cupIntoEnvironment(otherCup);
+                Collision enviroOnOtherCupCol = environment.obstructs(otherCup, collisionEngine);
 
-                        return false;
-                    }
+                // If a cup hits the environment, crush it
+                if(enviroOnOtherCupCol.occurred()) {
+                    cupIntoEnvironment(otherCup);
 
+                    return false;
+                }
 
-                    // If the cup that has just been moved is now hitting
-                    // another robot, destroy the cup
-                    for(Robot otherRobot : robots) {
-                        if(otherRobot != robot) {
-                            double criticalAngle = Math.atan2(otherRobot.getWidth(), otherRobot.getLength());
-                            Collision cupOnRobotCol = otherRobot.collideWith(otherCup, criticalAngle);
-                            if(cupOnRobotCol.occurred()) {
-                                CupIntoRobot(otherCup);
-                                return false;
-                            }
+
+                // If the cup that has just been moved is now hitting
+                // another robot, destroy the cup
+                for(Robot otherRobot : robots.query(otherCup.getBounds2D())) {
+                    if(otherRobot != robot) {
+                        double criticalAngle = Math.atan2(otherRobot.getWidth(), otherRobot.getLength());
+                        Collision cupOnRobotCol = otherRobot.collideWith(otherCup, criticalAngle, collisionEngine);
+                        if(cupOnRobotCol.occurred()) {
+                            CupIntoRobot(otherCup);
+                            return false;
                         }
                     }
                 }
+            }
+
+        }
+
+        return true;
+    }
+
+    /**
+     * Pushes apart any overlapping cups. A robot whose move comes near
+     * nothing still does this, as checking its move would have.
+     * @param robot The robot being resolved
+     * @return false if a cup was crushed and the robot must stop
+     */
+    private boolean separateCups(Robot robot) {
+        for (Cup cup : inanimates) {
+            if (!separateCups(robot, cup)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Moves a robot's new shape out of the walls and impassable terrain it
+     * has gone into. A robot meeting a wall at an angle is first turned
+     * towards the wall, by just enough to lift the point furthest in back out
+     * but never past parallel, and loses the speed it had into the wall.
+     * Anything still in the wall is then pushed straight out along the
+     * contact normal. A robot driving head on into a wall is stopped, as it
+     * is by {@link #rotateOffWalls(Robot, RigidBody)}.
+     * @param robot The robot being resolved
+     * @param newShape Its new state
+     * @param contact The deepest contact of its new state
+     * @return false if the robot may not move
+     */
+    private boolean pushOutOfWalls(Robot robot, RigidBody newShape, Contact contact) {
+        if (!contact.occurred()) {
+            return true;
+        }
+
+        collisions++;
+
+        double velocity = robot.getVelocity();
+        double headingX = -Math.sin(newShape.getAngle()) * Math.signum(velocity);
+        double headingY = Math.cos(newShape.getAngle()) * Math.signum(velocity);
+        double into     = -(headingX * contact.getNormalX() + headingY * contact.getNormalY());
+        double along    = Math.abs(headingX * contact.getNormalY() - headingY * contact.getNormalX());
+
+        if (into > 0) {
+            if (along < Math.sin(ROTATE_INCREMENT)) {
+                return false;
+            }
+
+            robot.setVelocity(velocity * along);
+            newShape.rotate(turnOffWall(newShape, contact, headingX, headingY, Math.asin(Math.min(1, into))));
+            contact = environment.contact(newShape);
+        }
+
+        // A robot in a corner is pushed off one wall then the other
+        for (int pass = 0; contact.occurred(); pass++) {
+            if (pass >= CONTACT_PASSES) {
+                return false;
+            }
+
+            newShape.translate(contact.getNormalX() * (contact.getDepth() + CONTACT_SKIN),
+                               contact.getNormalY() * (contact.getDepth() + CONTACT_SKIN));
+            contact = environment.contact(newShape);
+        }
+
+        return true;
+    }
+
+    /**
+     * Finds the smallest turn of a shape about its centre of mass, towards
+     * the direction of a wall, which lifts the point of the shape furthest
+     * into the wall back out. Turning by t moves that point, at r from the
+     * centre, by a cos t + b sin t - a along the contact normal, where a and
+     * b are the parts of r and of r turned a right angle along the normal,
+     * so the turn is found in closed form.
+     * @param shape The shape
+     * @param contact Its deepest contact
+     * @param headingX The x component of its direction of travel
+     * @param headingY The y component of its direction of travel
+     * @param limit The turn which would leave it parallel to the wall
+     * @return The turn, no more than the limit, or 0 if turning towards the
+     * wall would not lift the point
+     */
+    private static double turnOffWall(RigidBody shape, Contact contact, double headingX, double headingY,
+                                      double limit) {
+        double normalX = contact.getNormalX();
+        double normalY = contact.getNormalY();
+        double sign    = Math.signum(normalY * headingX - normalX * headingY);
+        double rx      = contact.getX() - shape.getX();
+        double ry      = contact.getY() - shape.getY();
+        double a       = rx * normalX + ry * normalY;
+        double b       = rx * normalY - ry * normalX;
+        double h       = Math.hypot(a, b);
+
+        if ((sign == 0) || (b * sign <= 0)) {
+            return 0;
+        }
+
+        double turn = limit;
+
+        if (Math.abs(a + contact.getDepth()) <= h) {
+            double centre = Math.atan2(b, a);
+            double spread = Math.acos((a + contact.getDepth()) / h);
+
+            for (double candidate : new double[] {centre - spread, centre + spread}) {
+                candidate = Math.IEEEremainder(candidate, 2 * Math.PI) * sign;
+
+                if ((candidate > 0) && (candidate < turn)) {
+                    turn = candidate;
+                }
+            }
+        }
+
+        return sign * turn;
+    }
 
+    /**
+     * The original response to a robot hitting the walls or impassable
+     * terrain, which turns its new shape a degree at a time until it is
+     * clear, testing it against the environment after every turn
+     * @param robot The robot being resolved
+     * @param newShape Its new state
+     * @return false if the robot may not move
+     */
+    private boolean rotateOffWalls(Robot robot, RigidBody newShape) {
+        Collision enviroShapeCol = environment.obstructs(newShape, collisionEngine);
+        int rotateCounter = 0;
+
+        if (enviroShapeCol.occurred()) {
+            collisions++;
+        }
+
+        while (enviroShapeCol.occurred()) {
+
+            // If the robot is not in a legal position after rotating 45deg then
+            // it is stuck
+            if (rotateCounter >= 80) {
+                return false;
             }
 
+            boolean wallCollision = robotIntoEnvironment(robot, newShape, enviroShapeCol.getAngle());
+
+            enviroShapeCol = environment.obstructs(newShape, collisionEngine);
+            rotateCounter++;
         }
+
         return true;
     }
 
@@ -469,7 +1170,7 @@ public class Simulator implements SimulatorPublisher, Serializable {
      * @param angle The angle of incidence for this collision
      */
     private boolean robotIntoCup(Robot robot, Cup cup, double angle) {
-        if (cup.knockOver()) { environment.spillHotCoffeeEverywhere(cup.getCom(), SPILL_SIZE); }
+        if (cup.knockOver()) { environment.spillHotCoffeeEverywhere(cup.getCom(), SPILL_SIZE, spillNoise); }
 
         double xTrans = -robot.getVelocity() * DT * Math.sin(angle);
         double yTrans = robot.getVelocity() * DT * Math.cos(angle);
@@ -487,7 +1188,7 @@ public class Simulator implements SimulatorPublisher, Serializable {
      */
     private void cupIntoEnvironment(Cup cup) {
         if (cup.knockOver()) {
-            environment.spillHotCoffeeEverywhere(cup.getCom(), SPILL_SIZE);
+            environment.spillHotCoffeeEverywhere(cup.getCom(), SPILL_SIZE, spillNoise);
         }
         inanimates.remove(cup);
         environment.createNewPassableTerrain(new RigidBody(cup), 0.9);
@@ -523,7 +1224,7 @@ public class Simulator implements SimulatorPublisher, Serializable {
      */
     private void CupIntoRobot(Cup cup){
         if (cup.knockOver()) {
-            environment.spillHotCoffeeEverywhere(cup.getCom(), SPILL_SIZE);
+            environment.spillHotCoffeeEverywhere(cup.getCom(), SPILL_SIZE, spillNoise);
         }
         inanimates.remove(cup);
         environment.createNewPassableTerrain(new RigidBody(cup), 0.9);
@@ -539,33 +1240,47 @@ public class Simulator implements SimulatorPublisher, Serializable {
      */
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
-        scheduler = chooseScheduler();
-        rand = new Random();
-        subscribers  = new CopyOnWriteArrayList<SimulatorSubscriber>();
+        resetStreams();
+        watchdog      = new BrainWatchdog();
+        thinking      = new IdentityHashMap<Robot, Future<RobotOutput>>();
+        snapshot      = new AtomicReference<WorldSnapshot>();
+        snapshotTaken = true;
+        checkpoints   = new LinkedHashMap<String, Checkpoint>();
+        outputs       = new IdentityHashMap<Robot, RobotOutput>();
+        kinematics    = new KinematicState();
+        subscribers   = new CopyOnWriteArrayList<SimulatorSubscriber>();
+        scheduler     = chooseScheduler();
     }
 
     private Scheduler chooseScheduler() {
-        String os = System.getProperty("os.name").toLowerCase();
-
-        if((os.indexOf( "win" ) >= 0)){
-            //System.out.println("This is Windows");
-            return new WinScheduler(this);
+        if (headless) {
+            return new HeadlessScheduler(this);
+        }
 
-        }else if(os.indexOf( "mac" ) >= 0){
-            //System.out.println("This is Mac");
-            return new NixScheduler(this);
+        RealTimeScheduler realTime = new RealTimeScheduler(this);
 
-        }else if(os.indexOf( "nix") >=0 || os.indexOf( "nux") >=0){
-            //System.out.println("This is Unix or Linux");
-            return new NixScheduler(this);
+        realTime.start();
 
-        }else{
-            //System.out.println("Your OS is not support!!");
-            return new NixScheduler(this);
-        }
+        return realTime;
     }
 
     //<editor-fold defaultstate="collapsed" desc="Accessors and mutators for subscribers">
+    /**
+     * @return The number of steps taken in the current simulation
+     */
+    public long getStep() {
+        return steps;
+    }
+
+    /**
+     * @param robot A robot in the simulation
+     * @return The outputs the robot acted on in the last step, or null if it
+     * hasn't taken a step yet. This must be called between steps.
+     */
+    public RobotOutput getOutput(Robot robot) {
+        return outputs.get(robot);
+    }
+
     /**
      * @return The length in seconds of the current simulation
      */
@@ -574,6 +1289,14 @@ public class Simulator implements SimulatorPublisher, Serializable {
         return DT * steps;
     }
 
+    /**
+     * @return The number of times a robot has run into a wall, terrain, cup
+     * or another robot since the simulation was last reset
+     */
+    public long getCollisions() {
+        return collisions;
+    }
+
     /**
      * If this is null all is well. If a
      * ScriptException object is returned then
@@ -589,6 +1312,25 @@ public class Simulator implements SimulatorPublisher, Serializable {
         return temp;
     }
 
+    /**
+     * Collects the brain budget overruns since the last call, including
+     * brains which are hung right now. Under {@link BrainWatchdog.Policy#STOP}
+     * an overrun is also the simulation's issue.
+     * @return The latest overrun of each robot which overran
+     */
+    @Override
+    public List<BudgetExceededException> getOverruns() {
+        return watchdog.drain();
+    }
+
+    /**
+     * @return The watchdog holding each brain to its time budget, for
+     * setting the budget and policy and reading the timings
+     */
+    public BrainWatchdog getWatchdog() {
+        return watchdog;
+    }
+
     /**
      * @param subscriber The subscriber to be added to the list of subscribers
      */
@@ -606,12 +1348,61 @@ public class Simulator implements SimulatorPublisher, Serializable {
     }
 
     /**
-     * Notifies all subscribers that the simulation is ready to be painted
+     * Offers the display a new snapshot of the simulation, if it has taken
+     * the last one offered. A display slower than the simulation therefore
+     * costs one snapshot per frame rather than one per step. To be called by
+     * the scheduler between steps.
+     */
+    public void publishSnapshot() {
+        if (snapshotTaken) {
+            snapshotTaken = false;
+            snapshot.set(takeSnapshot());
+        }
+    }
+
+    /**
+     * Takes the latest snapshot offered by {@link #publishSnapshot()}. This
+     * never waits for the simulation, and may be called from any thread.
+     * @return The latest snapshot of the simulation
+     */
+    @Override
+    public WorldSnapshot getSnapshot() {
+        WorldSnapshot latest = snapshot.get();
+
+        if (latest == null) {
+            snapshot.compareAndSet(null, takeSnapshot());
+            latest = snapshot.get();
+        }
+
+        snapshotTaken = true;
+
+        return latest;
+    }
+
+    /**
+     * @return A snapshot of the simulation as it is now
+     */
+    private WorldSnapshot takeSnapshot() {
+        return new WorldSnapshot(steps, getTimeElapsed(), environment, robots, inanimates);
+    }
+
+    /**
+     * Notifies all subscribers that the simulation has changed. With a
+     * display this is called on the event dispatch thread at the display's
+     * frame rate, not once per step, and subscribers should paint from
+     * {@link #getSnapshot()}.
      */
     public void notifySubscribers() {
+        StepProfiler profiler = this.profiler;
+        long         start    = (profiler == null) ? 0 : System.nanoTime();
+
         for (SimulatorSubscriber subscriber : subscribers) {
             subscriber.update(this);
         }
+
+        if (profiler != null) {
+            profiler.record(Phase.NOTIFY, start);
+        }
     }
 
     /**
@@ -647,6 +1438,145 @@ public class Simulator implements SimulatorPublisher, Serializable {
         return Collections.unmodifiableCollection(inanimates);
     }
 
+    /**
+     * @return True if brains run alongside the simulation, a step behind
+     */
+    public boolean isPipelinedBrains() {
+        return pipelinedBrains;
+    }
+
+    /**
+     * @return True if robots are pushed out of walls rather than turned off
+     * them
+     */
+    public boolean isContactResolution() {
+        return contactResolution;
+    }
+
+    /**
+     * Robots which run into the walls or impassable terrain are normally
+     * pushed straight back out, along the normal of the wall and by the depth
+     * they went in, which costs one pass over the nearby edges. Turning this
+     * off brings back the original response, which turns the robot a degree
+     * at a time until it is clear and tests it against the whole environment
+     * after every turn. Curved robots, walls and terrain always get the
+     * original response.
+     * @param contactResolution True to push robots out of walls
+     */
+    public void setContactResolution(boolean contactResolution) {
+        this.contactResolution = contactResolution;
+    }
+
+    /**
+     * Pipelined brains decide their outputs on threads of their own, from
+     * one step's sensor readings, while that step is resolved. Their outputs
+     * are acted on in the next step, much as a real controller lags its
+     * sensors. Brains then overlap one another instead of adding up to the
+     * step time. Robots stand still in the first step after this is turned
+     * on, as their brains have yet to decide anything.
+     * @param pipelinedBrains True to run brains a step behind, alongside the
+     * simulation
+     */
+    public void setPipelinedBrains(boolean pipelinedBrains) {
+        if (!pipelinedBrains) {
+            stopThinking();
+        }
+
+        this.pipelinedBrains = pipelinedBrains;
+    }
+
+    /**
+     * @return True if robots sense in parallel at the start of each step
+     */
+    public boolean isParallelSensing() {
+        return parallelSensing;
+    }
+
+    /**
+     * Batch runs that already step many simulators at once may wish to turn
+     * this off to avoid oversubscribing the processors.
+     * @param parallelSensing True to let robots sense in parallel
+     */
+    public void setParallelSensing(boolean parallelSensing) {
+        this.parallelSensing = parallelSensing;
+    }
+
+    /**
+     * @return The seed all of the simulation's noise is drawn from
+     */
+    public long getSeed() {
+        return randomStreams.getSeed();
+    }
+
+    /**
+     * Reseeds the motor, sensor and spill noise. Two simulations set up
+     * alike and given the same seed step identically, whether or not their
+     * robots sense in parallel.
+     * @param seed The new seed
+     */
+    public void setSeed(long seed) {
+        randomStreams = new RandomStreams(seed);
+        resetStreams();
+    }
+
+    /**
+     * @return The profiler timing each step, or null if steps aren't timed
+     */
+    public StepProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Starts or stops timing each step. Profiling costs a few calls to
+     * {@link System#nanoTime()} per robot and sensor each step.
+     * @param profiler Where to record the times, or null to stop timing
+     */
+    public void setProfiler(StepProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * @return The recorder writing each step to a log, or null if none
+     */
+    public ReplayRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Records every step from now on to a log. The recorder is also told of
+     * resets, each of which starts a new run in the log.
+     * @param recorder Where to record the steps, or null to stop recording
+     */
+    public void setRecorder(ReplayRecorder recorder) {
+        if (this.recorder != null) {
+            removeSubscriber(this.recorder);
+        }
+
+        this.recorder = recorder;
+
+        if (recorder != null) {
+            addSubscriber(recorder);
+        }
+    }
+
+    /**
+     * @return The engine used for hit detection while resolving each step
+     */
+    public CollisionEngine getCollisionEngine() {
+        return collisionEngine;
+    }
+
+    /**
+     * Chooses how hit detection is done. The default is an
+     * {@link AreaCollisionEngine}, which copes with any shape. A
+     * {@link simulation.geometry.ConvexCollisionEngine} is much faster for
+     * arenas built from straight edged terrain and round cups.
+     * @param collisionEngine The engine to use from the next step on
+     */
+    public void setCollisionEngine(CollisionEngine collisionEngine) {
+        this.collisionEngine = collisionEngine;
+    }
+
     /**
      * @return Access to the scheduler running this simulation
      */
@@ -669,6 +1599,8 @@ public class Simulator implements SimulatorPublisher, Serializable {
         for (Entity entity : robots) {
             if (deletionEntity == entity) {
                 robots.remove(deletionEntity);
+                outputs.remove(deletionEntity);
+                ((Robot) deletionEntity).discardBrain();
             }
         }
         for (Entity entity : environment.getTerrain()) {
@@ -694,32 +1626,30 @@ public class Simulator implements SimulatorPublisher, Serializable {
         return isInSimulation;
     }
     /**
-     * Inflate a DeflatedSimulator
-     *
-     * @param backupSimulator The Simulator to be inflated.
+     * Replaces the arena and its terrain. Robots and cups are kept.
+     * @param environment The new environment
      */
-    public void inflate(DeflatedSimulator backupSimulator) {
-        clearAll();
-        environment = backupSimulator.environment;
-        robots.addAll(backupSimulator.robots);
-        inanimates.addAll(backupSimulator.inanimates);
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
     }
 
     public boolean canPlace(RigidBody oldShape, RigidBody newShape) {
-        for (Terrain otherEntity : environment.getTerrain()) {
-            if (otherEntity != oldShape && otherEntity.intersects(newShape)) {
+        Rectangle2D bounds = newShape.getBounds2D();
+
+        for (Terrain otherEntity : environment.getTerrain(bounds)) {
+            if (otherEntity != oldShape && collisionEngine.intersects(otherEntity, newShape)) {
                 return false;
             }
         }
 
-        for (Cup otherEntity : inanimates) {
-            if (otherEntity != oldShape && otherEntity.intersects(newShape)) {
+        for (Cup otherEntity : inanimates.query(bounds)) {
+            if (otherEntity != oldShape && collisionEngine.intersects(otherEntity, newShape)) {
                 return false;
             }
         }
 
-        for (Robot otherEntity : robots) {
-            if (otherEntity != oldShape && otherEntity.intersects(newShape)) {
+        for (Robot otherEntity : robots.query(bounds)) {
+            if (otherEntity != oldShape && collisionEngine.intersects(otherEntity, newShape)) {
                 return false;
             }
         }
@@ -0,0 +1,234 @@
+package simulation;
+
+import simulation.entities.Robot;
+import simulation.sensors.Sensor;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * StepProfiler records where the time of each simulation step goes.
+ *
+ * Once given to {@link Simulator#setProfiler(StepProfiler)} every step is
+ * timed phase by phase, and the work done for each robot and by each type of
+ * sensor is timed too. The results are kept as {@link LatencyHistogram}s,
+ * which may be read while the simulation runs or written out with
+ * {@link #dump(File)}. One profiler may be shared by several simulations.
+ *
+ * @author Simon
+ */
+public class StepProfiler {
+
+    /**
+     * The parts of a simulation step
+     */
+    public enum Phase {
+
+        /**
+         * A whole call to {@link Simulator#gameLoop()}
+         */
+        STEP,
+
+        /**
+         * All robots reading their sensors
+         */
+        SENSE,
+
+        /**
+         * One robot's brain script deciding its outputs
+         */
+        BRAIN,
+
+        /**
+         * Working out where the robots would move to, each robot's loading
+         * and then all of them at once
+         */
+        MOVE,
+
+        /**
+         * Checking one robot's move for collisions
+         */
+        RESOLVE,
+
+        /**
+         * One robot picking up cups
+         */
+        COLLECT,
+
+        /**
+         * Telling the subscribers, such as the display, about a step
+         */
+        NOTIFY,
+
+        /**
+         * Writing a step to the replay recorder
+         */
+        RECORD
+    }
+
+    private final Map<Phase, LatencyHistogram>            phases  = new EnumMap<Phase, LatencyHistogram>(Phase.class);
+    private final ConcurrentMap<Robot, LatencyHistogram>  robots  = new ConcurrentHashMap<Robot, LatencyHistogram>();
+    private final ConcurrentMap<String, LatencyHistogram> sensors = new ConcurrentHashMap<String, LatencyHistogram>();
+
+    /**
+     * A profiler with nothing recorded
+     */
+    public StepProfiler() {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * @param phase A part of the step
+     * @return The times taken by that part
+     */
+    public LatencyHistogram getPhase(Phase phase) {
+        return phases.get(phase);
+    }
+
+    /**
+     * The time each robot took in a step, from asking its brain for outputs
+     * to picking up cups. Sensing is not included as robots may sense at the
+     * same time; see {@link #getSensors()}.
+     * @return The histogram of each robot seen so far
+     */
+    public Map<Robot, LatencyHistogram> getRobots() {
+        return Collections.unmodifiableMap(robots);
+    }
+
+    /**
+     * @return The histogram of each type of sensor seen so far, by the simple
+     * name of the sensor's class
+     */
+    public Map<String, LatencyHistogram> getSensors() {
+        return Collections.unmodifiableMap(new TreeMap<String, LatencyHistogram>(sensors));
+    }
+
+    /**
+     * Forgets everything recorded so far
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : phases.values()) {
+            histogram.reset();
+        }
+
+        robots.clear();
+        sensors.clear();
+    }
+
+    /**
+     * @param phase The part of the step timed
+     * @param start When it started, from {@link System#nanoTime()}
+     * @return The time now, ready to start timing the next part
+     */
+    long record(Phase phase, long start) {
+        long now = System.nanoTime();
+
+        phases.get(phase).record(now - start);
+
+        return now;
+    }
+
+    /**
+     * @param robot The robot timed
+     * @param nanos How long it took
+     */
+    void record(Robot robot, long nanos) {
+        LatencyHistogram histogram = robots.get(robot);
+
+        if (histogram == null) {
+            LatencyHistogram fresh = new LatencyHistogram();
+
+            histogram = robots.putIfAbsent(robot, fresh);
+
+            if (histogram == null) {
+                histogram = fresh;
+            }
+        }
+
+        histogram.record(nanos);
+    }
+
+    /**
+     * @param sensor The sensor timed
+     * @param nanos How long it took to analyse
+     */
+    void record(Sensor sensor, long nanos) {
+        String           type      = sensor.getClass().getSimpleName();
+        LatencyHistogram histogram = sensors.get(type);
+
+        if (histogram == null) {
+            LatencyHistogram fresh = new LatencyHistogram();
+
+            histogram = sensors.putIfAbsent(type, fresh);
+
+            if (histogram == null) {
+                histogram = fresh;
+            }
+        }
+
+        histogram.record(nanos);
+    }
+
+    /**
+     * Writes a report of everything recorded so far
+     * @param out Where to write the report
+     */
+    public void report(PrintWriter out) {
+        out.println("Phase");
+
+        for (Phase phase : Phase.values()) {
+            out.printf("  %-10s %s%n", phase, phases.get(phase));
+        }
+
+        // Robots may share a name so they are numbered in the report
+        Map<String, LatencyHistogram> named = new LinkedHashMap<String, LatencyHistogram>();
+        int                           count = 0;
+
+        for (Map.Entry<Robot, LatencyHistogram> entry : robots.entrySet()) {
+            named.put("#" + (++count) + " " + entry.getKey().getDescription(), entry.getValue());
+        }
+
+        out.println("Robot");
+
+        for (Map.Entry<String, LatencyHistogram> entry : named.entrySet()) {
+            out.printf("  %-30s %s%n", entry.getKey(), entry.getValue());
+        }
+
+        out.println("Sensor");
+
+        for (Map.Entry<String, LatencyHistogram> entry : getSensors().entrySet()) {
+            out.printf("  %-20s %s%n", entry.getKey(), entry.getValue());
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Writes a report of everything recorded so far to a file
+     * @param file The file to write, which is replaced if it exists
+     * @throws IOException If the file can't be written
+     */
+    public void dump(File file) throws IOException {
+        PrintWriter out = new PrintWriter(new FileWriter(file));
+
+        try {
+            report(out);
+
+            if (out.checkError()) {
+                throw new IOException("Could not write " + file);
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
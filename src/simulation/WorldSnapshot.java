@@ -0,0 +1,344 @@
+package simulation;
+
+import simulation.entities.Cup;
+import simulation.entities.Robot;
+import simulation.geometry.Environment;
+import simulation.geometry.Terrain;
+import simulation.geometry.XPoint;
+import simulation.sensors.RobotRadar;
+import simulation.sensors.Sensor;
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * WorldSnapshot is a picture of a simulation taken between two steps.
+ *
+ * Everything that moves is copied when the snapshot is taken, so a display
+ * may paint a snapshot at its own pace while the simulation carries on
+ * stepping. Shapes handed out by a snapshot must not be changed. Terrain is
+ * shared rather than copied as it only changes while the simulation is
+ * paused for editing.
+ *
+ * @author Simon
+ */
+public final class WorldSnapshot {
+    private final long             step;
+    private final double           timeElapsed;
+    private final Environment      environment;
+    private final List<Terrain>    terrain;
+    private final List<RobotState> robots;
+    private final List<CupState>   cups;
+
+    /**
+     * Takes a snapshot. This must be called on the thread stepping the
+     * simulation, between steps. Any part of the world not yet built is
+     * taken to be empty, as a scheduler may ask for a snapshot while the
+     * simulator is still being set up.
+     * @param step The number of steps taken so far
+     * @param timeElapsed The simulated time so far
+     * @param environment The arena
+     * @param robots The robots to copy
+     * @param cups The cups to copy
+     */
+    WorldSnapshot(long step, double timeElapsed, Environment environment, Iterable<Robot> robots,
+                  Iterable<Cup> cups) {
+        List<RobotState> robotStates = new ArrayList<RobotState>();
+        List<CupState>   cupStates   = new ArrayList<CupState>();
+
+        if (robots != null) {
+            for (Robot robot : robots) {
+                robotStates.add(new RobotState(robot));
+            }
+        }
+
+        if (cups != null) {
+            for (Cup cup : cups) {
+                cupStates.add(new CupState(cup));
+            }
+        }
+
+        this.step        = step;
+        this.timeElapsed = timeElapsed;
+        this.environment = environment;
+        this.terrain     = (environment == null)
+                           ? Collections.<Terrain>emptyList()
+                           : Collections.unmodifiableList(new ArrayList<Terrain>(environment.getTerrain()));
+        this.robots      = Collections.unmodifiableList(robotStates);
+        this.cups        = Collections.unmodifiableList(cupStates);
+    }
+
+    /**
+     * @return The number of steps taken when the snapshot was taken
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * @return The simulated time when the snapshot was taken
+     */
+    public double getTimeElapsed() {
+        return timeElapsed;
+    }
+
+    /**
+     * @return The arena
+     */
+    public Environment getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * @return The terrain in the arena
+     */
+    public List<Terrain> getTerrain() {
+        return terrain;
+    }
+
+    /**
+     * @return The state of every robot, in the order the robots step
+     */
+    public List<RobotState> getRobots() {
+        return robots;
+    }
+
+    /**
+     * @param robot A robot
+     * @return The state of the robot, or null if it wasn't in the simulation
+     */
+    public RobotState getRobot(Robot robot) {
+        for (RobotState state : robots) {
+            if (state.robot == robot) {
+                return state;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The state of every cup not held by a robot
+     */
+    public List<CupState> getCups() {
+        return cups;
+    }
+
+    /**
+     * @return A copy of the shape which nothing else holds
+     */
+    private static Shape copy(Shape shape) {
+        return (shape == null) ? null : new Path2D.Double(shape);
+    }
+
+    /**
+     * A robot as it was when the snapshot was taken
+     */
+    public static final class RobotState {
+        private final Robot             robot;
+        private final Shape             shape;
+        private final Rectangle         bounds;
+        private final XPoint            com;
+        private final double            angle;
+        private final double            velocity;
+        private final double            collectionProgress;
+        private final Shape             collectionArea;
+        private final List<SensorState> sensors;
+
+        private RobotState(Robot robot) {
+            List<SensorState> sensorStates = new ArrayList<SensorState>();
+
+            for (Sensor sensor : robot.getSensors()) {
+                sensorStates.add(new SensorState(sensor));
+            }
+
+            this.robot              = robot;
+            this.shape              = copy(robot);
+            this.bounds             = robot.getBounds();
+            this.com                = new XPoint(robot.getCom());
+            this.angle              = robot.getAngle();
+            this.velocity           = robot.getVelocity();
+            this.collectionProgress = robot.getCollectionProgress();
+            this.collectionArea     = copy(robot.getCollectionArea());
+            this.sensors            = Collections.unmodifiableList(sensorStates);
+        }
+
+        /**
+         * @return The robot itself, which may have moved on since
+         */
+        public Robot getRobot() {
+            return robot;
+        }
+
+        /**
+         * @return The outline of the robot
+         */
+        public Shape getShape() {
+            return shape;
+        }
+
+        /**
+         * @return The bounding box of the robot
+         */
+        public Rectangle getBounds() {
+            return new Rectangle(bounds);
+        }
+
+        /**
+         * @return The centre of mass of the robot
+         */
+        public XPoint getCom() {
+            return new XPoint(com);
+        }
+
+        /**
+         * @return The heading of the robot
+         */
+        public double getAngle() {
+            return angle;
+        }
+
+        /**
+         * @return The speed of the robot
+         */
+        public double getVelocity() {
+            return velocity;
+        }
+
+        /**
+         * @return The percentage complete that arm actuation is at
+         */
+        public double getCollectionProgress() {
+            return collectionProgress;
+        }
+
+        /**
+         * @return The area the robot collects cups from
+         */
+        public Shape getCollectionArea() {
+            return collectionArea;
+        }
+
+        /**
+         * @return The width of the robot, which never changes
+         */
+        public double getWidth() {
+            return robot.getWidth();
+        }
+
+        /**
+         * @return The length of the robot, which never changes
+         */
+        public double getLength() {
+            return robot.getLength();
+        }
+
+        /**
+         * @return The colour of the robot, which never changes
+         */
+        public Color getColour() {
+            return robot.getColour();
+        }
+
+        /**
+         * @return The state of each of the robot's sensors
+         */
+        public List<SensorState> getSensors() {
+            return sensors;
+        }
+    }
+
+    /**
+     * A sensor as it was when the snapshot was taken
+     */
+    public static final class SensorState {
+        private final Sensor  sensor;
+        private final String  description;
+        private final String  value;
+        private final Shape   range;
+        private final boolean robotSeen;
+
+        private SensorState(Sensor sensor) {
+            this.sensor      = sensor;
+            this.description = sensor.getDescription();
+            this.value       = sensor.getValue();
+            this.range       = copy(sensor.getRange());
+            this.robotSeen   = (sensor instanceof RobotRadar) && ((RobotRadar) sensor).isRobot();
+        }
+
+        /**
+         * @return The sensor itself, for its type
+         */
+        public Sensor getSensor() {
+            return sensor;
+        }
+
+        /**
+         * @return The description of the sensor
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * @return The reading of the sensor, as text
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * @return The area the sensor covered, or null if it has none
+         */
+        public Shape getRange() {
+            return range;
+        }
+
+        /**
+         * @return True if the sensor is a radar which had a robot in range
+         */
+        public boolean isRobotSeen() {
+            return robotSeen;
+        }
+    }
+
+    /**
+     * A cup as it was when the snapshot was taken
+     */
+    public static final class CupState {
+        private final Cup     cup;
+        private final Shape   shape;
+        private final boolean upright;
+
+        private CupState(Cup cup) {
+            this.cup     = cup;
+            this.shape   = copy(cup);
+            this.upright = cup.isUpright();
+        }
+
+        /**
+         * @return The cup itself, which may have moved on since
+         */
+        public Cup getCup() {
+            return cup;
+        }
+
+        /**
+         * @return The outline of the cup
+         */
+        public Shape getShape() {
+            return shape;
+        }
+
+        /**
+         * @return False if the cup had been knocked over
+         */
+        public boolean isUpright() {
+            return upright;
+        }
+    }
+}
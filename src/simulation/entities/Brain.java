@@ -0,0 +1,35 @@
+package simulation.entities;
+
+import simulation.sensors.Sensor;
+
+import java.util.Collection;
+
+/**
+ * Brain.java
+ * Decides a robot's outputs from its sensors once per step.
+ *
+ * Ruby scripts are brains through {@link RubyRobot}. Brains written in Java
+ * implement this interface directly, usually by extending {@link SimBrain},
+ * and are loaded by {@link JavaBrains}.
+ *
+ * @author Simon
+ */
+public interface Brain {
+
+    /**
+     * Updates the robot's outputs from its sensors.
+     */
+    void update();
+
+    /**
+     *
+     * @return A collection of sensors the robot possesses.
+     */
+    Collection<Sensor> getSensors();
+
+    /**
+     *
+     * @return The output from the robot behaviours.
+     */
+    RobotOutput getOutput();
+}
@@ -0,0 +1,158 @@
+package simulation.entities;
+
+import org.jruby.embed.LocalContextScope;
+import org.jruby.embed.ScriptingContainer;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * BrainRuntime is one JRuby runtime hosting the brains of one or more robots.
+ *
+ * Each script is defined in the runtime once. A runtime hosting several
+ * scripts defines each inside a module of its own, so that scripts which
+ * happen to use the same class name don't clash. Console output is routed
+ * to whichever robot is running on the current thread.
+ *
+ * BrainRuntimes are handed out by a {@link RuntimePool}.
+ *
+ * @author Simon
+ */
+public final class BrainRuntime {
+    private final ScriptingContainer       container;
+    private final RoutingWriter            output     = new RoutingWriter();
+    private final boolean                  namespaced;
+    private final Map<BrainScript, String> defined    = new IdentityHashMap<BrainScript, String>();
+    private String                         mixinSource;
+    private int                            brains;
+
+    /**
+     * @param namespaced True if the runtime may host more than one script
+     */
+    BrainRuntime(boolean namespaced) {
+        this.namespaced = namespaced;
+        container       = new ScriptingContainer(LocalContextScope.THREADSAFE);
+        container.setOutput(output);
+    }
+
+    /**
+     * Creates a brain for a new robot, defining its script first if need be
+     * @param script The robot's script
+     * @param out Where the brain's console output goes
+     * @return The brain
+     */
+    public RubyRobot newBrain(BrainScript script, Writer out) {
+        String className = define(script);
+
+        route(out);
+
+        Object receiver = container.runScriptlet(className + ".new");
+
+        synchronized (this) {
+            brains++;
+        }
+
+        return container.getInstance(receiver, RubyRobot.class);
+    }
+
+    /**
+     * Sends console output from the current thread to a robot's writer. This
+     * must be called before calling into a brain.
+     * @param out The robot's writer
+     */
+    public void route(Writer out) {
+        output.target.set(out);
+    }
+
+    /**
+     * Forgets a brain created in this runtime, once its robot has let go of it
+     */
+    synchronized void release() {
+        if (brains == 0) {
+            throw new IllegalStateException("No brain is left to release");
+        }
+
+        brains--;
+    }
+
+    /**
+     * @return The number of brains created in this runtime and not yet
+     * released
+     */
+    public synchronized int getBrains() {
+        return brains;
+    }
+
+    /**
+     * @return The number of scripts defined in this runtime
+     */
+    public synchronized int getScripts() {
+        return defined.size();
+    }
+
+    /**
+     * Defines a script in the runtime unless it already is
+     * @param script The script
+     * @return The name by which the script's class is reached
+     */
+    private synchronized String define(BrainScript script) {
+        String className = defined.get(script);
+
+        if (className != null) {
+            return className;
+        }
+
+        // A changed mixin reopens the SimRobot class
+        if (!script.getMixinSource().equals(mixinSource)) {
+            container.parse(new StringReader(script.getMixinSource()), script.getMixinPath()).run();
+            mixinSource = script.getMixinSource();
+        }
+
+        if (namespaced) {
+            String module = "Brain" + (defined.size() + 1);
+
+            // Opened on the script's first line so error line numbers still match
+            container.parse(new StringReader("module " + module + "; " + script.getSource() + "\nend"),
+                            script.getFilePath()).run();
+            className = module + "::" + script.getClassName();
+        } else {
+            container.parse(new StringReader(script.getSource()), script.getFilePath()).run();
+            className = script.getClassName();
+        }
+
+        defined.put(script, className);
+
+        return className;
+    }
+
+    /**
+     * Passes output on to the writer chosen for the current thread, dropping
+     * it if there is none
+     */
+    private static class RoutingWriter extends Writer {
+        private final ThreadLocal<Writer> target = new ThreadLocal<Writer>();
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            Writer out = target.get();
+
+            if (out != null) {
+                out.write(cbuf, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            Writer out = target.get();
+
+            if (out != null) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() {}
+    }
+}
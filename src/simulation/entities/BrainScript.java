@@ -0,0 +1,132 @@
+package simulation.entities;
+
+import java.util.regex.Pattern;
+import javax.script.ScriptException;
+
+/**
+ * BrainScript is a Ruby brain as read from disk, along with the SimRobot
+ * mixin it extends. It is read once and then shared by every robot running
+ * it; see {@link RuntimePool} for where those robots' brains are run.
+ *
+ * BrainScripts are made by a {@link BrainScriptCache}.
+ *
+ * @author Simon
+ */
+public final class BrainScript {
+    private static final Pattern SHARED_STATE = Pattern.compile("@@|\\$[A-Za-z_]");
+    private final String         filePath;
+    private final String         mixinPath;
+    private final String         source;
+    private final String         mixinSource;
+    private final String         className;
+    private final boolean        shareable;
+    private BrainRuntime         runtime;
+
+    /**
+     * @param filePath Path to the brain script
+     * @param source The text of the brain script
+     * @param mixinPath Path to the SimRobot mixin
+     * @param mixinSource The text of the mixin
+     * @throws ScriptException If the script doesn't declare a robot class
+     */
+    BrainScript(String filePath, String source, String mixinPath, String mixinSource) throws ScriptException {
+        this.filePath    = filePath;
+        this.source      = source;
+        this.mixinPath   = mixinPath;
+        this.mixinSource = mixinSource;
+        this.className   = findClassName(source);
+        this.shareable   = isShareable(source);
+    }
+
+    /**
+     * @return Path to the brain script
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * @return The text of the brain script
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return Path to the SimRobot mixin
+     */
+    public String getMixinPath() {
+        return mixinPath;
+    }
+
+    /**
+     * @return The text of the SimRobot mixin
+     */
+    public String getMixinSource() {
+        return mixinSource;
+    }
+
+    /**
+     * @return The name of the user's class
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * The check only looks for global and class variables in the source. It
+     * misses other state kept outside a robot's instance, such as a constant
+     * whose contents are changed, an accessor defined in
+     * <code>class &lt;&lt; self</code>, or a class reopened by the script, so
+     * sharing runtimes should only be chosen for scripts known to be safe.
+     * @return False if the script uses global or class variables, so its
+     * robots each need a runtime of their own
+     */
+    public boolean isShareable() {
+        return shareable;
+    }
+
+    /**
+     * @return The runtime hosting only this script, creating it the first time
+     */
+    synchronized BrainRuntime getRuntime() {
+        if (runtime == null) {
+            runtime = new BrainRuntime(false);
+        }
+
+        return runtime;
+    }
+
+    /**
+     * Retrieves the name of the user's class. The first line that isn't blank
+     * or a comment should look something like: class MyRobot &lt; SimRobot
+     * @param source The text of the brain script
+     * @return The class name
+     * @throws ScriptException If there is no such line
+     */
+    static String findClassName(String source) throws ScriptException {
+        for (String line : source.split("\r?\n|\r")) {
+            String trimmed = line.trim();
+
+            if ((trimmed.length() == 0) || trimmed.startsWith("#")) {
+                continue;
+            }
+
+            try {
+                return trimmed.substring("class".length(), trimmed.indexOf('<')).trim();
+            } catch (StringIndexOutOfBoundsException e) {
+                throw new ScriptException("Please extend the SimRobot class");
+            }
+        }
+
+        throw new ScriptException("No class data found");
+    }
+
+    /**
+     * @param source The text of a brain script
+     * @return False if the script may share state between its instances
+     */
+    static boolean isShareable(String source) {
+        return !SHARED_STATE.matcher(source).find();
+    }
+}
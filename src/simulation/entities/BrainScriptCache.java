@@ -0,0 +1,123 @@
+package simulation.entities;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.script.ScriptException;
+
+/**
+ * BrainScriptCache keeps the brain scripts robots have been built from, so
+ * that building many robots with the same brain, or rebuilding them on every
+ * reset, reads and parses each script only once.
+ *
+ * Scripts are keyed by their canonical path and are read again when the
+ * script or the SimRobot mixin is changed on disk. Robots already running the
+ * old version keep it.
+ *
+ * @author Simon
+ */
+public class BrainScriptCache {
+    public static final String                  MIXIN_PATH = "scripts" + File.separator + "SimRobot.rb";
+    private static final BrainScriptCache       DEFAULT    = new BrainScriptCache(MIXIN_PATH);
+    private final ConcurrentMap<String, Entry>  entries    = new ConcurrentHashMap<String, Entry>();
+    private final File                          mixin;
+
+    /**
+     * @param mixinPath Path to the SimRobot mixin every brain extends
+     */
+    public BrainScriptCache(String mixinPath) {
+        this.mixin = new File(mixinPath);
+    }
+
+    /**
+     * @return The cache used by robots
+     */
+    public static BrainScriptCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Finds the script at a path, reading it if it hasn't been read before or
+     * has changed since
+     * @param filePath Path to the ruby script
+     * @return The script
+     * @throws IOException When the file does not exist or the application does not have read access
+     * @throws ScriptException When the script doesn't declare a robot class
+     */
+    public BrainScript get(String filePath) throws IOException, ScriptException {
+        File   file  = new File(filePath);
+        String key   = file.getCanonicalPath();
+        Entry  entry = entries.get(key);
+
+        if ((entry == null) || !entry.isCurrent(file, mixin)) {
+
+            // Note the file times before reading so a change mid-read is seen next time
+            entry = new Entry(file, mixin);
+            entry.script = new BrainScript(filePath, read(file), mixin.getPath(), read(mixin));
+            entries.put(key, entry);
+        }
+
+        return entry.script;
+    }
+
+    /**
+     * @return The number of scripts held
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Forgets every script, so they are read again when next used
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @param file The file to read
+     * @return Its text
+     * @throws IOException When the file does not exist or the application does not have read access
+     */
+    private static String read(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+
+        try {
+            StringBuilder text   = new StringBuilder();
+            char[]        buffer = new char[4096];
+            int           count;
+
+            while ((count = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, count);
+            }
+
+            return text.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * A script along with what its files looked like when it was read
+     */
+    private static class Entry {
+        private final long        modified;
+        private final long        length;
+        private final long        mixinModified;
+        private BrainScript       script;
+
+        Entry(File file, File mixin) {
+            this.modified      = file.lastModified();
+            this.length        = file.length();
+            this.mixinModified = mixin.lastModified();
+        }
+
+        boolean isCurrent(File file, File mixin) {
+            return (modified == file.lastModified()) && (length == file.length())
+                   && (mixinModified == mixin.lastModified());
+        }
+    }
+}
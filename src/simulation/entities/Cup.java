@@ -1,6 +1,7 @@
 package simulation.entities;
 
 import simulation.geometry.Collision;
+import simulation.geometry.CollisionEngine;
 import simulation.geometry.RigidBody;
 
 /**
@@ -47,6 +48,13 @@ public class Cup extends RigidBody {
         return "A Cup";
     }
 
+    /**
+     * @return The radius of the cup
+     */
+    public double getRadius() {
+        return DEFAULT_RADIUS;
+    }
+
     /**
      * @return True if the cup is still upright
      */
@@ -54,6 +62,13 @@ public class Cup extends RigidBody {
         return upright;
     }
 
+    /**
+     * @return True if the cup is still full of coffee
+     */
+    public boolean isFull() {
+        return full;
+    }
+
     /**
      * Irrevocably knocks over the cup
      * @return True if the cup spilt sticky coffee
@@ -68,6 +83,16 @@ public class Cup extends RigidBody {
         return temp;
     }
 
+    /**
+     * Puts the cup back as it was, righting it and refilling it if need be
+     * @param state A copy of the cup as it was
+     */
+    public void restore(Cup state) {
+        setShape(new RigidBody(state));
+        full    = state.full;
+        upright = state.upright;
+    }
+
     /**
      * Rotate the cup
      * 
@@ -80,14 +105,14 @@ public class Cup extends RigidBody {
 
 
     @Override
-    public Collision collideWith(final Cup cup, double criticalAngle) {
+    public Collision collideWith(final Cup cup, double criticalAngle, CollisionEngine engine) {
         Collision collision;
         double xDif = cup.getX() - getX();
         double yDif = cup.getY() - getY();
         
         double angleToNextObject = Math.atan(xDif / yDif);
 
-        if (this.intersects(cup)) {
+        if (engine.intersects(this, cup)) {
             collision = new Collision(angleToNextObject);
         } else {
             collision = new Collision();
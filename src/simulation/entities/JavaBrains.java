@@ -0,0 +1,179 @@
+package simulation.entities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import javax.script.ScriptException;
+
+/**
+ * JavaBrains loads brains written in Java, for robots whose brain path starts
+ * with {@value #PREFIX}. The rest of the path names the brain in one of three
+ * ways:
+ * <ul>
+ * <li><code>java:com.example.MyBrain</code> a class already on the class path</li>
+ * <li><code>java:brains.jar!com.example.MyBrain</code> a class in a jar</li>
+ * <li><code>java:brains.jar</code> the class named by the Brain-Class
+ * attribute of the jar's manifest</li>
+ * </ul>
+ * The class must implement {@link Brain} and have a public constructor taking
+ * no arguments; see {@link SimBrain}. Each jar is opened once, and again only
+ * when it changes on disk.
+ *
+ * @author Simon
+ */
+public class JavaBrains {
+    public static final String                 PREFIX          = "java:";
+    public static final String                 BRAIN_CLASS     = "Brain-Class";
+    private static final JavaBrains            DEFAULT         = new JavaBrains();
+    private final ConcurrentMap<String, Jar>   jars            = new ConcurrentHashMap<String, Jar>();
+
+    /**
+     * @return The loader used by robots
+     */
+    public static JavaBrains getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param brainPath A robot's brain path
+     * @return True if the path names a Java brain rather than a Ruby script
+     */
+    public static boolean isJava(String brainPath) {
+        return brainPath.startsWith(PREFIX);
+    }
+
+    /**
+     * Creates a brain for a new robot
+     * @param brainPath The robot's brain path, starting with {@value #PREFIX}
+     * @param console Where the brain's console output goes
+     * @return The brain
+     * @throws IOException When a jar does not exist or the application does not have read access
+     * @throws ScriptException When the brain class can't be found or created
+     */
+    public Brain newBrain(String brainPath, Writer console) throws IOException, ScriptException {
+        Class<?> type = find(brainPath.substring(PREFIX.length()));
+
+        if (!Brain.class.isAssignableFrom(type)) {
+            throw new ScriptException(type.getName() + " does not implement " + Brain.class.getName());
+        }
+
+        Brain brain;
+
+        try {
+            brain = (Brain) type.getConstructor().newInstance();
+        } catch (NoSuchMethodException e) {
+            throw new ScriptException(type.getName() + " needs a public constructor taking no arguments");
+        } catch (InvocationTargetException e) {
+            throw new ScriptException(type.getName() + " could not be created: " + e.getCause());
+        } catch (InstantiationException e) {
+            throw new ScriptException(type.getName() + " is abstract");
+        } catch (IllegalAccessException e) {
+            throw new ScriptException(type.getName() + " is not public");
+        }
+
+        if (brain instanceof SimBrain) {
+            ((SimBrain) brain).setConsole(console);
+        }
+
+        return brain;
+    }
+
+    /**
+     * Forgets every jar, so they are opened again when next used
+     */
+    public void clear() {
+        jars.clear();
+    }
+
+    /**
+     * @param name The brain path without its prefix
+     * @return The brain class
+     * @throws IOException When a jar can't be read
+     * @throws ScriptException When the class can't be found
+     */
+    private Class<?> find(String name) throws IOException, ScriptException {
+        int         bang   = name.lastIndexOf('!');
+        ClassLoader loader = JavaBrains.class.getClassLoader();
+        String      className;
+
+        if ((bang < 0) && !name.endsWith(".jar")) {
+            className = name;
+        } else {
+            Jar jar = open((bang < 0) ? name : name.substring(0, bang));
+
+            loader    = jar.loader;
+            className = (bang < 0) ? jar.brainClass : name.substring(bang + 1);
+
+            if (className == null) {
+                throw new ScriptException("No " + BRAIN_CLASS + " found in the manifest of " + jar.file);
+            }
+        }
+
+        try {
+            return Class.forName(className.trim(), true, loader);
+        } catch (ClassNotFoundException e) {
+            throw new ScriptException("Brain class not found: " + className);
+        } catch (LinkageError e) {
+            throw new ScriptException("Brain class could not be loaded: " + e);
+        }
+    }
+
+    /**
+     * @param path Path to a jar
+     * @return The jar, opening it if it hasn't been opened before or has
+     * changed since
+     * @throws IOException When the jar can't be read
+     */
+    private Jar open(String path) throws IOException {
+        File file = new File(path).getCanonicalFile();
+
+        if (!file.isFile()) {
+            throw new IOException("No brain jar at " + path);
+        }
+
+        Jar jar = jars.get(file.getPath());
+
+        if ((jar == null) || (jar.modified != file.lastModified()) || (jar.length != file.length())) {
+            jar = new Jar(file);
+            jars.put(file.getPath(), jar);
+        }
+
+        return jar;
+    }
+
+    /**
+     * An opened jar of brains
+     */
+    private static class Jar {
+        private final File        file;
+        private final long        modified;
+        private final long        length;
+        private final ClassLoader loader;
+        private final String      brainClass;
+
+        Jar(File file) throws IOException {
+            this.file     = file;
+            this.modified = file.lastModified();
+            this.length   = file.length();
+            this.loader   = new URLClassLoader(new URL[] { file.toURI().toURL() },
+                                               JavaBrains.class.getClassLoader());
+
+            JarFile contents = new JarFile(file);
+
+            try {
+                Manifest manifest = contents.getManifest();
+
+                brainClass = (manifest == null) ? null : manifest.getMainAttributes().getValue(BRAIN_CLASS);
+            } finally {
+                contents.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package simulation.entities;
+
+/**
+ * RestorableBrain.java
+ * A brain which can hand over what it remembers and take it back later, so
+ * that a robot restored from a checkpoint carries on thinking as it was.
+ *
+ * Brains which don't implement this are started afresh when their robot is
+ * restored.
+ *
+ * @author Simon
+ */
+public interface RestorableBrain extends Brain {
+
+    /**
+     * @return What the brain remembers now. It must not change as the brain
+     * carries on, so return a copy of anything the brain keeps changing.
+     */
+    Object saveState();
+
+    /**
+     * Puts back what the brain remembered.
+     * @param state A state returned by {@link #saveState()} of a brain of the
+     * same class
+     */
+    void restoreState(Object state);
+}
@@ -1,17 +1,12 @@
 package simulation.entities;
 
 import java.awt.Color;
-import org.jruby.embed.LocalContextScope;
-import org.jruby.embed.ScriptingContainer;
 import org.jruby.exceptions.RaiseException;
 import simulation.geometry.Entity;
 import simulation.geometry.RigidBody;
 import simulation.geometry.XPoint;
 import simulation.sensors.Sensor;
 import simulation.sensors.SensorAble;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.Collection;
@@ -39,10 +34,9 @@ public class Robot extends RigidBody implements SensorAble {
     private String                      filePath;
     final double                        power;
     private final double                mass;
-    private transient RubyRobot         brain;
-    private ScriptingContainer          container;
+    private transient Brain             brain;
+    private transient BrainRuntime      runtime;
     private String                      name;
-    private Object                      receiver;
     private transient Collection<Sensor>sensors;
     private double                      velocity;
     private double                      width;
@@ -64,6 +58,19 @@ public class Robot extends RigidBody implements SensorAble {
         }
     }
     
+    /**
+     * Creates a copy of a robot which runs a different Ruby script. The copy
+     * has the same body and is placed where the original is.
+     *
+     * @param robot                 The robot whose body is copied
+     * @param filePath              Path to the ruby script to use
+     * @throws IOException          When the file does not exist or the application does not have read access
+     * @throws ScriptException      When there are errors in the Ruby syntax or required methods are not implemented
+     */
+    public Robot(Robot robot, String filePath) throws IOException, ScriptException {
+        this(filePath, robot.name, new XPoint(robot.getCom()), robot.getAngle(), robot.width, robot.length, robot.colour, robot.power, robot.mass);
+    }
+
     /**
      * Creates a new Robot object which runs on a Ruby script
      *
@@ -108,9 +115,10 @@ public class Robot extends RigidBody implements SensorAble {
         
     
     /**
-     * Creates a new Robot object which runs on a Ruby script.
+     * Creates a new Robot object which runs on a Ruby script, or on a Java
+     * brain if the path starts with {@value JavaBrains#PREFIX}.
      *
-     * @param filePath                  Path to the ruby script to use.
+     * @param filePath                  Path to the ruby script to use, or the Java brain
      * @param name                      A name for the robot
      * @param location                  Location of the robot
      * @param angle                     The initial angle
@@ -142,46 +150,10 @@ public class Robot extends RigidBody implements SensorAble {
         this.power = power;
         this.mass = mass;
         this.filePath = filePath;
-        writer = new StringWriter();
-        container = new ScriptingContainer(LocalContextScope.THREADSAFE);
-        container.setOutput(writer);
-
-        String         mixinPath   = "scripts" + File.separator + "SimRobot.rb";
-        BufferedReader mixinReader = new BufferedReader(new FileReader(mixinPath));
-        BufferedReader brainReader = new BufferedReader(new FileReader(filePath));
-
-        
-        // Retrieve the name of the user's class
-        // The first line should look something like: class MyRobot < SimRobot
-        String className;
-
-        // Retrieve the class name
-        do {
-            brainReader.mark(50);
-            className = brainReader.readLine();
-            if (className == null) {
-                throw new ScriptException("No class data found");
-            }
-        } while ((className.trim().length() == 0) || className.trim().startsWith("#"));
-
-        try {
-            brainReader.reset();
-        } catch (IOException e) {
-            throw new ScriptException("Class name too long");
-        }
-
-        try {
-            className = className.substring("class".length(), className.indexOf('<')).trim();
-        } catch (StringIndexOutOfBoundsException e) {
-            throw new ScriptException("Please extend the SimRobot class");
-        }
-
-        // Parse the scripts
-        container.runScriptlet(mixinReader, mixinPath);
-        container.runScriptlet(brainReader, filePath);
-        receiver  = container.runScriptlet(className + ".new");
-        updateBrain();
         this.name = name;
+        writer    = new StringWriter();
+
+        startBrain();
         rotate(angle);
 
         // Place the cup collection area in front of the robot
@@ -190,14 +162,6 @@ public class Robot extends RigidBody implements SensorAble {
         cupCollectionArea.place(collectionLocation);
     }
     
-    /**
-     * Abstracted for dryness
-     */
-    private void updateBrain() {
-        brain     = container.getInstance(receiver, RubyRobot.class);
-        sensors   = brain.getSensors();        
-    }
-
     
     /**
      * @return the Robot's absolute velocity
@@ -230,6 +194,80 @@ public class Robot extends RigidBody implements SensorAble {
         heldItems.add(thing);
     }
 
+    /**
+     * Replaces the items in the robot's collection bucket
+     * @param things The items the robot now holds
+     */
+    public void setHeldItems(Collection<Cup> things) {
+        heldItems.clear();
+        heldItems.addAll(things);
+    }
+
+    /**
+     * @return What the robot's brain remembers, or null if the brain can't
+     * save its state
+     * @see RestorableBrain
+     */
+    public Object saveBrain() {
+        return (brain instanceof RestorableBrain) ? ((RestorableBrain) brain).saveState() : null;
+    }
+
+    /**
+     * Puts the robot's brain back as it was when saved. A brain which can't
+     * save its state is started afresh from its script or class, as when the
+     * robot was created, in the runtime it was already running in. The
+     * console is kept.
+     * @param state A state returned by {@link #saveBrain()}, or null
+     * @throws IOException When the file does not exist or the application does not have read access
+     * @throws ScriptException When there are errors in the Ruby syntax or required methods are not implemented
+     */
+    public void restoreBrain(Object state) throws IOException, ScriptException {
+        if ((state != null) && (brain instanceof RestorableBrain)) {
+            ((RestorableBrain) brain).restoreState(state);
+        } else {
+            startBrain();
+        }
+    }
+
+    /**
+     * Lets go of the robot's Ruby brain once the robot is out of play, so
+     * that its runtime can be given to other robots. The brain is started
+     * afresh if the robot is brought back, such as by restoring a checkpoint.
+     */
+    public void discardBrain() {
+        if (runtime != null) {
+            RuntimePool.getDefault().release(runtime);
+            runtime = null;
+            brain   = null;
+        }
+    }
+
+    /**
+     * Creates the brain and sensors from the brain path. A Ruby brain being
+     * replaced is released only once the new one is made, so that a retired
+     * runtime being reused is not forgotten in between.
+     */
+    private void startBrain() throws IOException, ScriptException {
+        if (JavaBrains.isJava(filePath)) {
+            brain = JavaBrains.getDefault().newBrain(filePath, writer);
+        } else {
+            BrainScript  script = BrainScriptCache.getDefault().get(filePath);
+            BrainRuntime old    = runtime;
+
+            if (old == null) {
+                runtime = RuntimePool.getDefault().acquire(script);
+            }
+
+            brain = runtime.newBrain(script, writer);
+
+            if (old != null) {
+                RuntimePool.getDefault().release(old);
+            }
+        }
+
+        sensors = brain.getSensors();
+    }
+
     /**
      * @return The engine size, where 200.0 is typical.
      */
@@ -263,6 +301,21 @@ public class Robot extends RigidBody implements SensorAble {
         cupCollectionArea.place(collectionLocation);
     }
 
+    /**
+     * Turns and moves the robot, taking the cup collection area with it
+     * @param turn The angle to turn by
+     * @param x The x translation after turning
+     * @param y The y translation after turning
+     */
+    @Override
+    public void move(double turn, double x, double y) {
+        super.move(turn, x, y);
+
+        XPoint collectionLocation = adjustOffsetLocation(getCom(), collectionOffset, -getAngle());
+
+        cupCollectionArea.place(collectionLocation);
+    }
+
     /**
      * Place the cupCollectionArea at a location
      * @param x x-coordinate of robot
@@ -304,6 +357,10 @@ public class Robot extends RigidBody implements SensorAble {
      */
     @SuppressWarnings("unchecked")
     public RobotOutput update() throws ScriptException {
+        if (runtime != null) {
+            runtime.route(writer);
+        }
+
         try {
             brain.update();
         } catch (NullPointerException e) {
@@ -327,6 +384,13 @@ public class Robot extends RigidBody implements SensorAble {
     public String getDescription() {
         return name;
     }
+
+    /**
+     * @return The path of the robot's brain, as it was given
+     */
+    public String getFilePath() {
+        return filePath;
+    }
     
     /**
      * Method description
@@ -11,6 +11,21 @@ public class RobotOutput {
     private double             motor;
     private double             steering;
 
+    /**
+     * Outputs with the motor and steering off and the arm at rest
+     */
+    public RobotOutput() {}
+
+    /**
+     * A copy of some outputs, which the brain that made them can't change
+     * @param output The outputs to copy
+     */
+    public RobotOutput(RobotOutput output) {
+        this.armActive = output.armActive;
+        this.motor     = output.motor;
+        this.steering  = output.steering;
+    }
+
     /**
      * @return true if robot arm is active
      */
@@ -0,0 +1,195 @@
+package simulation.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RuntimePool decides which JRuby runtime each robot's brain runs in.
+ *
+ * A JRuby runtime is heavy, both in memory and in the time it takes to warm
+ * up, so giving every robot one of its own does not scale to large arenas.
+ * The pool can instead put all robots running the same script in one runtime,
+ * or put every script in a small, fixed number of runtimes; see
+ * {@link Isolation}. Scripts which use global or class variables always get a
+ * runtime per robot, as their robots would otherwise share state. That check
+ * is only a scan of the source, so sharing is off by default; see
+ * {@link BrainScript#isShareable()} for what it misses.
+ *
+ * Robots hand their runtime back with {@link #release(BrainRuntime)} when
+ * their brain is replaced or discarded, so shared runtimes are balanced on
+ * the brains they are actually running. Changing the isolation only affects
+ * robots built afterwards.
+ *
+ * @author Simon
+ */
+public class RuntimePool {
+    private static final RuntimePool DEFAULT   = new RuntimePool();
+    private final List<BrainRuntime> shared    = new ArrayList<BrainRuntime>();
+    private final List<BrainRuntime> retired   = new ArrayList<BrainRuntime>();
+    private Isolation                isolation = Isolation.PER_ROBOT;
+    private int                      size      = 1;
+
+    /**
+     * How far apart robots' brains are kept
+     */
+    public enum Isolation {
+
+        /**
+         * Every robot has a runtime of its own
+         */
+        PER_ROBOT,
+
+        /**
+         * Robots running the same script share a runtime. The runtime
+         * belongs to the script as cached for the whole process, so robots
+         * in different simulations, such as those of a batch, share it too.
+         * A script keeping state outside its instances therefore makes runs
+         * depend on each other, even with the same seed.
+         */
+        PER_SCRIPT,
+
+        /**
+         * All robots share a fixed number of runtimes, with each script
+         * defined in a module of its own. As with {@link #PER_SCRIPT}, the
+         * runtimes are shared by every simulation in the process.
+         */
+        SHARED
+    }
+
+    /**
+     * @return The pool used by robots
+     */
+    public static RuntimePool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Finds a runtime to run a new robot's brain in
+     * @param script The robot's script
+     * @return The runtime
+     */
+    public BrainRuntime acquire(BrainScript script) {
+        Isolation mode = getIsolation();
+
+        if (!script.isShareable() || (mode == Isolation.PER_ROBOT)) {
+            return new BrainRuntime(false);
+        } else if (mode == Isolation.PER_SCRIPT) {
+            return script.getRuntime();
+        }
+
+        return acquireShared();
+    }
+
+    /**
+     * Hands back a runtime once the brain a robot was given in it is replaced
+     * or discarded. A retired runtime is forgotten once its last brain is
+     * released.
+     * @param runtime A runtime returned by {@link #acquire(BrainScript)}
+     */
+    public synchronized void release(BrainRuntime runtime) {
+        runtime.release();
+
+        if (runtime.getBrains() == 0) {
+            retired.remove(runtime);
+        }
+    }
+
+    /**
+     * @return The shared runtime running the fewest brains, adding runtimes
+     * up to the size of the pool while every one is in use
+     */
+    private synchronized BrainRuntime acquireShared() {
+        BrainRuntime least = null;
+
+        for (BrainRuntime runtime : shared) {
+            if ((least == null) || (runtime.getBrains() < least.getBrains())) {
+                least = runtime;
+            }
+        }
+
+        if ((least == null) || ((least.getBrains() > 0) && (shared.size() < size))) {
+            least = new BrainRuntime(true);
+            shared.add(least);
+        }
+
+        return least;
+    }
+
+    /**
+     * @return How far apart robots' brains are kept
+     */
+    public synchronized Isolation getIsolation() {
+        return isolation;
+    }
+
+    /**
+     * @param isolation How far apart to keep the brains of robots built from
+     * now on
+     */
+    public synchronized void setIsolation(Isolation isolation) {
+        if (isolation == null) {
+            throw new IllegalArgumentException("An isolation is needed");
+        }
+
+        this.isolation = isolation;
+    }
+
+    /**
+     * @return The most runtimes shared by all scripts
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * Shrinking the pool retires the runtimes beyond the new size. No new
+     * robots are put in them, but robots already running in them carry on
+     * until they release their brains.
+     * @param size The most runtimes to be shared by all scripts, which
+     * applies in {@link Isolation#SHARED} only
+     */
+    public synchronized void setSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("At least one runtime is needed");
+        }
+
+        this.size = size;
+
+        while (shared.size() > size) {
+            BrainRuntime runtime = shared.remove(shared.size() - 1);
+
+            if (runtime.getBrains() > 0) {
+                retired.add(runtime);
+            }
+        }
+    }
+
+    /**
+     * @return The number of shared runtimes which new robots may be put in
+     */
+    public synchronized int getShared() {
+        return shared.size();
+    }
+
+    /**
+     * @return The number of shared runtimes retired from the pool which are
+     * still running brains
+     */
+    public synchronized int getRetired() {
+        return retired.size();
+    }
+
+    /**
+     * Retires all shared runtimes so that robots built from now on start
+     * afresh. Robots already built keep running in their old runtimes.
+     */
+    public synchronized void clear() {
+        for (BrainRuntime runtime : shared) {
+            if (runtime.getBrains() > 0) {
+                retired.add(runtime);
+            }
+        }
+
+        shared.clear();
+    }
+}
@@ -0,0 +1,99 @@
+package simulation.entities;
+
+import simulation.sensors.Sensor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+
+/**
+ * SimBrain is the Java counterpart of the SimRobot Ruby class. Extend it to
+ * write a brain which runs as compiled Java rather than through JRuby.
+ *
+ * A subclass needs a public constructor taking no arguments, in which it adds
+ * its sensors and sets up its behaviours, and an {@link #update()} which sets
+ * the output from them, for example:
+ *
+ * <pre>
+ * public class BounceBrain extends SimBrain {
+ *     private final Behaviour forward;
+ *
+ *     public BounceBrain() {
+ *         DistanceSensor front = addSensor(new DistanceSensor(0));
+ *         DistanceSensor rear  = addSensor(new DistanceSensor(Math.PI));
+ *
+ *         forward = new Bounce(front, rear);
+ *     }
+ *
+ *     public void update() {
+ *         setOutput(forward.update());
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Simon
+ */
+public abstract class SimBrain implements Brain {
+    private final Collection<Sensor> sensors = new LinkedList<Sensor>();
+    private RobotOutput              output  = new RobotOutput();
+    private Writer                   console;
+
+    /**
+     * @return The robot's sensors, in the order they were added
+     */
+    @Override
+    public Collection<Sensor> getSensors() {
+        return Collections.unmodifiableCollection(sensors);
+    }
+
+    /**
+     * @return The outputs decided in the last update
+     */
+    @Override
+    public RobotOutput getOutput() {
+        return output;
+    }
+
+    /**
+     * Fits a sensor to the robot
+     * @param <T> The type of sensor
+     * @param sensor The sensor
+     * @return The sensor, for keeping
+     */
+    protected <T extends Sensor> T addSensor(T sensor) {
+        sensors.add(sensor);
+
+        return sensor;
+    }
+
+    /**
+     * @param output The outputs for the robot to act on
+     */
+    protected void setOutput(RobotOutput output) {
+        this.output = output;
+    }
+
+    /**
+     * Writes a line to the robot's console, as puts does in a Ruby brain
+     * @param message The line to write
+     */
+    protected void println(Object message) {
+        if (console != null) {
+            try {
+                console.write(message + System.getProperty("line.separator"));
+            } catch (IOException e) {
+
+                // The console is only for information, so nothing is lost
+            }
+        }
+    }
+
+    /**
+     * @param console Where the brain's console output goes
+     */
+    void setConsole(Writer console) {
+        this.console = console;
+    }
+}
@@ -0,0 +1,54 @@
+package simulation.geometry;
+
+import java.io.Serializable;
+
+/**
+ * The original collision engine, which answers every question with boolean
+ * operations on {@link java.awt.geom.Area}. It copes with any shape, curved or
+ * not, at the cost of building new Areas for every test.
+ *
+ * @author Simon
+ */
+public class AreaCollisionEngine implements CollisionEngine, Serializable {
+    private static final long   serialVersionUID = 1L;
+    private final BoundsCounter bounds           = new BoundsCounter();
+
+    @Override
+    public boolean intersects(Entity a, Entity b) {
+        return bounds.overlap(a, b) && a.intersects(b);
+    }
+
+    @Override
+    public boolean contains(Entity boundary, Entity shape) {
+        return boundary.contains(shape);
+    }
+
+    @Override
+    public Collision incidenceAngleCollision(Entity obstacle, RigidBody shape) {
+        if (!bounds.overlap(obstacle, shape)) {
+            return new Collision();
+        }
+
+        return obstacle.incidenceAngleCollision(shape);
+    }
+
+    @Override
+    public Collision internalIncidenceAngleCollision(Entity boundary, RigidBody shape) {
+        return boundary.internalIncidenceAngleCollision(shape);
+    }
+
+    @Override
+    public long getBoundsHits() {
+        return bounds.getHits();
+    }
+
+    @Override
+    public long getBoundsMisses() {
+        return bounds.getMisses();
+    }
+
+    @Override
+    public void resetBoundsCounters() {
+        bounds.reset();
+    }
+}
@@ -0,0 +1,60 @@
+package simulation.geometry;
+
+import java.io.Serializable;
+
+/**
+ * BoundsCounter runs the bounding box test ahead of a collision engine's
+ * exact tests and counts how often it lets a test through or rules it out.
+ *
+ * Each engine has its own counter, so the counts belong to one simulation.
+ * The counts are plain fields rather than atomics as an engine is only used
+ * by the thread stepping its simulation, and they should be read between
+ * steps.
+ *
+ * @author Simon
+ */
+final class BoundsCounter implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private long              hits;
+    private long              misses;
+
+    /**
+     * @param a One shape
+     * @param b The other shape
+     * @return false if the two shapes certainly do not intersect
+     * @see Entity#boundsOverlap(Entity)
+     */
+    boolean overlap(Entity a, Entity b) {
+        if (a.boundsOverlap(b)) {
+            hits++;
+
+            return true;
+        }
+
+        misses++;
+
+        return false;
+    }
+
+    /**
+     * @return The number of tests which overlapped
+     */
+    long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of tests which ruled out a collision
+     */
+    long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Sets both counts back to zero
+     */
+    void reset() {
+        hits   = 0;
+        misses = 0;
+    }
+}
@@ -0,0 +1,62 @@
+package simulation.geometry;
+
+/**
+ * A CollisionEngine answers the hit detection questions asked while resolving
+ * a step of the simulation. Each simulator holds one engine, so the method of
+ * detection may be chosen per simulation.
+ *
+ * @author Simon
+ */
+public interface CollisionEngine {
+
+    /**
+     * Hit detection between two entities
+     * @param a One shape
+     * @param b The other shape
+     * @return True if the interiors of the two shapes overlap
+     */
+    boolean intersects(Entity a, Entity b);
+
+    /**
+     * Checks if a shape lies entirely within a boundary
+     * @param boundary The enclosing shape
+     * @param shape The shape to check
+     * @return True if the shape is contained
+     */
+    boolean contains(Entity boundary, Entity shape);
+
+    /**
+     * Hit detection of a moving shape against an obstacle
+     * @param obstacle The shape which may be hit
+     * @param shape The moving shape
+     * @return A collision holding the angle of incidence against the outline
+     * of the obstacle, or a non-collision
+     */
+    Collision incidenceAngleCollision(Entity obstacle, RigidBody shape);
+
+    /**
+     * Hit detection of a moving shape against the inside of a boundary
+     * @param boundary The shape the moving shape should stay within
+     * @param shape The moving shape
+     * @return A collision holding the angle of incidence against the outline
+     * of the boundary, or a non-collision if the shape is contained
+     */
+    Collision internalIncidenceAngleCollision(Entity boundary, RigidBody shape);
+
+    /**
+     * @return The number of bounding box tests by this engine which
+     * overlapped, and so went on to the exact test
+     */
+    long getBoundsHits();
+
+    /**
+     * @return The number of bounding box tests by this engine which ruled out
+     * a collision
+     */
+    long getBoundsMisses();
+
+    /**
+     * Sets both bounding box counters back to zero.
+     */
+    void resetBoundsCounters();
+}
@@ -0,0 +1,82 @@
+package simulation.geometry;
+
+/**
+ * A Contact is a simple storage type for how far a shape has gone into
+ * something: the direction it must be pushed to get out, as a unit normal,
+ * how far, and the point of the shape which has gone in furthest. It is
+ * either a contact or a non-contact, as a {@link Collision} is.
+ * @author Simon
+ */
+public class Contact {
+    public static final Contact NONE = new Contact(0, 0, 0, 0, 0);
+    private final double        normalX;
+    private final double        normalY;
+    private final double        depth;
+    private final double        x;
+    private final double        y;
+
+    /**
+     * new Contact represents a shape which must be pushed out
+     * @param normalX The x component of the unit normal to push along
+     * @param normalY The y component of the unit normal to push along
+     * @param depth How far to push
+     * @param x The x-coordinate of the point which has gone in furthest
+     * @param y The y-coordinate of the point which has gone in furthest
+     */
+    public Contact(double normalX, double normalY, double depth, double x, double y) {
+        this.normalX = normalX;
+        this.normalY = normalY;
+        this.depth   = depth;
+        this.x       = x;
+        this.y       = y;
+    }
+
+    /**
+     * @return True if the shape is in contact, false otherwise
+     */
+    public boolean occurred() {
+        return depth > 0;
+    }
+
+    /**
+     * @return The x component of the unit normal to push the shape along
+     */
+    public double getNormalX() {
+        return normalX;
+    }
+
+    /**
+     * @return The y component of the unit normal to push the shape along
+     */
+    public double getNormalY() {
+        return normalY;
+    }
+
+    /**
+     * @return How far the shape has gone in
+     */
+    public double getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return The x-coordinate of the point which has gone in furthest
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * @return The y-coordinate of the point which has gone in furthest
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * @return The deeper of this contact and another
+     */
+    Contact deeper(Contact other) {
+        return (other.depth > depth) ? other : this;
+    }
+}
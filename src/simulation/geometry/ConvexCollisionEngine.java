@@ -0,0 +1,356 @@
+package simulation.geometry;
+
+import java.io.Serializable;
+import simulation.geometry.ConvexShape.Kind;
+
+/**
+ * A collision engine working on primitive arrays rather than Areas. Convex
+ * pieces are tested against each other with the separating axis theorem and
+ * circles are tested directly, so nothing is allocated once an entity's
+ * outline has been flattened, which happens at most once per change of
+ * outline.
+ *
+ * Concave outlines are split into convex pieces. Outlines with holes are
+ * still handled as boundaries. Any other curved outline, such as an ellipse
+ * or arc, is passed on to an {@link AreaCollisionEngine}.
+ *
+ * The angle of incidence is taken from the edge of the obstacle's outline
+ * which cuts the moving shape nearest its centre of mass. For a shape
+ * crossing a single edge this is the same edge the Area engine reports.
+ *
+ * @author Simon
+ */
+public class ConvexCollisionEngine implements CollisionEngine, Serializable {
+    private static final long         serialVersionUID = 1L;
+    private final AreaCollisionEngine fallback         = new AreaCollisionEngine();
+    private final BoundsCounter       bounds           = new BoundsCounter();
+
+    @Override
+    public boolean intersects(Entity a, Entity b) {
+        ConvexShape shapeA = a.getConvexShape();
+        ConvexShape shapeB = b.getConvexShape();
+
+        if (!isSolid(shapeA) || !isSolid(shapeB)) {
+            return fallback.intersects(a, b);
+        }
+
+        if (!bounds.overlap(a, b)) {
+            return false;
+        }
+
+        return overlaps(shapeA, shapeB);
+    }
+
+    @Override
+    public boolean contains(Entity boundary, Entity shape) {
+        ConvexShape outer = boundary.getConvexShape();
+        ConvexShape inner = shape.getConvexShape();
+
+        if (!hasRings(outer) || !isSolid(inner)) {
+            return fallback.contains(boundary, shape);
+        }
+
+        return (nearestCrossedEdge(outer, inner, 0, 0) < 0) && insideRings(outer, inner);
+    }
+
+    @Override
+    public Collision incidenceAngleCollision(Entity obstacle, RigidBody shape) {
+        ConvexShape outer = obstacle.getConvexShape();
+        ConvexShape inner = shape.getConvexShape();
+
+        if ((outer.kind != Kind.POLYGONS) || !isSolid(inner)) {
+            return fallback.incidenceAngleCollision(obstacle, shape);
+        }
+
+        if (!bounds.overlap(obstacle, shape) || !overlaps(outer, inner)) {
+            return new Collision();
+        }
+
+        return edgeCollision(obstacle, outer, inner, shape, false);
+    }
+
+    @Override
+    public Collision internalIncidenceAngleCollision(Entity boundary, RigidBody shape) {
+        ConvexShape outer = boundary.getConvexShape();
+        ConvexShape inner = shape.getConvexShape();
+
+        if (!hasRings(outer) || !isSolid(inner)) {
+            return fallback.internalIncidenceAngleCollision(boundary, shape);
+        }
+
+        if ((nearestCrossedEdge(outer, inner, shape.getX(), shape.getY()) < 0) && insideRings(outer, inner)) {
+            return new Collision();
+        }
+
+        return edgeCollision(boundary, outer, inner, shape, true);
+    }
+
+    /**
+     * @return The bounding box tests which overlapped, including those of
+     * tests passed on to the Area engine
+     */
+    @Override
+    public long getBoundsHits() {
+        return bounds.getHits() + fallback.getBoundsHits();
+    }
+
+    /**
+     * @return The bounding box tests which ruled out a collision, including
+     * those of tests passed on to the Area engine
+     */
+    @Override
+    public long getBoundsMisses() {
+        return bounds.getMisses() + fallback.getBoundsMisses();
+    }
+
+    @Override
+    public void resetBoundsCounters() {
+        bounds.reset();
+        fallback.resetBoundsCounters();
+    }
+
+    /**
+     * Works out the angle of incidence from the crossed edge nearest the
+     * shape's centre of mass. A shape lying wholly inside or outside an
+     * outline crosses no edge, in which case the Area engine finds the angle.
+     */
+    private Collision edgeCollision(Entity outline, ConvexShape outer, ConvexShape inner, RigidBody shape,
+                                    boolean internal) {
+        long code = nearestCrossedEdge(outer, inner, shape.getX(), shape.getY());
+
+        if (code < 0) {
+            return internal
+                   ? outline.internalIncidenceAngleCollision(shape)
+                   : outline.incidenceAngleCollision(shape);
+        }
+
+        double[] ring = outer.rings[(int) (code >>> 32)];
+        int      i    = (int) code;
+        int      j    = ((i == 0) ? ring.length : i) - 2;
+
+        // As in XPoint.getAngleTo, from the current point back to the one
+        // before it in path order
+        double aoi = Math.atan2(ring[i] - ring[j], ring[j + 1] - ring[i + 1]);
+
+        return new Collision(aoi + Math.PI / 2 - shape.getAngle());
+    }
+
+    /**
+     * Finds the edge of an outline which cuts into a shape nearest a point.
+     * @return The index of the ring in the high word and the index of the
+     * edge's end point within the ring in the low word, or -1 if no edge cuts
+     * the shape
+     */
+    private static long nearestCrossedEdge(ConvexShape outer, ConvexShape inner, double x, double y) {
+        long   best     = -1;
+        double bestDist = Double.POSITIVE_INFINITY;
+
+        for (int r = 0; r < outer.rings.length; r++) {
+            double[] ring = outer.rings[r];
+            int      n    = ring.length;
+
+            for (int i = 0, j = n - 2; i < n; j = i, i += 2) {
+                if (segmentCuts(ring[j], ring[j + 1], ring[i], ring[i + 1], inner)) {
+                    double dist = segmentDistanceSq(x, y, ring[j], ring[j + 1], ring[i], ring[i + 1]);
+
+                    if (dist < bestDist) {
+                        bestDist = dist;
+                        best     = ((long) r << 32) | i;
+                    }
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Given that no edge of the outer rings cuts the inner shape, checks
+     * whether the shape is inside or outside the rings with a single point.
+     */
+    private static boolean insideRings(ConvexShape outer, ConvexShape inner) {
+        if (inner.kind == Kind.CIRCLE) {
+            return ConvexShape.inside(outer.rings, inner.cx, inner.cy);
+        }
+
+        double[] piece = inner.pieces[0];
+
+        // The centroid of the first three points is strictly inside the piece
+        double x = (piece[0] + piece[2] + piece[4]) / 3;
+        double y = (piece[1] + piece[3] + piece[5]) / 3;
+
+        return ConvexShape.inside(outer.rings, x, y);
+    }
+
+    private static boolean isSolid(ConvexShape shape) {
+        return (shape.kind == Kind.POLYGONS) || (shape.kind == Kind.CIRCLE);
+    }
+
+    private static boolean hasRings(ConvexShape shape) {
+        return (shape.kind == Kind.POLYGONS) || (shape.kind == Kind.RINGS);
+    }
+
+    /**
+     * Checks if the interiors of two solid shapes overlap
+     */
+    private static boolean overlaps(ConvexShape a, ConvexShape b) {
+        if (a.kind == Kind.CIRCLE) {
+            if (b.kind == Kind.CIRCLE) {
+                double dx = a.cx - b.cx;
+                double dy = a.cy - b.cy;
+                double r  = a.radius + b.radius;
+
+                return dx * dx + dy * dy < r * r;
+            }
+
+            for (double[] piece : b.pieces) {
+                if (circleOverlaps(a.cx, a.cy, a.radius, piece)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        if (b.kind == Kind.CIRCLE) {
+            return overlaps(b, a);
+        }
+
+        for (double[] pieceA : a.pieces) {
+            for (double[] pieceB : b.pieces) {
+                if (!separated(pieceA, pieceB) && !separated(pieceB, pieceA)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks if a line segment passes through the interior of a solid shape
+     */
+    private static boolean segmentCuts(double x1, double y1, double x2, double y2, ConvexShape shape) {
+        if (shape.kind == Kind.CIRCLE) {
+            return segmentDistanceSq(shape.cx, shape.cy, x1, y1, x2, y2) < shape.radius * shape.radius;
+        }
+
+        for (double[] piece : shape.pieces) {
+            if (segmentCuts(x1, y1, x2, y2, piece)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Separating axis test of a segment against a convex piece, on the
+     * piece's edge normals and the segment's own normal.
+     */
+    private static boolean segmentCuts(double x1, double y1, double x2, double y2, double[] piece) {
+        int n = piece.length;
+
+        for (int i = 0, j = n - 2; i < n; j = i, i += 2) {
+            double nx = piece[j + 1] - piece[i + 1];
+            double ny = piece[i] - piece[j];
+
+            if (separatedOnAxis(nx, ny, piece, x1, y1, x2, y2)) {
+                return false;
+            }
+        }
+
+        return !separatedOnAxis(y1 - y2, x2 - x1, piece, x1, y1, x2, y2);
+    }
+
+    private static boolean separatedOnAxis(double nx, double ny, double[] piece, double x1, double y1, double x2,
+            double y2) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int k = 0; k < piece.length; k += 2) {
+            double p = piece[k] * nx + piece[k + 1] * ny;
+
+            min = Math.min(min, p);
+            max = Math.max(max, p);
+        }
+
+        double p1 = x1 * nx + y1 * ny;
+        double p2 = x2 * nx + y2 * ny;
+
+        return (Math.max(p1, p2) <= min) || (max <= Math.min(p1, p2));
+    }
+
+    /**
+     * Checks if any edge normal of piece a separates the two pieces. Touching
+     * pieces count as separated, as they do for Area.
+     */
+    private static boolean separated(double[] a, double[] b) {
+        int n = a.length;
+
+        for (int i = 0, j = n - 2; i < n; j = i, i += 2) {
+            double nx   = a[j + 1] - a[i + 1];
+            double ny   = a[i] - a[j];
+            double minA = Double.POSITIVE_INFINITY;
+            double maxA = Double.NEGATIVE_INFINITY;
+            double minB = Double.POSITIVE_INFINITY;
+            double maxB = Double.NEGATIVE_INFINITY;
+
+            for (int k = 0; k < a.length; k += 2) {
+                double p = a[k] * nx + a[k + 1] * ny;
+
+                minA = Math.min(minA, p);
+                maxA = Math.max(maxA, p);
+            }
+
+            for (int k = 0; k < b.length; k += 2) {
+                double p = b[k] * nx + b[k + 1] * ny;
+
+                minB = Math.min(minB, p);
+                maxB = Math.max(maxB, p);
+            }
+
+            if ((maxA <= minB) || (maxB <= minA)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks if a circle overlaps a convex piece
+     */
+    private static boolean circleOverlaps(double cx, double cy, double r, double[] piece) {
+        if (ConvexShape.inside(piece, cx, cy)) {
+            return true;
+        }
+
+        int n = piece.length;
+
+        for (int i = 0, j = n - 2; i < n; j = i, i += 2) {
+            if (segmentDistanceSq(cx, cy, piece[j], piece[j + 1], piece[i], piece[i + 1]) < r * r) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * The square of the distance from a point to a line segment
+     */
+    private static double segmentDistanceSq(double px, double py, double x1, double y1, double x2, double y2) {
+        double dx  = x2 - x1;
+        double dy  = y2 - y1;
+        double len = dx * dx + dy * dy;
+        double t   = (len == 0) ? 0 : ((px - x1) * dx + (py - y1) * dy) / len;
+
+        t = Math.max(0, Math.min(1, t));
+
+        double ex = x1 + t * dx - px;
+        double ey = y1 + t * dy - py;
+
+        return ex * ex + ey * ey;
+    }
+}
@@ -0,0 +1,443 @@
+package simulation.geometry;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outline of an entity flattened into primitive arrays for the
+ * {@link ConvexCollisionEngine}. Straight edged outlines are kept both as
+ * their rings of vertices, in path order, and broken into convex pieces.
+ * Outlines made only of curves which trace a circle are kept as a circle.
+ * Anything else is marked so that the engine falls back to Area.
+ *
+ * Points are stored as x0, y0, x1, y1, ... so no objects are needed to walk
+ * them. Instances never change once built.
+ *
+ * @author Simon
+ */
+final class ConvexShape {
+
+    /**
+     * The forms an outline may take
+     */
+    enum Kind {
+
+        /** Straight edges, split into convex pieces */
+        POLYGONS,
+
+        /** A single circle */
+        CIRCLE,
+
+        /** Straight edges, but with holes so no pieces were made */
+        RINGS,
+
+        /** Any other curved shape, or an empty one */
+        CURVED
+    }
+
+    private static final double CIRCLE_TOLERANCE = 1e-3;
+    private static final double[][] NONE         = new double[0][];
+    final Kind                  kind;
+    final double[][]            rings;
+    final double[][]            pieces;
+    final double                cx;
+    final double                cy;
+    final double                radius;
+
+    private ConvexShape(Kind kind, double[][] rings, double[][] pieces, double cx, double cy, double radius) {
+        this.kind   = kind;
+        this.rings  = rings;
+        this.pieces = pieces;
+        this.cx     = cx;
+        this.cy     = cy;
+        this.radius = radius;
+    }
+
+    /**
+     * Flattens a shape
+     * @param shape The shape to flatten
+     * @return The flattened form of the shape
+     */
+    static ConvexShape of(Shape shape) {
+        PathIterator   iter    = shape.getPathIterator(null);
+        double[]       coords  = new double[6];
+        List<double[]> rings   = new ArrayList<double[]>();
+        List<Double>   samples = new ArrayList<Double>();
+        Ring           ring    = new Ring();
+        boolean        lines   = false;
+        boolean        curves  = false;
+        double         lastX   = 0;
+        double         lastY   = 0;
+
+        while (!iter.isDone()) {
+            switch (iter.currentSegment(coords)) {
+            case PathIterator.SEG_MOVETO :
+                ring.finish(rings);
+                ring.add(coords[0], coords[1]);
+                lastX = coords[0];
+                lastY = coords[1];
+
+                break;
+
+            case PathIterator.SEG_LINETO :
+                lines = true;
+                ring.add(coords[0], coords[1]);
+                lastX = coords[0];
+                lastY = coords[1];
+
+                break;
+
+            case PathIterator.SEG_QUADTO :
+                curves = true;
+                sample(samples, lastX, lastY, (lastX + 2 * coords[0] + coords[2]) / 4,
+                       (lastY + 2 * coords[1] + coords[3]) / 4, coords[2], coords[3]);
+                lastX = coords[2];
+                lastY = coords[3];
+
+                break;
+
+            case PathIterator.SEG_CUBICTO :
+                curves = true;
+                sample(samples, lastX, lastY, (lastX + 3 * coords[0] + 3 * coords[2] + coords[4]) / 8,
+                       (lastY + 3 * coords[1] + 3 * coords[3] + coords[5]) / 8, coords[4], coords[5]);
+                lastX = coords[4];
+                lastY = coords[5];
+
+                break;
+
+            case PathIterator.SEG_CLOSE :
+                ring.finish(rings);
+
+                break;
+            }
+
+            iter.next();
+        }
+
+        ring.finish(rings);
+
+        if (curves) {
+            if (lines) {
+                return curved();
+            }
+
+            return circle(shape.getBounds2D(), samples);
+        }
+
+        if (rings.isEmpty()) {
+            return curved();
+        }
+
+        double[][] outline = rings.toArray(new double[rings.size()][]);
+
+        for (int i = 0; i < outline.length; i++) {
+            for (int j = 0; j < outline.length; j++) {
+                if ((i != j) && inside(outline[i], outline[j][0], outline[j][1])) {
+
+                    // One ring holds another, so there are holes
+                    return new ConvexShape(Kind.RINGS, outline, NONE, 0, 0, 0);
+                }
+            }
+        }
+
+        List<double[]> pieces = new ArrayList<double[]>();
+
+        for (double[] points : outline) {
+            if (!decompose(points, pieces)) {
+                return new ConvexShape(Kind.RINGS, outline, NONE, 0, 0, 0);
+            }
+        }
+
+        if (pieces.isEmpty()) {
+            return new ConvexShape(Kind.RINGS, outline, NONE, 0, 0, 0);
+        }
+
+        return new ConvexShape(Kind.POLYGONS, outline, pieces.toArray(new double[pieces.size()][]), 0, 0, 0);
+    }
+
+    /**
+     * Moves this outline rigidly. Only turns and shifts may be given, which
+     * keep every piece convex and wound the same way, so nothing needs to be
+     * split again.
+     * @param t A transform made only of rotations and translations
+     * @return The moved outline
+     */
+    ConvexShape transform(AffineTransform t) {
+        if (kind == Kind.CURVED) {
+            return this;
+        }
+
+        double[] centre = {cx, cy};
+
+        t.transform(centre, 0, centre, 0, 1);
+
+        return new ConvexShape(kind, transform(rings, t), transform(pieces, t), centre[0], centre[1], radius);
+    }
+
+    private static double[][] transform(double[][] points, AffineTransform t) {
+        double[][] moved = new double[points.length][];
+
+        for (int i = 0; i < points.length; i++) {
+            moved[i] = new double[points[i].length];
+            t.transform(points[i], 0, moved[i], 0, points[i].length / 2);
+        }
+
+        return moved;
+    }
+
+    /**
+     * Even-odd test of a point against a set of rings
+     * @param rings The rings to test
+     * @param x The x-coordinate of the point
+     * @param y The y-coordinate of the point
+     * @return True if the point is inside
+     */
+    static boolean inside(double[][] rings, double x, double y) {
+        boolean in = false;
+
+        for (double[] ring : rings) {
+            if (inside(ring, x, y)) {
+                in = !in;
+            }
+        }
+
+        return in;
+    }
+
+    /**
+     * Even-odd test of a point against a single ring
+     */
+    static boolean inside(double[] ring, double x, double y) {
+        boolean in = false;
+        int     n  = ring.length;
+
+        for (int i = 0, j = n - 2; i < n; j = i, i += 2) {
+            double xi = ring[i];
+            double yi = ring[i + 1];
+            double xj = ring[j];
+            double yj = ring[j + 1];
+
+            if (((yi > y) != (yj > y)) && (x < (xj - xi) * (y - yi) / (yj - yi) + xi)) {
+                in = !in;
+            }
+        }
+
+        return in;
+    }
+
+    /**
+     * A shape the engine can't handle
+     */
+    private static ConvexShape curved() {
+        return new ConvexShape(Kind.CURVED, NONE, NONE, 0, 0, 0);
+    }
+
+    /**
+     * Checks that sampled points of a curved outline all lie on the circle
+     * fitting its bounds.
+     */
+    private static ConvexShape circle(Rectangle2D bounds, List<Double> samples) {
+        double r  = (bounds.getWidth() + bounds.getHeight()) / 4;
+        double x  = bounds.getCenterX();
+        double y  = bounds.getCenterY();
+        double ok = CIRCLE_TOLERANCE * r;
+
+        if ((r <= 0) || (Math.abs(bounds.getWidth() - bounds.getHeight()) > 2 * ok)) {
+            return curved();
+        }
+
+        for (int i = 0; i < samples.size(); i += 2) {
+            double d = Math.hypot(samples.get(i) - x, samples.get(i + 1) - y);
+
+            if (Math.abs(d - r) > ok) {
+                return curved();
+            }
+        }
+
+        return new ConvexShape(Kind.CIRCLE, NONE, NONE, x, y, r);
+    }
+
+    /**
+     * Records both ends and the midpoint of a curved segment.
+     */
+    private static void sample(List<Double> samples, double x0, double y0, double midX, double midY, double x1,
+                               double y1) {
+        samples.add(x0);
+        samples.add(y0);
+        samples.add(midX);
+        samples.add(midY);
+        samples.add(x1);
+        samples.add(y1);
+    }
+
+    /**
+     * Splits a simple polygon into convex pieces. A convex polygon is kept
+     * whole, anything else is cut into triangles by ear clipping. All pieces
+     * wind anticlockwise.
+     * @param ring The polygon to split
+     * @param pieces Where to put the pieces
+     * @return false if the polygon couldn't be split, for instance because it
+     * crosses itself
+     */
+    private static boolean decompose(double[] ring, List<double[]> pieces) {
+        int   n     = ring.length / 2;
+        int[] index = new int[n];
+        int   sign  = (signedArea(ring) < 0) ? -1 : 1;
+
+        for (int i = 0; i < n; i++) {
+            index[i] = (sign > 0) ? i : n - 1 - i;
+        }
+
+        if (isConvex(ring, index, n)) {
+            double[] piece = new double[2 * n];
+
+            for (int i = 0; i < n; i++) {
+                piece[2 * i]     = ring[2 * index[i]];
+                piece[2 * i + 1] = ring[2 * index[i] + 1];
+            }
+
+            pieces.add(piece);
+
+            return true;
+        }
+
+        int remaining = n;
+        int i         = 0;
+        int misses    = 0;
+
+        while (remaining > 3) {
+            if (misses > remaining) {
+                return false;
+            }
+
+            int    p     = index[(i + remaining - 1) % remaining];
+            int    c     = index[i % remaining];
+            int    q     = index[(i + 1) % remaining];
+            double cross = cross(ring, p, c, q);
+            boolean ear  = cross == 0;
+
+            if (cross > 0) {
+                ear = true;
+
+                for (int k = 0; ear && (k < remaining); k++) {
+                    int v = index[k];
+
+                    if ((v != p) && (v != c) && (v != q) && inTriangle(ring, p, c, q, v)) {
+                        ear = false;
+                    }
+                }
+
+                if (ear) {
+                    pieces.add(new double[] {
+                        ring[2 * p], ring[2 * p + 1], ring[2 * c], ring[2 * c + 1], ring[2 * q], ring[2 * q + 1]
+                    });
+                }
+            }
+
+            if (ear) {
+
+                // Drop the clipped vertex, collinear vertices are dropped
+                // without making a piece
+                int at = i % remaining;
+
+                System.arraycopy(index, at + 1, index, at, remaining - at - 1);
+                remaining--;
+                misses = 0;
+            } else {
+                i++;
+                misses++;
+            }
+        }
+
+        if (cross(ring, index[0], index[1], index[2]) > 0) {
+            pieces.add(new double[] {
+                ring[2 * index[0]], ring[2 * index[0] + 1], ring[2 * index[1]], ring[2 * index[1] + 1],
+                ring[2 * index[2]], ring[2 * index[2] + 1]
+            });
+        }
+
+        return true;
+    }
+
+    private static boolean isConvex(double[] ring, int[] index, int n) {
+        for (int i = 0; i < n; i++) {
+            if (cross(ring, index[i], index[(i + 1) % n], index[(i + 2) % n]) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static double signedArea(double[] ring) {
+        double area = 0;
+        int    n    = ring.length;
+
+        for (int i = 0, j = n - 2; i < n; j = i, i += 2) {
+            area += ring[j] * ring[i + 1] - ring[i] * ring[j + 1];
+        }
+
+        return area / 2;
+    }
+
+    /**
+     * The z component of the cross product of the edges a-b and b-c, for
+     * vertices given by index
+     */
+    private static double cross(double[] ring, int a, int b, int c) {
+        return (ring[2 * b] - ring[2 * a]) * (ring[2 * c + 1] - ring[2 * b + 1])
+               - (ring[2 * b + 1] - ring[2 * a + 1]) * (ring[2 * c] - ring[2 * b]);
+    }
+
+    /**
+     * Checks if vertex v lies inside or on the anticlockwise triangle a, b, c
+     */
+    private static boolean inTriangle(double[] ring, int a, int b, int c, int v) {
+        return (cross(ring, a, b, v) >= 0) && (cross(ring, b, c, v) >= 0) && (cross(ring, c, a, v) >= 0);
+    }
+
+    /**
+     * Collects the points of one ring, dropping repeated points.
+     */
+    private static class Ring {
+        private double[] points = new double[16];
+        private int      size   = 0;
+
+        void add(double x, double y) {
+            if ((size > 0) && (points[size - 2] == x) && (points[size - 1] == y)) {
+                return;
+            }
+
+            if (size == points.length) {
+                double[] grown = new double[2 * size];
+
+                System.arraycopy(points, 0, grown, 0, size);
+                points = grown;
+            }
+
+            points[size++] = x;
+            points[size++] = y;
+        }
+
+        void finish(List<double[]> rings) {
+
+            // The closing point often repeats the first
+            if ((size > 2) && (points[0] == points[size - 2]) && (points[1] == points[size - 1])) {
+                size -= 2;
+            }
+
+            if (size >= 6) {
+                double[] ring = new double[size];
+
+                System.arraycopy(points, 0, ring, 0, size);
+                rings.add(ring);
+            }
+
+            size = 0;
+        }
+    }
+}
@@ -2,6 +2,7 @@
 package simulation.geometry;
 
 import java.awt.Shape;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Area;
 import java.awt.geom.Ellipse2D;
@@ -17,6 +18,11 @@ import java.util.LinkedList;
  * @author Simon
  */
 public class Entity extends Area {
+    private transient ShapeListener listener;
+    private transient Bounds        bounds;
+    private transient ConvexShape   convex;
+    private transient volatile double[] vertices;
+    private transient volatile int  shapeVersion;
 
     /**
      * Entity constructor which all in-game objects use
@@ -105,8 +111,8 @@ public class Entity extends Area {
      * @return true if the shape is contained
      */
     public boolean contains(Entity shape) {
-        Area thisArea  = new Area(this);
-        Area shapeArea = new Area(shape);
+        Area thisArea  = area(this);
+        Area shapeArea = area(shape);
 
         shapeArea.subtract(thisArea);
 
@@ -122,17 +128,72 @@ public class Entity extends Area {
      * @return This shape as a LinkedList of XPoints
      */
     public LinkedList<XPoint> getPolygon() {
-        final PathIterator iter   = getPathIterator(null);
-        double[]           coords = new double[6];
+        final double[]     buffer = getVertices();
         LinkedList<XPoint> points = new LinkedList<XPoint>();
 
+        for (int i = 0; i < buffer.length; i += 2) {
+            points.add(new XPoint(buffer[i], buffer[i + 1]));
+        }
+
+        return points;
+    }
+
+    /**
+     * Returns the same points as {@link #getPolygon()} packed as x0, y0, x1,
+     * y1, ... The buffer is built at most once per change of outline and is
+     * shared, so it must not be modified.
+     * @return The vertices of this shape
+     */
+    public double[] getVertices() {
+        double[] current = vertices;
+
+        if (current == null) {
+            current  = vertices(this);
+            vertices = current;
+        }
+
+        return current;
+    }
+
+    /**
+     * @return A number which changes whenever the outline of this entity does
+     */
+    public int getShapeVersion() {
+        return shapeVersion;
+    }
+
+    /**
+     * Walks the outline of a shape taking the first point of each segment,
+     * as getPolygon always has.
+     * @param shape The shape to walk
+     * @return The points packed as x0, y0, x1, y1, ...
+     */
+    static double[] vertices(Shape shape) {
+        final PathIterator iter   = shape.getPathIterator(null);
+        double[]           coords = new double[6];
+        double[]           buffer = new double[16];
+        int                size   = 0;
+
         while (!iter.isDone()) {
             iter.currentSegment(coords);
-            points.add(new XPoint(coords[0], coords[1]));
+
+            if (size == buffer.length) {
+                double[] grown = new double[2 * size];
+
+                System.arraycopy(buffer, 0, grown, 0, size);
+                buffer = grown;
+            }
+
+            buffer[size++] = coords[0];
+            buffer[size++] = coords[1];
             iter.next();
         }
 
-        return points;
+        double[] packed = new double[size];
+
+        System.arraycopy(buffer, 0, packed, 0, size);
+
+        return packed;
     }
 
     /**
@@ -142,9 +203,13 @@ public class Entity extends Area {
      * have occurred
      */
     public Collision incidenceAngleCollision(final RigidBody shape) {
+        if (!boundsOverlap(shape)) {
+            return new Collision();
+        }
+
         Collision  collision;
-        final Area remainder = new Area(this);
-        final Area otherArea = new Area(shape);
+        final Area remainder = area(this);
+        final Area otherArea = area(shape);
 
         remainder.intersect(otherArea);
 
@@ -167,8 +232,8 @@ public class Entity extends Area {
      */
     public Collision internalIncidenceAngleCollision(RigidBody shape) {
         Collision collision;
-        Area      remainder = new Area(this);
-        Area      object    = new Area(shape);
+        Area      remainder = area(this);
+        Area      object    = area(shape);
 
         remainder.intersect(object);
         remainder.exclusiveOr(object);
@@ -190,14 +255,80 @@ public class Entity extends Area {
      * @return True if the two shapes intersect, false otherwise
      */
     public boolean intersects(final Entity rhs) {
-        final Area area1 = new Area(this);
-        final Area area2 = new Area(rhs);
+        if (!boundsOverlap(rhs)) {
+            return false;
+        }
+
+        final Area area1 = area(this);
+        final Area area2 = area(rhs);
 
         area1.intersect(area2);
 
         return !area1.isEmpty();
     }
 
+    /**
+     * A cheap test run before any of the Area based hit detection. Bounding
+     * boxes which touch count as overlapping so that nothing the exact test
+     * would find is ever rejected.
+     * @param rhs The other shape to test against
+     * @return false if the two shapes certainly do not intersect
+     */
+    public boolean boundsOverlap(final Entity rhs) {
+        Bounds a = getCachedBounds();
+        Bounds b = rhs.getCachedBounds();
+
+        return (a.minX <= b.maxX) && (b.minX <= a.maxX) && (a.minY <= b.maxY) && (b.minY <= a.maxY);
+    }
+
+    /**
+     * The bounds are worked out at most once per change of outline. A new
+     * Bounds is published rather than updating fields so that sensors reading
+     * from other threads never see a half written box.
+     * @return The bounding box of this outline
+     */
+    private Bounds getCachedBounds() {
+        Bounds current = bounds;
+
+        if (current == null) {
+            current = new Bounds(getBounds2D());
+            bounds  = current;
+        }
+
+        return current;
+    }
+
+    /**
+     * The flattened outline is built at most once per change of outline, in
+     * the same way as the bounds.
+     * @return This outline in the form used by the {@link ConvexCollisionEngine}
+     */
+    ConvexShape getConvexShape() {
+        ConvexShape current = convex;
+
+        if (current == null) {
+            current = buildConvexShape();
+            convex  = current;
+        }
+
+        return current;
+    }
+
+    /**
+     * @return This outline in the form used by the {@link ConvexCollisionEngine}
+     */
+    ConvexShape buildConvexShape() {
+        return ConvexShape.of(this);
+    }
+
+    /**
+     * @return The flattened outline if it has been built since the outline
+     * last changed, otherwise null
+     */
+    ConvexShape getBuiltConvexShape() {
+        return convex;
+    }
+
     /**
      * Given a shape with at least one point coincident with the outline of this
      * shape, the method will return the angle at which that line runs.
@@ -205,22 +336,28 @@ public class Entity extends Area {
      * @return The angle of the found line, or NaN if none found
      */
     private double findAngleOfCoincidentLine(Area remainder) {
-        double             out             = java.lang.Double.NaN;
-        LinkedList<XPoint> collisionPoints = new RigidBody(remainder, null).getPolygon();
-        LinkedList<XPoint> outlinePoints   = this.getPolygon();
+        double   out             = java.lang.Double.NaN;
+        double[] collisionPoints = vertices(remainder);
+        double[] outlinePoints   = this.getVertices();
+        int      n               = outlinePoints.length;
+
+        if (n == 0) {
+            return out;
+        }
 
 searchLoop:
-        for (XPoint point : collisionPoints) {
-            XPoint prev = outlinePoints.getLast();
+        for (int p = 0; p < collisionPoints.length; p += 2) {
+            double px = collisionPoints[p];
+            double py = collisionPoints[p + 1];
 
-            for (XPoint current : outlinePoints) {
-                if (point.isOnLine(current, prev)) {
-                    out = current.getAngleTo(prev);
+            for (int i = 0, j = n - 2; i < n; j = i, i += 2) {
+                if (XPoint.isOnLine(px, py, outlinePoints[i], outlinePoints[i + 1], outlinePoints[j],
+                                    outlinePoints[j + 1])) {
+                    out = XPoint.angle(outlinePoints[i], outlinePoints[i + 1], outlinePoints[j],
+                                       outlinePoints[j + 1]);
 
                     break searchLoop;
                 }
-
-                prev = current;
             }
         }
 
@@ -247,10 +384,145 @@ searchLoop:
      * @param newShape the new shape for the entity
      */
     void setShape(Entity newShape) {
+        newShape.validate();
         super.reset();
         super.add(newShape);
+        shapeChanged();
+    }
+
+    /**
+     * Brings the outline held by the Area up to date. Area reads the outline
+     * of another Area directly, so this is called on an entity before an Area
+     * is built from it or combined with it. Entities never put off changes to
+     * their outline; see {@link RigidBody}.
+     */
+    void validate() {}
+
+    /**
+     * Makes a separate Area of a shape, bringing it up to date first if it is
+     * an entity
+     * @param shape The shape to copy
+     * @return An Area with the same outline
+     */
+    static Area area(Shape shape) {
+        if (shape instanceof Entity) {
+            ((Entity) shape).validate();
+        }
+
+        return new Area(shape);
+    }
+
+    /**
+     * Replaces the outline held by the Area without it counting as a change,
+     * for an entity which has already reported the change
+     * @param outline The new outline
+     */
+    void setOutline(Area outline) {
+        super.reset();
+        super.add(outline);
+    }
+
+    /**
+     * Only one listener is held. Spatial indices use this to learn when one of
+     * their entities has moved.
+     *
+     * @param listener The listener to be told of changes to this outline, or
+     * null to remove the current one
+     */
+    public void setShapeListener(ShapeListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return The listener told of changes to this outline, or null if none
+     */
+    public ShapeListener getShapeListener() {
+        return listener;
     }
-}
 
+    /**
+     * Called whenever the outline of this entity changes.
+     */
+    protected void shapeChanged() {
+        bounds   = null;
+        convex   = null;
+        vertices = null;
+        shapeVersion++;
+
+        ShapeListener current = listener;
+
+        if (current != null) {
+            current.shapeChanged(this);
+        }
+    }
+
+    @Override
+    public void transform(AffineTransform t) {
+        validate();
+        super.transform(t);
+        shapeChanged();
+    }
 
+    @Override
+    public void add(Area rhs) {
+        validate(this, rhs);
+        super.add(rhs);
+        shapeChanged();
+    }
+
+    @Override
+    public void subtract(Area rhs) {
+        validate(this, rhs);
+        super.subtract(rhs);
+        shapeChanged();
+    }
+
+    @Override
+    public void intersect(Area rhs) {
+        validate(this, rhs);
+        super.intersect(rhs);
+        shapeChanged();
+    }
+
+    @Override
+    public void exclusiveOr(Area rhs) {
+        validate(this, rhs);
+        super.exclusiveOr(rhs);
+        shapeChanged();
+    }
 
+    @Override
+    public void reset() {
+        validate();
+        super.reset();
+        shapeChanged();
+    }
+
+    /**
+     * Brings both sides of an Area operation up to date
+     */
+    private static void validate(Entity lhs, Area rhs) {
+        lhs.validate();
+
+        if (rhs instanceof Entity) {
+            ((Entity) rhs).validate();
+        }
+    }
+
+    /**
+     * An axis aligned bounding box.
+     */
+    private static final class Bounds {
+        private final double minX;
+        private final double minY;
+        private final double maxX;
+        private final double maxY;
+
+        Bounds(Rectangle2D box) {
+            minX = box.getMinX();
+            minY = box.getMinY();
+            maxX = box.getMaxX();
+            maxY = box.getMaxY();
+        }
+    }
+}
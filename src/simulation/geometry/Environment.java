@@ -3,6 +3,9 @@ package simulation.geometry;
 import java.awt.Shape;
 import java.awt.geom.Area;
 import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Random;
@@ -15,9 +18,11 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * @author Simon, Jermin and Josh
  */
 public class Environment extends Entity {
-    final private Collection<Terrain> impassableTerrains;
-    final private Collection<Terrain> passableTerrains;    // contains terrain within the area
-    final private Collection<Terrain> terrains;            // contains terrain within the area
+    private static final CollisionEngine AREA_ENGINE = new AreaCollisionEngine();
+    private static final double          TOUCHING    = 1e-9;
+    final private SpatialGrid<Terrain> impassableTerrains;
+    final private SpatialGrid<Terrain> passableTerrains;    // contains terrain within the area
+    final private Collection<Terrain>  terrains;            // contains terrain within the area
 
     /**
      * Environment constructor
@@ -34,20 +39,23 @@ public class Environment extends Entity {
      */
     public Environment(Environment environment) {
         super(environment);
-        impassableTerrains = new CopyOnWriteArrayList<Terrain>();
-        passableTerrains   = new CopyOnWriteArrayList<Terrain>();
+        impassableTerrains = new SpatialGrid<Terrain>();
+        passableTerrains   = new SpatialGrid<Terrain>();
         terrains           = new CopyOnWriteArrayList<Terrain>();
 
+        // Copy each terrain once so that it is the same object in every list
         for (Terrain terrain : environment.terrains) {
-            terrains.add(new Terrain(terrain));
-        }
+            Terrain copy = new Terrain(terrain);
 
-        for (Terrain terrain : environment.passableTerrains) {
-            passableTerrains.add(new Terrain(terrain));
-        }
+            terrains.add(copy);
+
+            if (environment.passableTerrains.contains(terrain)) {
+                passableTerrains.add(copy);
+            }
 
-        for (Terrain terrain : environment.impassableTerrains) {
-            impassableTerrains.add(new Terrain(terrain));
+            if (environment.impassableTerrains.contains(terrain)) {
+                impassableTerrains.add(copy);
+            }
         }
     }
 
@@ -57,8 +65,8 @@ public class Environment extends Entity {
      */
     public Environment(final RigidBody area) {
         super(area);
-        this.passableTerrains   = new CopyOnWriteArrayList<Terrain>();
-        this.impassableTerrains = new CopyOnWriteArrayList<Terrain>();
+        this.passableTerrains   = new SpatialGrid<Terrain>();
+        this.impassableTerrains = new SpatialGrid<Terrain>();
         this.terrains           = new CopyOnWriteArrayList<Terrain>();
     }
 
@@ -122,6 +130,23 @@ public class Environment extends Entity {
         return true;
     }
 
+    /**
+     * Adds an existing Terrain to the environment.
+     * @param terrain The terrain, passable or not as it says.
+     * @return true if the terrain is successfully added.
+     */
+    public boolean addTerrain(final Terrain terrain) {
+        if (terrain.isPassable()) {
+            passableTerrains.add(terrain);
+        } else {
+            impassableTerrains.add(terrain);
+        }
+
+        terrains.add(terrain);
+
+        return true;
+    }
+
     /**
      * Sets the shape of the environment.
      *
@@ -145,17 +170,27 @@ public class Environment extends Entity {
      * @return True if the object is in an illegal state.
      */
     public Collision obstructs(final RigidBody shape) {
+        return obstructs(shape, AREA_ENGINE);
+    }
+
+    /**
+     * Tests an object's position for legality and calculates angle of incidence on collision detection.
+     * @param shape polygon representing the moving objects shape.
+     * @param engine The engine used for hit detection
+     * @return True if the object is in an illegal state.
+     */
+    public Collision obstructs(final RigidBody shape, final CollisionEngine engine) {
         Collision collision;
 
-        for (Terrain terrain : impassableTerrains) {
-            collision = terrain.incidenceAngleCollision(shape);
+        for (Terrain terrain : impassableTerrains.query(shape.getBounds2D())) {
+            collision = engine.incidenceAngleCollision(terrain, shape);
 
             if (collision.occurred()) {
                 return collision;
             }
         }
 
-        collision = internalIncidenceAngleCollision(shape);
+        collision = engine.internalIncidenceAngleCollision(this, shape);
 
         if (collision.occurred()) {
             return collision;
@@ -170,12 +205,239 @@ public class Environment extends Entity {
      * @return True if the object is in an illegal state.
      */
     public boolean obstructs(final Entity shape) {
-        for (Terrain terrain : impassableTerrains) {
-            if (terrain.intersects(shape)) {
+        return obstructs(shape, AREA_ENGINE);
+    }
+
+    /**
+     * Finds how far a straight edged shape has gone into the impassable
+     * terrain or out of the outline, and which way it must be pushed to get
+     * out, without any Area operations. Each piece of the shape is tested
+     * against each piece of nearby terrain by separating axes, each corner of
+     * the shape outside the outline is taken to the nearest edge and each
+     * corner of the outline inside the shape is pushed out of it. The deepest
+     * of these is returned, so a shape touching more than one wall may need
+     * pushing more than once. Shapes which only touch, to within rounding,
+     * are clear, as they are for the Area tests.
+     * @param shape The shape to test
+     * @return The deepest contact, {@link Contact#NONE} if the shape is clear,
+     * or null if the shape, the outline or a terrain is curved and so can't
+     * be handled this way
+     */
+    public Contact contact(final RigidBody shape) {
+        ConvexShape body    = shape.getConvexShape();
+        ConvexShape outline = getConvexShape();
+        Contact     deepest = Contact.NONE;
+
+        if ((body.kind != ConvexShape.Kind.POLYGONS)
+                || ((outline.kind != ConvexShape.Kind.POLYGONS) && (outline.kind != ConvexShape.Kind.RINGS))) {
+            return null;
+        }
+
+        for (Terrain terrain : impassableTerrains.query(shape.getBounds2D())) {
+            ConvexShape obstacle = terrain.getConvexShape();
+
+            if (obstacle.kind != ConvexShape.Kind.POLYGONS) {
+                return null;
+            }
+
+            for (double[] piece : body.pieces) {
+                for (double[] other : obstacle.pieces) {
+                    deepest = deepest.deeper(separate(piece, other));
+                }
+            }
+        }
+
+        for (double[] ring : body.rings) {
+            for (int i = 0; i < ring.length; i += 2) {
+                if (!ConvexShape.inside(outline.rings, ring[i], ring[i + 1])) {
+                    deepest = deepest.deeper(toEdge(outline.rings, ring[i], ring[i + 1]));
+                }
+            }
+        }
+
+        for (double[] ring : outline.rings) {
+            for (int i = 0; i < ring.length; i += 2) {
+                for (double[] piece : body.pieces) {
+                    deepest = deepest.deeper(outOf(piece, ring[i], ring[i + 1]));
+                }
+            }
+        }
+
+        return deepest;
+    }
+
+    /**
+     * The separating axis test between two convex pieces
+     * @return The smallest push which takes the first piece off the second,
+     * with the corner of the first piece furthest into the second, or
+     * {@link Contact#NONE} if they don't overlap
+     */
+    private static Contact separate(double[] piece, double[] other) {
+        double   bestX     = 0;
+        double   bestY     = 0;
+        double   bestDepth = Double.POSITIVE_INFINITY;
+        double[] polygon   = piece;
+
+        for (int side = 0; side < 2; side++) {
+            int n = polygon.length;
+
+            for (int i = 0, j = n - 2; i < n; j = i, i += 2) {
+                double length = Math.hypot(polygon[i] - polygon[j], polygon[i + 1] - polygon[j + 1]);
+
+                if (length == 0) {
+                    continue;
+                }
+
+                double axisX = (polygon[i + 1] - polygon[j + 1]) / length;
+                double axisY = (polygon[j] - polygon[i]) / length;
+                double minA  = Double.POSITIVE_INFINITY;
+                double maxA  = Double.NEGATIVE_INFINITY;
+                double minB  = Double.POSITIVE_INFINITY;
+                double maxB  = Double.NEGATIVE_INFINITY;
+
+                for (int k = 0; k < piece.length; k += 2) {
+                    double p = piece[k] * axisX + piece[k + 1] * axisY;
+
+                    minA = Math.min(minA, p);
+                    maxA = Math.max(maxA, p);
+                }
+
+                for (int k = 0; k < other.length; k += 2) {
+                    double p = other[k] * axisX + other[k + 1] * axisY;
+
+                    minB = Math.min(minB, p);
+                    maxB = Math.max(maxB, p);
+                }
+
+                // Push whichever way is shorter
+                double forward  = maxB - minA;
+                double backward = maxA - minB;
+
+                if ((forward <= TOUCHING) || (backward <= TOUCHING)) {
+                    return Contact.NONE;
+                }
+
+                if (forward < bestDepth) {
+                    bestX     = axisX;
+                    bestY     = axisY;
+                    bestDepth = forward;
+                }
+
+                if (backward < bestDepth) {
+                    bestX     = -axisX;
+                    bestY     = -axisY;
+                    bestDepth = backward;
+                }
+            }
+
+            polygon = other;
+        }
+
+        if (bestDepth == Double.POSITIVE_INFINITY) {
+            return Contact.NONE;
+        }
+
+        // The corner furthest in is the one furthest back along the push
+        int deepest = 0;
+
+        for (int k = 2; k < piece.length; k += 2) {
+            if (piece[k] * bestX + piece[k + 1] * bestY < piece[deepest] * bestX + piece[deepest + 1] * bestY) {
+                deepest = k;
+            }
+        }
+
+        return new Contact(bestX, bestY, bestDepth, piece[deepest], piece[deepest + 1]);
+    }
+
+    /**
+     * @return The push which takes a point outside the outline to the nearest
+     * point on its edges
+     */
+    private static Contact toEdge(double[][] rings, double x, double y) {
+        double bestX    = 0;
+        double bestY    = 0;
+        double bestDist = Double.POSITIVE_INFINITY;
+
+        for (double[] ring : rings) {
+            int n = ring.length;
+
+            for (int i = 0, j = n - 2; i < n; j = i, i += 2) {
+                double dx     = ring[i] - ring[j];
+                double dy     = ring[i + 1] - ring[j + 1];
+                double length = dx * dx + dy * dy;
+                double t      = (length == 0) ? 0 : ((x - ring[j]) * dx + (y - ring[j + 1]) * dy) / length;
+
+                t = Math.max(0, Math.min(1, t));
+
+                double nearX = ring[j] + t * dx - x;
+                double nearY = ring[j + 1] + t * dy - y;
+                double dist  = Math.hypot(nearX, nearY);
+
+                if (dist < bestDist) {
+                    bestX    = nearX;
+                    bestY    = nearY;
+                    bestDist = dist;
+                }
+            }
+        }
+
+        // Even-odd puts some points on the edges outside
+        if ((bestDist <= TOUCHING) || (bestDist == Double.POSITIVE_INFINITY)) {
+            return Contact.NONE;
+        }
+
+        return new Contact(bestX / bestDist, bestY / bestDist, bestDist, x, y);
+    }
+
+    /**
+     * @return The smallest push which takes a convex piece off a point inside
+     * it, or {@link Contact#NONE} if the point isn't inside
+     */
+    private static Contact outOf(double[] piece, double x, double y) {
+        double bestX     = 0;
+        double bestY     = 0;
+        double bestDepth = Double.POSITIVE_INFINITY;
+        int    n         = piece.length;
+
+        for (int i = 0, j = n - 2; i < n; j = i, i += 2) {
+            double length = Math.hypot(piece[i] - piece[j], piece[i + 1] - piece[j + 1]);
+
+            if (length == 0) {
+                continue;
+            }
+
+            // Pieces wind anticlockwise, so this normal points out of the edge
+            double axisX = (piece[i + 1] - piece[j + 1]) / length;
+            double axisY = (piece[j] - piece[i]) / length;
+            double depth = (piece[i] - x) * axisX + (piece[i + 1] - y) * axisY;
+
+            if (depth <= TOUCHING) {
+                return Contact.NONE;
+            }
+
+            if (depth < bestDepth) {
+                bestX     = -axisX;
+                bestY     = -axisY;
+                bestDepth = depth;
+            }
+        }
+
+        return (bestDepth == Double.POSITIVE_INFINITY) ? Contact.NONE : new Contact(bestX, bestY, bestDepth, x, y);
+    }
+
+    /**
+     * Tests an object's position for legality.
+     * @param shape polygon representing the moving objects shape.
+     * @param engine The engine used for hit detection
+     * @return True if the object is in an illegal state.
+     */
+    public boolean obstructs(final Entity shape, final CollisionEngine engine) {
+        for (Terrain terrain : impassableTerrains.query(shape.getBounds2D())) {
+            if (engine.intersects(terrain, shape)) {
                 return true;
             }
         }
-        if (!this.contains(shape)) {
+        if (!engine.contains(this, shape)) {
             return true;
         }
 
@@ -197,12 +459,12 @@ public class Environment extends Entity {
         double avrgTerrainCoefficient = 0;
 
         // create an area of the moving object
-        Area movingObject = new Area(shape);
+        Area movingObject = area(shape);
 
-        for (Terrain t : passableTerrains) {
+        for (Terrain t : passableTerrains.query(movingObject.getBounds2D())) {
 
             // creates an area from the current terrain
-            Area terrainShape = new Area(t);
+            Area terrainShape = area(t);
 
             // alter terrainShape to an area of the intersection
             terrainShape.intersect(movingObject);
@@ -236,9 +498,19 @@ public class Environment extends Entity {
      * @param size A value that is proportional to sqrt(area) of the final shape.
      */
     public void spillHotCoffeeEverywhere(XPoint location, final double size) {
+        spillHotCoffeeEverywhere(location, size, new Random());
+    }
+
+    /**
+     * Creates a big sticky mess around the given point, shaped by the given
+     * generator so that the same spill can be made again.
+     * @param location Origin of the coffee spill.
+     * @param size A value that is proportional to sqrt(area) of the final shape.
+     * @param rand The generator deciding the shape of the spill.
+     */
+    public void spillHotCoffeeEverywhere(XPoint location, final double size, final Random rand) {
         double        x     = location.getX();
         double        y     = location.getY();
-        Random        rand  = new Random();
         Path2D.Double spill = new Path2D.Double();
         double        start = x - rand.nextDouble() * size;
 
@@ -274,6 +546,46 @@ public class Environment extends Entity {
         return Collections.unmodifiableCollection(passableTerrains);
     }
 
+    /**
+     * Returns the impassable terrains whose bounds meet a region.
+     * @param region The region of interest.
+     * @return Collection of the impassable terrains near the region.
+     */
+    public Collection<Terrain> getImpassableTerrain(Rectangle2D region) {
+        return impassableTerrains.query(region);
+    }
+
+    /**
+     * Returns the impassable terrains whose bounds meet a line.
+     * @param from One end of the line.
+     * @param to The other end of the line.
+     * @return Collection of the impassable terrains near the line.
+     */
+    public Collection<Terrain> getImpassableTerrain(Point2D from, Point2D to) {
+        return getImpassableTerrain(from.getX(), from.getY(), to.getX(), to.getY());
+    }
+
+    /**
+     * Returns the impassable terrains whose bounds meet a line.
+     * @param x1 x of one end of the line.
+     * @param y1 y of one end of the line.
+     * @param x2 x of the other end of the line.
+     * @param y2 y of the other end of the line.
+     * @return Collection of the impassable terrains near the line.
+     */
+    public Collection<Terrain> getImpassableTerrain(double x1, double y1, double x2, double y2) {
+        return impassableTerrains.query(x1, y1, x2, y2);
+    }
+
+    /**
+     * Returns the passable terrains whose bounds meet a region.
+     * @param region The region of interest.
+     * @return Collection of the passable terrains near the region.
+     */
+    public Collection<Terrain> getPassableTerrain(Rectangle2D region) {
+        return passableTerrains.query(region);
+    }
+
     /**
      * @inheritDoc
      *
@@ -293,6 +605,20 @@ public class Environment extends Entity {
         return Collections.unmodifiableCollection(terrains);
     }
 
+    /**
+     * Returns the terrains whose bounds meet a region.
+     *
+     * @param region The region of interest.
+     * @return Collection of terrain objects near the region.
+     */
+    public Collection<Terrain> getTerrain(Rectangle2D region) {
+        Collection<Terrain> near = new ArrayList<Terrain>(impassableTerrains.query(region));
+
+        near.addAll(passableTerrains.query(region));
+
+        return near;
+    }
+
     /**
      * Gets the width of the environment, calculated using a bounding box.
      *
@@ -320,6 +646,27 @@ public class Environment extends Entity {
         passableTerrains.clear();
     }
 
+    /**
+     * Replaces the terrains in the environment, keeping the terrain objects
+     * themselves so nothing is copied.
+     *
+     * @param all Every terrain, in the order they are painted.
+     * @param impassable Those of the terrains which are impassable.
+     */
+    public void restoreTerrain(Collection<Terrain> all, Collection<Terrain> impassable) {
+        clear();
+
+        for (Terrain terrain : all) {
+            terrains.add(terrain);
+
+            if (impassable.contains(terrain)) {
+                impassableTerrains.add(terrain);
+            } else {
+                passableTerrains.add(terrain);
+            }
+        }
+    }
+
     /**
      * Delete a terrain from the environment.
      * 
@@ -5,11 +5,33 @@ import simulation.Simulator;
 
 import simulation.entities.Cup;
 
+import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 
 
 /**
+ * A body with a centre of mass and an angle, which is moved by turning and
+ * shifting it.
+ *
+ * Rebuilding an Area for every move is costly, so moves are not applied to
+ * the outline straight away. The body keeps the outline it was last given,
+ * other than by being moved, along with a pose: the turn and shift which take
+ * that outline to where the body is now. A move only updates the pose, and
+ * the Area is built from the kept outline and the pose the first time
+ * anything reads it. Every build starts from the same outline, so however
+ * many moves a body makes, rounding errors only ever shift or turn it as a
+ * whole and never distort its shape.
+ *
+ * Bounding boxes and the flattened outline used by the
+ * {@link ConvexCollisionEngine} are worked out from the pose without building
+ * the Area at all, so a body which is turned many times while sliding along a
+ * wall, or placed and turned by a sensor, only has its Area rebuilt if an
+ * exact test needs it.
  *
  * @author Sam Sanson
  * @author Simon
@@ -17,8 +39,18 @@ import java.awt.geom.AffineTransform;
  * @version 1.1 08.07.2011
  */
 public class RigidBody extends Entity {
+    private static final CollisionEngine AREA_ENGINE = new AreaCollisionEngine();
     private double angle            = 0;
     private XPoint com              = new XPoint();
+    private transient volatile boolean stale;
+    private transient boolean          moving;
+    private transient Area             local;
+    private transient ConvexShape      localConvex;
+    private transient double           poseX;
+    private transient double           poseY;
+    private transient double           poseAngle;
+    private transient double[]         movedVertices;
+    private transient Rectangle2D      movedBounds;
 
     /**
      * Constructor for RigidBody.
@@ -26,7 +58,7 @@ public class RigidBody extends Entity {
      * @param shape shape of the rigid body
      */
     public RigidBody(final RigidBody shape) {
-        super(shape);
+        super(validated(shape));
         com   = new XPoint(shape.getCom());
         angle = shape.getAngle();
     }
@@ -135,7 +167,7 @@ public class RigidBody extends Entity {
      * @param angle The required angle of rotation.
      */
     public void rotate(final double angle) {
-        transform(AffineTransform.getRotateInstance(angle, getX(), getY()));
+        defer(angle, getX(), getY(), 0, 0);
         this.angle += angle;
     }
 
@@ -145,7 +177,7 @@ public class RigidBody extends Entity {
      * @param point The point to rotate the polygon about
      */
     public void rotateAboutPoint(final double angle, final XPoint point) {
-        transform(AffineTransform.getRotateInstance(angle, point.getX(), point.getY()));
+        defer(angle, point.getX(), point.getY(), 0, 0);
         this.angle += angle;
     }
 
@@ -163,7 +195,7 @@ public class RigidBody extends Entity {
      * @param y Y distance from the origin.
      */
     public void place(final double x, final double y) {
-        transform(AffineTransform.getTranslateInstance(x - getX(), y - getY()));
+        defer(0, 0, 0, x - getX(), y - getY());
         com.setLocation(x, y);
     }
 
@@ -173,10 +205,295 @@ public class RigidBody extends Entity {
      * @param y The y translation.
      */
     public void translate(final double x, final double y) {
-        transform(AffineTransform.getTranslateInstance(x, y));
+        defer(0, 0, 0, x, y);
         com.setLocation(com.getX() + x, com.getY() + y);
     }
 
+    /**
+     * Turns the shape about its com and then moves it, in a single transform
+     * @param turn The angle to turn by
+     * @param x The x translation after turning
+     * @param y The y translation after turning
+     */
+    public void move(final double turn, final double x, final double y) {
+        defer(turn, getX(), getY(), x, y);
+        angle += turn;
+        com.setLocation(com.getX() + x, com.getY() + y);
+    }
+
+    /**
+     * Adds a move to the pose. The outline counts as changed straight away,
+     * though the Area is not rebuilt until it is read.
+     * @param turn The angle to turn by
+     * @param cx The x-coordinate of the point to turn about
+     * @param cy The y-coordinate of the point to turn about
+     * @param x The x translation after turning
+     * @param y The y translation after turning
+     */
+    private void defer(double turn, double cx, double cy, double x, double y) {
+        synchronized (this) {
+            if (local == null) {
+                local       = new Area(this);
+                localConvex = getBuiltConvexShape();
+                poseX       = 0;
+                poseY       = 0;
+                poseAngle   = 0;
+            }
+
+            if (turn != 0) {
+                double cos = Math.cos(turn);
+                double sin = Math.sin(turn);
+                double dx  = poseX - cx;
+                double dy  = poseY - cy;
+
+                poseX     = cx + dx * cos - dy * sin;
+                poseY     = cy + dx * sin + dy * cos;
+                poseAngle += turn;
+            }
+
+            poseX         += x;
+            poseY         += y;
+            stale         = true;
+            movedVertices = null;
+            movedBounds   = null;
+        }
+
+        moving = true;
+
+        try {
+            shapeChanged();
+        } finally {
+            moving = false;
+        }
+    }
+
+    /**
+     * Any change to the outline other than a move means the kept outline no
+     * longer describes the body, so it is kept afresh on the next move.
+     */
+    @Override
+    protected void shapeChanged() {
+        if (!moving) {
+            synchronized (this) {
+                stale         = false;
+                local         = null;
+                localConvex   = null;
+                movedVertices = null;
+                movedBounds   = null;
+            }
+        }
+
+        super.shapeChanged();
+    }
+
+    /**
+     * @return The transform taking the kept outline to where the body is now
+     */
+    private AffineTransform pose() {
+        AffineTransform t = AffineTransform.getTranslateInstance(poseX, poseY);
+
+        t.rotate(poseAngle);
+
+        return t;
+    }
+
+    /**
+     * Builds the Area from the kept outline and the pose, if it has moved
+     * since it was last built. Called by every method which reads the outline.
+     */
+    @Override
+    void validate() {
+        if (!stale) {
+            return;
+        }
+
+        synchronized (this) {
+            if (stale) {
+                setOutline(local.createTransformedArea(pose()));
+                stale       = false;
+                movedBounds = null;
+            }
+        }
+    }
+
+    /**
+     * @return The shape, brought up to date
+     */
+    private static RigidBody validated(RigidBody shape) {
+        shape.validate();
+
+        return shape;
+    }
+
+    /**
+     * Moves the flattened kept outline by the pose when it is straight edged
+     * or a circle, rather than building the Area.
+     */
+    @Override
+    ConvexShape buildConvexShape() {
+        synchronized (this) {
+            if (stale) {
+                if (localConvex == null) {
+                    localConvex = ConvexShape.of(local);
+                }
+
+                if (localConvex.kind != ConvexShape.Kind.CURVED) {
+                    return localConvex.transform(pose());
+                }
+            }
+        }
+
+        return super.buildConvexShape();
+    }
+
+    /**
+     * While the Area is out of date the bounds are worked out from the kept
+     * outline: shifted if the body hasn't turned, or from its turned vertices
+     * if it is straight edged. Only a turned curve needs the Area to be
+     * rebuilt.
+     */
+    @Override
+    public Rectangle2D getBounds2D() {
+        if (stale) {
+            synchronized (this) {
+                Rectangle2D bounds = movedBounds();
+
+                if (bounds != null) {
+                    return (Rectangle2D) bounds.clone();
+                }
+            }
+        }
+
+        validate();
+
+        return super.getBounds2D();
+    }
+
+    /**
+     * @return The bounds of the kept outline after the pose, or null if the
+     * Area must be rebuilt to find them
+     */
+    private Rectangle2D movedBounds() {
+        if (!stale || (movedBounds != null)) {
+            return movedBounds;
+        }
+
+        if (poseAngle == 0) {
+            Rectangle2D box = local.getBounds2D();
+
+            movedBounds = new Rectangle2D.Double();
+            movedBounds.setFrameFromDiagonal(box.getMinX() + poseX, box.getMinY() + poseY, box.getMaxX() + poseX,
+                                             box.getMaxY() + poseY);
+        } else if (local.isPolygonal() && !local.isEmpty()) {
+            if (movedVertices == null) {
+                movedVertices = vertices(local);
+                pose().transform(movedVertices, 0, movedVertices, 0, movedVertices.length / 2);
+            }
+
+            double minX = Double.POSITIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+
+            for (int i = 0; i < movedVertices.length; i += 2) {
+                minX = Math.min(minX, movedVertices[i]);
+                minY = Math.min(minY, movedVertices[i + 1]);
+                maxX = Math.max(maxX, movedVertices[i]);
+                maxY = Math.max(maxY, movedVertices[i + 1]);
+            }
+
+            movedBounds = new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+        }
+
+        return movedBounds;
+    }
+
+    @Override
+    public Rectangle getBounds() {
+        return getBounds2D().getBounds();
+    }
+
+    @Override
+    public PathIterator getPathIterator(AffineTransform at) {
+        validate();
+
+        return super.getPathIterator(at);
+    }
+
+    @Override
+    public PathIterator getPathIterator(AffineTransform at, double flatness) {
+        validate();
+
+        return super.getPathIterator(at, flatness);
+    }
+
+    @Override
+    public boolean contains(double x, double y) {
+        validate();
+
+        return super.contains(x, y);
+    }
+
+    @Override
+    public boolean contains(Point2D p) {
+        validate();
+
+        return super.contains(p);
+    }
+
+    @Override
+    public boolean contains(double x, double y, double w, double h) {
+        validate();
+
+        return super.contains(x, y, w, h);
+    }
+
+    @Override
+    public boolean contains(Rectangle2D r) {
+        validate();
+
+        return super.contains(r);
+    }
+
+    @Override
+    public boolean intersects(double x, double y, double w, double h) {
+        validate();
+
+        return super.intersects(x, y, w, h);
+    }
+
+    @Override
+    public boolean intersects(Rectangle2D r) {
+        validate();
+
+        return super.intersects(r);
+    }
+
+    @Override
+    public boolean isRectangular() {
+        validate();
+
+        return super.isRectangular();
+    }
+
+    @Override
+    public boolean equals(Area other) {
+        validate();
+
+        if (other instanceof Entity) {
+            ((Entity) other).validate();
+        }
+
+        return super.equals(other);
+    }
+
+    @Override
+    public Object clone() {
+        validate();
+
+        return super.clone();
+    }
+
     /**
      * The current angle of this shape.
      * @return angle of this shape.
@@ -221,6 +538,8 @@ public class RigidBody extends Entity {
      * @param newShape the shape of the RigidBody
      */
     public void setShape(RigidBody newShape) {
+
+        // The outline is replaced, so any move not yet applied is dropped
         super.setShape(newShape);
         angle = newShape.getAngle();
         com   = newShape.getCom();
@@ -282,13 +601,27 @@ public class RigidBody extends Entity {
      * the target will react at
      */
     public Collision collideWith(final Cup cup, double criticalAngle) {
+        return collideWith(cup, criticalAngle, AREA_ENGINE);
+    }
+
+    /**
+     *
+     * @param cup What is being collided into
+     * @param criticalAngle If a cup is causing the collision this not needed so
+     * make 0, but if a robot is causing the collision this is the critical angle
+     * equal to Math.atan2(robot.getWidth(), robot.getLength())
+     * @param engine The engine used for hit detection
+     * @return a collision containing a boolean of if it occurred, and the angle
+     * the target will react at
+     */
+    public Collision collideWith(final Cup cup, double criticalAngle, CollisionEngine engine) {
         Collision collision;
         double xDif = cup.getX() - getX();
         double yDif = cup.getY() - getY();
         double comAngle = Math.atan(xDif / yDif);
         double angleToNextObject;
 
-        if (this.intersects(cup)) {
+        if (engine.intersects(this, cup)) {
 
             if(Math.abs(comAngle) <= Math.abs(criticalAngle)) {
                 angleToNextObject = this.getAngle();
@@ -0,0 +1,17 @@
+package simulation.geometry;
+
+/**
+ * A {@code ShapeListener} is told whenever the outline of an entity it listens
+ * to is changed, whether by a transform or by being replaced outright.
+ *
+ * @author Simon
+ */
+public interface ShapeListener {
+
+    /**
+     * Called after the outline of an entity has changed.
+     *
+     * @param entity The entity which changed
+     */
+    void shapeChanged(Entity entity);
+}
@@ -0,0 +1,481 @@
+package simulation.geometry;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A collection of entities which is also a uniform grid spatial index over
+ * their bounding boxes. Iteration is over a snapshot in insertion order, just
+ * like the {@code CopyOnWriteArrayList}s it replaces, so entities may be added
+ * and removed while the grid is being iterated.
+ *
+ * The grid listens to its entities and re-files any that move the next time
+ * it is queried. Queries return candidates whose bounding boxes meet the
+ * region or line, in insertion order; exact tests are left to the caller.
+ *
+ * @param <T> The type of entity held
+ * @author Simon
+ */
+public class SpatialGrid<T extends Entity> extends AbstractCollection<T> implements ShapeListener {
+    public static final double  DEFAULT_CELL_SIZE = 100;
+    private static final int    MAX_CELLS         = 1024;    // Entities bigger than this are checked on every query
+    private final double        cellSize;
+    private final List<T>       entities          = new CopyOnWriteArrayList<T>();
+    private final Map<T, Entry> entries           = new IdentityHashMap<T, Entry>();
+    private final Map<Long, List<Entry>> cells    = new HashMap<Long, List<Entry>>();
+    private final List<Entry>   oversized         = new ArrayList<Entry>();
+    private final Set<T>        dirty             = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+    private long                nextSequence      = 0;
+    private long                queryStamp        = 0;
+
+    /**
+     * Creates an empty grid with the default cell size.
+     */
+    public SpatialGrid() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Creates an empty grid.
+     * @param cellSize The width and height of each grid cell
+     */
+    public SpatialGrid(double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Restricts a collection to the entities which may meet a region. Grids
+     * are queried, any other collection is returned as it is.
+     * @param <T> The type of entity
+     * @param col The collection to search
+     * @param region The region of interest
+     * @return The entities of col which may meet the region
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Entity> Collection<T> near(Collection<T> col, Rectangle2D region) {
+        if (col instanceof SpatialGrid) {
+            return ((SpatialGrid<T>) col).query(region);
+        }
+
+        return col;
+    }
+
+    /**
+     * Restricts a collection to the entities which may meet a line segment.
+     * Grids are queried, any other collection is returned as it is.
+     * @param <T> The type of entity
+     * @param col The collection to search
+     * @param from One end of the line
+     * @param to The other end of the line
+     * @return The entities of col which may meet the line
+     */
+    public static <T extends Entity> Collection<T> along(Collection<T> col, Point2D from, Point2D to) {
+        return along(col, from.getX(), from.getY(), to.getX(), to.getY());
+    }
+
+    /**
+     * Restricts a collection to the entities which may meet a line segment.
+     * Grids are queried, any other collection is returned as it is.
+     * @param <T> The type of entity
+     * @param col The collection to search
+     * @param x1 x of one end of the line
+     * @param y1 y of one end of the line
+     * @param x2 x of the other end of the line
+     * @param y2 y of the other end of the line
+     * @return The entities of col which may meet the line
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Entity> Collection<T> along(Collection<T> col, double x1, double y1, double x2,
+            double y2) {
+        if (col instanceof SpatialGrid) {
+            return ((SpatialGrid<T>) col).query(x1, y1, x2, y2);
+        }
+
+        return col;
+    }
+
+    /**
+     * Finds all entities whose bounding boxes meet a region.
+     * @param region The region to search
+     * @return The candidates in insertion order
+     */
+    public synchronized List<T> query(Rectangle2D region) {
+        refresh();
+
+        List<Entry> found = new ArrayList<Entry>();
+        long        stamp = ++queryStamp;
+        int         minX  = cell(region.getMinX());
+        int         minY  = cell(region.getMinY());
+        int         maxX  = cell(region.getMaxX());
+        int         maxY  = cell(region.getMaxY());
+
+        if ((long) (maxX - minX + 1) * (maxY - minY + 1) > entries.size()) {
+
+            // Cheaper to look at everything than to visit every cell
+            for (Entry entry : entries.values()) {
+                collect(entry, region, stamp, found);
+            }
+        } else {
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    List<Entry> cell = cells.get(key(x, y));
+
+                    if (cell != null) {
+                        for (Entry entry : cell) {
+                            collect(entry, region, stamp, found);
+                        }
+                    }
+                }
+            }
+
+            for (Entry entry : oversized) {
+                collect(entry, region, stamp, found);
+            }
+        }
+
+        return sorted(found);
+    }
+
+    /**
+     * Finds all entities whose bounding boxes meet a line segment. The cells
+     * crossed by the line are walked in order, so long lines through sparse
+     * areas are cheap.
+     * @param x1 x of the start of the line
+     * @param y1 y of the start of the line
+     * @param x2 x of the end of the line
+     * @param y2 y of the end of the line
+     * @return The candidates in insertion order
+     */
+    public synchronized List<T> query(double x1, double y1, double x2, double y2) {
+        refresh();
+
+        List<Entry> found = new ArrayList<Entry>();
+        long        stamp = ++queryStamp;
+        int         x     = cell(x1);
+        int         y     = cell(y1);
+        int         endX  = cell(x2);
+        int         endY  = cell(y2);
+        int         stepX = (x2 > x1) ? 1 : -1;
+        int         stepY = (y2 > y1) ? 1 : -1;
+        double      dx    = x2 - x1;
+        double      dy    = y2 - y1;
+
+        // Parametric distance along the line to the next cell boundary in
+        // each axis, and between successive boundaries
+        double nextX  = (dx == 0) ? Double.POSITIVE_INFINITY
+                                  : (((stepX > 0) ? (x + 1) * cellSize : x * cellSize) - x1) / dx;
+        double nextY  = (dy == 0) ? Double.POSITIVE_INFINITY
+                                  : (((stepY > 0) ? (y + 1) * cellSize : y * cellSize) - y1) / dy;
+        double deltaX = (dx == 0) ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dx);
+        double deltaY = (dy == 0) ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dy);
+        int    limit  = Math.abs(endX - x) + Math.abs(endY - y) + 1;
+
+        for (int visited = 0; visited < limit; visited++) {
+            List<Entry> cell = cells.get(key(x, y));
+
+            if (cell != null) {
+                for (Entry entry : cell) {
+                    collect(entry, x1, y1, x2, y2, stamp, found);
+                }
+            }
+
+            if (nextX < nextY) {
+                x     += stepX;
+                nextX += deltaX;
+            } else {
+                y     += stepY;
+                nextY += deltaY;
+            }
+        }
+
+        for (Entry entry : oversized) {
+            collect(entry, x1, y1, x2, y2, stamp, found);
+        }
+
+        return sorted(found);
+    }
+
+    /**
+     * Files an entity in the grid. An entity may only be held once.
+     * @param entity The entity to add
+     * @return True if the entity was added
+     */
+    @Override
+    public synchronized boolean add(T entity) {
+        if (entries.containsKey(entity)) {
+            return false;
+        }
+
+        Entry entry = new Entry(entity, nextSequence++);
+
+        entries.put(entity, entry);
+        entities.add(entity);
+        file(entry);
+        entity.setShapeListener(this);
+
+        return true;
+    }
+
+    /**
+     * Removes an entity from the grid.
+     * @param o The entity to remove
+     * @return True if the entity was held
+     */
+    @Override
+    public synchronized boolean remove(Object o) {
+        Entry entry = entries.remove(o);
+
+        if (entry == null) {
+            return false;
+        }
+
+        unfile(entry);
+        entities.remove(entry.entity);
+        dirty.remove(entry.entity);
+
+        if (entry.entity.getShapeListener() == this) {
+            entry.entity.setShapeListener(null);
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes every entity from the grid.
+     */
+    @Override
+    public synchronized void clear() {
+        for (T entity : entities) {
+            if (entity.getShapeListener() == this) {
+                entity.setShapeListener(null);
+            }
+        }
+
+        entities.clear();
+        entries.clear();
+        cells.clear();
+        oversized.clear();
+        dirty.clear();
+    }
+
+    @Override
+    public synchronized boolean contains(Object o) {
+        return entries.containsKey(o);
+    }
+
+    /**
+     * @return An iterator over a snapshot of the entities in insertion order
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return entities.iterator();
+    }
+
+    @Override
+    public int size() {
+        return entities.size();
+    }
+
+    /**
+     * Marks a moved entity to be re-filed before the next query.
+     * @param entity The entity which moved
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized void shapeChanged(Entity entity) {
+        if (entries.containsKey(entity)) {
+            dirty.add((T) entity);
+        }
+    }
+
+    /**
+     * Re-files every entity which has moved since the last query.
+     */
+    private void refresh() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        for (T entity : dirty) {
+            Entry entry = entries.get(entity);
+
+            unfile(entry);
+            file(entry);
+        }
+
+        dirty.clear();
+    }
+
+    /**
+     * Files an entry under every cell its bounding box covers.
+     * @param entry The entry to file
+     */
+    private void file(Entry entry) {
+        Rectangle2D bounds = entry.entity.getBounds2D();
+
+        entry.bounds = bounds;
+        entry.minX   = cell(bounds.getMinX());
+        entry.minY   = cell(bounds.getMinY());
+        entry.maxX   = cell(bounds.getMaxX());
+        entry.maxY   = cell(bounds.getMaxY());
+
+        if ((long) (entry.maxX - entry.minX + 1) * (entry.maxY - entry.minY + 1) > MAX_CELLS) {
+            oversized.add(entry);
+
+            return;
+        }
+
+        for (int x = entry.minX; x <= entry.maxX; x++) {
+            for (int y = entry.minY; y <= entry.maxY; y++) {
+                Long        key  = key(x, y);
+                List<Entry> cell = cells.get(key);
+
+                if (cell == null) {
+                    cell = new ArrayList<Entry>(4);
+                    cells.put(key, cell);
+                }
+
+                cell.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Removes an entry from every cell it was filed under.
+     * @param entry The entry to remove
+     */
+    private void unfile(Entry entry) {
+        if (oversized.remove(entry)) {
+            return;
+        }
+
+        for (int x = entry.minX; x <= entry.maxX; x++) {
+            for (int y = entry.minY; y <= entry.maxY; y++) {
+                Long        key  = key(x, y);
+                List<Entry> cell = cells.get(key);
+
+                if (cell != null) {
+                    cell.remove(entry);
+
+                    if (cell.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an entry to the results if it meets a region and hasn't already
+     * been found by this query.
+     */
+    private void collect(Entry entry, Rectangle2D region, long stamp, List<Entry> found) {
+        if ((entry.stamp != stamp) && touches(entry.bounds, region)) {
+            entry.stamp = stamp;
+            found.add(entry);
+        }
+    }
+
+    /**
+     * Adds an entry to the results if it meets a line and hasn't already been
+     * found by this query.
+     */
+    private void collect(Entry entry, double x1, double y1, double x2, double y2, long stamp, List<Entry> found) {
+        if ((entry.stamp != stamp) && touches(entry.bounds, x1, y1, x2, y2)) {
+            entry.stamp = stamp;
+            found.add(entry);
+        }
+    }
+
+    /**
+     * Unlike Rectangle2D.intersects this counts touching edges and copes with
+     * zero width or height boxes, such as those of lines.
+     */
+    private static boolean touches(Rectangle2D a, Rectangle2D b) {
+        return (a.getMinX() <= b.getMaxX()) && (b.getMinX() <= a.getMaxX()) && (a.getMinY() <= b.getMaxY())
+               && (b.getMinY() <= a.getMaxY());
+    }
+
+    /**
+     * Checks if a line meets a box, including its edges.
+     */
+    private static boolean touches(Rectangle2D box, double x1, double y1, double x2, double y2) {
+        if ((Math.max(x1, x2) < box.getMinX()) || (Math.min(x1, x2) > box.getMaxX())
+                || (Math.max(y1, y2) < box.getMinY()) || (Math.min(y1, y2) > box.getMaxY())) {
+            return false;
+        }
+
+        if (box.contains(x1, y1) || box.contains(x2, y2)) {
+            return true;
+        }
+
+        Rectangle2D grown = new Rectangle2D.Double(box.getX() - 1e-9, box.getY() - 1e-9, box.getWidth() + 2e-9,
+                                box.getHeight() + 2e-9);
+
+        return grown.intersectsLine(x1, y1, x2, y2);
+    }
+
+    /**
+     * @return The entities of the entries in insertion order
+     */
+    private List<T> sorted(List<Entry> found) {
+        if (found.size() > 1) {
+            Collections.sort(found, SEQUENCE_ORDER);
+        }
+
+        List<T> result = new ArrayList<T>(found.size());
+
+        for (Entry entry : found) {
+            result.add(entry.entity);
+        }
+
+        return result;
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static Long key(int x, int y) {
+        return Long.valueOf(((long) x << 32) | (y & 0xffffffffL));
+    }
+
+    private static final Comparator<SpatialGrid<?>.Entry> SEQUENCE_ORDER = new Comparator<SpatialGrid<?>.Entry>() {
+        @Override
+        public int compare(SpatialGrid<?>.Entry a, SpatialGrid<?>.Entry b) {
+            return (a.sequence < b.sequence) ? -1 : ((a.sequence == b.sequence) ? 0 : 1);
+        }
+    };
+
+    /**
+     * The filing record of one entity
+     */
+    private class Entry {
+        final T        entity;
+        final long     sequence;    // Insertion order, used to sort results
+        Rectangle2D    bounds;
+        int            minX, minY, maxX, maxY;
+        long           stamp;       // The last query which found this entry
+
+        Entry(T entity, long sequence) {
+            this.entity   = entity;
+            this.sequence = sequence;
+        }
+    }
+}
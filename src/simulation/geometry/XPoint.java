@@ -2,7 +2,6 @@ package simulation.geometry;
 
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
-import java.util.LinkedList;
 
 /**
  * This class represents an objects position
@@ -80,23 +79,22 @@ public class XPoint extends Point2D {
      * or max if no polygon found inside range.
      */
     public double distanceToPolygon(Entity shape, double angle, double max) {
-        double             min = max;
-        double             distance;
-        double             dx, dy, ax, ay, bx, by, g, h;
-        LinkedList<XPoint> polygon      = shape.getPolygon();
-        XPoint             intersection = new XPoint();
-        XPoint             last         = polygon.getLast();
+        double   min = max;
+        double   distance;
+        double   dx, dy, ax, ay, bx, by, g, h, ix, iy;
+        double[] polygon = shape.getVertices();
+        int      n       = polygon.length;
 
         // Find the vector (dx,dy)
         dy = Math.cos(angle);
         dx = -Math.sin(angle);
 
         // For each line segment in the polygon
-        for (XPoint point : polygon) {
-            ax = point.getX();
-            ay = point.getY();
-            bx = last.getX();
-            by = last.getY();
+        for (int i = 0, last = n - 2; i < n; last = i, i += 2) {
+            ax = polygon[i];
+            ay = polygon[i + 1];
+            bx = polygon[last];
+            by = polygon[last + 1];
 
             // Find scalars h and g as defined above
             h = (dx * (ay - y) + dy * (x - ax)) / (dy * (bx - ax) - dx * (by - ay));
@@ -110,16 +108,15 @@ public class XPoint extends Point2D {
             if ((0 <= h) && (h <= 1.0) && (g >= 0)) {
 
                 // Then find the distance between this and the intersection
-                intersection.setLocation(x + g * dx, y + g * dy);
-                distance = distance(intersection);
+                ix       = g * dx;
+                iy       = g * dy;
+                distance = Math.sqrt(ix * ix + iy * iy);
 
                 // And save if it is smaller than the max range
                 if (distance < min) {
                     min = distance;
                 }
             }
-
-            last = point;
         }
 
         return min;
@@ -143,17 +140,32 @@ public class XPoint extends Point2D {
      * @return True if the point is on the line, false otherwise
      */
     public boolean isOnLine(XPoint endA, XPoint endB) {
+        return isOnLine(x, y, endA.getX(), endA.getY(), endB.getX(), endB.getY());
+    }
+
+    /**
+     * Checks if a point is on a line defined by two points. Will return true
+     * even if the point is outside of the endpoints
+     * @param x x of the point
+     * @param y y of the point
+     * @param ax x of one end of the line segment
+     * @param ay y of one end of the line segment
+     * @param bx x of the other end of the line segment
+     * @param by y of the other end of the line segment
+     * @return True if the point is on the line, false otherwise
+     */
+    static boolean isOnLine(double x, double y, double ax, double ay, double bx, double by) {
         final double epsilon = 0.0001;
-        double       m       = (endA.getY() - endB.getY()) / (endA.getX() - endB.getX());
+        double       m       = (ay - by) / (ax - bx);
 
-        if (new java.lang.Double(m).isInfinite()) {
-            if (Math.abs(x - endA.getX()) < epsilon) {
+        if (java.lang.Double.isInfinite(m)) {
+            if (Math.abs(x - ax) < epsilon) {
                 return true;
             } else {
                 return false;
             }
         } else {
-            double c = endA.getY() - m * endA.getX();
+            double c = ay - m * ax;
 
             if (Math.abs(y - (m * x + c)) < epsilon) {
                 return true;
@@ -169,7 +181,19 @@ public class XPoint extends Point2D {
      * @return The angle between the two points
      */
     public double getAngleTo(XPoint point) {
-        return Math.atan2(x - point.getX(), point.getY() - y);
+        return angle(x, y, point.getX(), point.getY());
+    }
+
+    /**
+     * Calculates the angle from one point to another
+     * @param x x of the first point
+     * @param y y of the first point
+     * @param px x of the other point
+     * @param py y of the other point
+     * @return The angle between the two points
+     */
+    static double angle(double x, double y, double px, double py) {
+        return Math.atan2(x - px, py - y);
     }
 
     /**
@@ -190,31 +214,25 @@ public class XPoint extends Point2D {
      * @return true if the line intersects the polygon, false otherwise
      */
     public boolean intersectsPolygon(Entity shape, XPoint endPoint) {
-        double x1, y1, x2, y2;    // Polygon points
-
-        // Create ray
-        Line2D.Double      ray     = new Line2D.Double(this.x, this.y, endPoint.getX(), endPoint.getY());
-        LinkedList<XPoint> polygon = shape.getPolygon();
-        XPoint             last    = polygon.getLast();
+        double   x1, y1, x2, y2;    // Polygon points
+        double   endX    = endPoint.getX();
+        double   endY    = endPoint.getY();
+        double[] polygon = shape.getVertices();
+        int      n       = polygon.length;
 
         // For each line segment in the polygon
-        for (XPoint point : shape.getPolygon()) {
+        for (int i = 0, last = n - 2; i < n; last = i, i += 2) {
 
             // Start of line
-            x1 = point.getX();
-            y1 = point.getY();
-            x2 = last.getX();
-            y2 = last.getY();
-
-            // Create line of polygon
-            Line2D.Double line = new Line2D.Double(x1, y1, x2, y2);
+            x1 = polygon[i];
+            y1 = polygon[i + 1];
+            x2 = polygon[last];
+            y2 = polygon[last + 1];
 
             // Check if the ray and line intersect
-            if (ray.intersectsLine(line)) {
+            if (Line2D.linesIntersect(x, y, endX, endY, x1, y1, x2, y2)) {
                 return true;
             }
-
-            last = point;
         }
 
         return false;
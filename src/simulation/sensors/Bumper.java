@@ -3,10 +3,12 @@ package simulation.sensors;
 import simulation.geometry.Environment;
 import simulation.geometry.Entity;
 import simulation.geometry.RigidBody;
+import simulation.geometry.SpatialGrid;
 import simulation.geometry.XPoint;
 import simulation.entities.Cup;
 import simulation.entities.Robot;
 import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
 import java.util.Collection;
 
 /**
@@ -90,23 +92,29 @@ public class Bumper extends RigidBody implements Sensor {
         scanArea.place(location);
         scanArea.rotate(offsetAngle + objAngle);
 
-        for (Robot r : robots) {
+        Rectangle2D bounds = scanArea.getBounds2D();
+
+        for (Robot r : SpatialGrid.near(robots, bounds)) {
             if ((r.getCom() != myRobot) && (scanArea.intersects(r))) {
                 output = true;
             }
         }
 
-        for (Cup t : things) {
+        for (Cup t : SpatialGrid.near(things, bounds)) {
             if (scanArea.intersects(t)) {
                 output = true;
             }
         }
 
-        for (Entity terrain : env.getImpassableTerrain()) {
-            if (scanArea.intersects(terrain) ||!env.contains(scanArea)) {
+        for (Entity terrain : env.getImpassableTerrain(bounds)) {
+            if (scanArea.intersects(terrain)) {
                 output = true;
             }
         }
+
+        if (!env.contains(scanArea)) {
+            output = true;
+        }
     }
 
     @Override
@@ -3,6 +3,7 @@ package simulation.sensors;
 import simulation.geometry.Environment;
 import simulation.geometry.Entity;
 import simulation.geometry.RigidBody;
+import simulation.geometry.SpatialGrid;
 import simulation.geometry.XPoint;
 import simulation.entities.Cup;
 import simulation.entities.Robot;
@@ -10,7 +11,10 @@ import java.awt.Polygon;
 import java.awt.Shape;
 import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Replicates the function of a web camera with basic filtering software to detect objects.
@@ -38,6 +42,10 @@ public class Camera extends Entity implements Sensor {
     private RigidBody           scanArea;       // The shape representing the area seen by the camera
     private RigidBody           scanAreaOriginal;
     private XPoint              target;
+    private final RayHit        hit           = new RayHit();    // Reused for every obstruction check
+    private static final Set<RayHit.Type> TERRAIN            = EnumSet.of(RayHit.Type.TERRAIN);
+    private static final Set<RayHit.Type> ROBOTS_AND_TERRAIN = EnumSet.of(RayHit.Type.ROBOT,
+                                                                   RayHit.Type.TERRAIN);
 
     /**
      * Contains the objects that one can scan for. Current objects are CUPS,ROBOTS or BLOCKS.
@@ -83,22 +91,23 @@ public class Camera extends Entity implements Sensor {
         scanArea.rotate(angle);
 
         Collection<? extends RigidBody> t;
+        Rectangle2D                     bounds = scanArea.getBounds2D();
 
         switch (objToFind) {
         case CUPS :
         case FALLEN_CUPS :
         case UPRIGHT_CUPS :
-            t = things;
+            t = SpatialGrid.near(things, bounds);
 
             break;
 
         case ROBOTS :
-            t = robots;
+            t = SpatialGrid.near(robots, bounds);
 
             break;
 
         default :
-            t = things;
+            t = SpatialGrid.near(things, bounds);
         }
 
         RigidBody item = findNearestInCollection(t, scanArea, env, robots, things);
@@ -195,16 +204,13 @@ public class Camera extends Entity implements Sensor {
                                   XPoint cupPoint) {
         boolean findingCup = objToFind != objToFind.ROBOTS;
 
-        // Find robots in the way
-        if (objToFind != CameraTarget.ROBOTS) {
-            for (Robot robot : robots) {
-                if ((!robot.equals(obj)) && (location.intersectsPolygon(robot, cupPoint))) {
-                    return true;
-                }
-            }
+        // Find robots and structures in the way
+        if (RayCaster.castTo(env, robots, things, obj, findingCup ? ROBOTS_AND_TERRAIN : TERRAIN, location,
+                             cupPoint, hit).isHit()) {
+            return true;
         }
 
-        for (Cup cup : things) {
+        for (Cup cup : SpatialGrid.along(things, location, cupPoint)) {
             if (location.intersectsPolygon(cup, cupPoint)) {
 
                 if ((findingCup)
@@ -215,12 +221,6 @@ public class Camera extends Entity implements Sensor {
             }
         }
 
-        // Find structures in the way
-        for (Entity terrain : env.getImpassableTerrain()) {
-            if (location.intersectsPolygon(terrain, cupPoint)) {
-                return true;
-            }
-        }
         return false;
     }
 
@@ -17,7 +17,7 @@ import java.util.Random;
  * @WalkedThrough
  * @DeskChecked Ben
  */
-public class CompassSensor extends Entity implements Sensor {
+public class CompassSensor extends Entity implements NoisySensor {
     private final static double DEFAULT_NOISE    = 0.1;     // The defaule noise of the sensor
     private double              output           = 0;       // The output of the sensor
     private double              uncertainty      = 0;       // The maximum noise present in the sensor
@@ -73,6 +73,14 @@ public class CompassSensor extends Entity implements Sensor {
         FLAG_INITIALIZED = true;
     }
 
+    /**
+     * @inheritdoc
+     */
+    @Override
+    public void setNoise(Random noise) {
+        this.noise = noise;
+    }
+
     @Override
     public String getValue() {
         return valueFormat.format(output);
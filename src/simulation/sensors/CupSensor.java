@@ -2,12 +2,13 @@ package simulation.sensors;
 
 import simulation.geometry.Environment;
 import simulation.geometry.Entity;
-import simulation.geometry.Terrain;
 import simulation.geometry.XPoint;
 import simulation.entities.Cup;
 import simulation.entities.Robot;
 import java.awt.Shape;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * CupSensor.java
@@ -25,6 +26,9 @@ public class CupSensor extends Entity implements Sensor {
     private SensorAble obj;            // The host of the sensor
     private double     offsetAngle;    // The angle of the sensor relative to its host
     private boolean    output;         // The result after analysis of the arena
+    private final RayHit hit = new RayHit();    // Reused for every cast
+    private static final Set<RayHit.Type> SEES = EnumSet.of(RayHit.Type.ROBOT, RayHit.Type.CUP,
+                                                     RayHit.Type.TERRAIN, RayHit.Type.WALL);
 
     /**
      * Constructor for a new sensor that detects cups.
@@ -46,47 +50,9 @@ public class CupSensor extends Entity implements Sensor {
      */
     @Override
     public void analyse(Environment env, Collection<Robot> robots, Collection<Cup> things) {
-        double closestDist = MAX;
-        double temp;
-
-        output = false;
-
-        // Find the closest robot excluding itself
-        for (Robot robot : robots) {
-            if (!robot.equals(obj)) {
-                temp = location.distanceToPolygon(robot, angle, MAX);
-
-                if (temp < closestDist) {
-                    closestDist = temp;
-                }
-            }
-        }
-
-        // Find the closest solid object
-        for (Terrain terrain : env.getImpassableTerrain()) {
-            temp = location.distanceToPolygon(terrain, angle, MAX);
-
-            if (temp < closestDist) {
-                closestDist = temp;
-            }
-        }
-
-        // Find the edge of the arena
-        temp = location.distanceToPolygon(env, angle, MAX);
-
-        if (temp < closestDist) {
-            closestDist = temp;
-        }
-
-        // Determine if there is a cup closer than anything previous
-        for (Cup thing : things) {
-            temp = location.distanceToPolygon(thing, angle, MAX);
-
-            if (temp < closestDist) {
-                closestDist = temp;
-                output      = true;
-            }
-        }
+        // A cup is only seen if it is nearer than any robot, terrain or wall
+        RayCaster.cast(env, robots, things, obj, SEES, location, angle, MAX, hit);
+        output = hit.getType() == RayHit.Type.CUP;
     }
 
     @Override
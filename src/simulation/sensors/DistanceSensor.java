@@ -3,13 +3,14 @@ package simulation.sensors;
 import simulation.geometry.Environment;
 import simulation.geometry.Entity;
 import simulation.geometry.RigidBody;
-import simulation.geometry.Terrain;
 import simulation.geometry.XPoint;
 import simulation.entities.Cup;
 import simulation.entities.Robot;
 import java.awt.Shape;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.Random;
+import java.util.Set;
 
 /**
  * DistanceSensor.java
@@ -19,7 +20,7 @@ import java.util.Random;
  * @Walkedthrough Ben
  * @Deskchecked
  */
-public class DistanceSensor extends Entity implements Sensor {
+public class DistanceSensor extends Entity implements NoisySensor {
     private final static double DEFAULT_MAX    = 800;               // The default range
     private final static double DEFAULT_NOISE  = 0.25;              // The default noise
     private XPoint              offsetLocation = new XPoint(0, 0);  // The location of the sensor relative to the robot
@@ -27,6 +28,9 @@ public class DistanceSensor extends Entity implements Sensor {
     private XPoint              endOffset      = new XPoint(0, 0);  // Offset of the end point for vectors
     private double              angle;                              // The current angle of the sensor
     private XPoint              location;                           // The current location of the sensor
+    private final RayHit        hit            = new RayHit();      // Reused for every cast
+    private static final Set<RayHit.Type> SEES = EnumSet.of(RayHit.Type.ROBOT, RayHit.Type.CUP,
+                                                     RayHit.Type.TERRAIN, RayHit.Type.WALL);
 
     
     private double       maxRange;      // Sensor's maximum range.
@@ -109,51 +113,20 @@ public class DistanceSensor extends Entity implements Sensor {
 
     @Override
     public void analyse(final Environment env, final Collection<Robot> robots, final Collection<Cup> things) {
-        output = maxRange;
-
-        double temp;
-
-        for (Robot robot : robots) {
-            if ((!robot.equals(obj)) && (location.intersectsPolygon(robot, endPoint))) {
-                temp = location.distanceToPolygon(robot, angle, maxRange);
-
-                if (temp < output) {
-                    output = temp;
-                }
-            }
-        }
-
-        for (Cup thing : things) {
-            if (location.intersectsPolygon(thing, endPoint)) {
-                temp = location.distance(thing.getCom());
-
-                // temp = location.distanceToPolygon(thing, angle, maxRange);
-                if (temp < output) {
-                    output = temp;
-                }
-            }
-        }
-
-        for (Terrain terrain : env.getImpassableTerrain()) {
-            if (location.intersectsPolygon(terrain, endPoint)) {
-                temp = location.distanceToPolygon(terrain, angle, maxRange);
-
-                if (temp < output) {
-                    output = temp;
-                }
-            }
-        }
-
-        temp = location.distanceToPolygon(env, angle, maxRange);
-
-        if (temp < output) {
-            output = temp;
-        }
+        output = RayCaster.cast(env, robots, things, obj, SEES, location, angle, maxRange, hit).getDistance();
 
         // Add noise to the signal
         output += noise.nextGaussian() * uncertainty * output;
     }
 
+    /**
+     * @inheritdoc
+     */
+    @Override
+    public void setNoise(Random noise) {
+        this.noise = noise;
+    }
+
     @Override
     public String getValue() {
         return valueFormat.format(this.getOutput());
@@ -8,6 +8,7 @@ import simulation.entities.Cup;
 import simulation.entities.Robot;
 import java.awt.Shape;
 import java.util.Collection;
+import java.util.Random;
 
 /**
  * GPS.java
@@ -17,9 +18,10 @@ import java.util.Collection;
  * @Walkedthrough
  * @DeskChecked
  */
-public class GPS extends Entity implements Sensor {
+public class GPS extends Entity implements NoisySensor {
     private double maxNoise = 0;    // The max noise that the sensor can have
-    private XPoint location;        // The location of the host(robot)
+    private XPoint location = new XPoint();    // The location of the host(robot)
+    private Random noise    = new Random();    // Noise generated during measurement
 
     /**
      * Creates a standard GPS sensor with no noise.
@@ -48,12 +50,20 @@ public class GPS extends Entity implements Sensor {
     public void analyse(final Environment env, final Collection<Robot> robots, final Collection<Cup> things) {
 
         // Add noise to signal
-        double x = location.getX() + (2 * maxNoise * Math.random() - maxNoise) * location.getX();
-        double y = location.getY() + (2 * maxNoise * Math.random() - maxNoise) * location.getY();
+        double x = location.getX() + (2 * maxNoise * noise.nextDouble() - maxNoise) * location.getX();
+        double y = location.getY() + (2 * maxNoise * noise.nextDouble() - maxNoise) * location.getY();
 
         location.setLocation(x, y);
     }
 
+    /**
+     * @inheritdoc
+     */
+    @Override
+    public void setNoise(Random noise) {
+        this.noise = noise;
+    }
+
     @Override
     public String getValue() {
         String result = "(" + valueFormat.format(location.getX()) + "," + valueFormat.format(location.getY()) + ")";
@@ -75,7 +85,9 @@ public class GPS extends Entity implements Sensor {
      * @since 1.1
      */
     public void setObject(final SensorAble obj) {
-        this.location = obj.getCom();
+
+        // Copy the location so noise never moves the host itself
+        location.setLocation(obj.getCom());
     }
 
     
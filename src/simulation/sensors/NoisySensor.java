@@ -0,0 +1,19 @@
+package simulation.sensors;
+
+import java.util.Random;
+
+/**
+ * NoisySensor.java
+ * A sensor which adds random noise to its output. The simulator hands each
+ * one its own seeded stream so runs can be repeated exactly.
+ *
+ * @author Simon
+ */
+public interface NoisySensor extends Sensor {
+
+    /**
+     * Replaces the source of the sensor's noise.
+     * @param noise The generator to draw noise from
+     */
+    void setNoise(Random noise);
+}
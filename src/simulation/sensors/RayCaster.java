@@ -0,0 +1,178 @@
+package simulation.sensors;
+
+import simulation.entities.Cup;
+import simulation.entities.Robot;
+import simulation.geometry.Entity;
+import simulation.geometry.Environment;
+import simulation.geometry.SpatialGrid;
+import simulation.geometry.Terrain;
+import simulation.geometry.XPoint;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Casts rays through the world for range sensors. A single pass over the
+ * robots, terrain, arena and cups near the ray finds the nearest thing hit,
+ * how far away it is and what kind of thing it is.
+ *
+ * Polygons are walked through their cached vertex arrays and cups are
+ * treated as true circles, so no objects are created apart from the
+ * candidate lists of the spatial grid.
+ *
+ * Rays follow the same convention as {@link XPoint#distanceToPolygon}: an
+ * angle of 0 points along +y and angles increase anticlockwise.
+ *
+ * @author Simon
+ */
+public final class RayCaster {
+    private static final double EPS = 0.001;
+
+    private RayCaster() {}
+
+    /**
+     * Casts a ray from a point at an angle.
+     * @param env The environment to cast through
+     * @param robots The robots which may be hit
+     * @param cups The cups which may be hit
+     * @param ignore An entity the ray passes straight through, usually the
+     * host of the sensor, or null
+     * @param types The kinds of thing which may be hit
+     * @param origin The start of the ray
+     * @param angle The direction of the ray
+     * @param max The length of the ray
+     * @param hit Where to store the result
+     * @return hit, holding the nearest thing hit
+     */
+    public static RayHit cast(Environment env, Collection<Robot> robots, Collection<Cup> cups, Object ignore,
+                              Set<RayHit.Type> types, XPoint origin, double angle, double max, RayHit hit) {
+        return cast(env, robots, cups, ignore, types, origin.getX(), origin.getY(), -Math.sin(angle),
+                    Math.cos(angle), max, hit);
+    }
+
+    /**
+     * Casts a ray from one point to another, for instance to check whether
+     * something is in the way of a target.
+     * @param env The environment to cast through
+     * @param robots The robots which may be hit
+     * @param cups The cups which may be hit
+     * @param ignore An entity the ray passes straight through, or null
+     * @param types The kinds of thing which may be hit
+     * @param origin The start of the ray
+     * @param target The end of the ray
+     * @param hit Where to store the result
+     * @return hit, holding the nearest thing hit before the target
+     */
+    public static RayHit castTo(Environment env, Collection<Robot> robots, Collection<Cup> cups, Object ignore,
+                                Set<RayHit.Type> types, XPoint origin, XPoint target, RayHit hit) {
+        double dx     = target.getX() - origin.getX();
+        double dy     = target.getY() - origin.getY();
+        double length = Math.sqrt(dx * dx + dy * dy);
+
+        if (length == 0) {
+            hit.clear(0);
+
+            return hit;
+        }
+
+        return cast(env, robots, cups, ignore, types, origin.getX(), origin.getY(), dx / length, dy / length,
+                    length, hit);
+    }
+
+    /**
+     * Casts a ray along a unit vector.
+     */
+    private static RayHit cast(Environment env, Collection<Robot> robots, Collection<Cup> cups, Object ignore,
+                               Set<RayHit.Type> types, double x, double y, double dx, double dy, double max,
+                               RayHit hit) {
+        double endX = x + max * dx;
+        double endY = y + max * dy;
+
+        hit.clear(max);
+
+        if ((robots != null) && types.contains(RayHit.Type.ROBOT)) {
+            for (Robot robot : SpatialGrid.along(robots, x, y, endX, endY)) {
+                if (robot != ignore) {
+                    hit.offer(polygonDistance(robot.getVertices(), x, y, dx, dy, max), robot, RayHit.Type.ROBOT);
+                }
+            }
+        }
+
+        if (env != null) {
+            if (types.contains(RayHit.Type.TERRAIN)) {
+                for (Terrain terrain : env.getImpassableTerrain(x, y, endX, endY)) {
+                    hit.offer(polygonDistance(terrain.getVertices(), x, y, dx, dy, max), terrain,
+                              RayHit.Type.TERRAIN);
+                }
+            }
+
+            if (types.contains(RayHit.Type.WALL)) {
+                hit.offer(polygonDistance(env.getVertices(), x, y, dx, dy, max), env, RayHit.Type.WALL);
+            }
+        }
+
+        if ((cups != null) && types.contains(RayHit.Type.CUP)) {
+            for (Cup cup : SpatialGrid.along(cups, x, y, endX, endY)) {
+                if (cup != ignore) {
+                    hit.offer(circleDistance(cup.getX(), cup.getY(), cup.getRadius(), x, y, dx, dy, max), cup,
+                              RayHit.Type.CUP);
+                }
+            }
+        }
+
+        return hit;
+    }
+
+    /**
+     * The distance along a ray to the nearest edge of a polygon, worked out
+     * in the same way as {@link XPoint#distanceToPolygon}.
+     * @return The distance, or max if no edge is crossed within range
+     */
+    static double polygonDistance(double[] polygon, double x, double y, double dx, double dy, double max) {
+        double min = max;
+        int    n   = polygon.length;
+
+        for (int i = 0, last = n - 2; i < n; last = i, i += 2) {
+            double ax = polygon[i];
+            double ay = polygon[i + 1];
+            double bx = polygon[last];
+            double by = polygon[last + 1];
+            double h  = (dx * (ay - y) + dy * (x - ax)) / (dy * (bx - ax) - dx * (by - ay));
+            double g  = (Math.abs(dx) < EPS)
+                        ? (ay + h * (by - ay) - y) / dy
+                        : (ax + h * (bx - ax) - x) / dx;
+
+            if ((0 <= h) && (h <= 1.0) && (g >= 0) && (g < min)) {
+                min = g;
+            }
+        }
+
+        return min;
+    }
+
+    /**
+     * The distance along a ray to the edge of a circle. A ray starting inside
+     * the circle hits the far edge.
+     * @return The distance, or max if the circle is not hit within range
+     */
+    static double circleDistance(double cx, double cy, double r, double x, double y, double dx, double dy,
+                                 double max) {
+        double fx   = x - cx;
+        double fy   = y - cy;
+        double b    = fx * dx + fy * dy;
+        double c    = fx * fx + fy * fy - r * r;
+        double disc = b * b - c;
+
+        if (disc < 0) {
+            return max;
+        }
+
+        double root = Math.sqrt(disc);
+        double t    = -b - root;
+
+        if (t < 0) {
+            t = -b + root;
+        }
+
+        return ((t >= 0) && (t < max)) ? t : max;
+    }
+}
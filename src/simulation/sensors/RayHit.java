@@ -0,0 +1,98 @@
+package simulation.sensors;
+
+import simulation.geometry.Entity;
+
+/**
+ * The result of casting a ray with a {@link RayCaster}. Sensors keep one of
+ * these and pass it to every cast so no result objects are created while
+ * sensing.
+ *
+ * @author Simon
+ */
+public class RayHit {
+
+    /**
+     * The kinds of thing a ray can hit
+     */
+    public enum Type {
+
+        /** Nothing within range */
+        NONE,
+
+        /** Another robot */
+        ROBOT,
+
+        /** A cup */
+        CUP,
+
+        /** An impassable terrain */
+        TERRAIN,
+
+        /** The edge of the arena */
+        WALL
+    }
+
+    private double distance;
+    private Entity entity;
+    private Type   type;
+
+    /**
+     * A new result holding no hit
+     */
+    public RayHit() {
+        clear(0);
+    }
+
+    /**
+     * Forgets any previous hit
+     * @param max The distance to report if nothing is hit
+     */
+    void clear(double max) {
+        distance = max;
+        entity   = null;
+        type     = Type.NONE;
+    }
+
+    /**
+     * Records a hit if it is nearer than the current one
+     * @param distance The distance along the ray of the hit
+     * @param entity The entity hit
+     * @param type The kind of entity hit
+     */
+    void offer(double distance, Entity entity, Type type) {
+        if (distance < this.distance) {
+            this.distance = distance;
+            this.entity   = entity;
+            this.type     = type;
+        }
+    }
+
+    /**
+     * @return The distance to the nearest hit, or the maximum range if
+     * nothing was hit
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return The nearest entity hit, or null if nothing was hit
+     */
+    public Entity getEntity() {
+        return entity;
+    }
+
+    /**
+     * @return What kind of thing was hit
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return True if anything was hit within range
+     */
+    public boolean isHit() {
+        return type != Type.NONE;
+    }
+}
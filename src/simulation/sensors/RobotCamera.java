@@ -3,12 +3,15 @@ package simulation.sensors;
 import simulation.geometry.Environment;
 import simulation.geometry.Entity;
 import simulation.geometry.RigidBody;
+import simulation.geometry.SpatialGrid;
 import simulation.geometry.XPoint;
 import simulation.entities.Cup;
 import simulation.entities.Robot;
 import java.awt.Polygon;
 import java.awt.Shape;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Replicates the function of a web camera with basic filtering software to detect objects.
@@ -29,6 +32,8 @@ public class RobotCamera extends Entity implements Sensor {
     private double    offsetAngle;    // The angle of the sensor relative to its host
     private RigidBody scanArea;
     private RigidBody scanAreaOriginal;
+    private final RayHit hit = new RayHit();    // Reused for every obstruction check
+    private static final Set<RayHit.Type> TERRAIN = EnumSet.of(RayHit.Type.TERRAIN);
 
     /**
      * Creates a camera positioned at the specified angle to the host.
@@ -70,7 +75,7 @@ public class RobotCamera extends Entity implements Sensor {
         scanArea.rotate(angle);
 
         // Find if this intersects with any cups
-        for (Robot robot : robots) {
+        for (Robot robot : SpatialGrid.near(robots, scanArea.getBounds2D())) {
             if (robot.getCom() != location) {
                 if (scanArea.intersects(robot)) {
                     XPoint cupPoint = robot.getCom();
@@ -117,12 +122,7 @@ public class RobotCamera extends Entity implements Sensor {
     private boolean isObstruction(Environment env, Collection<Robot> robots, Collection<Cup> things,
                                   XPoint cupPoint) {
         // Find structures in the way
-        for (Entity terrain : env.getImpassableTerrain()) {
-            if (location.intersectsPolygon(terrain, cupPoint)) {
-                return true;
-            }
-        }
-        return false;
+        return RayCaster.castTo(env, robots, things, null, TERRAIN, location, cupPoint, hit).isHit();
     }
     
     /**
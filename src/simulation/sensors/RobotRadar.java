@@ -5,6 +5,7 @@ import simulation.Simulator;
 import simulation.geometry.Environment;
 import simulation.geometry.Entity;
 import simulation.geometry.RigidBody;
+import simulation.geometry.SpatialGrid;
 import simulation.geometry.XPoint;
 import simulation.entities.Cup;
 import simulation.entities.Robot;
@@ -150,7 +151,7 @@ public class RobotRadar extends Entity implements Sensor {
 
         output = temp;
 
-        for (Robot robot : robots) {
+        for (Robot robot : SpatialGrid.near(robots, range.getBounds2D())) {
             if ((!robot.equals(obj)) && (range.intersects(robot))) {
                 temp[0] = location.distance(robot.getCom());
                 temp[1] = location.getAngleTo(robot.getCom()) - offsetAngle;
@@ -7,6 +7,7 @@ import simulation.geometry.XPoint;
 import simulation.entities.Cup;
 import simulation.entities.Robot;
 import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
 import java.util.Collection;
 
 /**
@@ -38,7 +39,8 @@ public class TerrainSensor extends Entity implements Sensor {
      */
     @Override
     public void analyse(final Environment env, final Collection<Robot> robots, final Collection<Cup> things) {
-        final Collection<Terrain> terrain = env.getPassableTerrain();
+        final Collection<Terrain> terrain =
+            env.getPassableTerrain(new Rectangle2D.Double(location.getX(), location.getY(), 0, 0));
 
         for (Terrain t : terrain) {
             if (t.contains(location.getX(), location.getY())) {
@@ -7,6 +7,7 @@ import simulation.entities.Cup;
 import simulation.entities.Robot;
 import java.awt.Shape;
 import java.util.Collection;
+import java.util.Random;
 
 /**
  * VelocitySensor.java
@@ -16,9 +17,10 @@ import java.util.Collection;
  * @WalkedThrough
  * @DeskChecked Ben
  */
-public class VelocitySensor extends Entity implements Sensor {
+public class VelocitySensor extends Entity implements NoisySensor {
     private double maxNoise = 0;
     private double velocity;
+    private Random noise = new Random();
 
     /**
      * Creates a standard velocity sensor with no noise.
@@ -46,7 +48,15 @@ public class VelocitySensor extends Entity implements Sensor {
     public void analyse(final Environment env, final Collection<Robot> robots, final Collection<Cup> things) {
 
         // Add noise to the signal
-        velocity = velocity + (2 * maxNoise * Math.random() - maxNoise) * velocity;
+        velocity = velocity + (2 * maxNoise * noise.nextDouble() - maxNoise) * velocity;
+    }
+
+    /**
+     * @inheritdoc
+     */
+    @Override
+    public void setNoise(Random noise) {
+        this.noise = noise;
     }
 
     /**
@@ -0,0 +1,132 @@
+package ux;
+
+import net.miginfocom.swing.MigLayout;
+
+import simulation.ReplayPlayer;
+import simulation.ReplayReader;
+
+import ux.display.DisplayRefresher;
+import ux.display.GraphicalDisplay;
+import ux.display.infopanels.InfoPanel;
+
+import ux.listeners.MinSizeComponentListener;
+
+import ux.usercontrol.ErrorOutput;
+import ux.usercontrol.ReplayControlUI;
+import ux.usercontrol.ScrollTextArea;
+
+import java.awt.Point;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.UIManager;
+
+/**
+ * GUI for reviewing a run recorded by a
+ * {@link simulation.ReplayRecorder}. The same display and information
+ * panels as the simulator show the log, which can be played, paused, sped up
+ * and moved through without running the simulation or any brains.
+ *
+ * @author Simon
+ */
+public class ReplayGUI implements ErrorOutput {
+    final int                STARTING_X = 100;
+    final int                STARTING_Y = 100;
+    private GraphicalDisplay graphicalDisplay;
+    private ReplayPlayer     player;
+
+    /**
+     * Shows a log
+     * @param file The log file
+     * @throws IOException When the log can't be read
+     */
+    public ReplayGUI(File file) throws IOException {
+        player           = new ReplayPlayer(new ReplayReader(file));
+        graphicalDisplay = new GraphicalDisplay(player);
+
+        JPanel infoPanel = new InfoPanel(player, graphicalDisplay);
+        JPanel controls  = new ReplayControlUI(player, this);
+
+        JFrame displayFrame  = createFrame("Replay - " + file.getName(), graphicalDisplay,
+                                           new Point(STARTING_X, STARTING_Y));
+        JFrame controlsFrame = createFrame("Replay Controls", controls,
+                                           new Point(STARTING_X, displayFrame.getY() + displayFrame.getHeight()));
+        JFrame infoFrame     = createFrame("Information", infoPanel,
+                                           new Point(displayFrame.getX() + displayFrame.getWidth(), STARTING_Y));
+
+        displayFrame.setVisible(true);
+        controlsFrame.setVisible(true);
+        infoFrame.setVisible(true);
+        new DisplayRefresher(player).start();
+    }
+
+    /**
+     * Creates a frame with default configurations, as the simulator's are
+     */
+    private JFrame createFrame(String title, JPanel content, Point position) {
+        JFrame frame = new JFrame(title);
+
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setContentPane(new JPanel(new MigLayout("wrap 1", "grow", "grow")));
+        frame.getContentPane().add(content, "grow");
+        frame.addComponentListener(new MinSizeComponentListener());
+        frame.pack();
+        frame.setMinimumSize(frame.getPreferredSize());
+        frame.setLocation(position);
+
+        return frame;
+    }
+
+    /**
+     * Displays a error message by showing a dialog box.
+     *
+     * @param title         a title explaining the error- it will be the title
+     *                      of the dialog box.
+     * @param errorMessage  the message to display.
+     */
+    @Override
+    public void displayMessage(String title, String errorMessage) {
+        JOptionPane.showMessageDialog(graphicalDisplay, new ScrollTextArea(errorMessage), title,
+                                      JOptionPane.WARNING_MESSAGE);
+    }
+
+    /**
+     * Main
+     * Opens a log for review.
+     *
+     * @param args  the log file, or none to choose one.
+     */
+    public static void main(String[] args) {
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception e) {
+
+            // Do nothing- allow the default java look and feel to be used.
+        }
+
+        File file;
+
+        if (args.length > 0) {
+            file = new File(args[0]);
+        } else {
+            JFileChooser chooser = new JFileChooser();
+
+            if (chooser.showOpenDialog(null) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+
+            file = chooser.getSelectedFile();
+        }
+
+        try {
+            new ReplayGUI(file);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, e.getMessage(), "Replay", JOptionPane.WARNING_MESSAGE);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import net.miginfocom.swing.MigLayout;
 import simulation.SimulationBuilder;
 import simulation.Simulator;
 
+import ux.display.DisplayRefresher;
 import ux.display.EntityDeleter;
 import ux.display.GraphicalDisplay;
 import ux.display.GraphicalDisplayController;
@@ -122,6 +123,10 @@ public class SimulatorGUI implements SimulatorControlGui, ErrorOutput {
         for (JFrame frame : simulatorFrames) {
             frame.addKeyListener(deleter);
         }
+
+        // The displays pull the latest snapshot at their own rate rather
+        // than being updated by the simulation on every step.
+        new DisplayRefresher(simulator).start();
     }
     
     /**
@@ -0,0 +1,77 @@
+package ux.display;
+
+import simulation.ReplayPlayer;
+import simulation.Simulator;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.Timer;
+
+/**
+ * Refreshes the displays of a simulator at a fixed frame rate, on the event
+ * dispatch thread. The simulator's scheduler only publishes snapshots, so a
+ * slow repaint never holds up the simulation and a fast simulation never
+ * floods the display.
+ *
+ * @author Simon
+ */
+public class DisplayRefresher implements ActionListener {
+
+    /**
+     * Frames per second
+     */
+    public static final int FRAME_RATE = 30;
+    private final Runnable  refresh;
+    private final Timer     timer;
+
+    /**
+     * @param sim The simulator whose subscribers are refreshed
+     */
+    public DisplayRefresher(final Simulator sim) {
+        this(new Runnable() {
+            @Override
+            public void run() {
+                sim.notifySubscribers();
+            }
+        });
+    }
+
+    /**
+     * @param player The replay player to move on and whose subscribers are
+     * refreshed
+     */
+    public DisplayRefresher(final ReplayPlayer player) {
+        this(new Runnable() {
+            @Override
+            public void run() {
+                player.tick();
+            }
+        });
+    }
+
+    private DisplayRefresher(Runnable refresh) {
+        this.refresh = refresh;
+        timer        = new Timer(1000 / FRAME_RATE, this);
+        timer.setCoalesce(true);
+    }
+
+    /**
+     * Starts refreshing
+     */
+    public void start() {
+        timer.start();
+    }
+
+    /**
+     * Stops refreshing
+     */
+    public void stop() {
+        timer.stop();
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        refresh.run();
+    }
+}
@@ -24,6 +24,9 @@ import javax.swing.JPanel;
 import net.miginfocom.swing.MigLayout;
 import publishersubscriber.SimulatorPublisher;
 import publishersubscriber.SimulatorSubscriber;
+import simulation.WorldSnapshot;
+import simulation.WorldSnapshot.CupState;
+import simulation.WorldSnapshot.RobotState;
 import simulation.geometry.Environment;
 import simulation.geometry.Entity;
 import simulation.geometry.RigidBody;
@@ -76,6 +79,8 @@ public class GraphicalDisplay extends JPanel implements SimulatorSubscriber,
     private Collection<? extends Robot> robots;
     private Collection<? extends Cup> inanimates;
     private Collection<? extends Terrain> terrain;
+    // The latest snapshot of the simulation, which is what gets painted.
+    private WorldSnapshot snapshot;
     // Swing components.
     private JLabel timeElapsedLabel = new JLabel();
     private String mousePositionDisplay;
@@ -106,6 +111,17 @@ public class GraphicalDisplay extends JPanel implements SimulatorSubscriber,
     private boolean isPaintVelocityVectorOn = true;
     private boolean isPaintSelectedOn = true;
 
+    /**
+     * Constructs a GraphicalDisplay which only shows the given
+     * SimulatorPublisher, such as a replay. Items can be selected but not
+     * dragged.
+     *
+     * @param   simulatorPublisher  the SimulatorPublisher to subscribe to.
+     */
+    public GraphicalDisplay(SimulatorPublisher simulatorPublisher) {
+        this(simulatorPublisher, null);
+    }
+
     /**
      * Constructs a GraphicalDisplay and subscribes the display to
      * the given SimulatorPublisher It also informs the given controller that
@@ -114,7 +130,7 @@ public class GraphicalDisplay extends JPanel implements SimulatorSubscriber,
      *
      * @param   simulatorPublisher  the SimulatorPublisher to subscribe to.
      * @param   controller          the controller to use to control the
-     *                              simulator.
+     *                              simulator, or null if it is only shown.
      */
     public GraphicalDisplay(SimulatorPublisher simulatorPublisher, SimulatorController controller) {
         this.controller = controller;
@@ -126,6 +142,7 @@ public class GraphicalDisplay extends JPanel implements SimulatorSubscriber,
         inanimates = simulatorPublisher.getThings();
         environment = simulatorPublisher.getEnvironment();
         terrain = environment.getTerrain();
+        snapshot = simulatorPublisher.getSnapshot();
 
         // Give the panel a layout. This is needed to position components such
         // as the timeElapsedLabel.
@@ -142,8 +159,10 @@ public class GraphicalDisplay extends JPanel implements SimulatorSubscriber,
         // Add mouse listeners to the panel to enable the selecting and dragging
         // functionality.
         addMouseListener(new HighlightedObjectListener());
-        addMouseListener(new DraggingObjectListener());
-        addMouseMotionListener(new DraggingObjectListener());
+        if (controller != null) {
+            addMouseListener(new DraggingObjectListener());
+            addMouseMotionListener(new DraggingObjectListener());
+        }
         addMouseMotionListener(new MousePositionListener());
     }
 
@@ -181,38 +200,42 @@ public class GraphicalDisplay extends JPanel implements SimulatorSubscriber,
 
 
 
+        // Everything that moves is painted from the one snapshot so that the
+        // simulation may carry on stepping while the panel paints.
+        WorldSnapshot frame = snapshot;
+
         if (isPaintEnvironmentOn) {
-            if (environment != null) {
-                environmentPainter.paint(environment, getShapeTransform(), graphics2D);
+            if (frame.getEnvironment() != null) {
+                environmentPainter.paint(frame.getEnvironment(), getShapeTransform(), graphics2D);
             }
         }
 
         if (isPaintTerrainOn) {
-            for (Terrain aTerrain : terrain) {
+            for (Terrain aTerrain : frame.getTerrain()) {
                 terrainPainter.paint(aTerrain, getShapeTransform(), graphics2D);
             }
         }
 
         if (isPaintItemOn) {
-            for (Cup thing : inanimates) {
+            for (CupState thing : frame.getCups()) {
                 itemPainter.paint(thing, getShapeTransform(), graphics2D);
             }
         }
 
         if (isPaintRobotOn) {
-            for (Robot robot : robots) {
+            for (RobotState robot : frame.getRobots()) {
                 robotPainter.paint(robot, getShapeTransform(), graphics2D);
             }
         }
 
         if (isPaintSensorOn && simulatorPublisher.getScheduler().isRunning()) {
-            for (Robot robot : robots) {
+            for (RobotState robot : frame.getRobots()) {
                 sensorPainter.paint(robot, getShapeTransform(), graphics2D);
             }
         }
 
         if (isPaintVelocityVectorOn) {
-            for (Robot robot : robots) {
+            for (RobotState robot : frame.getRobots()) {
                 velocityVectorPainter.paint(robot, getShapeTransform(), graphics2D);
             }
         }
@@ -236,7 +259,8 @@ public class GraphicalDisplay extends JPanel implements SimulatorSubscriber,
     /**
      * This is called by a SimulatorPublisher that the GraphicalDisplay is
      * subscribed to. The display will be updated to reflect the changes to the
-     * simulator represented by the SimulatorPublisher.
+     * simulator represented by the SimulatorPublisher, by taking its latest
+     * snapshot.
      *
      * @param simulatorPublisher    the SimulatorPublisher which is calling the
      *                              update method.
@@ -247,9 +271,10 @@ public class GraphicalDisplay extends JPanel implements SimulatorSubscriber,
         inanimates = simulatorPublisher.getThings();
         environment = simulatorPublisher.getEnvironment();
         terrain = environment.getTerrain();
+        snapshot = simulatorPublisher.getSnapshot();
 
         // Update the time-elapsed.
-        double timeElapsed = simulatorPublisher.getTimeElapsed();
+        double timeElapsed = snapshot.getTimeElapsed();
         String timeElapsedString = new DecimalFormat("#.##").format(timeElapsed);
         timeElapsedLabel.setText("Time elapsed: " + timeElapsedString);
 
@@ -6,6 +6,7 @@ import simulation.Simulator;
 
 import simulation.geometry.XPoint;
 
+import simulation.entities.JavaBrains;
 import simulation.entities.Robot;
 
 import java.awt.Color;
@@ -261,12 +262,18 @@ public class RobotCreationDialog extends JFrame implements ActionListener, Prope
         FileNameExtensionFilter filter = new FileNameExtensionFilter("JRuby Files", "rb");
 
         fc.setAcceptAllFileFilterUsed(true);
+        fc.addChoosableFileFilter(new FileNameExtensionFilter("Java Brain Jars", "jar"));
         fc.setFileFilter(filter);
 
         int returnVal = fc.showOpenDialog(this);
 
         if (returnVal == JFileChooser.APPROVE_OPTION) {
             brainPath = fc.getSelectedFile().getAbsolutePath();
+
+            // Jars name their brain class in their manifest
+            if (brainPath.endsWith(".jar")) {
+                brainPath = JavaBrains.PREFIX + brainPath;
+            }
         }
     }
 
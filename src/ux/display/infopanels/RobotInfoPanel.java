@@ -5,13 +5,14 @@ import net.miginfocom.swing.MigLayout;
 import publishersubscriber.SimulatorPublisher;
 import publishersubscriber.SimulatorSubscriber;
 
+import simulation.WorldSnapshot.RobotState;
+
 import simulation.entities.Robot;
 
 import java.io.StringWriter;
 
 import java.text.DecimalFormat;
 
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -44,8 +45,8 @@ public class RobotInfoPanel extends ItemInfoPanel implements SimulatorSubscriber
         this.simulatorPublisher = simulatorPublisher;
         simulatorPublisher.addSubscriber(this);
 
-        for (Robot robot : simulatorPublisher.getRobots()) {
-            addRobot(robot);
+        for (RobotState state : simulatorPublisher.getSnapshot().getRobots()) {
+            addRobot(state.getRobot());
         }
     }
 
@@ -93,9 +94,12 @@ public class RobotInfoPanel extends ItemInfoPanel implements SimulatorSubscriber
         this.currentRobot = currentRobot;
         super.setItem(currentRobot);
 
-        double robotVelocity = currentRobot.getVelocity();
+        RobotState state = simulatorPublisher.getSnapshot().getRobot(currentRobot);
+
+        if (state != null) {
+            setVelocityLabel(state.getVelocity());
+        }
 
-        setVelocityLabel(robotVelocity);
         remove(sensorInfoPanel);
         remove(robotConsolePanel);
         sensorInfoPanel = robotAndSensorMap.get(currentRobot);
@@ -115,25 +119,15 @@ public class RobotInfoPanel extends ItemInfoPanel implements SimulatorSubscriber
 
         // Check that the reference to the current selected robot is still being
         // monitored by the simulator. If the simulator restarts or discards a
-        // robot, the selected robot should be desellected. One option is to use
-        // collection.contains() to check if the Robot is in the simulator's
-        // collection of robots. However, due to the use of wildcard generics
-        // and the returning of unmodifiable collections from the simulator,
-        // collection.contains() wont work unless hashCode() and equals() are
-        // overridden. So, either the below method can be used, or equals() and
-        // hashCode() must be overridden. Unless there are more needs to
-        // override equals() and hashCode(), the below method should suffice.
-        boolean                     wasRobotValid   = isRobotValid;
-        boolean                     isRobotValidNow = false;
-        Collection<? extends Robot> simulatorRobots = publisher.getRobots();
-
-        for (Robot simulatorRobot : simulatorRobots) {
-            if (currentRobot == simulatorRobot) {
-                isRobotValidNow = true;
-                setVelocityLabel(currentRobot.getVelocity());
-
-                break;
-            }
+        // robot, the selected robot should be desellected. The robot is looked
+        // for in the latest snapshot, by identity, as the simulator's own
+        // collection may be changing on the stepping thread.
+        boolean    wasRobotValid   = isRobotValid;
+        RobotState state           = publisher.getSnapshot().getRobot(currentRobot);
+        boolean    isRobotValidNow = (currentRobot != null) && (state != null);
+
+        if (isRobotValidNow) {
+            setVelocityLabel(state.getVelocity());
         }
 
         if (isRobotValidNow == true) {
@@ -5,6 +5,10 @@ import net.miginfocom.swing.MigLayout;
 import publishersubscriber.SimulatorPublisher;
 import publishersubscriber.SimulatorSubscriber;
 
+import simulation.WorldSnapshot;
+import simulation.WorldSnapshot.RobotState;
+import simulation.WorldSnapshot.SensorState;
+
 import simulation.entities.Robot;
 
 import simulation.sensors.Sensor;
@@ -20,6 +24,7 @@ import javax.swing.JPanel;
 public class SensorInfoPanel extends JPanel implements SimulatorSubscriber {
     private static final long UPDATE_PERIOD      = 500;    // In milliseconds.
     private long              previousUpdateTime = 0;
+    private final Robot       robot;
     Map<Sensor, SensorLabels> sensorToLabelMap   = new HashMap<Sensor, SensorLabels>();
 
     /**
@@ -28,19 +33,23 @@ public class SensorInfoPanel extends JPanel implements SimulatorSubscriber {
      * @param robot The robot which to take the sensor info from.
      */
     public SensorInfoPanel(SimulatorPublisher simulator, Robot robot) {
+        this.robot = robot;
         simulator.addSubscriber(this);
         setLayout(new MigLayout("wrap 2", "grow", "grow"));
         add(new JLabel("<html><b>Description</b></html>"), "grow");
         add(new JLabel("<html><b>Value</b></html>"), "grow");
-        setSensors(robot.getSensors());
+        showSnapshot(simulator.getSnapshot());
     }
 
     /**
-     * Sets the collection of sensors for the panel to display the information of.
-     * @param sensors The collection of sensors.
+     * Sets the sensors for the panel to display the information of, as they
+     * were in a snapshot.
+     * @param sensors The collection of sensor states.
      */
-    public void setSensors(Collection<Sensor> sensors) {
-        for (Sensor sensor : sensors) {
+    public void setSensors(Collection<SensorState> sensors) {
+        for (SensorState state : sensors) {
+            Sensor sensor = state.getSensor();
+
             if (sensorToLabelMap.containsKey(sensor) == false) {
                 SensorLabels sensorLabels = new SensorLabels();
 
@@ -50,13 +59,13 @@ public class SensorInfoPanel extends JPanel implements SimulatorSubscriber {
             }
 
             SensorLabels sensorLabel = sensorToLabelMap.get(sensor);
-            String       description = sensor.getDescription();
+            String       description = state.getDescription();
 
             if (description != null) {
                 sensorLabel.description.setText(description);
             }
 
-            String value = sensor.getValue();
+            String value = state.getValue();
 
             if (value != null) {
                 sensorLabel.value.setText(value);
@@ -73,11 +82,20 @@ public class SensorInfoPanel extends JPanel implements SimulatorSubscriber {
 
         if (latestUpdateTime > (previousUpdateTime + UPDATE_PERIOD)) {
             previousUpdateTime = latestUpdateTime;
+            showSnapshot(publisher.getSnapshot());
+        }
+    }
 
-            for (Sensor sensor : sensorToLabelMap.keySet()) {
-                sensorToLabelMap.get(sensor).description.setText(sensor.getDescription());
-                sensorToLabelMap.get(sensor).value.setText(sensor.getValue());
-            }
+    /**
+     * Shows the robot's sensors as they were in a snapshot, so that nothing
+     * is read from the sensors while the simulation is stepping
+     * @param snapshot The latest snapshot of the simulation
+     */
+    private void showSnapshot(WorldSnapshot snapshot) {
+        RobotState state = snapshot.getRobot(robot);
+
+        if (state != null) {
+            setSensors(state.getSensors());
         }
     }
 
@@ -1,6 +1,6 @@
 package ux.painters;
 
-import simulation.entities.Cup;
+import simulation.WorldSnapshot.CupState;
 
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
@@ -15,11 +15,11 @@ public interface ItemPainter {
     /**
      * Paints the Item.
      *
-     * @param item Item to paint
+     * @param item State of the item to paint
      * @param shapeTransform AffineTransform with which to alter shapes
      * @param graphics2D Graphics2D instance on which to call shape draw methods
      */
-    void paint(Cup item, AffineTransform shapeTransform, Graphics2D graphics2D);
+    void paint(CupState item, AffineTransform shapeTransform, Graphics2D graphics2D);
 }
 
 
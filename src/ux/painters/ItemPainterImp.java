@@ -1,6 +1,6 @@
 package ux.painters;
 
-import simulation.entities.Cup;
+import simulation.WorldSnapshot.CupState;
 
 import ux.display.Colors;
 
@@ -24,8 +24,8 @@ public class ItemPainterImp implements ItemPainter {
      * @param graphics2D
      */
     @Override
-    public void paint(Cup item, AffineTransform shapeTransform, Graphics2D graphics2D) {
-        Shape thingShape = shapeTransform.createTransformedShape(item);
+    public void paint(CupState item, AffineTransform shapeTransform, Graphics2D graphics2D) {
+        Shape thingShape = shapeTransform.createTransformedShape(item.getShape());
 
         graphics2D.setPaint(Colors.PALEGREEN);
         graphics2D.fill(thingShape);
@@ -1,6 +1,6 @@
 package ux.painters;
 
-import simulation.entities.Robot;
+import simulation.WorldSnapshot.RobotState;
 
 import ux.display.Arrow;
 import ux.display.Colors;
@@ -32,8 +32,8 @@ public class RobotPainterImp2 implements RobotPainter {
      * @param graphics2D
      */
     @Override
-    public void paint(Robot robot, AffineTransform shapeTransform, Graphics2D graphics2D) {
-        Shape transformedShape = shapeTransform.createTransformedShape((robot));
+    public void paint(RobotState robot, AffineTransform shapeTransform, Graphics2D graphics2D) {
+        Shape transformedShape = shapeTransform.createTransformedShape(robot.getShape());
 
         graphics2D.setPaint(Colors.NAVY);
         graphics2D.fill(transformedShape);
@@ -6,7 +6,7 @@
  */
 package ux.painters;
 
-import simulation.entities.Robot;
+import simulation.WorldSnapshot.RobotState;
 
 import ux.display.Arrow;
 import ux.display.Colors;
@@ -30,8 +30,8 @@ public class RobotPainterProgressImp implements RobotPainter {
     public static final float PROGSTARTHUE = 0.0f;           // Red
 
     @Override
-    public void paint(Robot robot, AffineTransform shapeTransform, Graphics2D graphics2D) {
-        Shape transformedShape = shapeTransform.createTransformedShape((robot));
+    public void paint(RobotState robot, AffineTransform shapeTransform, Graphics2D graphics2D) {
+        Shape transformedShape = shapeTransform.createTransformedShape(robot.getShape());
 
         /* Arm progress colour display */
         if ((robot.getCollectionProgress() < 0.1) || (robot.getCollectionProgress() > 99.9)) {
@@ -6,7 +6,7 @@
  */
 package ux.painters;
 
-import simulation.entities.Robot;
+import simulation.WorldSnapshot.RobotState;
 
 import ux.display.Colors;
 
@@ -34,8 +34,8 @@ public class RobotPainterProgressImp2 implements RobotPainter {
      * @param graphics2D
      */
     @Override
-    public void paint(Robot robot, AffineTransform shapeTransform, Graphics2D graphics2D) {
-        Shape transformedShape = shapeTransform.createTransformedShape((robot));
+    public void paint(RobotState robot, AffineTransform shapeTransform, Graphics2D graphics2D) {
+        Shape transformedShape = shapeTransform.createTransformedShape(robot.getShape());
 
         /* Arm progress colour display */
         if ((robot.getCollectionProgress() < 0.1) || (robot.getCollectionProgress() > 99.9)) {
@@ -1,6 +1,6 @@
 package ux.painters;
 
-import simulation.entities.Robot;
+import simulation.WorldSnapshot.RobotState;
 
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
@@ -15,11 +15,11 @@ public interface SensorPainter {
     /**
      * Paints the Sensor.
      *
-     * @param robot Robot on which to paint the Sensor
+     * @param robot State of the robot on which to paint the Sensor
      * @param shapeTransform AffineTransform with which to alter shapes
      * @param graphics2D Graphics2D instance on which to call shape draw methods
      */
-    void paint(Robot robot, AffineTransform shapeTransform, Graphics2D graphics2D);
+    void paint(RobotState robot, AffineTransform shapeTransform, Graphics2D graphics2D);
 }
 
 
@@ -1,9 +1,9 @@
 package ux.painters;
 
-import simulation.entities.Robot;
+import simulation.WorldSnapshot.RobotState;
+import simulation.WorldSnapshot.SensorState;
 
 import simulation.sensors.RobotRadar;
-import simulation.sensors.Sensor;
 
 import ux.display.Colors;
 
@@ -14,13 +14,13 @@ import java.awt.geom.AffineTransform;
 
 public class SensorPainterImp implements SensorPainter {
     @Override
-    public void paint(Robot robot, AffineTransform shapeTransform, Graphics2D graphics2D) {
-        for (Sensor sensor : robot.getSensors()) {
+    public void paint(RobotState robot, AffineTransform shapeTransform, Graphics2D graphics2D) {
+        for (SensorState sensor : robot.getSensors()) {
             Shape sensorRangeShape = shapeTransform.createTransformedShape(sensor.getRange());
 
             if (sensorRangeShape != null) {
-                if (sensor instanceof RobotRadar) {
-                    if (((RobotRadar) sensor).isRobot()) {
+                if (sensor.getSensor() instanceof RobotRadar) {
+                    if (sensor.isRobotSeen()) {
                         graphics2D.setColor(Color.GREEN);
                     } else {
                         graphics2D.setColor(Colors.FERN);
@@ -1,6 +1,6 @@
 package ux.painters;
 
-import simulation.entities.Robot;
+import simulation.WorldSnapshot.RobotState;
 
 import ux.display.Arrow;
 import ux.display.MitreArrow;
@@ -32,7 +32,7 @@ public class VelocityVectorPainterImp implements VelocityVectorPainter {
     /**
      * @param robot The Robot on which to paint the VelocityVector
      */
-    public void paint(Robot robot, AffineTransform shapeTransform, Graphics2D graphics2D) {
+    public void paint(RobotState robot, AffineTransform shapeTransform, Graphics2D graphics2D) {
 
         // Draw the velocity vector.
         double    angleFromNorth = robot.getAngle();
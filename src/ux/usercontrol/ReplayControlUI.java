@@ -0,0 +1,143 @@
+package ux.usercontrol;
+
+import net.miginfocom.swing.MigLayout;
+
+import publishersubscriber.SimulatorPublisher;
+import publishersubscriber.SimulatorSubscriber;
+
+import simulation.ReplayPlayer;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import java.io.IOException;
+
+import java.text.DecimalFormat;
+
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSlider;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Controls for playing back a replay: play and pause, a slider to move to
+ * any step of the log and the playback speed.
+ * @author Simon
+ */
+public class ReplayControlUI extends JPanel implements SimulatorSubscriber {
+    private static final long  serialVersionUID = 1L;
+    private final ReplayPlayer player;
+    private final ErrorOutput  errorOutput;
+    private JButton            playButton;
+    private JButton            pauseButton;
+    private JSlider            positionSlider;
+    private JSpinner           speedSpinner;
+    private JLabel             positionLabel;
+    private boolean            updating;
+
+    /**
+     * Constructs a new gui element
+     * @param player The player to control
+     * @param errorOutput Where to report a log which can't be read
+     */
+    public ReplayControlUI(ReplayPlayer player, ErrorOutput errorOutput) {
+        this.player      = player;
+        this.errorOutput = errorOutput;
+        createGui();
+        player.addSubscriber(this);
+        update(player);
+    }
+
+    final protected void createGui() {
+        setLayout(new MigLayout("", "[][grow][]"));
+        playButton     = new JButton("Play");
+        pauseButton    = new JButton("Pause");
+        positionSlider = new JSlider(0, Math.max(0, player.getReader().size() - 1), 0);
+        speedSpinner   = new JSpinner(new SpinnerNumberModel(1, ReplayPlayer.MIN_SPEED, ReplayPlayer.MAX_SPEED, 0.5));
+        positionLabel  = new JLabel();
+
+        ButtonListener buttonListener = new ButtonListener();
+
+        playButton.addActionListener(buttonListener);
+        pauseButton.addActionListener(buttonListener);
+        positionSlider.addChangeListener(new PositionListener());
+
+        JComponent editor = new JSpinner.NumberEditor(speedSpinner);
+
+        speedSpinner.setEditor(editor);
+        speedSpinner.setValue(1.0);
+        speedSpinner.addChangeListener(new SpeedListener());
+        add(positionSlider, "span, growx, wrap");
+        add(new JLabel("Playback Speed"));
+        add(speedSpinner, "grow, gapright 20");
+        add(playButton);
+        add(positionLabel, "span, wrap");
+    }
+
+    /**
+     * Moves the slider along with playback
+     * @param publisher The player
+     */
+    @Override
+    public void update(SimulatorPublisher publisher) {
+        int    index = player.getIndex();
+        double time  = player.getTimeElapsed();
+
+        updating = true;
+        positionSlider.setMaximum(player.getReader().size() - 1);
+        positionSlider.setValue(index);
+        updating = false;
+        positionLabel.setText("Step " + (index + 1) + " of " + player.getReader().size() + ", "
+                              + new DecimalFormat("#.##").format(time) + "s");
+
+        if (player.isRunning() != (pauseButton.getParent() == this)) {
+            remove(player.isRunning() ? playButton : pauseButton);
+            add(player.isRunning() ? pauseButton : playButton, 3);
+            validate();
+            repaint();
+        }
+    }
+
+    @Override
+    public void simulatorResetted(SimulatorPublisher publisher) {}
+
+    private class ButtonListener implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent event) {
+            if (event.getSource() == playButton) {
+                player.play();
+            } else {
+                player.pause();
+            }
+        }
+    }
+
+
+    private class PositionListener implements ChangeListener {
+        @Override
+        public void stateChanged(ChangeEvent e) {
+            if (updating) {
+                return;
+            }
+
+            try {
+                player.seek(positionSlider.getValue());
+            } catch (IOException ex) {
+                errorOutput.displayMessage("Replay", ex.getMessage());
+            }
+        }
+    }
+
+
+    private class SpeedListener implements ChangeListener {
+        @Override
+        public void stateChanged(ChangeEvent e) {
+            player.setTimeCoefficient(((Number) speedSpinner.getValue()).doubleValue());
+        }
+    }
+}
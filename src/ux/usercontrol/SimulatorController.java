@@ -2,6 +2,8 @@ package ux.usercontrol;
 
 import publishersubscriber.SimulatorPublisher;
 import publishersubscriber.SimulatorSubscriber;
+import simulation.BudgetExceededException;
+import simulation.Checkpoint;
 import simulation.Scheduler;
 import simulation.Simulator;
 import java.util.ArrayList;
@@ -15,7 +17,7 @@ import javax.script.ScriptException;
 public class SimulatorController implements SimulatorSubscriber {
     private Collection<SimulatorControlGui> controlGuis = new ArrayList<SimulatorControlGui>();
     private Mode                            mode        = Mode.EDIT;
-    private DeflatedSimulator               backupSimulator;
+    private Checkpoint                      backup;
     private ErrorOutput                     errorOutput;
     private Scheduler                       scheduler;
     private Simulator                       simulator;
@@ -44,14 +46,13 @@ public class SimulatorController implements SimulatorSubscriber {
     public void resetSimulator() {
         setGuiResetted();
         scheduler.stop();
-        if (!invalidReset) {
-            simulator.inflate(backupSimulator);
-        }
-        try {
-            backupSimulator = new DeflatedSimulator(simulator);
-        } catch (Exception e) {
-            System.err.println(e);
-            invalidReset = true;
+        if (!invalidReset && (backup != null)) {
+            try {
+                simulator.restore(backup);
+            } catch (Exception e) {
+                System.err.println(e);
+                invalidReset = true;
+            }
         }
     }
 
@@ -82,12 +83,7 @@ public class SimulatorController implements SimulatorSubscriber {
         case SIMULATION :
             setGuiMode(mode);
             invalidReset = false;
-            try {
-                backupSimulator = new DeflatedSimulator(simulator);
-            } catch (Exception e) {
-                System.err.println(e);
-                invalidReset = true;
-            }
+            backup       = simulator.checkpoint();
 
             break;
         }
@@ -109,6 +105,15 @@ public class SimulatorController implements SimulatorSubscriber {
 
             errorOutput.displayMessage("Script Error", message);
         }
+
+        // Slow brains are noted on their robot's console, but a hung one stops everything
+        for (BudgetExceededException overrun : publisher.getOverruns()) {
+            if (overrun.isHung()) {
+                setGuiPaused();
+                scheduler.pause();
+                errorOutput.displayMessage("Brain Hung", overrun.getMessage());
+            }
+        }
     }
 
     @Override
@@ -0,0 +1,79 @@
+package simulation;
+
+import java.io.IOException;
+import java.util.List;
+import javax.script.ScriptException;
+import org.junit.Test;
+import simulation.entities.Cup;
+import simulation.geometry.RigidBody;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the BatchRunner class
+ *
+ * @author Simon
+ */
+public class BatchRunnerTest {
+
+    /**
+     * Test of run method, of class BatchRunner.
+     */
+    @Test
+    public void testRun() throws InterruptedException {
+        System.out.println("run");
+
+        BatchRunner instance = new BatchRunner(2);
+        Simulator   template = new Simulator(true);
+
+        template.addInanimate(new Cup(500, 200, true));
+        template.getEnvironment().createNewImpassableTerrain(new RigidBody(100, 100, 50, 50));
+
+        for (int i = 0; i < 5; i++) {
+            instance.add("run " + i, BatchRunner.copyOf(template), 1 + i);
+        }
+
+        assertEquals(5, instance.getPending());
+
+        List<BatchResult> results = instance.run();
+
+        assertEquals(0, instance.getPending());
+        assertEquals(5, results.size());
+
+        for (int i = 0; i < 5; i++) {
+            BatchResult result = results.get(i);
+
+            assertEquals("run " + i, result.getName());
+            assertEquals(1 + i, result.getTimeElapsed(), 1e-9);
+            assertFalse(result.isFailed());
+            assertEquals(0, result.getCupsCollected());
+        }
+
+        // The template is left alone
+        assertEquals(0, template.getTimeElapsed(), 0);
+        assertEquals(1, template.getThings().size());
+    }
+
+    /**
+     * Test that a failing set up is reported, of class BatchRunner.
+     */
+    @Test
+    public void testFailedSetUp() throws InterruptedException {
+        System.out.println("failedSetUp");
+
+        BatchRunner instance = new BatchRunner(1);
+
+        instance.add("broken", new BatchRunner.Scenario() {
+            @Override
+            public void setUp(Simulator sim) throws IOException, ScriptException {
+                throw new ScriptException("Please extend the SimRobot class");
+            }
+        }, 10);
+
+        BatchResult result = instance.run().get(0);
+
+        assertTrue(result.isFailed());
+        assertEquals("Please extend the SimRobot class", result.getError());
+        assertEquals(0, result.getTimeElapsed(), 0);
+    }
+}
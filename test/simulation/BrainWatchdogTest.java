@@ -0,0 +1,186 @@
+package simulation;
+
+import simulation.entities.Robot;
+import simulation.entities.SimBrain;
+import java.io.IOException;
+import java.util.List;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static simulation.SimulationFixtures.addRobot;
+
+/**
+ * Tests the BrainWatchdog class
+ *
+ * @author Simon
+ */
+public class BrainWatchdogTest {
+
+    /**
+     * Test of the FLAG policy, of class BrainWatchdog.
+     */
+    @Test
+    public void testFlag() throws IOException, ScriptException {
+        System.out.println("flag");
+
+        Simulator     sim      = new Simulator(true);
+        Robot         robot    = addRobot(sim, Slow.class, 500);
+        BrainWatchdog instance = sim.getWatchdog();
+
+        assertEquals(BrainWatchdog.Policy.FLAG, instance.getPolicy());
+        instance.setBudget(1000000);
+
+        for (int i = 0; i < 5; i++) {
+            sim.gameLoop();
+        }
+
+        assertEquals(5, instance.getRecord(robot).getOverruns());
+        assertEquals(5, instance.getRecord(robot).getLatencies().getCount());
+        assertEquals(0, instance.getRecord(robot).getSkipped());
+        assertEquals(5, instance.getOverruns());
+        assertNull(sim.getIssue());
+
+        // Only the latest overrun of each robot is kept
+        List<BudgetExceededException> overruns = sim.getOverruns();
+
+        assertEquals(1, overruns.size());
+        assertSame(robot, overruns.get(0).getRobot());
+        assertFalse(overruns.get(0).isHung());
+        assertTrue(overruns.get(0).getNanos() > 1000000);
+        assertTrue(sim.getOverruns().isEmpty());
+
+        // The console is told of the first overrun but not every one after
+        assertEquals(1, robot.getWriter().toString().split("Over budget").length - 1);
+    }
+
+    /**
+     * Test of the SKIP policy, of class BrainWatchdog.
+     */
+    @Test
+    public void testSkip() throws IOException, ScriptException {
+        System.out.println("skip");
+
+        Simulator     sim      = new Simulator(true);
+        Robot         robot    = addRobot(sim, Slow.class, 500);
+        BrainWatchdog instance = sim.getWatchdog();
+
+        instance.setPolicy(BrainWatchdog.Policy.SKIP);
+        instance.setBudget(1000000);
+        instance.setPenalty(3);
+
+        for (int i = 0; i < 8; i++) {
+            sim.gameLoop();
+        }
+
+        // Overrun, sit out 3, overrun, sit out 3
+        assertEquals(2, instance.getRecord(robot).getOverruns());
+        assertEquals(6, instance.getRecord(robot).getSkipped());
+        assertNull(sim.getIssue());
+
+        sim.reset();
+        assertNull(instance.getRecord(robot));
+        assertEquals(0, instance.getOverruns());
+    }
+
+    /**
+     * Test of the STOP policy, of class BrainWatchdog.
+     */
+    @Test
+    public void testStop() throws IOException, ScriptException {
+        System.out.println("stop");
+
+        Simulator sim = new Simulator(true);
+
+        addRobot(sim, Slow.class, 500);
+        sim.getWatchdog().setPolicy(BrainWatchdog.Policy.STOP);
+        sim.getWatchdog().setBudget(1000000);
+        sim.gameLoop();
+
+        assertTrue(sim.getIssue() instanceof BudgetExceededException);
+        assertEquals(0, sim.getTimeElapsed(), 1e-9);
+    }
+
+    /**
+     * Test of catching a hung brain, of class BrainWatchdog.
+     */
+    @Test
+    public void testHang() throws IOException, ScriptException {
+        System.out.println("hang");
+
+        Simulator     sim      = new Simulator(true);
+        Robot         robot    = addRobot(sim, Hanging.class, 500);
+        BrainWatchdog instance = sim.getWatchdog();
+
+        instance.setPolicy(BrainWatchdog.Policy.SKIP);
+        instance.setHangLimit(50000000);
+        sim.gameLoop();
+
+        List<BudgetExceededException> overruns = sim.getOverruns();
+
+        assertEquals(1, overruns.size());
+        assertTrue(overruns.get(0).isHung());
+        assertEquals(1, instance.getRecord(robot).getOverruns());
+        assertNull(sim.getIssue());
+
+        // The interrupt meant for the brain is not left behind
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    /**
+     * Test of the settings, of class BrainWatchdog.
+     */
+    @Test
+    public void testSettings() {
+        System.out.println("settings");
+
+        BrainWatchdog instance = new BrainWatchdog();
+
+        try {
+            instance.setBudget(0);
+            fail("A budget of nothing should be refused");
+        } catch (IllegalArgumentException e) {
+            assertEquals(BrainWatchdog.DEFAULT_BUDGET, instance.getBudget());
+        }
+
+        try {
+            instance.setPolicy(null);
+            fail("A missing policy should be refused");
+        } catch (IllegalArgumentException e) {
+            assertEquals(BrainWatchdog.Policy.FLAG, instance.getPolicy());
+        }
+
+        instance.setHangLimit(0);
+        assertEquals(0, instance.getHangLimit());
+    }
+
+    /**
+     * Takes a few milliseconds to decide nothing
+     */
+    public static class Slow extends SimBrain {
+
+        @Override
+        public void update() {
+            long end = System.nanoTime() + 3000000;
+
+            while (System.nanoTime() < end) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Never finishes unless interrupted
+     */
+    public static class Hanging extends SimBrain {
+
+        @Override
+        public void update() {
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.yield();
+            }
+
+            throw new IllegalStateException("Interrupted");
+        }
+    }
+}
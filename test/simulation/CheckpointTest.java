@@ -0,0 +1,167 @@
+package simulation;
+
+import simulation.entities.Cup;
+import simulation.entities.RestorableBrain;
+import simulation.entities.Robot;
+import simulation.SimulationFixtures.Forward;
+import simulation.geometry.Entity;
+import simulation.geometry.XPoint;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static simulation.SimulationFixtures.addRobot;
+
+/**
+ * Tests the Checkpoint class
+ *
+ * @author Simon
+ */
+public class CheckpointTest {
+
+    /**
+     * Test of restore method, of class Simulator.
+     */
+    @Test
+    public void testRestore() throws IOException, ScriptException {
+        System.out.println("restore");
+
+        Simulator sim   = new Simulator(true);
+        Robot     robot = addRobot(sim, Counting.class, 500);
+        Cup       cup   = new Cup(500, 600, true);
+
+        assertTrue(sim.addInanimate(cup));
+        sim.getEnvironment().createNewImpassableTerrain(new Entity(100, 100, 50, 50));
+
+        Checkpoint checkpoint = sim.checkpoint();
+        XPoint     start      = new XPoint(robot.getCom());
+
+        for (int i = 0; i < 100; i++) {
+            sim.gameLoop();
+        }
+
+        // The robot has driven into the cup and spilt it
+        assertTrue(start.distance(robot.getCom()) > 10);
+        assertFalse(cup.isUpright());
+        assertEquals(2, sim.getEnvironment().getTerrain().size());
+        assertEquals(100, counted(robot));
+
+        sim.restore(checkpoint);
+
+        assertEquals(0, sim.getTimeElapsed(), 1e-9);
+        assertEquals(start.getX(), robot.getX(), 1e-9);
+        assertEquals(start.getY(), robot.getY(), 1e-9);
+        assertEquals(0, robot.getAngle(), 1e-9);
+        assertEquals(0, robot.getVelocity(), 1e-9);
+        assertTrue(robot.getHeldItems().isEmpty());
+        assertEquals(1, sim.getThings().size());
+        assertTrue(cup.isUpright());
+        assertEquals(500, cup.getX(), 1e-9);
+        assertEquals(600, cup.getY(), 1e-9);
+        assertEquals(1, sim.getEnvironment().getTerrain().size());
+        assertEquals(1, sim.getEnvironment().getImpassableTerrain().size());
+        assertEquals(0, counted(robot));
+
+        // Restored in place, nothing has been built again
+        assertSame(robot, sim.getRobots().iterator().next());
+        assertSame(cup, sim.getThings().iterator().next());
+    }
+
+    /**
+     * Test of named checkpoints, of class Simulator.
+     */
+    @Test
+    public void testNamed() throws IOException, ScriptException {
+        System.out.println("named");
+
+        Simulator sim   = new Simulator(true);
+        Robot     robot = addRobot(sim, Counting.class, 500);
+
+        sim.saveCheckpoint("start");
+
+        for (int i = 0; i < 10; i++) {
+            sim.gameLoop();
+        }
+
+        sim.saveCheckpoint("ten");
+
+        XPoint ten = new XPoint(robot.getCom());
+
+        for (int i = 0; i < 10; i++) {
+            sim.gameLoop();
+        }
+
+        assertEquals(Arrays.asList("start", "ten"), new ArrayList<String>(sim.getCheckpointNames()));
+
+        sim.restoreCheckpoint("ten");
+        assertEquals(10 * Simulator.DT, sim.getTimeElapsed(), 1e-9);
+        assertEquals(ten.getY(), robot.getY(), 1e-9);
+        assertEquals(10, counted(robot));
+
+        sim.restoreCheckpoint("start");
+        assertEquals(0, sim.getTimeElapsed(), 1e-9);
+        assertEquals(0, counted(robot));
+
+        assertTrue(sim.removeCheckpoint("ten"));
+        assertFalse(sim.removeCheckpoint("ten"));
+
+        try {
+            sim.restoreCheckpoint("ten");
+            fail("A forgotten checkpoint should be refused");
+        } catch (IllegalArgumentException e) {
+            assertEquals(0, sim.getTimeElapsed(), 1e-9);
+        }
+    }
+
+    /**
+     * Test that brains which can't save their state start afresh.
+     */
+    @Test
+    public void testFreshBrain() throws IOException, ScriptException {
+        System.out.println("freshBrain");
+
+        Simulator sim   = new Simulator(true);
+        Robot     robot = addRobot(sim, Forward.class, 500);
+
+        assertNull(robot.saveBrain());
+
+        Checkpoint checkpoint = sim.checkpoint();
+
+        sim.gameLoop();
+        sim.restore(checkpoint);
+        sim.gameLoop();
+
+        assertTrue(robot.getVelocity() > 1);
+        assertNull(sim.getIssue());
+    }
+
+    private static int counted(Robot robot) {
+        return Integer.parseInt(String.valueOf(robot.saveBrain()));
+    }
+
+    /**
+     * Drives forward, counting its steps
+     */
+    public static class Counting extends Forward implements RestorableBrain {
+        private int count;
+
+        @Override
+        public void update() {
+            super.update();
+            count++;
+        }
+
+        @Override
+        public Object saveState() {
+            return count;
+        }
+
+        @Override
+        public void restoreState(Object state) {
+            count = (Integer) state;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package simulation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the HeadlessScheduler class
+ *
+ * @author Simon
+ */
+public class HeadlessSchedulerTest {
+
+    /**
+     * Test of step method, of class HeadlessScheduler.
+     */
+    @Test
+    public void testStep() {
+        System.out.println("step");
+
+        Simulator         sim      = new Simulator(true);
+        HeadlessScheduler instance = (HeadlessScheduler) sim.getScheduler();
+
+        assertEquals(250, instance.step(250));
+        assertEquals(250 * Simulator.DT, sim.getTimeElapsed(), 1e-9);
+        assertEquals(250, instance.getTotalSteps());
+        assertFalse(instance.isRunning());
+        assertTrue(instance.getStepsPerSecond() > 0);
+    }
+
+    /**
+     * Test of runFor method, of class HeadlessScheduler.
+     */
+    @Test
+    public void testRunFor() {
+        System.out.println("runFor");
+
+        Simulator         sim      = new Simulator(true);
+        HeadlessScheduler instance = (HeadlessScheduler) sim.getScheduler();
+
+        assertEquals(Math.round(2 / Simulator.DT), instance.runFor(2));
+        assertEquals(2, sim.getTimeElapsed(), 1e-9);
+    }
+
+    /**
+     * Test of play and pause, of class HeadlessScheduler.
+     */
+    @Test
+    public void testPlayPause() throws InterruptedException {
+        System.out.println("playPause");
+
+        Simulator         sim      = new Simulator(true);
+        HeadlessScheduler instance = (HeadlessScheduler) sim.getScheduler();
+
+        instance.play();
+        assertTrue(instance.isRunning());
+        Thread.sleep(50);
+        instance.pause();
+        instance.join();
+
+        assertFalse(instance.isRunning());
+        assertTrue(instance.getTotalSteps() > 0);
+        assertEquals(instance.getTotalSteps() * Simulator.DT, sim.getTimeElapsed(), 1e-9);
+    }
+
+    /**
+     * Test that pausing and playing straight away never leaves two threads
+     * stepping, of class HeadlessScheduler.
+     */
+    @Test
+    public void testReplay() throws InterruptedException {
+        System.out.println("replay");
+
+        Simulator         sim      = new Simulator(true);
+        HeadlessScheduler instance = (HeadlessScheduler) sim.getScheduler();
+
+        for (int i = 0; i < 50; i++) {
+            instance.play();
+            instance.pause();
+        }
+
+        instance.play();
+        Thread.sleep(20);
+
+        try {
+            instance.step(10);
+            fail("Stepping while free-running should be refused");
+        } catch (IllegalStateException e) {
+            assertTrue(instance.isRunning());
+        }
+
+        instance.pause();
+        instance.join();
+
+        // Every step was run by one thread at a time, so none was lost
+        assertEquals(instance.getTotalSteps() * Simulator.DT, sim.getTimeElapsed(), 1e-9);
+        assertEquals(10, instance.step(10));
+    }
+
+    /**
+     * Test that stepping offers snapshots, of class HeadlessScheduler.
+     */
+    @Test
+    public void testSnapshots() {
+        System.out.println("snapshots");
+
+        Simulator         sim      = new Simulator(true);
+        HeadlessScheduler instance = (HeadlessScheduler) sim.getScheduler();
+
+        instance.step(5);
+
+        // The first step after the last snapshot was taken
+        assertEquals(1, sim.getSnapshot().getStep());
+
+        instance.step(5);
+        assertEquals(6, sim.getSnapshot().getStep());
+    }
+}
@@ -0,0 +1,134 @@
+package simulation;
+
+import simulation.SimulationFixtures.Forward;
+import simulation.entities.Cup;
+import simulation.entities.JavaBrains;
+import simulation.entities.Robot;
+import simulation.entities.RobotOutput;
+import simulation.geometry.RigidBody;
+import simulation.geometry.XPoint;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static simulation.SimulationFixtures.addRobot;
+
+/**
+ * Tests the KinematicState class
+ *
+ * @author Simon
+ */
+public class KinematicStateTest {
+
+    /**
+     * Test of integrate method, of class KinematicState.
+     */
+    @Test
+    public void testIntegrate() throws IOException, ScriptException {
+        System.out.println("integrate");
+
+        KinematicState kinematics = new KinematicState();
+        RobotOutput    output     = new RobotOutput();
+        Robot          robot      = new Robot(JavaBrains.PREFIX + ReplayPlayer.Puppet.class.getName(), "",
+                                               new XPoint(300, 300), 0.3);
+
+        output.setMotor(80);
+        output.setSteering(40);
+        robot.setVelocity(20);
+
+        // Enough robots to grow the arrays
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, kinematics.add(robot, output, 0.1, 0.5));
+        }
+
+        kinematics.integrate();
+
+        double acceleration = robot.getPower() * 80 / robot.getMass() - 20 * 0.5 - robot.getMass() * 0.1 + 0.5;
+        double velocity     = 20 + acceleration * Simulator.DT;
+
+        assertEquals(20, kinematics.size());
+
+        for (int i = 0; i < kinematics.size(); i++) {
+            assertSame(robot, kinematics.getRobot(i));
+            assertEquals(velocity, kinematics.getVelocity(i), 1e-9);
+            assertEquals(output.getSteering() * 20 / 10000, kinematics.getTurn(i), 1e-12);
+            assertEquals(-velocity * Simulator.DT * Math.sin(0.3), kinematics.getDx(i), 1e-9);
+            assertEquals(velocity * Simulator.DT * Math.cos(0.3), kinematics.getDy(i), 1e-9);
+        }
+
+        kinematics.clear();
+        assertEquals(0, kinematics.size());
+    }
+
+    /**
+     * Test of the reach, of class KinematicState, which must cover the robot
+     * after it has moved.
+     */
+    @Test
+    public void testReach() throws IOException, ScriptException {
+        System.out.println("reach");
+
+        KinematicState kinematics = new KinematicState();
+        RobotOutput    output     = new RobotOutput();
+        Robot          robot      = new Robot(JavaBrains.PREFIX + ReplayPlayer.Puppet.class.getName(), "",
+                                               new XPoint(300, 300), 0.3);
+
+        output.setMotor(100);
+        output.setSteering(100);
+        robot.setVelocity(500);
+        kinematics.add(robot, output, 0, 0);
+        kinematics.integrate();
+
+        double    x      = kinematics.getNewX(0);
+        double    y      = kinematics.getNewY(0);
+        double    reach  = kinematics.getReach(0);
+        RigidBody moved  = new RigidBody(robot);
+        RigidBody before = new RigidBody(robot);
+
+        moved.move(kinematics.getTurn(0), kinematics.getDx(0), kinematics.getDy(0));
+
+        // The same as turning then shifting
+        before.rotate(kinematics.getTurn(0));
+        before.translate(kinematics.getDx(0), kinematics.getDy(0));
+        assertEquals(before.getX(), moved.getX(), 1e-9);
+        assertEquals(before.getY(), moved.getY(), 1e-9);
+        assertEquals(before.getAngle(), moved.getAngle(), 1e-12);
+        assertEquals(before.getBounds2D().getWidth(), moved.getBounds2D().getWidth(), 1e-6);
+        assertTrue(new Rectangle2D.Double(x - reach, y - reach, 2 * reach, 2 * reach).contains(moved.getBounds2D()));
+    }
+
+    /**
+     * Test that a robot is never moved in place into a robot or cup lying
+     * off the diagonal of its reach, as seen from its centre.
+     */
+    @Test
+    public void testOffDiagonal() throws IOException, ScriptException {
+        System.out.println("offDiagonal");
+
+        Simulator sim   = new Simulator(true);
+        Robot     robot = addRobot(sim, Forward.class, 500, 500, Math.atan2(28, 65));
+        Robot     idle  = addRobot(sim, ReplayPlayer.Puppet.class, 472, 565, 0);
+
+        for (int i = 0; i < 100; i++) {
+            sim.gameLoop();
+            assertFalse("Overlapping after " + i + " steps", sim.getCollisionEngine().intersects(robot, idle));
+        }
+
+        sim   = new Simulator(true);
+        robot = addRobot(sim, Forward.class, 500, 500, Math.atan2(22, 60));
+
+        Cup cup = new Cup(478, 560, true);
+
+        assertTrue(sim.addInanimate(cup));
+
+        for (int i = 0; i < 100; i++) {
+            sim.gameLoop();
+
+            if (sim.getThings().contains(cup)) {
+                assertFalse("Overlapping after " + i + " steps", sim.getCollisionEngine().intersects(robot, cup));
+            }
+        }
+    }
+}
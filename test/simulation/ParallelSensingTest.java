@@ -0,0 +1,125 @@
+package simulation;
+
+import simulation.entities.Robot;
+import simulation.entities.RobotOutput;
+import simulation.entities.SimBrain;
+import simulation.sensors.DistanceSensor;
+import simulation.sensors.GPS;
+import simulation.sensors.Sensor;
+import java.io.IOException;
+import java.util.Iterator;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static simulation.SimulationFixtures.addRobot;
+
+/**
+ * Tests sensing for all robots in parallel, of class Simulator
+ *
+ * @author Simon
+ */
+public class ParallelSensingTest {
+
+    /**
+     * Test that sensing in parallel steps exactly as sensing in turn does.
+     */
+    @Test
+    public void testDeterministic() throws IOException, ScriptException {
+        System.out.println("deterministic");
+
+        Simulator parallel = build(true);
+        Simulator serial   = build(false);
+
+        assertTrue(parallel.isParallelSensing());
+        assertFalse(serial.isParallelSensing());
+
+        for (int step = 0; step < 200; step++) {
+            parallel.gameLoop();
+            serial.gameLoop();
+
+            Iterator<? extends Robot> others = serial.getRobots().iterator();
+
+            for (Robot robot : parallel.getRobots()) {
+                Robot other = others.next();
+
+                assertEquals(other.getX(), robot.getX(), 0);
+                assertEquals(other.getY(), robot.getY(), 0);
+                assertEquals(other.getAngle(), robot.getAngle(), 0);
+                assertEquals(other.getVelocity(), robot.getVelocity(), 0);
+
+                Iterator<Sensor> sensors = other.getSensors().iterator();
+
+                for (Sensor sensor : robot.getSensors()) {
+                    assertEquals(sensors.next().getValue(), sensor.getValue());
+                }
+            }
+        }
+
+        assertNull(parallel.getIssue());
+        assertNull(serial.getIssue());
+    }
+
+    /**
+     * Test that a noisy GPS reading never moves the robot carrying it.
+     */
+    @Test
+    public void testGPSCopies() throws IOException, ScriptException {
+        System.out.println("GPSCopies");
+
+        Simulator sim = build(true);
+
+        for (int step = 0; step < 50; step++) {
+            sim.gameLoop();
+
+            for (Robot robot : sim.getRobots()) {
+                GPS gps = (GPS) robot.getSensors().iterator().next();
+
+                assertNotSame(robot.getCom(), gps.getOutput());
+                assertTrue(gps.getOutput().distance(robot.getCom()) > 0);
+            }
+        }
+    }
+
+    /**
+     * @return Robots spread across the arena, turning about and bumping into
+     * each other and the walls
+     */
+    private static Simulator build(boolean parallelSensing) throws IOException, ScriptException {
+        Simulator sim = new Simulator(true);
+
+        sim.setSeed(42);
+        sim.setParallelSensing(parallelSensing);
+
+        for (int i = 0; i < 6; i++) {
+            addRobot(sim, Wandering.class, 150 + 150 * i, 300 + 80 * i, i);
+        }
+
+        return sim;
+    }
+
+    /**
+     * Drives about, steering away from whatever is ahead and towards the
+     * middle of the arena
+     */
+    public static class Wandering extends SimBrain {
+        private final GPS            gps   = addSensor(new GPS(0.05));
+        private final DistanceSensor front = addSensor(new DistanceSensor(0));
+        private final DistanceSensor left  = addSensor(new DistanceSensor(Math.PI / 4));
+
+        @Override
+        public void update() {
+            RobotOutput output = new RobotOutput();
+
+            output.setMotor(80);
+
+            if (front.getOutput() < 150) {
+                output.setSteering((left.getOutput() < front.getOutput()) ? -100 : 100);
+            } else {
+                output.setSteering((gps.getOutput().getX() < 600) ? 20 : -20);
+            }
+
+            setOutput(output);
+        }
+    }
+}
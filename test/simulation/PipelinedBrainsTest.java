@@ -0,0 +1,118 @@
+package simulation;
+
+import simulation.SimulationFixtures.Forward;
+import simulation.entities.Robot;
+import simulation.entities.SimBrain;
+import java.io.IOException;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static simulation.SimulationFixtures.addRobot;
+
+/**
+ * Tests running brains pipelined with the simulation, of class Simulator
+ *
+ * @author Simon
+ */
+public class PipelinedBrainsTest {
+
+    /**
+     * Test that pipelined outputs are acted on a step late.
+     */
+    @Test
+    public void testLag() throws IOException, ScriptException {
+        System.out.println("lag");
+
+        Simulator serial    = new Simulator(true);
+        Simulator pipelined = new Simulator(true);
+        Robot     first     = addRobot(serial, Forward.class, 500);
+        Robot     second    = addRobot(pipelined, Forward.class, 500);
+
+        pipelined.setPipelinedBrains(true);
+        assertTrue(pipelined.isPipelinedBrains());
+
+        serial.gameLoop();
+        pipelined.gameLoop();
+
+        // Nothing but motor noise moves a robot whose brain has yet to decide
+        assertTrue(first.getVelocity() > 1);
+        assertEquals(0, second.getVelocity(), 1);
+
+        pipelined.gameLoop();
+        assertTrue(second.getVelocity() > 1);
+    }
+
+    /**
+     * Test that slow brains overlap rather than add up.
+     */
+    @Test
+    public void testOverlap() throws IOException, ScriptException {
+        System.out.println("overlap");
+
+        Simulator sim = new Simulator(true);
+
+        for (int i = 0; i < 8; i++) {
+            addRobot(sim, Sleepy.class, 100 + 100 * i);
+        }
+
+        sim.setPipelinedBrains(true);
+        sim.getWatchdog().setBudget(1000000000L);
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < 6; i++) {
+            sim.gameLoop();
+        }
+
+        // Run one after another the brains would take 8 * 5 * 20ms
+        assertTrue((System.nanoTime() - start) / 1e6 < 400);
+        assertNull(sim.getIssue());
+    }
+
+    /**
+     * Test that a failing brain is the issue in the next step.
+     */
+    @Test
+    public void testFailure() throws IOException, ScriptException {
+        System.out.println("failure");
+
+        Simulator sim = new Simulator(true);
+
+        addRobot(sim, Failing.class, 500);
+        sim.setPipelinedBrains(true);
+        sim.gameLoop();
+        assertNull(sim.getIssue());
+        sim.gameLoop();
+        assertTrue(sim.getIssue().getMessage().contains("broken"));
+
+        sim.setPipelinedBrains(false);
+        assertFalse(sim.isPipelinedBrains());
+    }
+
+    /**
+     * Takes a while to decide anything
+     */
+    public static class Sleepy extends SimBrain {
+
+        @Override
+        public void update() {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Always fails
+     */
+    public static class Failing extends SimBrain {
+
+        @Override
+        public void update() {
+            throw new IllegalStateException("broken");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package simulation;
+
+import java.util.Random;
+import org.junit.Test;
+import simulation.geometry.Environment;
+import simulation.geometry.Terrain;
+import simulation.geometry.XPoint;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the RandomStreams class
+ *
+ * @author Simon
+ */
+public class RandomStreamsTest {
+
+    /**
+     * Test of stream method, of class RandomStreams.
+     */
+    @Test
+    public void testStream() {
+        System.out.println("stream");
+
+        RandomStreams instance = new RandomStreams(42);
+        Random        motor    = instance.stream(RandomStreams.MOTOR, 0);
+        Random        again    = new RandomStreams(42).stream(RandomStreams.MOTOR, 0);
+        Random        other    = instance.stream(RandomStreams.MOTOR, 1);
+        Random        sensor   = instance.stream(RandomStreams.SENSOR, 0, 0);
+
+        assertEquals(42, instance.getSeed());
+
+        for (int i = 0; i < 100; i++) {
+            double value = motor.nextDouble();
+
+            assertEquals(value, again.nextDouble(), 0);
+            assertFalse(value == other.nextDouble());
+            assertFalse(value == sensor.nextDouble());
+        }
+    }
+
+    /**
+     * Test that seeded spills repeat, of class Environment.
+     */
+    @Test
+    public void testSpill() {
+        System.out.println("spill");
+
+        Environment first  = new Environment();
+        Environment second = new Environment();
+
+        first.spillHotCoffeeEverywhere(new XPoint(300, 300), 150, new RandomStreams(7).stream(RandomStreams.SPILL));
+        second.spillHotCoffeeEverywhere(new XPoint(300, 300), 150, new RandomStreams(7).stream(RandomStreams.SPILL));
+
+        Terrain a = first.getPassableTerrain().iterator().next();
+        Terrain b = second.getPassableTerrain().iterator().next();
+
+        assertEquals(a.getBounds2D(), b.getBounds2D());
+    }
+
+    /**
+     * Test of setSeed method, of class Simulator.
+     */
+    @Test
+    public void testSetSeed() {
+        System.out.println("setSeed");
+
+        Simulator instance = new Simulator(true);
+
+        instance.setSeed(1234);
+        assertEquals(1234, instance.getSeed());
+
+        instance.reset();
+        assertEquals(1234, instance.getSeed());
+    }
+}
@@ -0,0 +1,131 @@
+package simulation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the RealTimeScheduler class
+ *
+ * @author Simon
+ */
+public class RealTimeSchedulerTest {
+
+    /**
+     * Test of play and pause, of class RealTimeScheduler.
+     */
+    @Test
+    public void testPlayPause() throws InterruptedException {
+        System.out.println("playPause");
+
+        Simulator         sim      = new Simulator(true);
+        RealTimeScheduler instance = new RealTimeScheduler(sim);
+
+        try {
+            instance.setTimeCoefficient(10.0);
+            assertEquals(Math.round(Simulator.DT * 1e8), instance.getPeriod());
+
+            instance.play();
+            assertTrue(instance.isRunning());
+            Thread.sleep(500);
+            instance.pause();
+            Thread.sleep(20);
+
+            long steps = instance.getTotalSteps();
+
+            // 2ms a step, allowing for a slow or busy host
+            assertTrue("Only " + steps + " steps", steps > 100);
+            assertTrue("As many as " + steps + " steps", steps <= 260);
+            assertEquals(steps, Math.round(sim.getTimeElapsed() / Simulator.DT));
+
+            Thread.sleep(50);
+            assertEquals(steps, instance.getTotalSteps());
+            assertTrue(instance.getTicks() > steps);
+        } finally {
+            instance.cancel();
+        }
+    }
+
+    /**
+     * Test of playing a simulator as soon as it is built.
+     */
+    @Test
+    public void testPlayAtOnce() throws InterruptedException {
+        System.out.println("playAtOnce");
+
+        for (int i = 0; i < 20; i++) {
+            Simulator         sim      = new Simulator();
+            RealTimeScheduler instance = (RealTimeScheduler) sim.getScheduler();
+
+            try {
+                instance.play();
+
+                long end = System.nanoTime() + 2000000000L;
+
+                while ((instance.getTotalSteps() < 3) && (System.nanoTime() < end)) {
+                    Thread.sleep(5);
+                }
+
+                assertTrue(instance.isRunning());
+                assertTrue(instance.getTotalSteps() >= 3);
+
+                // Still offering snapshots once the last one is taken
+                sim.getSnapshot();
+
+                while ((sim.getSnapshot().getStep() < 3) && (System.nanoTime() < end)) {
+                    Thread.sleep(5);
+                }
+
+                assertTrue(sim.getSnapshot().getStep() >= 3);
+            } finally {
+                instance.cancel();
+            }
+        }
+    }
+
+    /**
+     * Test of setTimeCoefficient method, of class RealTimeScheduler.
+     */
+    @Test
+    public void testSetTimeCoefficient() {
+        System.out.println("setTimeCoefficient");
+
+        RealTimeScheduler instance = new RealTimeScheduler(new Simulator(true));
+
+        try {
+            long period = instance.getPeriod();
+
+            instance.setTimeCoefficient(100.0);
+            assertEquals(period, instance.getPeriod());
+
+            instance.setTimeCoefficient(2.0);
+            assertEquals(period / 2, instance.getPeriod());
+        } finally {
+            instance.cancel();
+        }
+    }
+
+    /**
+     * Test of setMaxCatchUp method, of class RealTimeScheduler.
+     */
+    @Test
+    public void testSetMaxCatchUp() {
+        System.out.println("setMaxCatchUp");
+
+        RealTimeScheduler instance = new RealTimeScheduler(new Simulator(true));
+
+        try {
+            instance.setMaxCatchUp(2);
+            assertEquals(2, instance.getMaxCatchUp());
+
+            try {
+                instance.setMaxCatchUp(0);
+                fail("No steps per tick was allowed");
+            } catch (IllegalArgumentException e) {
+                assertEquals(2, instance.getMaxCatchUp());
+            }
+        } finally {
+            instance.cancel();
+        }
+    }
+}
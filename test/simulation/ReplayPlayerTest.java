@@ -0,0 +1,187 @@
+package simulation;
+
+import publishersubscriber.SimulatorPublisher;
+import publishersubscriber.SimulatorSubscriber;
+import simulation.SimulationFixtures.Forward;
+import simulation.entities.Cup;
+import simulation.entities.JavaBrains;
+import simulation.entities.Robot;
+import simulation.geometry.Entity;
+import simulation.geometry.RigidBody;
+import simulation.geometry.XPoint;
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static simulation.SimulationFixtures.addRobot;
+
+/**
+ * Tests the ReplayPlayer class
+ *
+ * @author Simon
+ */
+public class ReplayPlayerTest {
+
+    /**
+     * Test of seek method, of class ReplayPlayer.
+     */
+    @Test
+    public void testSeek() throws IOException, ScriptException {
+        System.out.println("seek");
+
+        File        file  = File.createTempFile("replay", ".log");
+        Simulator   sim   = new Simulator(true);
+        List<Robot> poses = new ArrayList<Robot>();
+        Robot       robot = new Robot(JavaBrains.PREFIX + Forward.class.getName(), "Forward", new XPoint(500, 500),
+                                      0.2, 20, 40, Color.BLUE);
+
+        file.deleteOnExit();
+        sim.getEnvironment().setShape(new RigidBody(0, 0, 1200, 900));
+        sim.getEnvironment().createNewImpassableTerrain(new Entity(100, 100, 50, 50));
+        assertTrue(sim.addRobot(robot));
+        assertTrue(sim.addInanimate(new Cup(480, 600, true)));
+        record(sim, file, 100, poses);
+
+        ReplayPlayer player  = new ReplayPlayer(new ReplayReader(file));
+        Counter      counter = new Counter();
+
+        player.addSubscriber(counter);
+        assertEquals(0, player.getIndex());
+        assertEquals(Simulator.DT, player.getTimeElapsed(), 1e-9);
+        assertEquals(1, player.getRobots().size());
+
+        Robot puppet = player.getRobots().iterator().next();
+
+        assertEquals("Forward", puppet.getDescription());
+        assertEquals(20, puppet.getWidth(), 1e-6);
+        assertEquals(40, puppet.getLength(), 1e-6);
+        assertEquals(Color.BLUE, puppet.getColour());
+        assertTrue(puppet.getSensors().isEmpty());
+        assertEquals(sim.getEnvironment().getBounds2D(), player.getEnvironment().getBounds2D());
+        assertEquals(1, player.getEnvironment().getTerrain().size());
+        assertTrue(player.getThings().iterator().next().isUpright());
+
+        // Straight to the end, with the cup knocked over and coffee spilt
+        player.seek(99);
+        assertEquals(1, counter.updates);
+        assertEquals(99, player.getIndex());
+        assertEquals(100, player.getSnapshot().getStep());
+        assertSame(puppet, player.getRobots().iterator().next());
+        assertEquals(robot.getX(), puppet.getX(), 1e-3);
+        assertEquals(robot.getY(), puppet.getY(), 1e-3);
+        assertEquals(robot.getAngle(), puppet.getAngle(), 1e-6);
+        assertEquals(robot.getVelocity(), puppet.getVelocity(), 1e-3);
+        assertEquals(robot.getBounds2D().getWidth(), puppet.getBounds2D().getWidth(), 1e-3);
+        assertEquals(50, player.getFrame().getMotor(0), 1e-6);
+        assertFalse(player.getThings().iterator().next().isUpright());
+        assertEquals(2, player.getEnvironment().getTerrain().size());
+
+        // And back again
+        player.seek(0, 0.5);
+
+        int   index = player.getIndex();
+        Robot pose  = poses.get(index);
+
+        assertEquals(0.5, player.getTimeElapsed(), Simulator.DT);
+        assertEquals(pose.getX(), puppet.getX(), 1e-3);
+        assertEquals(pose.getY(), puppet.getY(), 1e-3);
+        assertTrue(player.getThings().iterator().next().isUpright());
+        assertTrue(player.getThings().iterator().next().isFull());
+        assertEquals(1, player.getEnvironment().getTerrain().size());
+
+        assertTrue(player.isInSimulator(puppet));
+        assertFalse(player.isInSimulator(robot));
+        assertFalse(player.canPlace(puppet, new RigidBody(puppet)));
+        assertNull(player.getIssue());
+        assertTrue(player.getOverruns().isEmpty());
+        player.close();
+        assertTrue(file.delete());
+    }
+
+    /**
+     * Test of playing a log, of class ReplayPlayer.
+     */
+    @Test
+    public void testPlay() throws IOException, ScriptException, InterruptedException {
+        System.out.println("play");
+
+        File      file = File.createTempFile("replay", ".log");
+        Simulator sim  = new Simulator(true);
+
+        file.deleteOnExit();
+        addRobot(sim, Forward.class, 500);
+        record(sim, file, 200, null);
+
+        ReplayPlayer player = new ReplayPlayer(new ReplayReader(file));
+
+        assertSame(player, player.getScheduler());
+        player.setTimeCoefficient(1000.0);
+        assertEquals(1, player.getSpeed(), 1e-9);
+        player.setTimeCoefficient(ReplayPlayer.MAX_SPEED);
+
+        // Paused, ticks don't move
+        player.tick();
+        assertEquals(0, player.getIndex());
+
+        player.play();
+        assertTrue(player.isRunning());
+        Thread.sleep(5);
+        player.tick();
+        assertTrue(player.getIndex() > 0);
+
+        // The whole log takes well under a second at full speed
+        Thread.sleep(200 * (long) (Simulator.DT * 1000 / ReplayPlayer.MAX_SPEED) + 50);
+        player.tick();
+        assertEquals(199, player.getIndex());
+        assertFalse(player.isRunning());
+
+        player.stop();
+        assertEquals(0, player.getIndex());
+        assertNull(player.getFailure());
+        player.close();
+        assertTrue(file.delete());
+    }
+
+    /**
+     * Steps a simulation with a recorder
+     * @param poses Filled with a copy of the first robot after each step, if
+     * not null
+     */
+    private static void record(Simulator sim, File file, int steps, List<Robot> poses)
+            throws IOException, ScriptException {
+        ReplayRecorder recorder = new ReplayRecorder(file);
+
+        sim.setRecorder(recorder);
+
+        for (int i = 0; i < steps; i++) {
+            sim.gameLoop();
+
+            if (poses != null) {
+                poses.add(new Robot(sim.getRobots().iterator().next()));
+            }
+        }
+
+        sim.setRecorder(null);
+        recorder.close();
+    }
+
+    /**
+     * Counts updates
+     */
+    private static class Counter implements SimulatorSubscriber {
+        private int updates;
+
+        @Override
+        public void update(SimulatorPublisher publisher) {
+            updates++;
+        }
+
+        @Override
+        public void simulatorResetted(SimulatorPublisher publisher) {}
+    }
+}
@@ -0,0 +1,181 @@
+package simulation;
+
+import simulation.SimulationFixtures.Forward;
+import simulation.entities.Cup;
+import simulation.entities.Robot;
+import simulation.geometry.Entity;
+import simulation.geometry.Terrain;
+import simulation.geometry.XPoint;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static simulation.SimulationFixtures.addRobot;
+
+/**
+ * Tests the ReplayRecorder and ReplayReader classes
+ *
+ * @author Simon
+ */
+public class ReplayRecorderTest {
+
+    /**
+     * Test of recording a run and reading it back.
+     */
+    @Test
+    public void testRecord() throws IOException, ScriptException {
+        System.out.println("record");
+
+        File           file     = tempFile();
+        Simulator      sim      = new Simulator(true);
+        Robot          robot    = addRobot(sim, Forward.class, 500);
+        Cup            cup      = new Cup(500, 600, true);
+
+        // A small region so the log is mapped many times over
+        ReplayRecorder recorder = new ReplayRecorder(file, 256);
+        List<XPoint>   places   = new ArrayList<XPoint>();
+
+        assertTrue(sim.addInanimate(cup));
+        sim.getEnvironment().createNewImpassableTerrain(new Entity(100, 100, 50, 50));
+        sim.setRecorder(recorder);
+        assertSame(recorder, sim.getRecorder());
+
+        for (int i = 0; i < 100; i++) {
+            sim.gameLoop();
+            places.add(new XPoint(robot.getCom()));
+        }
+
+        assertEquals(50, sim.getOutput(robot).getMotor(), 1e-9);
+        assertEquals(100, recorder.getFrames());
+        assertNull(recorder.getFailure());
+        recorder.close();
+        assertEquals(recorder.getLength(), file.length());
+
+        ReplayReader reader = new ReplayReader(file);
+
+        assertEquals(100, reader.size());
+        assertEquals(1, reader.getRunCount());
+        assertEquals(Simulator.DT, reader.getTimeStep(), 1e-12);
+        assertEquals(1, reader.getRobotCount());
+        assertEquals("Forward", reader.getRobotName(0));
+        assertEquals(robot.getFilePath(), reader.getBrainPath(0));
+
+        for (int i = 0; i < 100; i += 9) {
+            ReplayReader.Frame frame = reader.getFrame(i);
+
+            assertEquals(i + 1, frame.getStep());
+            assertEquals(1, frame.getRobotCount());
+            assertEquals(0, frame.getRobotId(0));
+            assertEquals(places.get(i).getX(), frame.getX(0), 1e-3);
+            assertEquals(places.get(i).getY(), frame.getY(0), 1e-3);
+            assertEquals(50, frame.getMotor(0), 1e-6);
+            assertFalse(frame.isArmActive(0));
+        }
+
+        ReplayReader.Frame first = reader.getFrame(0);
+        ReplayReader.Frame last  = reader.getFrame(99);
+
+        assertTrue(first.isRunStart());
+        assertTrue(first.isCupUpright(0) && first.isCupFull(0));
+        assertEquals(600, first.getCupY(0), 1e-3);
+        assertFalse(last.isCupUpright(0));
+        assertEquals(robot.getVelocity(), last.getVelocity(0), 1e-3);
+
+        // The spill shows up in the terrain part way through
+        List<Terrain> before = reader.getTerrain(0);
+        List<Terrain> after  = reader.getTerrain(99);
+
+        assertEquals(1, before.size());
+        assertFalse(before.get(0).isPassable());
+        assertEquals(2, after.size());
+        assertTrue(after.get(1).isPassable());
+
+        assertEquals(49, reader.seek(50));
+        assertEquals(0, reader.seek(-5));
+        assertEquals(99, reader.seek(1000));
+        reader.close();
+        assertTrue(file.delete());
+    }
+
+    /**
+     * Test that a reset starts a new run, and that a log may be read while it
+     * is still being recorded.
+     */
+    @Test
+    public void testRuns() throws IOException, ScriptException {
+        System.out.println("runs");
+
+        File           file     = tempFile();
+        Simulator      sim      = new Simulator(true);
+        ReplayRecorder recorder = new ReplayRecorder(file);
+
+        addRobot(sim, Forward.class, 500);
+        sim.setRecorder(recorder);
+
+        Checkpoint start = sim.checkpoint();
+
+        for (int i = 0; i < 10; i++) {
+            sim.gameLoop();
+        }
+
+        ReplayReader reader = new ReplayReader(file);
+
+        assertEquals(10, reader.size());
+
+        sim.restore(start);
+
+        for (int i = 0; i < 5; i++) {
+            sim.gameLoop();
+        }
+
+        assertEquals(15, reader.refresh());
+        assertEquals(2, reader.getRunCount());
+        assertEquals(10, reader.getRunStart(1));
+        assertEquals(12, reader.seek(3));
+        assertEquals(2, reader.seek(0, 3));
+        assertTrue(reader.getTerrain(12).isEmpty());
+
+        sim.setRecorder(null);
+        sim.gameLoop();
+        recorder.close();
+        assertEquals(15, reader.refresh());
+        reader.close();
+        assertTrue(file.delete());
+    }
+
+    /**
+     * Test of opening something which isn't a log.
+     */
+    @Test
+    public void testRefused() throws IOException {
+        System.out.println("refused");
+
+        File             file = tempFile();
+        FileOutputStream out  = new FileOutputStream(file);
+
+        out.write("not a replay log at all".getBytes("UTF-8"));
+        out.close();
+
+        try {
+            new ReplayReader(file);
+            fail("Text should be refused");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Not a replay log"));
+        }
+
+        assertTrue(file.delete());
+    }
+
+    private static File tempFile() throws IOException {
+        File file = File.createTempFile("replay", ".log");
+
+        file.deleteOnExit();
+
+        return file;
+    }
+}
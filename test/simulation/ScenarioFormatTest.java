@@ -0,0 +1,218 @@
+package simulation;
+
+import simulation.entities.Cup;
+import simulation.entities.JavaBrains;
+import simulation.entities.Robot;
+import simulation.entities.SimBrain;
+import simulation.geometry.Entity;
+import simulation.geometry.Environment;
+import simulation.geometry.RigidBody;
+import simulation.geometry.Terrain;
+import simulation.geometry.XPoint;
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the ScenarioFormat class
+ *
+ * @author Simon
+ */
+public class ScenarioFormatTest {
+
+    /**
+     * Test of write and read methods, of class ScenarioFormat.
+     */
+    @Test
+    public void testRoundTrip() throws IOException, ScriptException {
+        System.out.println("roundTrip");
+
+        Simulator original = setUp();
+        Simulator loaded   = new Simulator(true);
+
+        // Anything already there is replaced
+        loaded.addInanimate(new Cup(900, 900, true));
+        ScenarioFormat.read(new ByteArrayInputStream(write(original)), loaded);
+
+        Environment before = original.getEnvironment();
+        Environment after  = loaded.getEnvironment();
+
+        assertEquals(before.getBounds2D(), after.getBounds2D());
+        assertEquals(2, after.getTerrain().size());
+        assertEquals(1, after.getImpassableTerrain().size());
+        assertEquals(1, after.getPassableTerrain().size());
+
+        Terrain sticky = after.getPassableTerrain().iterator().next();
+
+        assertEquals(0.4, sticky.getCoefficient(), 1e-9);
+        assertEquals("Sticky", sticky.getDescription());
+        assertEquals(new Entity(250, 250, 40, 20).getBounds2D(), sticky.getBounds2D());
+
+        List<Cup> cups = new ArrayList<Cup>(loaded.getThings());
+
+        assertEquals(2, cups.size());
+
+        for (Cup cup : cups) {
+            if (cup.getX() == 300) {
+                assertTrue(cup.isFull() && cup.isUpright());
+            } else {
+                assertEquals(400, cup.getX(), 1e-9);
+                assertFalse(cup.isFull() || cup.isUpright());
+            }
+        }
+
+        assertEquals(1, loaded.getRobots().size());
+
+        Robot first = original.getRobots().iterator().next();
+        Robot robot = loaded.getRobots().iterator().next();
+
+        assertEquals(first.getFilePath(), robot.getFilePath());
+        assertEquals("Idler", robot.getDescription());
+        assertEquals(first.getX(), robot.getX(), 1e-9);
+        assertEquals(first.getY(), robot.getY(), 1e-9);
+        assertEquals(first.getAngle(), robot.getAngle(), 1e-9);
+        assertEquals(20, robot.getWidth(), 1e-9);
+        assertEquals(40, robot.getLength(), 1e-9);
+        assertEquals(Color.BLUE, robot.getColour());
+        assertEquals(first.getBounds2D(), robot.getBounds2D());
+
+        // Written again it is the same
+        assertTrue(Arrays.equals(write(original), write(loaded)));
+    }
+
+    /**
+     * Test of reading something other than a scenario, of class
+     * ScenarioFormat.
+     */
+    @Test
+    public void testRefused() throws IOException, ScriptException {
+        System.out.println("refused");
+
+        Simulator sim = new Simulator(true);
+        Cup       cup = new Cup(900, 900, true);
+
+        assertTrue(sim.addInanimate(cup));
+
+        try {
+            ScenarioFormat.read(new ByteArrayInputStream("not a scenario".getBytes("UTF-8")), sim);
+            fail("Text should be refused");
+        } catch (IOException e) {
+            assertEquals("Not a scenario", e.getMessage());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream      data  = new DataOutputStream(bytes);
+
+        data.writeInt(ScenarioFormat.MAGIC);
+        data.writeShort(ScenarioFormat.VERSION + 1);
+
+        try {
+            ScenarioFormat.read(new ByteArrayInputStream(bytes.toByteArray()), sim);
+            fail("A newer version should be refused");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("newer"));
+        }
+
+        // Cut short
+        byte[] whole = write(setUp());
+        byte[] part  = new byte[whole.length / 2];
+
+        System.arraycopy(whole, 0, part, 0, part.length);
+
+        try {
+            ScenarioFormat.read(new ByteArrayInputStream(part), sim);
+            fail("Part of a scenario should be refused");
+        } catch (IOException e) {
+            assertNotNull(e);
+        }
+
+        // An outline with no such winding rule
+        bytes.reset();
+        data.writeInt(ScenarioFormat.MAGIC);
+        data.writeShort(ScenarioFormat.VERSION);
+        data.writeByte(7);
+
+        try {
+            ScenarioFormat.read(new ByteArrayInputStream(bytes.toByteArray()), sim);
+            fail("A corrupt outline should be refused");
+        } catch (IOException e) {
+            assertEquals("The scenario is corrupt", e.getMessage());
+        }
+
+        // Nothing was loaded, so nothing was replaced
+        assertEquals(1, sim.getThings().size());
+        assertSame(cup, sim.getThings().iterator().next());
+        assertTrue(sim.getRobots().isEmpty());
+        assertTrue(sim.getEnvironment().getTerrain().isEmpty());
+        assertEquals(new RigidBody(0, 0, 1000, 1000).getBounds2D(), sim.getEnvironment().getBounds2D());
+    }
+
+    /**
+     * Test of scenario method, of class ScenarioFormat.
+     */
+    @Test
+    public void testScenario() throws IOException, ScriptException, InterruptedException {
+        System.out.println("scenario");
+
+        File file = File.createTempFile("arena", "." + ScenarioFormat.EXTENSION);
+
+        file.deleteOnExit();
+        ScenarioFormat.write(setUp(), file);
+
+        BatchRunner runner = new BatchRunner(2);
+
+        runner.add("first", ScenarioFormat.scenario(file), 0.1);
+        runner.add("second", ScenarioFormat.scenario(file), 0.1);
+
+        for (BatchResult result : runner.run()) {
+            assertNull(result.getError());
+            assertEquals(0.1, result.getTimeElapsed(), Simulator.DT);
+        }
+    }
+
+    private static Simulator setUp() throws IOException, ScriptException {
+        Simulator   sim = new Simulator(true);
+        Environment env = sim.getEnvironment();
+
+        env.setShape(new RigidBody(0, 0, 800, 600));
+        env.createNewImpassableTerrain(new Entity(100, 100, 50, 50), "Pillar");
+        env.createNewPassableTerrain(new Entity(250, 250, 40, 20), 0.4, "Sticky");
+
+        Cup spilt = new Cup(400, 450, true);
+
+        spilt.knockOver();
+        assertTrue(sim.addInanimate(new Cup(300, 450, true)));
+        assertTrue(sim.addInanimate(spilt));
+        assertTrue(sim.addRobot(new Robot(JavaBrains.PREFIX + Idle.class.getName(), "Idler", new XPoint(600, 300),
+                                          Math.PI / 3, 20, 40, Color.BLUE, 150, 80)));
+
+        return sim;
+    }
+
+    private static byte[] write(Simulator sim) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        ScenarioFormat.write(sim, bytes);
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Does nothing
+     */
+    public static class Idle extends SimBrain {
+
+        @Override
+        public void update() {}
+    }
+}
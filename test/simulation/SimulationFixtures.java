@@ -0,0 +1,66 @@
+package simulation;
+
+import simulation.entities.Brain;
+import simulation.entities.JavaBrains;
+import simulation.entities.Robot;
+import simulation.entities.RobotOutput;
+import simulation.entities.SimBrain;
+import simulation.geometry.XPoint;
+import java.io.IOException;
+import javax.script.ScriptException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Robots and brains shared by the simulation tests
+ *
+ * @author Simon
+ */
+public final class SimulationFixtures {
+
+    private SimulationFixtures() {}
+
+    /**
+     * Adds a robot facing down the arena at y = 500, named after its brain
+     * @param sim The simulation to add the robot to
+     * @param brain The Java brain to run
+     * @param x The x-coordinate of the robot
+     * @return The robot added
+     */
+    public static Robot addRobot(Simulator sim, Class<? extends Brain> brain, double x)
+            throws IOException, ScriptException {
+        return addRobot(sim, brain, x, 500, 0);
+    }
+
+    /**
+     * Adds a robot, named after its brain
+     * @param sim The simulation to add the robot to
+     * @param brain The Java brain to run
+     * @param x The x-coordinate of the robot
+     * @param y The y-coordinate of the robot
+     * @param angle The direction the robot faces
+     * @return The robot added
+     */
+    public static Robot addRobot(Simulator sim, Class<? extends Brain> brain, double x, double y, double angle)
+            throws IOException, ScriptException {
+        Robot robot = new Robot(JavaBrains.PREFIX + brain.getName(), brain.getSimpleName(), new XPoint(x, y), angle);
+
+        assertTrue(sim.addRobot(robot));
+
+        return robot;
+    }
+
+    /**
+     * Drives forward
+     */
+    public static class Forward extends SimBrain {
+
+        @Override
+        public void update() {
+            RobotOutput output = new RobotOutput();
+
+            output.setMotor(50);
+            setOutput(output);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package simulation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import org.junit.Test;
+import simulation.StepProfiler.Phase;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the StepProfiler and LatencyHistogram classes
+ *
+ * @author Simon
+ */
+public class StepProfilerTest {
+
+    /**
+     * Test of getPercentile method, of class LatencyHistogram.
+     */
+    @Test
+    public void testPercentile() {
+        System.out.println("percentile");
+
+        LatencyHistogram instance = new LatencyHistogram();
+
+        assertEquals(0, instance.getPercentile(50));
+
+        for (int i = 1; i <= 1000; i++) {
+            instance.record(i * 1000L);
+        }
+
+        assertEquals(1000, instance.getCount());
+        assertEquals(1000000, instance.getMax());
+        assertEquals(500500, instance.getMean(), 1e-9);
+
+        // Buckets are an eighth of a power of two wide
+        assertEquals(500000, instance.getPercentile(50), 500000 / 8);
+        assertEquals(990000, instance.getPercentile(99), 990000 / 8);
+        assertEquals(1000000, instance.getPercentile(100));
+
+        instance.reset();
+        assertEquals(0, instance.getCount());
+        assertEquals(0, instance.getMax());
+    }
+
+    /**
+     * Test of the bucket bounds, of class LatencyHistogram.
+     */
+    @Test
+    public void testBuckets() {
+        System.out.println("buckets");
+
+        for (long nanos = 0; nanos < 100000; nanos += 7) {
+            int bucket = LatencyHistogram.bucket(nanos);
+
+            assertTrue(LatencyHistogram.lowest(bucket) <= nanos);
+            assertTrue(LatencyHistogram.lowest(bucket + 1) > nanos);
+        }
+
+        assertEquals(LatencyHistogram.bucket(Long.MAX_VALUE), LatencyHistogram.bucket(Long.MAX_VALUE - 1));
+    }
+
+    /**
+     * Test of profiling a simulation, of class StepProfiler.
+     */
+    @Test
+    public void testProfile() throws IOException {
+        System.out.println("profile");
+
+        Simulator    sim      = new Simulator(true);
+        StepProfiler instance = new StepProfiler();
+
+        sim.setProfiler(instance);
+        assertSame(instance, sim.getProfiler());
+
+        for (int i = 0; i < 10; i++) {
+            sim.gameLoop();
+            sim.notifySubscribers();
+        }
+
+        assertEquals(10, instance.getPhase(Phase.STEP).getCount());
+        assertEquals(10, instance.getPhase(Phase.SENSE).getCount());
+        assertEquals(10, instance.getPhase(Phase.NOTIFY).getCount());
+        assertEquals(0, instance.getPhase(Phase.BRAIN).getCount());
+        assertTrue(instance.getRobots().isEmpty());
+
+        File file = File.createTempFile("profile", ".txt");
+
+        try {
+            instance.dump(file);
+
+            BufferedReader in = new BufferedReader(new FileReader(file));
+
+            try {
+                assertEquals("Phase", in.readLine());
+                assertTrue(in.readLine().trim().startsWith("STEP"));
+            } finally {
+                in.close();
+            }
+        } finally {
+            file.delete();
+        }
+
+        // Once removed nothing more is recorded
+        sim.setProfiler(null);
+        sim.gameLoop();
+        assertEquals(10, instance.getPhase(Phase.STEP).getCount());
+    }
+}
@@ -0,0 +1,74 @@
+package simulation;
+
+import simulation.SimulationFixtures.Forward;
+import simulation.entities.Robot;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static simulation.SimulationFixtures.addRobot;
+
+/**
+ * Tests pushing robots out of walls, of class Simulator
+ *
+ * @author Simon
+ */
+public class WallContactTest {
+
+    /**
+     * Test that a robot meeting a wall at an angle slides along it.
+     */
+    @Test
+    public void testSlide() throws IOException, ScriptException {
+        System.out.println("slide");
+
+        for (boolean contact : new boolean[] {true, false}) {
+            Simulator sim   = new Simulator(true);
+            Robot     robot = addRobot(sim, Forward.class, 500, 850, 0.6);
+
+            sim.setContactResolution(contact);
+            assertEquals(contact, sim.isContactResolution());
+
+            for (int i = 0; i < 300; i++) {
+                sim.gameLoop();
+                assertInside(sim, robot);
+            }
+
+            // Pressed against the bottom wall, having slid towards the left
+            assertTrue(robot.getBounds2D().getMaxY() > 990);
+            assertTrue(robot.getX() < 400);
+        }
+    }
+
+    /**
+     * Test that a robot driving head on into a wall is stopped.
+     */
+    @Test
+    public void testHeadOn() throws IOException, ScriptException {
+        System.out.println("headOn");
+
+        Simulator sim   = new Simulator(true);
+        Robot     robot = addRobot(sim, Forward.class, 500, 900, 0);
+
+        for (int i = 0; i < 200; i++) {
+            sim.gameLoop();
+            assertInside(sim, robot);
+        }
+
+        assertEquals(500, robot.getX(), 1);
+        assertEquals(0, robot.getAngle(), 1e-9);
+        assertTrue(robot.getBounds2D().getMaxY() > 990);
+    }
+
+    private static void assertInside(Simulator sim, Robot robot) {
+        Rectangle2D arena = sim.getEnvironment().getBounds2D();
+        Rectangle2D box   = robot.getBounds2D();
+
+        assertTrue(box.getMinX() >= arena.getMinX() - 1e-3);
+        assertTrue(box.getMinY() >= arena.getMinY() - 1e-3);
+        assertTrue(box.getMaxX() <= arena.getMaxX() + 1e-3);
+        assertTrue(box.getMaxY() <= arena.getMaxY() + 1e-3);
+    }
+}
@@ -0,0 +1,137 @@
+package simulation;
+
+import org.junit.Test;
+import simulation.SimulationFixtures.Forward;
+import simulation.WorldSnapshot.RobotState;
+import simulation.WorldSnapshot.SensorState;
+import simulation.entities.Cup;
+import simulation.entities.Robot;
+import simulation.geometry.RigidBody;
+import simulation.sensors.GPS;
+import java.io.IOException;
+import javax.script.ScriptException;
+
+import static org.junit.Assert.*;
+import static simulation.SimulationFixtures.addRobot;
+
+/**
+ * Tests the WorldSnapshot class
+ *
+ * @author Simon
+ */
+public class WorldSnapshotTest {
+
+    /**
+     * Test that a snapshot doesn't follow the simulation, of class WorldSnapshot.
+     */
+    @Test
+    public void testDetached() {
+        System.out.println("detached");
+
+        Simulator sim = new Simulator(true);
+        Cup       cup = new Cup(500, 200, true);
+
+        sim.addInanimate(cup);
+        sim.getEnvironment().createNewImpassableTerrain(new RigidBody(100, 100, 50, 50));
+
+        WorldSnapshot instance = sim.getSnapshot();
+
+        assertEquals(1, instance.getCups().size());
+        assertEquals(1, instance.getTerrain().size());
+        assertSame(cup, instance.getCups().get(0).getCup());
+        assertEquals(500, instance.getCups().get(0).getShape().getBounds2D().getCenterX(), 1e-9);
+
+        cup.translate(100, 0);
+        sim.getEnvironment().createNewImpassableTerrain(new RigidBody(300, 100, 50, 50));
+
+        assertEquals(500, instance.getCups().get(0).getShape().getBounds2D().getCenterX(), 1e-9);
+        assertEquals(1, instance.getTerrain().size());
+    }
+
+    /**
+     * Test of publishSnapshot method, of class Simulator.
+     */
+    @Test
+    public void testPublishSnapshot() {
+        System.out.println("publishSnapshot");
+
+        Simulator     sim   = new Simulator(true);
+        WorldSnapshot first = sim.getSnapshot();
+
+        // Taken, so the next step is published
+        sim.gameLoop();
+        sim.publishSnapshot();
+
+        WorldSnapshot second = sim.getSnapshot();
+
+        assertNotSame(first, second);
+        assertEquals(1, second.getStep());
+
+        // Not taken again until the display asks
+        sim.gameLoop();
+        sim.publishSnapshot();
+        sim.gameLoop();
+        sim.publishSnapshot();
+
+        assertEquals(2, sim.getSnapshot().getStep());
+        assertEquals(2, sim.getSnapshot().getStep());
+
+        sim.publishSnapshot();
+        assertEquals(3, sim.getSnapshot().getStep());
+    }
+
+    /**
+     * Test of a snapshot of a simulator still being built, of class
+     * WorldSnapshot.
+     */
+    @Test
+    public void testHalfBuilt() {
+        System.out.println("halfBuilt");
+
+        WorldSnapshot instance = new WorldSnapshot(0, 0, null, null, null);
+
+        assertNull(instance.getEnvironment());
+        assertTrue(instance.getTerrain().isEmpty());
+        assertTrue(instance.getRobots().isEmpty());
+        assertTrue(instance.getCups().isEmpty());
+    }
+
+    /**
+     * Test of getRobot method, of class WorldSnapshot.
+     */
+    @Test
+    public void testGetRobot() throws IOException, ScriptException {
+        System.out.println("getRobot");
+
+        Simulator sim   = new Simulator(true);
+        Robot     robot = addRobot(sim, Located.class, 500);
+
+        sim.gameLoop();
+
+        WorldSnapshot instance = sim.getSnapshot();
+        RobotState    state    = instance.getRobot(robot);
+        SensorState   gps      = state.getSensors().get(0);
+        String        value    = robot.getSensors().iterator().next().getValue();
+
+        assertSame(robot, state.getRobot());
+        assertEquals(robot.getVelocity(), state.getVelocity(), 0);
+        assertEquals("GPS (x,y)", gps.getDescription());
+        assertEquals(value, gps.getValue());
+        assertNull(instance.getRobot(new Robot(robot)));
+
+        // The reading stays as it was
+        sim.gameLoop();
+        assertEquals(value, gps.getValue());
+        assertFalse(value.equals(robot.getSensors().iterator().next().getValue()));
+    }
+
+    /**
+     * Drives forward, knowing where it is
+     */
+    public static class Located extends Forward {
+
+        public Located() {
+            addSensor(new GPS());
+        }
+    }
+}
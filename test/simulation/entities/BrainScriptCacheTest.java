@@ -0,0 +1,185 @@
+package simulation.entities;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the BrainScriptCache, BrainScript and RuntimePool classes
+ *
+ * @author Simon
+ */
+public class BrainScriptCacheTest {
+
+    /**
+     * Test of findClassName method, of class BrainScript.
+     */
+    @Test
+    public void testFindClassName() throws ScriptException {
+        System.out.println("findClassName");
+
+        assertEquals("Plain", BrainScript.findClassName("# A robot\n\nclass Plain < SimRobot\nend\n"));
+        assertEquals("Plain", BrainScript.findClassName("\r\n  class Plain<SimRobot\r\nend"));
+
+        try {
+            BrainScript.findClassName("# Nothing here\n\n");
+            fail("A script with no class should be refused");
+        } catch (ScriptException e) {
+            assertTrue(e.getMessage().contains("No class data found"));
+        }
+
+        try {
+            BrainScript.findClassName("class Plain\nend\n");
+            fail("A class not extending SimRobot should be refused");
+        } catch (ScriptException e) {
+            assertTrue(e.getMessage().contains("Please extend the SimRobot class"));
+        }
+    }
+
+    /**
+     * Test of isShareable method, of class BrainScript.
+     */
+    @Test
+    public void testIsShareable() {
+        System.out.println("isShareable");
+
+        assertTrue(BrainScript.isShareable("class A < SimRobot\n  def update\n    @speed = 5\n  end\nend"));
+        assertFalse(BrainScript.isShareable("class A < SimRobot\n  @@count = 0\nend"));
+        assertFalse(BrainScript.isShareable("class A < SimRobot\n  def update\n    $last = 1\n  end\nend"));
+    }
+
+    /**
+     * Test of get method, of class BrainScriptCache.
+     */
+    @Test
+    public void testGet() throws IOException, ScriptException {
+        System.out.println("get");
+
+        File mixin = File.createTempFile("SimRobot", ".rb");
+        File brain = File.createTempFile("brain", ".rb");
+
+        try {
+            write(mixin, "class SimRobot\nend\n");
+            write(brain, "class First < SimRobot\nend\n");
+
+            BrainScriptCache instance = new BrainScriptCache(mixin.getPath());
+            BrainScript      script   = instance.get(brain.getPath());
+
+            assertEquals("First", script.getClassName());
+            assertTrue(script.isShareable());
+            assertSame(script, instance.get(brain.getPath()));
+            assertSame(script, instance.get(brain.getParent() + File.separator + "." + File.separator + brain.getName()));
+            assertEquals(1, instance.size());
+
+            // A changed file is read again
+            write(brain, "class SecondBrain < SimRobot\nend\n");
+
+            BrainScript changed = instance.get(brain.getPath());
+
+            assertNotSame(script, changed);
+            assertEquals("SecondBrain", changed.getClassName());
+
+            instance.clear();
+            assertEquals(0, instance.size());
+        } finally {
+            mixin.delete();
+            brain.delete();
+        }
+    }
+
+    /**
+     * Test of acquire method, of class RuntimePool.
+     */
+    @Test
+    public void testAcquire() throws ScriptException {
+        System.out.println("acquire");
+
+        BrainScript plain    = new BrainScript("plain.rb", "class Plain < SimRobot\nend", "SimRobot.rb", "");
+        BrainScript other    = new BrainScript("other.rb", "class Other < SimRobot\nend", "SimRobot.rb", "");
+        BrainScript counting = new BrainScript("counting.rb", "class Counting < SimRobot\n  @@n = 0\nend",
+                                               "SimRobot.rb", "");
+        RuntimePool instance = new RuntimePool();
+
+        assertEquals(RuntimePool.Isolation.PER_ROBOT, instance.getIsolation());
+        assertNotSame(instance.acquire(plain), instance.acquire(plain));
+
+        instance.setIsolation(RuntimePool.Isolation.PER_SCRIPT);
+        assertSame(instance.acquire(plain), instance.acquire(plain));
+        assertNotSame(instance.acquire(plain), instance.acquire(other));
+        assertNotSame(instance.acquire(counting), instance.acquire(counting));
+
+        instance.setIsolation(RuntimePool.Isolation.SHARED);
+        assertSame(instance.acquire(plain), instance.acquire(other));
+        assertNotSame(instance.acquire(counting), instance.acquire(plain));
+        assertEquals(1, instance.getShared());
+
+        try {
+            instance.setSize(0);
+            fail("A pool with no runtimes should be refused");
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, instance.getSize());
+        }
+
+        instance.clear();
+        assertEquals(0, instance.getShared());
+    }
+
+    /**
+     * Test of release method, of class RuntimePool.
+     */
+    @Test
+    public void testRelease() throws ScriptException {
+        System.out.println("release");
+
+        BrainScript plain    = new BrainScript("plain.rb", "class Plain < SimRobot\nend", "SimRobot.rb",
+                                               "class SimRobot\nend");
+        RuntimePool instance = new RuntimePool();
+
+        instance.setIsolation(RuntimePool.Isolation.SHARED);
+        instance.setSize(2);
+
+        BrainRuntime first  = instance.acquire(plain);
+
+        first.newBrain(plain, null);
+
+        BrainRuntime second = instance.acquire(plain);
+
+        second.newBrain(plain, null);
+        assertNotSame(first, second);
+
+        // A released brain no longer counts against its runtime
+        instance.release(first);
+        assertEquals(0, first.getBrains());
+        assertSame(first, instance.acquire(plain));
+
+        try {
+            instance.release(first);
+            fail("A runtime with no brains should be refused");
+        } catch (IllegalStateException e) {
+            assertEquals(0, first.getBrains());
+        }
+
+        // A shrunk pool keeps the runtime in use until its brain is released
+        instance.setSize(1);
+        assertEquals(1, instance.getShared());
+        assertEquals(1, instance.getRetired());
+        assertSame(first, instance.acquire(plain));
+
+        instance.release(second);
+        assertEquals(0, instance.getRetired());
+    }
+
+    private static void write(File file, String text) throws IOException {
+        FileWriter out = new FileWriter(file);
+
+        try {
+            out.write(text);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package simulation.entities;
+
+import simulation.SimulationFixtures.Forward;
+import simulation.Simulator;
+import simulation.geometry.XPoint;
+import simulation.sensors.DistanceSensor;
+import java.io.IOException;
+import java.io.StringWriter;
+import javax.script.ScriptException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the JavaBrains and SimBrain classes
+ *
+ * @author Simon
+ */
+public class JavaBrainsTest {
+
+    /**
+     * Test of newBrain method, of class JavaBrains.
+     */
+    @Test
+    public void testNewBrain() throws IOException, ScriptException {
+        System.out.println("newBrain");
+
+        StringWriter console = new StringWriter();
+        Brain        brain   = JavaBrains.getDefault().newBrain(JavaBrains.PREFIX + Chatty.class.getName(), console);
+
+        assertTrue(brain instanceof Chatty);
+        assertEquals(1, brain.getSensors().size());
+
+        brain.update();
+        assertEquals(50, brain.getOutput().getMotor(), 1e-9);
+        assertTrue(console.toString().startsWith("forward"));
+    }
+
+    /**
+     * Test of newBrain method with classes which aren't brains, of class
+     * JavaBrains.
+     */
+    @Test
+    public void testNewBrainRefused() throws IOException {
+        System.out.println("newBrainRefused");
+
+        String[] paths = { "java:simulation.entities.NoSuchBrain", "java:java.lang.String",
+                           "java:" + Unmakeable.class.getName() };
+
+        for (String path : paths) {
+            try {
+                JavaBrains.getDefault().newBrain(path, new StringWriter());
+                fail(path + " should be refused");
+            } catch (ScriptException e) {
+                assertNotNull(e.getMessage());
+            }
+        }
+
+        try {
+            JavaBrains.getDefault().newBrain("java:no-such.jar", new StringWriter());
+            fail("A missing jar should be refused");
+        } catch (ScriptException e) {
+            fail("A missing jar is an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("no-such.jar"));
+        }
+    }
+
+    /**
+     * Test of a robot with a Java brain in a simulation.
+     */
+    @Test
+    public void testRobot() throws IOException, ScriptException {
+        System.out.println("robot");
+
+        assertTrue(JavaBrains.isJava("java:a.B"));
+        assertFalse(JavaBrains.isJava("scripts/brain3-plain.rb"));
+
+        Simulator sim   = new Simulator(true);
+        Robot     robot = new Robot(JavaBrains.PREFIX + Chatty.class.getName(), "Java", new XPoint(500, 500), 0);
+
+        assertTrue(sim.addRobot(robot));
+
+        for (int i = 0; i < 10; i++) {
+            sim.gameLoop();
+        }
+
+        assertTrue(robot.getVelocity() != 0);
+        assertTrue(robot.getWriter().toString().contains("forward"));
+
+        // Copies run the same brain class
+        Robot copy = new Robot(robot);
+
+        assertEquals(1, copy.getSensors().size());
+    }
+
+    /**
+     * Drives forward, saying so
+     */
+    public static class Chatty extends Forward {
+
+        public Chatty() {
+            addSensor(new DistanceSensor(0));
+        }
+
+        @Override
+        public void update() {
+            super.update();
+            println("forward");
+        }
+    }
+
+    /**
+     * Has no constructor without arguments
+     */
+    public static class Unmakeable extends Chatty {
+
+        public Unmakeable(int x) {}
+    }
+}
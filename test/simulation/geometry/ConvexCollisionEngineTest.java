@@ -0,0 +1,119 @@
+package simulation.geometry;
+
+import java.awt.Polygon;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the ConvexCollisionEngine class against the AreaCollisionEngine
+ *
+ * @author Simon
+ */
+public class ConvexCollisionEngineTest {
+    private final CollisionEngine area   = new AreaCollisionEngine();
+    private final CollisionEngine convex = new ConvexCollisionEngine();
+
+    /**
+     * Test of intersects method with rotated rectangles and circles, of class
+     * ConvexCollisionEngine.
+     */
+    @Test
+    public void testIntersects() {
+        System.out.println("intersects");
+
+        Random    rand = new Random(1);
+        RigidBody cup  = new RigidBody(50, 50, 10);
+
+        cup.rotate(0.7);
+        assertEquals(ConvexShape.Kind.CIRCLE, cup.getConvexShape().kind);
+
+        for (int i = 0; i < 500; i++) {
+            RigidBody a = randomBody(rand);
+            RigidBody b = randomBody(rand);
+
+            assertEquals(area.intersects(a, b), convex.intersects(a, b));
+        }
+    }
+
+    /**
+     * Test of intersects method with a concave terrain, of class
+     * ConvexCollisionEngine.
+     */
+    @Test
+    public void testConcave() {
+        System.out.println("concave");
+
+        Polygon l     = new Polygon(new int[] { 0, 200, 200, 50, 50, 0 }, new int[] { 0, 0, 50, 50, 200, 200 }, 6);
+        Terrain wall  = new Terrain(new RigidBody(l, new XPoint(0, 0)));
+        Random  rand  = new Random(2);
+
+        assertEquals(ConvexShape.Kind.POLYGONS, wall.getConvexShape().kind);
+        assertTrue(wall.getConvexShape().pieces.length > 1);
+
+        for (int i = 0; i < 500; i++) {
+            RigidBody body = randomBody(rand);
+
+            assertEquals(area.intersects(wall, body), convex.intersects(wall, body));
+            assertEquals(area.incidenceAngleCollision(wall, body).occurred(),
+                         convex.incidenceAngleCollision(wall, body).occurred());
+        }
+    }
+
+    /**
+     * Test of internalIncidenceAngleCollision and contains, of class
+     * ConvexCollisionEngine.
+     */
+    @Test
+    public void testInternal() {
+        System.out.println("internal");
+
+        Environment env  = new Environment();
+        Random      rand = new Random(3);
+
+        for (int i = 0; i < 300; i++) {
+            RigidBody body = randomBody(rand);
+
+            assertEquals(area.contains(env, body), convex.contains(env, body));
+            assertEquals(area.internalIncidenceAngleCollision(env, body).occurred(),
+                         convex.internalIncidenceAngleCollision(env, body).occurred());
+        }
+    }
+
+    /**
+     * Test of the incidence angle against a single wall, of class
+     * ConvexCollisionEngine.
+     */
+    @Test
+    public void testIncidenceAngle() {
+        System.out.println("incidenceAngle");
+
+        Terrain   wall = new Terrain(new RigidBody(100, 0, 20, 300));
+        RigidBody body = new RigidBody(80, 100, 30, 20);
+
+        body.rotate(0.3);
+
+        Collision expected = area.incidenceAngleCollision(wall, body);
+        Collision result   = convex.incidenceAngleCollision(wall, body);
+
+        assertTrue(result.occurred());
+        assertEquals(Math.cos(expected.getAngle()), Math.cos(result.getAngle()), 1e-9);
+        assertEquals(Math.sin(expected.getAngle()), Math.sin(result.getAngle()), 1e-9);
+    }
+
+    private static RigidBody randomBody(Random rand) {
+        double    x = rand.nextDouble() * 1000 - 100;
+        double    y = rand.nextDouble() * 800 - 100;
+        RigidBody body;
+
+        if (rand.nextBoolean()) {
+            body = new RigidBody(x, y, 5 + rand.nextDouble() * 60);
+        } else {
+            body = new RigidBody(x, y, 10 + rand.nextDouble() * 150, 10 + rand.nextDouble() * 150);
+            body.rotate(rand.nextDouble() * 2 * Math.PI);
+        }
+
+        return body;
+    }
+}
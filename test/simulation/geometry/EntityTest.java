@@ -0,0 +1,90 @@
+package simulation.geometry;
+
+import java.awt.geom.AffineTransform;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the Entity class
+ *
+ * @author Simon
+ */
+public class EntityTest {
+
+    /**
+     * Test of intersects method, of class Entity.
+     */
+    @Test
+    public void testIntersects() {
+        System.out.println("intersects");
+
+        Entity          a      = new Entity(0, 0, 10);
+        Entity          b      = new Entity(15, 0, 10);
+        Entity          c      = new Entity(500, 500, 10);
+        CollisionEngine engine = new AreaCollisionEngine();
+        CollisionEngine other  = new AreaCollisionEngine();
+
+        assertTrue(a.intersects(b));
+        assertFalse(a.intersects(c));
+        assertTrue(engine.intersects(a, b));
+        assertFalse(engine.intersects(a, c));
+        assertEquals(1, engine.getBoundsHits());
+        assertEquals(1, engine.getBoundsMisses());
+
+        // Overlapping boxes but not overlapping circles go on to the exact test
+        Entity d = new Entity(14.5, 14.5, 5);
+
+        assertFalse(a.intersects(d));
+        assertFalse(engine.intersects(a, d));
+        assertEquals(2, engine.getBoundsHits());
+
+        // Each engine counts its own tests
+        assertEquals(0, other.getBoundsHits());
+        assertEquals(0, other.getBoundsMisses());
+
+        engine.resetBoundsCounters();
+        assertEquals(0, engine.getBoundsHits());
+        assertEquals(0, engine.getBoundsMisses());
+    }
+
+    /**
+     * Test that the cached bounds follow a moved entity, of class Entity.
+     */
+    @Test
+    public void testBoundsAfterTransform() {
+        System.out.println("boundsAfterTransform");
+
+        Entity a = new Entity(0, 0, 10);
+        Entity c = new Entity(500, 500, 10);
+
+        assertFalse(a.boundsOverlap(c));
+
+        a.transform(AffineTransform.getTranslateInstance(495, 495));
+
+        assertTrue(a.boundsOverlap(c));
+        assertTrue(a.intersects(c));
+    }
+
+    /**
+     * Test of getVertices method, of class Entity.
+     */
+    @Test
+    public void testGetVertices() {
+        System.out.println("getVertices");
+
+        Entity   a        = new Entity(0, 0, 10, 20);
+        double[] vertices = a.getVertices();
+        int      version  = a.getShapeVersion();
+
+        assertSame(vertices, a.getVertices());
+        assertEquals(2 * a.getPolygon().size(), vertices.length);
+        assertEquals(a.getPolygon().getFirst().getX(), vertices[0], 0);
+
+        a.transform(AffineTransform.getTranslateInstance(5, 5));
+
+        assertTrue(version != a.getShapeVersion());
+        assertNotSame(vertices, a.getVertices());
+        assertEquals(vertices[0] + 5, a.getVertices()[0], 1e-9);
+    }
+}
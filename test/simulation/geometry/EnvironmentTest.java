@@ -0,0 +1,61 @@
+package simulation.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the Environment class
+ *
+ * @author Simon
+ */
+public class EnvironmentTest {
+
+    /**
+     * Test of contact method, of class Environment.
+     */
+    @Test
+    public void testContact() {
+        System.out.println("contact");
+
+        Environment env = new Environment(new RigidBody(0, 0, 1000, 1000));
+
+        env.createNewImpassableTerrain(new Entity(400, 400, 100, 100));
+        assertFalse(env.contact(new RigidBody(100, 100, 20, 40)).occurred());
+
+        // Through the bottom wall
+        Contact wall = env.contact(new RigidBody(100, 970, 20, 40));
+
+        assertEquals(0, wall.getNormalX(), 1e-9);
+        assertEquals(-1, wall.getNormalY(), 1e-9);
+        assertEquals(10, wall.getDepth(), 1e-9);
+
+        // Into the left of the terrain
+        Contact terrain = env.contact(new RigidBody(385, 420, 20, 40));
+
+        assertEquals(-1, terrain.getNormalX(), 1e-9);
+        assertEquals(0, terrain.getNormalY(), 1e-9);
+        assertEquals(5, terrain.getDepth(), 1e-9);
+
+        // A turned shape in a corner is pushed off the deeper wall first
+        RigidBody corner = new RigidBody(985, 990, 20, 20);
+
+        corner.rotate(0.1);
+
+        Contact first = env.contact(corner);
+
+        corner.translate(first.getNormalX() * (first.getDepth() + 1e-6),
+                         first.getNormalY() * (first.getDepth() + 1e-6));
+
+        Contact second = env.contact(corner);
+
+        assertTrue(first.getDepth() > second.getDepth());
+        corner.translate(second.getNormalX() * (second.getDepth() + 1e-6),
+                         second.getNormalY() * (second.getDepth() + 1e-6));
+        assertFalse(env.contact(corner).occurred());
+        assertFalse(env.obstructs(corner).occurred());
+
+        // Curves are left to the collision engines
+        assertNull(env.contact(new RigidBody(100, 100, 10)));
+    }
+}
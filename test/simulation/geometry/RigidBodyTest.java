@@ -0,0 +1,127 @@
+package simulation.geometry;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the RigidBody class
+ *
+ * @author Simon
+ */
+public class RigidBodyTest {
+
+    /**
+     * Test of moving a body by many small turns, of class RigidBody.
+     */
+    @Test
+    public void testPendingMoves() {
+        System.out.println("pendingMoves");
+
+        RigidBody body      = new RigidBody(100, 100, 20, 40);
+        Area      reference = new Area(new Rectangle2D.Double(100, 100, 20, 40));
+        int       version   = body.getShapeVersion();
+        XPoint    pivot     = new XPoint(130, 150);
+
+        for (int i = 0; i < 80; i++) {
+            body.rotateAboutPoint(Math.PI / 180, pivot);
+            reference.transform(AffineTransform.getRotateInstance(Math.PI / 180, 130, 150));
+        }
+
+        body.translate(5, -3);
+        reference.transform(AffineTransform.getTranslateInstance(5, -3));
+
+        // Bounds are known without rebuilding the Area
+        assertTrue(version != body.getShapeVersion());
+        assertRectEquals(reference.getBounds2D(), body.getBounds2D());
+        assertEquals(80 * Math.PI / 180, body.getAngle(), 1e-12);
+
+        // And reading the outline rebuilds it
+        double[] expected = Entity.vertices(reference);
+        double[] actual   = Entity.vertices(Entity.area(body));
+
+        assertEquals(expected.length, actual.length);
+
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i], 1e-9);
+        }
+
+        assertRectEquals(reference.getBounds2D(), body.getBounds2D());
+        assertTrue(body.contains(reference.getBounds2D().getCenterX(), reference.getBounds2D().getCenterY()));
+    }
+
+    /**
+     * Test of the flattened outline of a moved body, of class RigidBody.
+     */
+    @Test
+    public void testPendingConvexShape() {
+        System.out.println("pendingConvexShape");
+
+        RigidBody       square = new RigidBody(0, 0, 10, 10);
+        RigidBody       circle = new RigidBody(50, 50, 5);
+        RigidBody       wall   = new RigidBody(100, 0, 10, 200);
+        CollisionEngine engine = new ConvexCollisionEngine();
+
+        assertFalse(engine.intersects(square, wall));
+
+        square.rotate(Math.PI / 4);
+        square.place(98, 50);
+        circle.place(104, 120);
+
+        assertEquals(ConvexShape.Kind.POLYGONS, square.getConvexShape().kind);
+        assertEquals(ConvexShape.Kind.CIRCLE, circle.getConvexShape().kind);
+        assertEquals(104, circle.getConvexShape().cx, 1e-9);
+        assertEquals(120, circle.getConvexShape().cy, 1e-9);
+        assertTrue(engine.intersects(square, wall));
+        assertTrue(engine.intersects(circle, wall));
+        assertEquals(98 - 5 * Math.sqrt(2), square.getBounds2D().getMinX(), 1e-9);
+        assertEquals(99, circle.getBounds2D().getMinX(), 1e-6);
+
+        // Replacing the outline drops the pending move
+        square.rotate(1);
+        square.setShape(new RigidBody(0, 0, 10, 10));
+        assertRectEquals(new Rectangle2D.Double(0, 0, 10, 10), square.getBounds2D());
+        assertFalse(engine.intersects(square, wall));
+    }
+
+    /**
+     * Test that a body read after every one of many moves keeps its shape,
+     * of class RigidBody.
+     */
+    @Test
+    public void testNoDrift() {
+        System.out.println("noDrift");
+
+        RigidBody body  = new RigidBody(100, 100, 20, 40);
+        XPoint    pivot = new XPoint(300, 300);
+
+        for (int i = 0; i < 20000; i++) {
+            body.move(0.01, 0.3, -0.2);
+            body.rotateAboutPoint(-0.003, pivot);
+            Entity.area(body);
+        }
+
+        double[] v = Entity.vertices(Entity.area(body));
+
+        // The first four corners still make a 20 by 40 rectangle
+        for (int i = 0; i < 8; i += 2) {
+            int    j    = (i + 2) % 8;
+            int    k    = (i + 4) % 8;
+            double side = Math.hypot(v[j] - v[i], v[j + 1] - v[i + 1]);
+            double next = Math.hypot(v[k] - v[j], v[k + 1] - v[j + 1]);
+
+            assertEquals(20 * 40, side * next, 1e-9);
+            assertEquals(0, (v[j] - v[i]) * (v[k] - v[j]) + (v[j + 1] - v[i + 1]) * (v[k + 1] - v[j + 1]), 1e-9);
+        }
+    }
+
+    private static void assertRectEquals(Rectangle2D expected, Rectangle2D actual) {
+        assertEquals(expected.getMinX(), actual.getMinX(), 1e-9);
+        assertEquals(expected.getMinY(), actual.getMinY(), 1e-9);
+        assertEquals(expected.getMaxX(), actual.getMaxX(), 1e-9);
+        assertEquals(expected.getMaxY(), actual.getMaxY(), 1e-9);
+    }
+}
@@ -0,0 +1,111 @@
+package simulation.geometry;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the SpatialGrid class
+ *
+ * @author Simon
+ */
+public class SpatialGridTest {
+
+    /**
+     * Test of query by region, of class SpatialGrid.
+     */
+    @Test
+    public void testQueryRegion() {
+        System.out.println("queryRegion");
+
+        SpatialGrid<Entity> instance = new SpatialGrid<Entity>(50);
+        Entity              near     = new Entity(10, 10, 20, 20);
+        Entity              far      = new Entity(400, 400, 20, 20);
+        Entity              huge     = new Entity(-5000, -5000, 10000, 10000);
+
+        instance.add(near);
+        instance.add(far);
+        instance.add(huge);
+
+        List<Entity> result = instance.query(new Rectangle2D.Double(0, 0, 40, 40));
+
+        assertEquals(2, result.size());
+        assertSame(near, result.get(0));
+        assertSame(huge, result.get(1));
+        assertEquals(3, instance.size());
+    }
+
+    /**
+     * Test of query along a line, of class SpatialGrid.
+     */
+    @Test
+    public void testQueryLine() {
+        System.out.println("queryLine");
+
+        SpatialGrid<Entity> instance = new SpatialGrid<Entity>(50);
+        Entity              onLine   = new Entity(290, 290, 20, 20);
+        Entity              offLine  = new Entity(290, 10, 20, 20);
+
+        instance.add(offLine);
+        instance.add(onLine);
+
+        List<Entity> result = instance.query(0, 0, 400, 400);
+
+        assertEquals(1, result.size());
+        assertSame(onLine, result.get(0));
+
+        // Backwards along the same line
+        result = instance.query(400, 400, 0, 0);
+        assertEquals(1, result.size());
+        assertSame(onLine, result.get(0));
+    }
+
+    /**
+     * Test that moved entities are re-filed, of class SpatialGrid.
+     */
+    @Test
+    public void testShapeChanged() {
+        System.out.println("shapeChanged");
+
+        SpatialGrid<Entity> instance = new SpatialGrid<Entity>(50);
+        Entity              entity   = new Entity(10, 10, 20, 20);
+        Rectangle2D         start    = new Rectangle2D.Double(0, 0, 40, 40);
+        Rectangle2D         end      = new Rectangle2D.Double(500, 500, 40, 40);
+
+        instance.add(entity);
+        assertEquals(1, instance.query(start).size());
+
+        entity.transform(AffineTransform.getTranslateInstance(500, 500));
+
+        assertEquals(0, instance.query(start).size());
+        assertEquals(1, instance.query(end).size());
+    }
+
+    /**
+     * Test of remove and clear, of class SpatialGrid.
+     */
+    @Test
+    public void testRemove() {
+        System.out.println("remove");
+
+        SpatialGrid<Entity> instance = new SpatialGrid<Entity>();
+        Entity              a        = new Entity(10, 10, 20, 20);
+        Entity              b        = new Entity(20, 20, 20, 20);
+
+        instance.add(a);
+        instance.add(b);
+        assertFalse(instance.add(a));
+
+        assertTrue(instance.remove(a));
+        assertFalse(instance.contains(a));
+        assertNull(a.getShapeListener());
+        assertEquals(1, instance.query(new Rectangle2D.Double(0, 0, 100, 100)).size());
+
+        instance.clear();
+        assertTrue(instance.isEmpty());
+        assertEquals(0, instance.query(new Rectangle2D.Double(0, 0, 100, 100)).size());
+    }
+}
@@ -63,6 +63,27 @@ public class GPSTest {
         assertEquals(10, instance.getOutput().getX(), 10 * 0.2);
         assertEquals(20, instance.getOutput().getY(), 20 * 0.2);
     }
+
+    /**
+     * Test of analyse method, of class GPS, which must not move the host.
+     */
+    @Test
+    public void testHostUnmoved() {
+        System.out.println("analyse leaves the host unmoved");
+
+        // Set up test data
+        GPS                instance = new GPS(0.2);
+        XPoint             location = new XPoint(10, 20);
+        SensorTestingRobot robot    = new SensorTestingRobot(0, location, 0);
+
+        instance.setObject(robot);
+        instance.analyse(null, null, null);
+
+        // Check the reading is a copy
+        assertNotSame(location, instance.getOutput());
+        assertEquals(10, location.getX(), 0.0);
+        assertEquals(20, location.getY(), 0.0);
+    }
 }
 
 
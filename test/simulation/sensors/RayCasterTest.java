@@ -0,0 +1,93 @@
+package simulation.sensors;
+
+import org.junit.Test;
+
+import simulation.geometry.Environment;
+import simulation.geometry.RigidBody;
+import simulation.geometry.XPoint;
+
+import simulation.entities.Cup;
+
+import simulation.entities.Robot;
+
+import static org.junit.Assert.*;
+
+import java.util.EnumSet;
+import java.util.LinkedList;
+import java.util.Set;
+
+/**
+ * Tests the RayCaster class
+ *
+ * @author Simon
+ */
+public class RayCasterTest {
+    private static final Set<RayHit.Type> ALL = EnumSet.allOf(RayHit.Type.class);
+
+    /**
+     * Test of cast method against the walls, of class RayCaster.
+     */
+    @Test
+    public void testCastWall() {
+        System.out.println("cast wall");
+
+        Environment env = new Environment(new RigidBody(0, 0, 500, 500));
+        RayHit      hit = new RayHit();
+
+        RayCaster.cast(env, new LinkedList<Robot>(), new LinkedList<Cup>(), null, ALL, new XPoint(10, 10), 0, 1000,
+                       hit);
+
+        assertEquals(490, hit.getDistance(), 1e-9);
+        assertEquals(RayHit.Type.WALL, hit.getType());
+        assertSame(env, hit.getEntity());
+    }
+
+    /**
+     * Test of cast method against cups and terrain, of class RayCaster.
+     */
+    @Test
+    public void testCastNearest() {
+        System.out.println("cast nearest");
+
+        Environment     env  = new Environment(new RigidBody(0, 0, 500, 500));
+        LinkedList<Cup> cups = new LinkedList<Cup>();
+        RayHit          hit  = new RayHit();
+
+        env.createNewImpassableTerrain(new RigidBody(0, 200, 100, 50));
+        cups.add(new Cup(50, 100, true));
+
+        RayCaster.cast(env, new LinkedList<Robot>(), cups, null, ALL, new XPoint(50, 10), 0, 1000, hit);
+
+        assertEquals(RayHit.Type.CUP, hit.getType());
+        assertEquals(90 - Cup.DEFAULT_RADIUS, hit.getDistance(), 1e-9);
+
+        // Without cups the terrain behind is seen
+        RayCaster.cast(env, new LinkedList<Robot>(), cups, null, EnumSet.of(RayHit.Type.TERRAIN), new XPoint(50, 10),
+                       0, 1000, hit);
+
+        assertEquals(RayHit.Type.TERRAIN, hit.getType());
+        assertEquals(190, hit.getDistance(), 1e-9);
+    }
+
+    /**
+     * Test of castTo method, of class RayCaster.
+     */
+    @Test
+    public void testCastTo() {
+        System.out.println("castTo");
+
+        Environment env = new Environment(new RigidBody(0, 0, 500, 500));
+        RayHit      hit = new RayHit();
+
+        env.createNewImpassableTerrain(new RigidBody(100, 0, 20, 500));
+
+        RayCaster.castTo(env, null, null, null, ALL, new XPoint(50, 50), new XPoint(80, 50), hit);
+        assertFalse(hit.isHit());
+        assertEquals(30, hit.getDistance(), 1e-9);
+
+        RayCaster.castTo(env, null, null, null, ALL, new XPoint(50, 50), new XPoint(200, 50), hit);
+        assertTrue(hit.isHit());
+        assertEquals(RayHit.Type.TERRAIN, hit.getType());
+        assertEquals(50, hit.getDistance(), 1e-9);
+    }
+}